@@ -0,0 +1,430 @@
+package cn.iocoder.springboot.labs.lab09.graph;
+
+import java.util.Arrays;
+
+/**
+ * 基于 CSR（Compressed Sparse Row）存储的不可变图。
+ *
+ * {@link Graph} 使用 LinkedList 作为邻接表，通过 get(i) 读取邻居是 O(n) 的，并且 dfs 是递归实现，深度过大时会栈溢出。
+ * CSR 使用两个数组存储所有的边：
+ *
+ * 1. offsets ：长度为 v + 1 ，顶点 w 的邻居为 targets[offsets[w]] ~ targets[offsets[w + 1] - 1] 。
+ * 2. targets ：按照起点顺序，依次存储每条边的终点。
+ * 3. weights ：可选，和 targets 一一对应，存储每条边的权重。只有通过 {@link Builder#addEdge(int, int, int)} 添加过边时才存在。
+ *
+ * 遍历邻居是对数组的顺序访问，对 CPU 缓存非常友好。BFS、DFS 都是迭代实现，使用 int 数组作为队列、栈。
+ *
+ * 因为 targets 是 int 数组，有向边（无向边算两条）的总数不能超过 Integer.MAX_VALUE - 8 。
+ * 构建后只读，线程安全。
+ */
+public final class CsrGraph {
+
+    /**
+     * 顶点 w 的邻居，在 {@link #targets} 中的范围为 [offsets[w], offsets[w + 1])
+     */
+    final int[] offsets;
+    /**
+     * 所有边的终点
+     */
+    final int[] targets;
+    /**
+     * 所有边的权重，和 {@link #targets} 一一对应。无权图为 null
+     */
+    final int[] weights;
+
+    private CsrGraph(int[] offsets, int[] targets, int[] weights) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    public static Builder builder(boolean directed) {
+        return new Builder(directed);
+    }
+
+    /**
+     * 顶点的个数
+     */
+    public int vertexCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * 有向边的个数。无向边会被记为两条
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    public int degree(int w) {
+        return offsets[w + 1] - offsets[w];
+    }
+
+    /**
+     * 获得顶点 w 的第 i 个邻居，O(1)
+     */
+    public int neighbor(int w, int i) {
+        return targets[offsets[w] + i];
+    }
+
+    /**
+     * 获得顶点 w 的第 i 条边的权重。无权图的权重都为 1
+     */
+    public int weight(int w, int i) {
+        return weights != null ? weights[offsets[w] + i] : 1;
+    }
+
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    /**
+     * 获得顶点 w 的所有邻居（复制）
+     */
+    public int[] neighbors(int w) {
+        return Arrays.copyOfRange(targets, offsets[w], offsets[w + 1]);
+    }
+
+    /**
+     * 获得反向图，即所有边反向后的图。用于需要遍历入边的场景，例如说 {@link ParallelBfs} 的自底向上遍历
+     */
+    public CsrGraph transpose() {
+        int n = vertexCount();
+        int[] reverseOffsets = new int[n + 1];
+        for (int t : targets) {
+            reverseOffsets[t + 1]++;
+        }
+        for (int w = 0; w < n; w++) {
+            reverseOffsets[w + 1] += reverseOffsets[w];
+        }
+        int[] cursors = Arrays.copyOf(reverseOffsets, n);
+        int[] reverseTargets = new int[targets.length];
+        int[] reverseWeights = weights != null ? new int[weights.length] : null;
+        for (int s = 0; s < n; s++) {
+            for (int i = offsets[s], end = offsets[s + 1]; i < end; i++) {
+                int index = cursors[targets[i]]++;
+                reverseTargets[index] = s;
+                if (weights != null) {
+                    reverseWeights[index] = weights[i];
+                }
+            }
+        }
+        return new CsrGraph(reverseOffsets, reverseTargets, reverseWeights);
+    }
+
+    // ========== 遍历 ==========
+
+    /**
+     * 从 source 开始广度优先遍历
+     *
+     * @return 按照访问顺序排列的顶点
+     */
+    public int[] bfs(int source) {
+        int[] queue = new int[vertexCount()];
+        int count = bfs(source, -1, queue, new long[bitsetLength()], null);
+        return Arrays.copyOf(queue, count);
+    }
+
+    /**
+     * 广度优先搜索 s 到 t 的最短路径（边数最少）
+     *
+     * @return 路径上的顶点，从 s 到 t 。不存在时，返回空数组
+     */
+    public int[] bfs(int s, int t) {
+        int[] prev = newPrev();
+        bfs(s, t, new int[vertexCount()], new long[bitsetLength()], prev);
+        return path(prev, s, t);
+    }
+
+    /**
+     * 从 source 开始深度优先遍历，访问顺序和递归实现相同
+     *
+     * @return 按照访问顺序（前序）排列的顶点
+     */
+    public int[] dfs(int source) {
+        int[] order = new int[vertexCount()];
+        int count = dfs(source, -1, order, null);
+        return Arrays.copyOf(order, count);
+    }
+
+    /**
+     * 深度优先搜索 s 到 t 的一条路径
+     *
+     * @return 路径上的顶点，从 s 到 t 。不存在时，返回空数组
+     */
+    public int[] dfs(int s, int t) {
+        int[] prev = newPrev();
+        dfs(s, t, null, prev);
+        return path(prev, s, t);
+    }
+
+    /**
+     * 广度优先遍历。queue 同时也是访问顺序：每个顶点只入队一次，所以 queue 的长度为顶点数即可
+     *
+     * @param t       目标顶点，到达后立即结束。-1 表示遍历所有可达的顶点
+     * @param visited 已访问的顶点，每个顶点一位
+     * @param prev    记录哪个顶点走到这里，可以为 null
+     * @return 访问的顶点个数
+     */
+    private int bfs(int s, int t, int[] queue, long[] visited, int[] prev) {
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = s;
+        mark(visited, s);
+        if (s == t) {
+            return tail;
+        }
+        while (head < tail) {
+            int w = queue[head++];
+            for (int i = offsets[w], end = offsets[w + 1]; i < end; i++) {
+                int q = targets[i];
+                if (isMarked(visited, q)) {
+                    continue;
+                }
+                mark(visited, q);
+                if (prev != null) {
+                    prev[q] = w;
+                }
+                queue[tail++] = q;
+                // 判断是否到达目的地
+                if (q == t) {
+                    return tail;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * 深度优先遍历。使用两个 int 数组模拟递归的栈：栈中的顶点，以及该顶点下一个要访问的边
+     *
+     * @param t     目标顶点，到达后立即结束。-1 表示遍历所有可达的顶点
+     * @param order 记录访问顺序，可以为 null
+     * @param prev  记录哪个顶点走到这里，可以为 null
+     * @return 访问的顶点个数
+     */
+    private int dfs(int s, int t, int[] order, int[] prev) {
+        int n = vertexCount();
+        long[] visited = new long[bitsetLength()];
+        int[] stack = new int[n];
+        int[] cursors = new int[n];
+        int top = 0;
+        int count = 0;
+
+        stack[0] = s;
+        cursors[0] = offsets[s];
+        mark(visited, s);
+        if (order != null) {
+            order[count] = s;
+        }
+        count++;
+        if (s == t) {
+            return count;
+        }
+        while (top >= 0) {
+            int w = stack[top];
+            int cursor = cursors[top];
+            if (cursor == offsets[w + 1]) {
+                // 所有邻居都已访问，出栈
+                top--;
+                continue;
+            }
+            cursors[top] = cursor + 1;
+            int q = targets[cursor];
+            if (isMarked(visited, q)) {
+                continue;
+            }
+            mark(visited, q);
+            if (prev != null) {
+                prev[q] = w;
+            }
+            if (order != null) {
+                order[count] = q;
+            }
+            count++;
+            if (q == t) {
+                return count;
+            }
+            // 入栈，相当于递归调用
+            top++;
+            stack[top] = q;
+            cursors[top] = offsets[q];
+        }
+        return count;
+    }
+
+    private int[] newPrev() {
+        int[] prev = new int[vertexCount()];
+        Arrays.fill(prev, -1);
+        return prev;
+    }
+
+    /**
+     * 根据 prev 还原 s 到 t 的路径
+     */
+    private static int[] path(int[] prev, int s, int t) {
+        if (s != t && prev[t] == -1) {
+            return new int[0];
+        }
+        int length = 1;
+        for (int w = t; w != s; w = prev[w]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int w = t, i = length - 1; i >= 0; w = prev[w], i--) {
+            path[i] = w;
+        }
+        return path;
+    }
+
+    // ========== 位图 ==========
+
+    private int bitsetLength() {
+        return (vertexCount() + 63) >>> 6;
+    }
+
+    private static void mark(long[] bits, int w) {
+        bits[w >>> 6] |= 1L << w;
+    }
+
+    private static boolean isMarked(long[] bits, int w) {
+        return (bits[w >>> 6] & (1L << w)) != 0;
+    }
+
+    /**
+     * {@link CsrGraph} 的构建器。
+     *
+     * 边先追加到两个 int 数组（边表）中，{@link #build()} 时通过计数排序，在 O(v + e) 内转换成 CSR 。
+     * 同一顶点的邻居，保持添加的顺序。
+     */
+    public static final class Builder {
+
+        /**
+         * 是否为有向图。无向图的每条边，会在 CSR 中存储两个方向
+         */
+        private final boolean directed;
+
+        private int[] sources = new int[16];
+        private int[] destinations = new int[16];
+        /**
+         * 边的权重。添加第一条带权重的边时才创建，之前的边权重为 1
+         */
+        private int[] edgeWeights;
+        private int edgeCount;
+        /**
+         * 顶点的个数，为 {@link #ensureVertexCount(int)} 和最大顶点编号 + 1 中的较大者
+         */
+        private int vertexCount;
+
+        private Builder(boolean directed) {
+            this.directed = directed;
+        }
+
+        /**
+         * 声明顶点的个数。没有边的孤立顶点，需要通过它声明
+         */
+        public Builder ensureVertexCount(int vertexCount) {
+            this.vertexCount = Math.max(this.vertexCount, vertexCount);
+            return this;
+        }
+
+        public Builder addEdge(int s, int t) {
+            addEdge0(s, t);
+            if (edgeWeights != null) {
+                edgeWeights[edgeCount - 1] = 1;
+            }
+            return this;
+        }
+
+        /**
+         * 添加带权重的边
+         */
+        public Builder addEdge(int s, int t, int weight) {
+            addEdge0(s, t);
+            if (edgeWeights == null) {
+                edgeWeights = new int[sources.length];
+                Arrays.fill(edgeWeights, 0, edgeCount - 1, 1);
+            }
+            edgeWeights[edgeCount - 1] = weight;
+            return this;
+        }
+
+        private void addEdge0(int s, int t) {
+            if (s < 0 || t < 0) {
+                throw new IllegalArgumentException("顶点编号不能为负数：" + s + " -> " + t);
+            }
+            if (edgeCount == sources.length) {
+                int capacity = (int) Math.min((long) edgeCount << 1, Integer.MAX_VALUE - 8);
+                if (capacity == edgeCount) {
+                    throw new IllegalStateException("边的个数超过上限：" + edgeCount);
+                }
+                sources = Arrays.copyOf(sources, capacity);
+                destinations = Arrays.copyOf(destinations, capacity);
+                if (edgeWeights != null) {
+                    edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+                }
+            }
+            sources[edgeCount] = s;
+            destinations[edgeCount] = t;
+            edgeCount++;
+            vertexCount = Math.max(vertexCount, Math.max(s, t) + 1);
+        }
+
+        public CsrGraph build() {
+            long total = directed ? edgeCount : (long) edgeCount << 1;
+            if (total > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("边的个数超过 CSR 的上限：" + total);
+            }
+
+            // 统计每个顶点的出度，offsets[w + 1] 暂存顶点 w 的出度
+            int[] offsets = new int[vertexCount + 1];
+            for (int i = 0; i < edgeCount; i++) {
+                offsets[sources[i] + 1]++;
+                if (!directed) {
+                    offsets[destinations[i] + 1]++;
+                }
+            }
+            // 前缀和，得到每个顶点的起始位置
+            for (int w = 0; w < vertexCount; w++) {
+                offsets[w + 1] += offsets[w];
+            }
+
+            // 按照起点放置终点。cursors[w] 为顶点 w 下一个写入的位置
+            int[] cursors = Arrays.copyOf(offsets, vertexCount);
+            int[] targets = new int[(int) total];
+            int[] weights = edgeWeights != null ? new int[(int) total] : null;
+            for (int i = 0; i < edgeCount; i++) {
+                int s = sources[i];
+                int t = destinations[i];
+                int index = cursors[s]++;
+                targets[index] = t;
+                if (weights != null) {
+                    weights[index] = edgeWeights[i];
+                }
+                if (!directed) {
+                    index = cursors[t]++;
+                    targets[index] = s;
+                    if (weights != null) {
+                        weights[index] = edgeWeights[i];
+                    }
+                }
+            }
+            return new CsrGraph(offsets, targets, weights);
+        }
+
+    }
+
+    public static void main(String[] args) {
+        CsrGraph graph = CsrGraph.builder(false)
+                .ensureVertexCount(10)
+                .addEdge(1, 3)
+                .addEdge(3, 5)
+                .addEdge(5, 7)
+                .addEdge(1, 7)
+                .build();
+        System.out.println(Arrays.toString(graph.bfs(1, 7))); // [1, 7]
+        System.out.println(Arrays.toString(graph.dfs(1, 7))); // [1, 3, 5, 7]
+        System.out.println(Arrays.toString(graph.bfs(1, 9))); // []
+    }
+
+}
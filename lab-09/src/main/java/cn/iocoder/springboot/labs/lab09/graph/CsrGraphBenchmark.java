@@ -0,0 +1,79 @@
+package cn.iocoder.springboot.labs.lab09.graph;
+
+import java.util.Random;
+
+/**
+ * {@link CsrGraph} 的构建、遍历耗时，以及和 {@link Graph} 的 BFS 耗时对比。
+ *
+ * 使用方式：java CsrGraphBenchmark [顶点数] [边数]
+ * 1 亿条边的无向图，CSR 需要约 800 MB（两个方向），构建器的边表约 800 MB ，建议使用 -Xmx4g 运行。
+ *
+ * {@link Graph#bfs(int, int)} 是 O(v * e) 的，所以只在小图上对比。目标顶点是一个孤立顶点，保证遍历所有可达的顶点。
+ */
+public class CsrGraphBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    private static final int SMALL_VERTEX_COUNT = 20_000;
+
+    private static final int SMALL_EDGE_COUNT = 100_000;
+
+    public static void main(String[] args) {
+        int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int edgeCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+
+        // 多轮执行，前几轮用于 JIT 预热
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("第 " + (round + 1) + " 轮");
+            benchmarkSmall();
+            benchmarkLarge(vertexCount, edgeCount);
+        }
+    }
+
+    private static void benchmarkSmall() {
+        Random random = new Random(0);
+        // 最后一个顶点为孤立顶点
+        Graph graph = new Graph(SMALL_VERTEX_COUNT);
+        CsrGraph.Builder builder = CsrGraph.builder(false).ensureVertexCount(SMALL_VERTEX_COUNT);
+        for (int i = 0; i < SMALL_EDGE_COUNT; i++) {
+            int s = random.nextInt(SMALL_VERTEX_COUNT - 1);
+            int t = random.nextInt(SMALL_VERTEX_COUNT - 1);
+            graph.addEdge(s, t);
+            builder.addEdge(s, t);
+        }
+        CsrGraph csrGraph = builder.build();
+
+        long start = System.nanoTime();
+        graph.bfs(0, SMALL_VERTEX_COUNT - 1);
+        long graphNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        csrGraph.bfs(0, SMALL_VERTEX_COUNT - 1);
+        long csrNanos = System.nanoTime() - start;
+        System.out.println(String.format("顶点：%d，边：%d，Graph BFS：%d ms，CsrGraph BFS：%.2f ms",
+                SMALL_VERTEX_COUNT, SMALL_EDGE_COUNT, graphNanos / 1_000_000, csrNanos / 1e6));
+    }
+
+    private static void benchmarkLarge(int vertexCount, int edgeCount) {
+        Random random = new Random(0);
+        long start = System.nanoTime();
+        CsrGraph.Builder builder = CsrGraph.builder(false).ensureVertexCount(vertexCount);
+        for (int i = 0; i < edgeCount; i++) {
+            builder.addEdge(random.nextInt(vertexCount), random.nextInt(vertexCount));
+        }
+        CsrGraph graph = builder.build();
+        long buildNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int bfsCount = graph.bfs(0).length;
+        long bfsNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int dfsCount = graph.dfs(0).length;
+        long dfsNanos = System.nanoTime() - start;
+        System.out.println(String.format("顶点：%d，边：%d，构建：%d ms，BFS：%d ms（访问 %d），DFS：%d ms（访问 %d）",
+                vertexCount, edgeCount, buildNanos / 1_000_000,
+                bfsNanos / 1_000_000, bfsCount, dfsNanos / 1_000_000, dfsCount));
+    }
+
+}
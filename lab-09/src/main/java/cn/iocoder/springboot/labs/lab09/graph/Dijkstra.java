@@ -0,0 +1,291 @@
+package cn.iocoder.springboot.labs.lab09.graph;
+
+import java.util.Arrays;
+
+/**
+ * 基于 {@link CsrGraph} 和 {@link IndexedDaryHeap} 的 Dijkstra 最短路径。
+ *
+ * {@link DijkstraTest.Graph} 使用 LinkedList 存储 Edge 对象，每次松弛都要创建 Vertex 对象。这里：
+ *
+ * 1. 边、权重都存储在 CSR 的 int 数组中。
+ * 2. 优先队列使用索引 4 叉堆，松弛时直接 decrease-key ，每个顶点最多在堆中出现一次。
+ * 3. 距离、前驱等状态数组在多次查询之间复用，每次查询只重置被访问过的顶点。
+ *    千万级顶点的图上，一次短距离查询不需要 O(v) 的初始化。
+ * 4. 点到点查询时，到达终点立即结束；如果传入了反向图，则使用双向搜索，两边同时扩展，访问的顶点数大幅减少。
+ *
+ * 权重不能为负数。距离使用 long 存储，不可达时为 -1 。
+ *
+ * 非线程安全，多线程查询时，每个线程使用各自的实例。
+ */
+public class Dijkstra {
+
+    private static final long INFINITY = Long.MAX_VALUE;
+
+    /**
+     * 单个方向的搜索状态
+     */
+    private static final class Search {
+
+        private final CsrGraph graph;
+        /**
+         * 从起点到达此处的最短距离，未访问为 {@link #INFINITY}
+         */
+        private final long[] distances;
+        /**
+         * 记录哪个顶点走到这里，未访问为 -1
+         */
+        private final int[] prev;
+        private final IndexedDaryHeap heap;
+        /**
+         * 本次查询访问过的顶点，用于重置
+         */
+        private final int[] touched;
+        private int touchedCount;
+        /**
+         * 本次查询出堆（确定最短距离）的顶点数
+         */
+        private int settledCount;
+
+        private Search(CsrGraph graph) {
+            int n = graph.vertexCount();
+            this.graph = graph;
+            this.distances = new long[n];
+            Arrays.fill(distances, INFINITY);
+            this.prev = new int[n];
+            Arrays.fill(prev, -1);
+            this.heap = new IndexedDaryHeap(n);
+            this.touched = new int[n];
+        }
+
+        private void reset(int source) {
+            for (int i = 0; i < touchedCount; i++) {
+                int w = touched[i];
+                distances[w] = INFINITY;
+                prev[w] = -1;
+            }
+            touchedCount = 0;
+            settledCount = 0;
+            heap.clear();
+
+            distances[source] = 0;
+            touched[touchedCount++] = source;
+            heap.insertOrDecrease(source, 0);
+        }
+
+        /**
+         * 出堆一个顶点，并松弛它的所有出边
+         *
+         * @param other 另一个方向的搜索，用于双向搜索时更新相遇点。单向搜索时为 null
+         * @param best  other 不为 null 时，best[0] 为目前最短的距离，best[1] 为相遇点
+         * @return 出堆的顶点
+         */
+        private int settle(Search other, long[] best) {
+            int u = heap.poll();
+            settledCount++;
+            long distance = distances[u];
+            int[] offsets = graph.offsets;
+            int[] targets = graph.targets;
+            int[] weights = graph.weights;
+            for (int i = offsets[u], end = offsets[u + 1]; i < end; i++) {
+                int v = targets[i];
+                long candidate = distance + (weights != null ? weights[i] : 1);
+                if (candidate < distances[v]) {
+                    if (distances[v] == INFINITY) {
+                        touched[touchedCount++] = v;
+                    }
+                    distances[v] = candidate;
+                    prev[v] = u;
+                    heap.insertOrDecrease(v, candidate);
+                }
+                // 判断两个方向是否在 v 相遇
+                if (other != null && other.distances[v] != INFINITY) {
+                    long total = distances[v] + other.distances[v];
+                    if (total < best[0]) {
+                        best[0] = total;
+                        best[1] = v;
+                    }
+                }
+            }
+            return u;
+        }
+
+    }
+
+    private final Search forward;
+    /**
+     * 反向搜索，只有传入反向图时才存在
+     */
+    private final Search backward;
+    /**
+     * 双向搜索时，best[0] 为目前最短的距离，best[1] 为相遇点
+     */
+    private final long[] best = new long[2];
+
+    /**
+     * 单向搜索
+     */
+    public Dijkstra(CsrGraph graph) {
+        this(graph, null);
+    }
+
+    /**
+     * @param incoming 反向图，可以通过 {@link CsrGraph#transpose()} 获得。传入后，点到点查询使用双向搜索。
+     *                 无向图可以直接传入 graph 本身
+     */
+    public Dijkstra(CsrGraph graph, CsrGraph incoming) {
+        checkWeights(graph);
+        if (incoming != null && incoming.vertexCount() != graph.vertexCount()) {
+            throw new IllegalArgumentException("反向图的顶点数不一致");
+        }
+        this.forward = new Search(graph);
+        this.backward = incoming != null ? new Search(incoming) : null;
+    }
+
+    /**
+     * 单源最短路径，计算 source 到所有顶点的最短距离
+     *
+     * @return 最短距离，不可达为 -1
+     */
+    public long[] distances(int source) {
+        forward.reset(source);
+        if (backward != null) {
+            backward.settledCount = 0;
+        }
+        while (!forward.heap.isEmpty()) {
+            forward.settle(null, null);
+        }
+        long[] result = new long[forward.distances.length];
+        for (int w = 0; w < result.length; w++) {
+            long distance = forward.distances[w];
+            result[w] = distance != INFINITY ? distance : -1;
+        }
+        return result;
+    }
+
+    /**
+     * 点到点的最短距离
+     *
+     * @return 最短距离，不可达为 -1
+     */
+    public long distance(int s, int t) {
+        if (backward != null) {
+            return bidirectional(s, t) ? best[0] : -1;
+        }
+        return unidirectional(s, t) ? forward.distances[t] : -1;
+    }
+
+    /**
+     * 点到点的最短路径
+     *
+     * @return 路径上的顶点，从 s 到 t 。不可达时，返回空数组
+     */
+    public int[] path(int s, int t) {
+        if (backward == null) {
+            return unidirectional(s, t) ? prefix(s, t) : new int[0];
+        }
+        if (!bidirectional(s, t)) {
+            return new int[0];
+        }
+        // 正向：s ~ meet ，反向：meet ~ t
+        int meet = (int) best[1];
+        int[] prefix = prefix(s, meet);
+        int length = prefix.length;
+        for (int w = meet; w != t; w = backward.prev[w]) {
+            length++;
+        }
+        int[] path = Arrays.copyOf(prefix, length);
+        for (int w = meet, i = prefix.length; w != t; i++) {
+            w = backward.prev[w];
+            path[i] = w;
+        }
+        return path;
+    }
+
+    /**
+     * 最近一次查询出堆的顶点数，两个方向之和
+     */
+    public int settledCount() {
+        return forward.settledCount + (backward != null ? backward.settledCount : 0);
+    }
+
+    private boolean unidirectional(int s, int t) {
+        forward.reset(s);
+        while (!forward.heap.isEmpty()) {
+            // 到达终点，立即结束
+            if (forward.settle(null, null) == t) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 双向搜索，结果记录在 {@link #best} 中
+     *
+     * @return 是否可达
+     */
+    private boolean bidirectional(int s, int t) {
+        forward.reset(s);
+        backward.reset(t);
+        best[0] = s == t ? 0 : INFINITY;
+        best[1] = s;
+        // 任意一个方向的堆为空，说明该方向可达的顶点都已出堆，best 已经是最终结果
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()) {
+            // 两个堆顶之和不小于目前最短的距离，不可能再找到更短的路径
+            if (forward.heap.peekPriority() + backward.heap.peekPriority() >= best[0]) {
+                break;
+            }
+            // 扩展堆较小的方向
+            if (forward.heap.size() <= backward.heap.size()) {
+                forward.settle(backward, best);
+            } else {
+                backward.settle(forward, best);
+            }
+        }
+        return best[0] != INFINITY;
+    }
+
+    /**
+     * 根据正向搜索的 prev ，还原 s 到 t 的路径
+     */
+    private int[] prefix(int s, int t) {
+        int length = 1;
+        for (int w = t; w != s; w = forward.prev[w]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int w = t, i = length - 1; i >= 0; w = forward.prev[w], i--) {
+            path[i] = w;
+        }
+        return path;
+    }
+
+    private static void checkWeights(CsrGraph graph) {
+        if (graph.weights == null) {
+            return;
+        }
+        for (int weight : graph.weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Dijkstra 不支持负权重：" + weight);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        CsrGraph graph = CsrGraph.builder(true)
+                .addEdge(0, 1, 10)
+                .addEdge(0, 4, 15)
+                .addEdge(1, 2, 15)
+                .addEdge(1, 3, 2)
+                .addEdge(2, 5, 5)
+                .addEdge(3, 2, 1)
+                .addEdge(3, 5, 12)
+                .addEdge(4, 5, 10)
+                .build();
+        Dijkstra dijkstra = new Dijkstra(graph, graph.transpose());
+        System.out.println(dijkstra.distance(0, 5));                   // 18
+        System.out.println(Arrays.toString(dijkstra.path(0, 5)));      // [0, 1, 3, 2, 5]
+        System.out.println(Arrays.toString(new Dijkstra(graph).distances(0))); // [0, 10, 13, 12, 15, 18]
+    }
+
+}
@@ -0,0 +1,87 @@
+package cn.iocoder.springboot.labs.lab09.graph;
+
+import java.util.Random;
+
+/**
+ * {@link Dijkstra}（单向、双向）和 {@link DijkstraTest.Graph#dijkstra(int, int)} 的点到点查询耗时对比。
+ *
+ * 使用方式：java DijkstraBenchmark [网格边长] [查询次数]
+ * 使用 side * side 的网格图模拟路网，每个顶点和上下左右相连（双向），权重为 1 ~ 100 的随机数。
+ * 边长 3163 时约 1000 万顶点、4000 万条有向边，{@link DijkstraTest.Graph} 需要的内存较大，建议使用 -Xmx4g 运行。
+ */
+public class DijkstraBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int vertexCount = side * side;
+
+        Random random = new Random(0);
+        DijkstraTest.Graph graph = new DijkstraTest.Graph(vertexCount);
+        CsrGraph.Builder builder = CsrGraph.builder(true).ensureVertexCount(vertexCount);
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                int w = row * side + column;
+                if (column + 1 < side) {
+                    addRoad(graph, builder, w, w + 1, 1 + random.nextInt(100));
+                }
+                if (row + 1 < side) {
+                    addRoad(graph, builder, w, w + side, 1 + random.nextInt(100));
+                }
+            }
+        }
+        CsrGraph csrGraph = builder.build();
+        Dijkstra unidirectional = new Dijkstra(csrGraph);
+        Dijkstra bidirectional = new Dijkstra(csrGraph, csrGraph.transpose());
+
+        int[] sources = new int[queryCount];
+        int[] targets = new int[queryCount];
+        for (int i = 0; i < queryCount; i++) {
+            sources[i] = random.nextInt(vertexCount);
+            targets[i] = random.nextInt(vertexCount);
+        }
+        System.out.println(String.format("顶点：%d，有向边：%d，查询：%d", vertexCount, csrGraph.edgeCount(), queryCount));
+
+        // 多轮执行，前几轮用于 JIT 预热
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("第 " + (round + 1) + " 轮");
+            long[] expected = new long[queryCount];
+            long start = System.nanoTime();
+            for (int i = 0; i < queryCount; i++) {
+                expected[i] = graph.dijkstra(sources[i], targets[i]);
+            }
+            print("DijkstraTest", System.nanoTime() - start, queryCount, -1);
+
+            benchmark("Dijkstra-单向", unidirectional, sources, targets, expected);
+            benchmark("Dijkstra-双向", bidirectional, sources, targets, expected);
+        }
+    }
+
+    private static void addRoad(DijkstraTest.Graph graph, CsrGraph.Builder builder, int s, int t, int weight) {
+        graph.addEdge(s, t, weight);
+        graph.addEdge(t, s, weight);
+        builder.addEdge(s, t, weight);
+        builder.addEdge(t, s, weight);
+    }
+
+    private static void benchmark(String name, Dijkstra dijkstra, int[] sources, int[] targets, long[] expected) {
+        long settled = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < sources.length; i++) {
+            long distance = dijkstra.distance(sources[i], targets[i]);
+            if (distance != expected[i]) {
+                throw new IllegalStateException(name + " 结果不一致：" + distance + " != " + expected[i]);
+            }
+            settled += dijkstra.settledCount();
+        }
+        print(name, System.nanoTime() - start, sources.length, settled / sources.length);
+    }
+
+    private static void print(String name, long nanos, int queryCount, long settled) {
+        System.out.println(String.format("%-14s 平均耗时：%8.2f ms%s", name, nanos / 1e6 / queryCount,
+                settled >= 0 ? String.format("，平均出堆：%d", settled) : ""));
+    }
+
+}
@@ -1,8 +1,15 @@
 package cn.iocoder.springboot.labs.lab09.graph;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.PriorityQueue;
 
+/**
+ * Dijkstra 最短路径的教学实现。
+ *
+ * 生产环境（大规模的图、多次查询），使用 {@link Dijkstra} 。
+ */
 public class DijkstraTest {
 
     public static class Graph {
@@ -28,6 +35,41 @@ public class DijkstraTest {
             adj[s].add(new Edge(s, t, w));
         }
 
+        /**
+         * 计算 s 到 t 的最短距离，不可达时返回 -1
+         */
+        public int dijkstra(int s, int t) {
+            // 初始化最短距离
+            int[] dist = new int[v];
+            Arrays.fill(dist, Integer.MAX_VALUE);
+            dist[s] = 0;
+            // 已确定最短距离的顶点
+            boolean[] visited = new boolean[v];
+
+            // PriorityQueue 不支持更新，所以距离变短时，重新插入一个 Vertex ，出队时跳过过期的
+            PriorityQueue<Vertex> queue = new PriorityQueue<>((o1, o2) -> Integer.compare(o1.dist, o2.dist));
+            queue.add(new Vertex(s, 0));
+            while (!queue.isEmpty()) {
+                Vertex minVertex = queue.poll();
+                if (visited[minVertex.id]) {
+                    continue;
+                }
+                visited[minVertex.id] = true;
+                // 到达目的地
+                if (minVertex.id == t) {
+                    return minVertex.dist;
+                }
+                for (Edge e : adj[minVertex.id]) {
+                    int nextDist = minVertex.dist + e.w;
+                    if (nextDist < dist[e.t]) {
+                        dist[e.t] = nextDist;
+                        queue.add(new Vertex(e.t, nextDist));
+                    }
+                }
+            }
+            return -1;
+        }
+
     }
 
     public static class Edge {
@@ -65,6 +107,11 @@ public class DijkstraTest {
          */
         private int dist;
 
+        public Vertex(int id, int dist) {
+            this.id = id;
+            this.dist = dist;
+        }
+
     }
 
 
@@ -6,6 +6,11 @@ import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * 基于邻接表的无向图。
+ *
+ * 用于演示 BFS、DFS 的思路。大规模的图，使用 {@link CsrGraph} 。
+ */
 public class Graph {
 
     /**
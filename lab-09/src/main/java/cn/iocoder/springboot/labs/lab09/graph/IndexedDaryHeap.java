@@ -0,0 +1,156 @@
+package cn.iocoder.springboot.labs.lab09.graph;
+
+import java.util.Arrays;
+
+/**
+ * 索引 4 叉最小堆。元素为 [0, capacity) 范围内的 int 编号，优先级为 long 。
+ *
+ * 和 {@link java.util.PriorityQueue} 相比：
+ *
+ * 1. 通过 positions 记录每个编号在堆中的位置，可以直接 decrease-key ，不需要重复插入（lazy deletion）。
+ * 2. 编号、优先级都存储在基本类型数组中，不创建任何对象。
+ * 3. 4 叉堆的高度是二叉堆的一半，并且同一个节点的 4 个孩子在数组中相邻，对 CPU 缓存更友好。
+ *
+ * 非线程安全。
+ */
+public class IndexedDaryHeap {
+
+    private static final int ARITY = 4;
+
+    /**
+     * 堆中的编号，heap[0] 为堆顶
+     */
+    private int[] heap;
+    /**
+     * 和 {@link #heap} 一一对应的优先级
+     */
+    private long[] priorities;
+    /**
+     * 编号在堆中的位置，不在堆中时为 -1
+     */
+    private final int[] positions;
+    private int size;
+
+    public IndexedDaryHeap(int capacity) {
+        this.positions = new int[capacity];
+        Arrays.fill(positions, -1);
+        int initialCapacity = Math.min(capacity, 1024);
+        this.heap = new int[initialCapacity];
+        this.priorities = new long[initialCapacity];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int id) {
+        return positions[id] >= 0;
+    }
+
+    /**
+     * 插入编号 id 。如果已经在堆中，并且 priority 更小，则降低它的优先级
+     *
+     * @return 是否插入或者修改
+     */
+    public boolean insertOrDecrease(int id, long priority) {
+        int position = positions[id];
+        if (position >= 0) {
+            if (priority >= priorities[position]) {
+                return false;
+            }
+            siftUp(position, id, priority);
+            return true;
+        }
+        if (size == heap.length) {
+            int capacity = (int) Math.min((long) size << 1, positions.length);
+            heap = Arrays.copyOf(heap, capacity);
+            priorities = Arrays.copyOf(priorities, capacity);
+        }
+        siftUp(size++, id, priority);
+        return true;
+    }
+
+    /**
+     * 堆顶的编号
+     */
+    public int peek() {
+        return heap[0];
+    }
+
+    /**
+     * 堆顶的优先级，即最小的优先级。堆为空时，返回 Long.MAX_VALUE
+     */
+    public long peekPriority() {
+        return size > 0 ? priorities[0] : Long.MAX_VALUE;
+    }
+
+    /**
+     * 移除并返回堆顶的编号
+     */
+    public int poll() {
+        int top = heap[0];
+        positions[top] = -1;
+        size--;
+        if (size > 0) {
+            siftDown(0, heap[size], priorities[size]);
+        }
+        return top;
+    }
+
+    /**
+     * 清空堆。只需要重置堆中剩余编号的位置，时间复杂度为 O(size) ，和 capacity 无关
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int position, int id, long priority) {
+        while (position > 0) {
+            int parent = (position - 1) / ARITY;
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            // 父节点下移
+            place(position, heap[parent], priorities[parent]);
+            position = parent;
+        }
+        place(position, id, priority);
+    }
+
+    private void siftDown(int position, int id, long priority) {
+        while (true) {
+            int firstChild = position * ARITY + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            // 找到最小的孩子
+            int minChild = firstChild;
+            for (int child = firstChild + 1, end = Math.min(firstChild + ARITY, size); child < end; child++) {
+                if (priorities[child] < priorities[minChild]) {
+                    minChild = child;
+                }
+            }
+            if (priorities[minChild] >= priority) {
+                break;
+            }
+            // 孩子上移
+            place(position, heap[minChild], priorities[minChild]);
+            position = minChild;
+        }
+        place(position, id, priority);
+    }
+
+    private void place(int position, int id, long priority) {
+        heap[position] = id;
+        priorities[position] = priority;
+        positions[id] = position;
+    }
+
+}
@@ -0,0 +1,381 @@
+package cn.iocoder.springboot.labs.lab09.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于 {@link ForkJoinPool} 的并行 BFS ，按层同步，并在自顶向下、自底向上两种方向之间切换（direction-optimizing）。
+ *
+ * {@link Graph#bfs(int, int)} 单线程遍历，并且只打印路径。这里，每一层的遍历拆分成多个区间，交给 ForkJoinPool 并行执行：
+ *
+ * 1. 自顶向下（top-down）：遍历当前层（frontier）顶点的出边，通过 CAS 抢占未访问的顶点，加入下一层。
+ *    适合 frontier 较小的时候。
+ * 2. 自底向上（bottom-up）：遍历所有未访问的顶点，检查它的入边中，是否有顶点在 frontier 中，找到一个即可停止。
+ *    frontier 很大时（通常是中间的几层），大部分边都会指向已访问的顶点，自底向上可以跳过大量无效的边。
+ *
+ * 切换的条件参考 Beamer 的论文：frontier 的出边数 mf 超过未访问顶点的出边数 mu / alpha 时，切换成自底向上；
+ * frontier 的顶点数 nf 小于 n / beta 时，切换回自顶向下。
+ *
+ * 已访问的顶点使用 {@link AtomicLongArray} 位图记录。自底向上时，每个任务负责的区间按照 64 对齐，
+ * 同一个 long 只会被一个任务修改，不需要 CAS 。
+ */
+public class ParallelBfs {
+
+    /**
+     * 每个任务至少处理的顶点数。自底向上时，必须是 64 的倍数
+     */
+    private static final int GRAIN = 1024;
+
+    private static final int DEFAULT_ALPHA = 14;
+
+    private static final int DEFAULT_BETA = 24;
+
+    /**
+     * BFS 的结果
+     */
+    public static class Result {
+
+        /**
+         * 记录哪个顶点走到这里。起点、不可达的顶点为 -1
+         */
+        private final int[] prev;
+        /**
+         * 从起点到达此处的边数。不可达的顶点为 -1
+         */
+        private final int[] distances;
+        /**
+         * 层数，即最大距离 + 1
+         */
+        private final int levels;
+        /**
+         * 使用自底向上遍历的层数
+         */
+        private final int bottomUpLevels;
+
+        private Result(int[] prev, int[] distances, int levels, int bottomUpLevels) {
+            this.prev = prev;
+            this.distances = distances;
+            this.levels = levels;
+            this.bottomUpLevels = bottomUpLevels;
+        }
+
+        public int[] prev() {
+            return prev;
+        }
+
+        public int[] distances() {
+            return distances;
+        }
+
+        public int levels() {
+            return levels;
+        }
+
+        public int bottomUpLevels() {
+            return bottomUpLevels;
+        }
+
+    }
+
+    private final CsrGraph graph;
+    /**
+     * 反向图，用于自底向上遍历入边。无向图时，和 {@link #graph} 相同
+     */
+    private final CsrGraph incoming;
+    private final ForkJoinPool pool;
+    private final int alpha;
+    private final int beta;
+
+    /**
+     * 无向图（或者说，每条边都存储了两个方向的图）
+     */
+    public ParallelBfs(CsrGraph graph, ForkJoinPool pool) {
+        this(graph, graph, pool, DEFAULT_ALPHA, DEFAULT_BETA);
+    }
+
+    /**
+     * @param incoming 反向图，可以通过 {@link CsrGraph#transpose()} 获得
+     */
+    public ParallelBfs(CsrGraph graph, CsrGraph incoming, ForkJoinPool pool, int alpha, int beta) {
+        if (graph.vertexCount() != incoming.vertexCount()) {
+            throw new IllegalArgumentException("反向图的顶点数不一致");
+        }
+        this.graph = graph;
+        this.incoming = incoming;
+        this.pool = pool;
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    public Result bfs(int source) {
+        int n = graph.vertexCount();
+        int[] prev = new int[n];
+        Arrays.fill(prev, -1);
+        int[] distances = new int[n];
+        Arrays.fill(distances, -1);
+        AtomicLongArray visited = new AtomicLongArray((n + 63) >>> 6);
+
+        distances[source] = 0;
+        tryMark(visited, source);
+        // 自顶向下时，frontier 为顶点列表；自底向上时，frontier 为位图
+        int[] frontier = new int[n];
+        int[] next = new int[n];
+        frontier[0] = source;
+        long[] frontierBits = null;
+        int frontierSize = 1;
+        long frontierEdges = graph.degree(source);
+        long unvisitedEdges = graph.edgeCount() - frontierEdges;
+
+        boolean topDown = true;
+        int level = 0;
+        int bottomUpLevels = 0;
+        while (frontierSize > 0) {
+            // 选择方向
+            if (topDown && frontierEdges > unvisitedEdges / alpha) {
+                topDown = false;
+                frontierBits = toBits(frontier, frontierSize, n);
+            } else if (!topDown && frontierSize < n / beta) {
+                topDown = true;
+                frontierSize = toList(frontierBits, frontier);
+            }
+
+            LongAdder nextSize = new LongAdder();
+            LongAdder nextEdges = new LongAdder();
+            if (topDown) {
+                AtomicInteger tail = new AtomicInteger();
+                pool.invoke(new TopDownTask(frontier, 0, frontierSize, next, tail, visited, prev, distances,
+                        level + 1, nextEdges));
+                nextSize.add(tail.get());
+                int[] temp = frontier;
+                frontier = next;
+                next = temp;
+            } else {
+                long[] nextBits = new long[frontierBits.length];
+                pool.invoke(new BottomUpTask(frontierBits, nextBits, 0, n, visited, prev, distances,
+                        level + 1, nextSize, nextEdges));
+                frontierBits = nextBits;
+                bottomUpLevels++;
+            }
+
+            frontierSize = nextSize.intValue();
+            frontierEdges = nextEdges.sum();
+            unvisitedEdges -= frontierEdges;
+            level++;
+        }
+        return new Result(prev, distances, level, bottomUpLevels);
+    }
+
+    /**
+     * 自顶向下：遍历 frontier[from, to) 的出边
+     */
+    @SuppressWarnings("serial")
+    private final class TopDownTask extends RecursiveAction {
+
+        private final int[] frontier;
+        private final int from;
+        private final int to;
+        /**
+         * 下一层的顶点列表，通过 tail 分配写入的区间
+         */
+        private final int[] next;
+        private final AtomicInteger tail;
+        private final AtomicLongArray visited;
+        private final int[] prev;
+        private final int[] distances;
+        private final int distance;
+        private final LongAdder nextEdges;
+
+        private TopDownTask(int[] frontier, int from, int to, int[] next, AtomicInteger tail, AtomicLongArray visited,
+                            int[] prev, int[] distances, int distance, LongAdder nextEdges) {
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.next = next;
+            this.tail = tail;
+            this.visited = visited;
+            this.prev = prev;
+            this.distances = distances;
+            this.distance = distance;
+            this.nextEdges = nextEdges;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TopDownTask(frontier, from, middle, next, tail, visited, prev, distances, distance, nextEdges),
+                        new TopDownTask(frontier, middle, to, next, tail, visited, prev, distances, distance, nextEdges));
+                return;
+            }
+
+            int[] offsets = graph.offsets;
+            int[] targets = graph.targets;
+            // 先写入本地缓冲区，满了再批量复制到 next ，减少对 tail 的竞争
+            int[] buffer = new int[GRAIN];
+            int count = 0;
+            long edges = 0;
+            for (int i = from; i < to; i++) {
+                int w = frontier[i];
+                for (int j = offsets[w], end = offsets[w + 1]; j < end; j++) {
+                    int q = targets[j];
+                    if (!tryMark(visited, q)) {
+                        continue;
+                    }
+                    prev[q] = w;
+                    distances[q] = distance;
+                    edges += offsets[q + 1] - offsets[q];
+                    buffer[count++] = q;
+                    if (count == buffer.length) {
+                        System.arraycopy(buffer, 0, next, tail.getAndAdd(count), count);
+                        count = 0;
+                    }
+                }
+            }
+            if (count > 0) {
+                System.arraycopy(buffer, 0, next, tail.getAndAdd(count), count);
+            }
+            nextEdges.add(edges);
+        }
+
+    }
+
+    /**
+     * 自底向上：遍历 [from, to) 中未访问的顶点，在入边中查找 frontier 中的顶点
+     */
+    @SuppressWarnings("serial")
+    private final class BottomUpTask extends RecursiveAction {
+
+        private final long[] frontierBits;
+        private final long[] nextBits;
+        private final int from;
+        private final int to;
+        private final AtomicLongArray visited;
+        private final int[] prev;
+        private final int[] distances;
+        private final int distance;
+        private final LongAdder nextSize;
+        private final LongAdder nextEdges;
+
+        private BottomUpTask(long[] frontierBits, long[] nextBits, int from, int to, AtomicLongArray visited,
+                             int[] prev, int[] distances, int distance, LongAdder nextSize, LongAdder nextEdges) {
+            this.frontierBits = frontierBits;
+            this.nextBits = nextBits;
+            this.from = from;
+            this.to = to;
+            this.visited = visited;
+            this.prev = prev;
+            this.distances = distances;
+            this.distance = distance;
+            this.nextSize = nextSize;
+            this.nextEdges = nextEdges;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                // 按照 64 对齐拆分，保证每个 long 只属于一个任务
+                int middle = ((from + to) >>> 1) & ~63;
+                invokeAll(new BottomUpTask(frontierBits, nextBits, from, middle, visited, prev, distances, distance,
+                                nextSize, nextEdges),
+                        new BottomUpTask(frontierBits, nextBits, middle, to, visited, prev, distances, distance,
+                                nextSize, nextEdges));
+                return;
+            }
+
+            int[] inOffsets = incoming.offsets;
+            int[] inTargets = incoming.targets;
+            int[] outOffsets = graph.offsets;
+            int count = 0;
+            long edges = 0;
+            for (int word = from >>> 6, lastWord = (to - 1) >>> 6; word <= lastWord; word++) {
+                long visitedWord = visited.get(word);
+                long nextWord = 0;
+                for (int w = word << 6, end = Math.min(w + 64, to); w < end; w++) {
+                    if ((visitedWord & (1L << w)) != 0) {
+                        continue;
+                    }
+                    for (int j = inOffsets[w], jEnd = inOffsets[w + 1]; j < jEnd; j++) {
+                        int parent = inTargets[j];
+                        if ((frontierBits[parent >>> 6] & (1L << parent)) == 0) {
+                            continue;
+                        }
+                        // 找到一个在 frontier 中的父顶点即可
+                        prev[w] = parent;
+                        distances[w] = distance;
+                        nextWord |= 1L << w;
+                        count++;
+                        edges += outOffsets[w + 1] - outOffsets[w];
+                        break;
+                    }
+                }
+                if (nextWord != 0) {
+                    visited.set(word, visitedWord | nextWord);
+                    nextBits[word] = nextWord;
+                }
+            }
+            nextSize.add(count);
+            nextEdges.add(edges);
+        }
+
+    }
+
+    // ========== 位图 ==========
+
+    /**
+     * 通过 CAS 标记顶点 w 已访问
+     *
+     * @return 是否由当前线程标记成功
+     */
+    private static boolean tryMark(AtomicLongArray visited, int w) {
+        int index = w >>> 6;
+        long bit = 1L << w;
+        while (true) {
+            long word = visited.get(index);
+            if ((word & bit) != 0) {
+                return false;
+            }
+            if (visited.compareAndSet(index, word, word | bit)) {
+                return true;
+            }
+        }
+    }
+
+    private static long[] toBits(int[] list, int size, int n) {
+        long[] bits = new long[(n + 63) >>> 6];
+        for (int i = 0; i < size; i++) {
+            bits[list[i] >>> 6] |= 1L << list[i];
+        }
+        return bits;
+    }
+
+    /**
+     * @return 列表的长度
+     */
+    private static int toList(long[] bits, int[] list) {
+        int size = 0;
+        for (int i = 0; i < bits.length; i++) {
+            for (long word = bits[i]; word != 0; word &= word - 1) {
+                list[size++] = (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return size;
+    }
+
+    public static void main(String[] args) {
+        CsrGraph graph = CsrGraph.builder(false)
+                .ensureVertexCount(10)
+                .addEdge(1, 3)
+                .addEdge(3, 5)
+                .addEdge(5, 7)
+                .addEdge(1, 7)
+                .build();
+        Result result = new ParallelBfs(graph, ForkJoinPool.commonPool()).bfs(1);
+        System.out.println(Arrays.toString(result.distances())); // [-1, 0, -1, 1, -1, 2, -1, 1, -1, -1]
+        System.out.println(Arrays.toString(result.prev()));      // [-1, -1, -1, 1, -1, 3, -1, 1, -1, -1]
+    }
+
+}
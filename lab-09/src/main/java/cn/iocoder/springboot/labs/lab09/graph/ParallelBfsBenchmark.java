@@ -0,0 +1,52 @@
+package cn.iocoder.springboot.labs.lab09.graph;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * {@link ParallelBfs} 在不同并行度下的耗时，以及和单线程 {@link CsrGraph#bfs(int)} 的对比。
+ *
+ * 使用方式：java ParallelBfsBenchmark [顶点数] [边数]
+ */
+public class ParallelBfsBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int edgeCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+
+        Random random = new Random(0);
+        CsrGraph.Builder builder = CsrGraph.builder(false).ensureVertexCount(vertexCount);
+        for (int i = 0; i < edgeCount; i++) {
+            builder.addEdge(random.nextInt(vertexCount), random.nextInt(vertexCount));
+        }
+        CsrGraph graph = builder.build();
+        System.out.println(String.format("顶点：%d，边：%d，CPU：%d", vertexCount, edgeCount,
+                Runtime.getRuntime().availableProcessors()));
+
+        // 多轮执行，前几轮用于 JIT 预热
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("第 " + (round + 1) + " 轮");
+            long start = System.nanoTime();
+            int visited = graph.bfs(0).length;
+            System.out.println(String.format("%-22s 耗时：%5d ms，访问：%d",
+                    "CsrGraph", (System.nanoTime() - start) / 1_000_000, visited));
+
+            for (int parallelism = 1; parallelism <= Runtime.getRuntime().availableProcessors() * 2; parallelism <<= 1) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    start = System.nanoTime();
+                    ParallelBfs.Result result = new ParallelBfs(graph, pool).bfs(0);
+                    long nanos = System.nanoTime() - start;
+                    System.out.println(String.format("%-22s 耗时：%5d ms，层数：%d（自底向上 %d 层）",
+                            "ParallelBfs-" + parallelism, nanos / 1_000_000,
+                            result.levels(), result.bottomUpLevels()));
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,258 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0072;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 位并行的编辑距离（Levenshtein），Myers 算法，以及 Hyyrö 的多块（pattern 超过 64 个字符）扩展。
+ *
+ * 在 {@link Solution#minDistance(String, String)} 的基础上：
+ *
+ * 1. DP 表按列计算，每一列只保存相邻两行之间的差值（只可能是 -1、0、+1），用 Pv、Mv 两个 long 的位表示，
+ *    一列 64 行只需要十几次位运算，复杂度 O(⌈m / 64⌉ * n) ，并且不需要 O(m * n) 的 DP 表。
+ * 2. 每个字符在 pattern 中出现的位置，预先计算成位图（Peq）。pattern 固定、和大量候选字符串比较时，只需要计算一次。
+ * 3. 支持最大距离：长度差超过最大距离时直接返回；计算过程中，当前距离减去剩余的列数，仍超过最大距离时，提前结束。
+ * 4. 批量计算一个 pattern 和多个候选字符串的距离，多线程并行。
+ *
+ * 实例不可变，线程安全。
+ */
+public class BitParallelLevenshtein {
+
+    /**
+     * 批量计算时，每个任务最少的候选字符串个数
+     */
+    private static final int BATCH_GRAIN = 256;
+
+    private static final int ASCII = 128;
+
+    private final String pattern;
+    /**
+     * 块数，每块 64 行
+     */
+    private final int blocks;
+    /**
+     * ASCII 字符的位图：asciiPeq[c * blocks + block] 的第 i 位，表示 pattern.charAt(block * 64 + i) == c
+     */
+    private final long[] asciiPeq;
+    /**
+     * 非 ASCII 字符，有序
+     */
+    private final char[] otherChars;
+    /**
+     * 非 ASCII 字符的位图：otherPeq[index * blocks + block] ，index 为字符在 otherChars 中的位置
+     */
+    private final long[] otherPeq;
+
+    public BitParallelLevenshtein(String pattern) {
+        this.pattern = pattern;
+        this.blocks = Math.max(1, (pattern.length() + 63) >>> 6);
+        this.asciiPeq = new long[ASCII * blocks];
+        this.otherChars = pattern.chars().filter(c -> c >= ASCII).distinct().sorted()
+                .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
+                .toString().toCharArray();
+        this.otherPeq = new long[otherChars.length * blocks];
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            long bit = 1L << (i & 63);
+            if (c < ASCII) {
+                asciiPeq[c * blocks + (i >>> 6)] |= bit;
+            } else {
+                otherPeq[Arrays.binarySearch(otherChars, c) * blocks + (i >>> 6)] |= bit;
+            }
+        }
+    }
+
+    public String pattern() {
+        return pattern;
+    }
+
+    // ========== 单个 ==========
+
+    public int distance(CharSequence text) {
+        return distance(text, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * @param maxDistance 最大距离
+     * @return 编辑距离。超过 maxDistance 时，返回 maxDistance + 1
+     */
+    public int distance(CharSequence text, int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance 不能小于 0");
+        }
+        int m = pattern.length();
+        int n = text.length();
+        if (Math.abs(m - n) > maxDistance) {
+            return maxDistance + 1;
+        }
+        if (m == 0) {
+            return n;
+        }
+        return blocks == 1 ? singleBlock(text, maxDistance) : multiBlock(text, maxDistance);
+    }
+
+    /**
+     * pattern 不超过 64 个字符：所有状态都在寄存器中，没有内存分配
+     */
+    private int singleBlock(CharSequence text, int maxDistance) {
+        int m = pattern.length();
+        int n = text.length();
+        long last = 1L << (m - 1);
+        // 初始列 D[i][0] = i ，相邻行的差值都为 +1
+        long pv = -1L;
+        long mv = 0;
+        int score = m;
+        for (int j = 0; j < n; j++) {
+            long eq = peq(text.charAt(j), 0);
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            // 最后一行的水平差值，即为距离的变化
+            if ((ph & last) != 0) {
+                score++;
+            } else if ((mh & last) != 0) {
+                score--;
+            }
+            // 第一行 D[0][j] = j ，水平差值为 +1 ，所以移入 1
+            ph = (ph << 1) | 1;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+            // 剩余的每一列，距离最多减少 1
+            if (score - (n - j - 1) > maxDistance) {
+                return maxDistance + 1;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * pattern 超过 64 个字符：每一列从上到下逐块计算，块之间传递水平差值（-1、0、+1）
+     */
+    private int multiBlock(CharSequence text, int maxDistance) {
+        int m = pattern.length();
+        int n = text.length();
+        long last = 1L << ((m - 1) & 63);
+        long[] pvs = new long[blocks];
+        long[] mvs = new long[blocks];
+        Arrays.fill(pvs, -1L);
+        int score = m;
+        for (int j = 0; j < n; j++) {
+            char c = text.charAt(j);
+            // 第一行的水平差值为 +1
+            int carry = 1;
+            for (int block = 0; block < blocks; block++) {
+                long pv = pvs[block];
+                long mv = mvs[block];
+                long eq = peq(c, block);
+                long xv = eq | mv;
+                if (carry < 0) {
+                    eq |= 1;
+                }
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+                if (block == blocks - 1) {
+                    if ((ph & last) != 0) {
+                        score++;
+                    } else if ((mh & last) != 0) {
+                        score--;
+                    }
+                }
+                int out = ph < 0 ? 1 : mh < 0 ? -1 : 0;
+                ph <<= 1;
+                mh <<= 1;
+                if (carry < 0) {
+                    mh |= 1;
+                } else if (carry > 0) {
+                    ph |= 1;
+                }
+                pvs[block] = mh | ~(xv | ph);
+                mvs[block] = ph & xv;
+                carry = out;
+            }
+            if (score - (n - j - 1) > maxDistance) {
+                return maxDistance + 1;
+            }
+        }
+        return score;
+    }
+
+    private long peq(char c, int block) {
+        if (c < ASCII) {
+            return asciiPeq[c * blocks + block];
+        }
+        int index = Arrays.binarySearch(otherChars, c);
+        return index < 0 ? 0 : otherPeq[index * blocks + block];
+    }
+
+    // ========== 批量 ==========
+
+    /**
+     * 使用 {@link ForkJoinPool#commonPool()} 并行计算
+     *
+     * @see #distances(List, int, ForkJoinPool)
+     */
+    public int[] distances(List<? extends CharSequence> candidates, int maxDistance) {
+        return distances(candidates, maxDistance, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 并行计算 pattern 和每个候选字符串的编辑距离
+     *
+     * @param candidates 候选字符串，需要支持随机访问，例如说 ArrayList
+     * @param maxDistance 最大距离
+     * @return distances[i] 为 candidates.get(i) 的编辑距离。超过 maxDistance 时，为 maxDistance + 1
+     */
+    public int[] distances(List<? extends CharSequence> candidates, int maxDistance, ForkJoinPool pool) {
+        int[] distances = new int[candidates.size()];
+        if (candidates.size() <= BATCH_GRAIN) {
+            new BatchTask(candidates, maxDistance, distances, 0, distances.length).compute();
+        } else {
+            pool.invoke(new BatchTask(candidates, maxDistance, distances, 0, distances.length));
+        }
+        return distances;
+    }
+
+    @SuppressWarnings("serial")
+    private final class BatchTask extends RecursiveAction {
+
+        private final List<? extends CharSequence> candidates;
+        private final int maxDistance;
+        private final int[] distances;
+        private final int from;
+        private final int to;
+
+        private BatchTask(List<? extends CharSequence> candidates, int maxDistance, int[] distances, int from, int to) {
+            this.candidates = candidates;
+            this.maxDistance = maxDistance;
+            this.distances = distances;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_GRAIN) {
+                for (int i = from; i < to; i++) {
+                    distances[i] = distance(candidates.get(i), maxDistance);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BatchTask(candidates, maxDistance, distances, from, middle),
+                    new BatchTask(candidates, maxDistance, distances, middle, to));
+        }
+
+    }
+
+    public static void main(String[] args) {
+        BitParallelLevenshtein levenshtein = new BitParallelLevenshtein("horse");
+        System.out.println(levenshtein.distance("ros"));
+        System.out.println(Arrays.toString(levenshtein.distances(Arrays.asList("ros", "house", "hose", "elephant"), 2)));
+    }
+
+}
@@ -0,0 +1,102 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0072;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link BitParallelLevenshtein} 和 DP 版本 {@link Solution#minDistance(String, String)} 的耗时对比。
+ *
+ * 一个 pattern 和 1 万个候选字符串比较。候选字符串一半随机生成，一半由 pattern 少量修改得到（模糊匹配的命中）。
+ */
+public class BitParallelLevenshteinBenchmark {
+
+    private static final int CANDIDATES = 10_000;
+
+    private static final int[] PATTERN_LENGTHS = {16, 64, 200};
+
+    private static final int ROUNDS = 3;
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz ";
+
+    public static void main(String[] args) {
+        Random random = new Random(0);
+        Solution solution = new Solution();
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("第 " + (round + 1) + " 轮");
+            for (int length : PATTERN_LENGTHS) {
+                String pattern = randomString(random, length);
+                List<String> candidates = new ArrayList<>(CANDIDATES);
+                for (int i = 0; i < CANDIDATES; i++) {
+                    candidates.add(random.nextBoolean() ? randomString(random, length - 4 + random.nextInt(9))
+                            : mutate(random, pattern, 1 + random.nextInt(Math.max(1, length / 8))));
+                }
+                BitParallelLevenshtein levenshtein = new BitParallelLevenshtein(pattern);
+                int maxDistance = length / 4;
+
+                long start = System.nanoTime();
+                int[] expected = new int[CANDIDATES];
+                for (int i = 0; i < CANDIDATES; i++) {
+                    expected[i] = solution.minDistance(pattern, candidates.get(i));
+                }
+                long dpNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < CANDIDATES; i++) {
+                    if (levenshtein.distance(candidates.get(i)) != expected[i]) {
+                        throw new IllegalStateException("结果不一致");
+                    }
+                }
+                long bitNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                int matches = 0;
+                for (int i = 0; i < CANDIDATES; i++) {
+                    if (levenshtein.distance(candidates.get(i), maxDistance) <= maxDistance) {
+                        matches++;
+                    }
+                }
+                long boundedNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                int[] distances = levenshtein.distances(candidates, maxDistance);
+                long batchNanos = System.nanoTime() - start;
+                for (int i = 0; i < CANDIDATES; i++) {
+                    if (distances[i] != Math.min(expected[i], maxDistance + 1)) {
+                        throw new IllegalStateException("结果不一致");
+                    }
+                }
+                System.out.println(String.format("pattern 长度：%3d，DP：%6.1f ms，位并行：%5.1f ms，最大距离 %2d：%5.1f ms（命中 %d），批量并行：%5.1f ms",
+                        length, dpNanos / 1e6, bitNanos / 1e6, maxDistance, boundedNanos / 1e6, matches, batchNanos / 1e6));
+            }
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 对 pattern 随机执行 edits 次插入、删除、替换
+     */
+    private static String mutate(Random random, String pattern, int edits) {
+        StringBuilder builder = new StringBuilder(pattern);
+        for (int i = 0; i < edits; i++) {
+            int position = random.nextInt(builder.length() + 1);
+            int operation = random.nextInt(3);
+            if (operation == 0 || position == builder.length()) {
+                builder.insert(position, ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            } else if (operation == 1) {
+                builder.deleteCharAt(position);
+            } else {
+                builder.setCharAt(position, ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+        }
+        return builder.toString();
+    }
+
+}
@@ -1,5 +1,10 @@
 package cn.iocoder.springboot.labs.lab09.leetcode.no0072;
 
+/**
+ * 编辑距离，DP 实现，时间、空间复杂度都是 O(m * n) 。
+ *
+ * 位并行、支持最大距离和批量计算的版本，见 {@link BitParallelLevenshtein} 。
+ */
 public class Solution {
 
     public int minDistance(String word1, String word2) {
@@ -0,0 +1,58 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0146;
+
+/**
+ * 缓存的准入策略。
+ *
+ * 当缓存已满时，决定新的候选元素 candidate ，是否可以替换掉将被淘汰的 victim 。
+ */
+public interface AdmissionPolicy<K> {
+
+    /**
+     * 记录一次访问
+     */
+    void record(K key);
+
+    /**
+     * @return candidate 是否准入。如果准入，则淘汰 victim ；否则，淘汰 candidate
+     */
+    boolean admit(K candidate, K victim);
+
+    /**
+     * 总是准入，即退化为 LRU
+     */
+    static <K> AdmissionPolicy<K> always() {
+        return new AdmissionPolicy<K>() {
+
+            @Override
+            public void record(K key) {
+            }
+
+            @Override
+            public boolean admit(K candidate, K victim) {
+                return true;
+            }
+
+        };
+    }
+
+    /**
+     * 基于 {@link FrequencySketch} 的 TinyLFU 策略：访问频率更高者留下
+     */
+    static <K> AdmissionPolicy<K> tinyLfu(int capacity) {
+        FrequencySketch sketch = new FrequencySketch(capacity);
+        return new AdmissionPolicy<K>() {
+
+            @Override
+            public void record(K key) {
+                sketch.increment(key);
+            }
+
+            @Override
+            public boolean admit(K candidate, K victim) {
+                return sketch.frequency(candidate) > sketch.frequency(victim);
+            }
+
+        };
+    }
+
+}
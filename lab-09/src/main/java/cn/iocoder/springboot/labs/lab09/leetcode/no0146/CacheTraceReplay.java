@@ -0,0 +1,124 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0146;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 回放 key 的访问日志，对比 LRU（{@link LRUCache02}）、LRU + TinyLFU 准入（{@link AdmissionPolicy#tinyLfu(int)}）
+ * 和 W-TinyLFU（{@link WTinyLfuCache}）的命中率。
+ *
+ * 访问日志每行一个 key ，例如说从网关日志中提取出来的 URL 或者用户编号。回放时，未命中则 put 到缓存中。
+ *
+ * 使用方式：java CacheTraceReplay [访问日志文件] [容量1,容量2,...]
+ * 不传入文件时，生成一份"Zipf 热点 + 周期性批量扫描"的模拟日志。
+ */
+public class CacheTraceReplay {
+
+    public static void main(String[] args) throws IOException {
+        int[] trace = args.length > 0 && !"-".equals(args[0]) ? readTrace(args[0]) : generateTrace();
+        int[] capacities = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 10_000, 50_000};
+
+        System.out.println(String.format("访问次数：%d", trace.length));
+        System.out.println(String.format("%10s %10s %12s %12s", "capacity", "LRU", "LRU+TinyLFU", "W-TinyLFU"));
+        for (int capacity : capacities) {
+            System.out.println(String.format("%10d %9.2f%% %11.2f%% %11.2f%%", capacity,
+                    replayLru(new LRUCache02(capacity), trace) * 100,
+                    replayLru(new LRUCache02(capacity, AdmissionPolicy.tinyLfu(capacity)), trace) * 100,
+                    replayWTinyLfu(trace, capacity) * 100));
+        }
+    }
+
+    private static double replayLru(LRUCache02 cache, int[] trace) {
+        long hits = 0;
+        for (int key : trace) {
+            if (cache.get(key) != -1) {
+                hits++;
+            } else {
+                cache.put(key, key);
+            }
+        }
+        return (double) hits / trace.length;
+    }
+
+    private static double replayWTinyLfu(int[] trace, int capacity) {
+        WTinyLfuCache<Integer, Integer> cache = new WTinyLfuCache<>(capacity);
+        for (int key : trace) {
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+        }
+        return (double) cache.hitCount() / trace.length;
+    }
+
+    /**
+     * 读取访问日志，并将 key 映射成从 0 开始的连续编号，便于 {@link LRUCache02} 使用
+     */
+    private static int[] readTrace(String file) throws IOException {
+        Map<String, Integer> ids = new HashMap<>();
+        int[] trace = new int[1024];
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Integer id = ids.get(line);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(line, id);
+                }
+                if (count == trace.length) {
+                    trace = Arrays.copyOf(trace, count << 1);
+                }
+                trace[count++] = id;
+            }
+        }
+        return Arrays.copyOf(trace, count);
+    }
+
+    /**
+     * 生成模拟的访问日志：100 万个 key 服从 Zipf 分布，每 20 万次访问穿插一次 5 万个 key 的批量扫描
+     */
+    private static int[] generateTrace() {
+        int keyCount = 1_000_000;
+        int accesses = 2_000_000;
+        int scanInterval = 200_000;
+        int scanLength = 50_000;
+
+        // 预先计算 Zipf 分布的累计概率，s = 0.9
+        double[] cdf = new double[keyCount];
+        double sum = 0;
+        for (int i = 0; i < keyCount; i++) {
+            sum += 1 / Math.pow(i + 1, 0.9);
+            cdf[i] = sum;
+        }
+
+        Random random = new Random(0);
+        int[] trace = new int[accesses + accesses / scanInterval * scanLength];
+        int count = 0;
+        int scanKey = keyCount;
+        for (int i = 0; i < accesses; i++) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            trace[count++] = index >= 0 ? index : -index - 1;
+            // 批量扫描，访问的都是只出现一次的 key
+            if ((i + 1) % scanInterval == 0) {
+                for (int j = 0; j < scanLength; j++) {
+                    trace[count++] = scanKey++;
+                }
+            }
+        }
+        return trace;
+    }
+
+}
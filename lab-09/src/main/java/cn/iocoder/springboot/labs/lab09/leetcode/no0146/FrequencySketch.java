@@ -0,0 +1,108 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0146;
+
+/**
+ * 4 位的 Count-Min Sketch ，用于估算 key 的访问频率。
+ *
+ * 1. 每个 long 存储 16 个 4 位计数器，计数上限为 15 。
+ * 2. 每个 key 通过 4 个不同的 hash ，定位到 4 个计数器，取最小值作为估算频率。
+ * 3. 累计增加 sampleSize 次后，将所有计数器减半（老化），使得过去的热点逐渐冷却。
+ *
+ * 参考 Caffeine 的 FrequencySketch 实现。非线程安全。
+ */
+public class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    /**
+     * 老化的阈值
+     */
+    private final int sampleSize;
+    /**
+     * 距离上次老化，累计增加的次数
+     */
+    private int size;
+
+    /**
+     * @param capacity 缓存容量，决定计数器的数量
+     */
+    public FrequencySketch(int capacity) {
+        int length = 1;
+        while (length < Math.max(capacity, 8)) {
+            length <<= 1;
+        }
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * Math.max(capacity, 1);
+    }
+
+    /**
+     * 获得估算的访问频率，范围为 [0, 15]
+     */
+    public int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * 增加访问频率
+     */
+    public void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * 将 table[index] 的第 offset 个计数器 + 1 ，已经到达上限时不处理
+     */
+    private boolean incrementAt(int index, int offset) {
+        int shift = offset << 2;
+        long mask = 0xfL << shift;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << shift;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 老化，所有计数器减半
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size >>>= 1;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+
+}
@@ -6,8 +6,19 @@ import java.util.Map;
 public class LRUCache {
 
     private Map<Integer, Integer> cache;
+    /**
+     * 准入策略
+     */
+    private AdmissionPolicy<Integer> admissionPolicy;
+    private int capacity;
 
     public LRUCache(int capacity) {
+        this(capacity, AdmissionPolicy.always());
+    }
+
+    public LRUCache(int capacity, AdmissionPolicy<Integer> admissionPolicy) {
+        this.capacity = capacity;
+        this.admissionPolicy = admissionPolicy;
         this.cache = new LinkedHashMap<Integer, Integer>((int) Math.ceil(capacity / 0.75f) + 1, 0.75f, true) {
 
             @Override
@@ -20,10 +31,20 @@ public class LRUCache {
 
     public int get(int key) {
         Integer val = cache.get(key);
-        return val != null ? val : -1;
+        if (val == null) {
+            return -1;
+        }
+        admissionPolicy.record(key);
+        return val;
     }
 
     public void put(int key, int value) {
+        admissionPolicy.record(key);
+        // 已满时，由准入策略决定淘汰最老访问的，还是不加入新的 key
+        if (cache.size() >= capacity && !cache.containsKey(key)
+                && !admissionPolicy.admit(key, cache.keySet().iterator().next())) {
+            return;
+        }
         cache.put(key, value);
     }
 
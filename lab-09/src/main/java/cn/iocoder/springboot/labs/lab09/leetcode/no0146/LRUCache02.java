@@ -29,6 +29,10 @@ public class LRUCache02 {
      * 缓存
      */
     private Map<Integer, Node> cache;
+    /**
+     * 准入策略
+     */
+    private AdmissionPolicy<Integer> admissionPolicy;
     /**
      * 指向头
      */
@@ -41,16 +45,26 @@ public class LRUCache02 {
     private Node tail;
 
     public LRUCache02(int capacity) {
+        this(capacity, AdmissionPolicy.always());
+    }
+
+    public LRUCache02(int capacity, AdmissionPolicy<Integer> admissionPolicy) {
         this.capacity = capacity;
         this.cache = new HashMap<>(capacity, 1F);
+        this.admissionPolicy = admissionPolicy;
     }
 
     public int get(int key) {
         Node node = this.getNode(key);
-        return node != null ? node.value : -1;
+        if (node == null) {
+            return -1;
+        }
+        admissionPolicy.record(key);
+        return node.value;
     }
 
     public void put(int key, int value) {
+        admissionPolicy.record(key);
         Node node = getNode(key);
 
         // 获得到值，设置其值
@@ -59,6 +73,11 @@ public class LRUCache02 {
             return;
         }
 
+        // 已满时，由准入策略决定淘汰最老访问的，还是不加入新的 key
+        if (cache.size() >= capacity && !admissionPolicy.admit(key, head.key)) {
+            return;
+        }
+
         // 移除最老访问的
         removeIfFull();
 
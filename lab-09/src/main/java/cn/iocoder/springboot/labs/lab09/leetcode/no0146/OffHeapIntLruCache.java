@@ -0,0 +1,311 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0146;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 堆外内存实现的 int -> int LRU 缓存。
+ *
+ * {@link LRUCache02} 每个元素都要创建一个 Node ，并且 key 会被装箱成 Integer 。千万级别的元素，会给 GC 带来很大压力。
+ * 这里，将所有数据放在一块 {@link ByteBuffer#allocateDirect(int)} 分配的堆外内存（slab）中：
+ *
+ * 1. 哈希表：开放寻址（线性探测），每个槽位存储 entry 的编号 + 1 ，0 表示空槽。删除时使用 backward shift ，不产生墓碑。
+ * 2. entry 数组：每个 entry 16 字节，依次为 key、value、prev、next 。其中 prev、next 为 entry 编号，形成 LRU 双向链表。
+ *
+ * entry 在创建时一次性分配好，淘汰时直接复用被淘汰的 entry 。因此，get、put 不会创建任何对象。
+ *
+ * 单个 ByteBuffer 最大 2 GB 。哈希表的槽数为不小于 2 * capacity 的 2 的幂，每个槽 4 字节，所以容量最大为 2^26 = 67108864 ：
+ * 此时哈希表 512 MB ，entry 数组 1 GB 。更大的规模，可以按照 key 的 hash 拆分成多个实例。
+ *
+ * 非线程安全。
+ */
+public class OffHeapIntLruCache {
+
+    private static final int NIL = -1;
+
+    private static final int ENTRY_SIZE = 16;
+    private static final int ENTRY_KEY = 0;
+    private static final int ENTRY_VALUE = 4;
+    private static final int ENTRY_PREV = 8;
+    private static final int ENTRY_NEXT = 12;
+
+    /**
+     * 容量
+     */
+    private final int capacity;
+    /**
+     * 哈希表和 entry 数组所在的堆外内存
+     */
+    private final ByteBuffer slab;
+    private final int tableMask;
+    /**
+     * entry 数组在 {@link #slab} 中的起始位置
+     */
+    private final int entryBase;
+
+    private int size;
+    /**
+     * 指向头，最老访问的 entry
+     */
+    private int head = NIL;
+    /**
+     * 指向尾，最新访问的 entry
+     */
+    private int tail = NIL;
+
+    public OffHeapIntLruCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须大于 0");
+        }
+        // 槽数为不小于 2 * capacity 的 2 的幂，负载因子不超过 0.5 ，保证线性探测的长度足够短
+        long tableSize = Long.highestOneBit(Math.max(capacity, 2) - 1) << 2;
+        long bytes = tableSize * 4 + (long) capacity * ENTRY_SIZE;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("容量过大，超过单个 ByteBuffer 的上限：" + capacity);
+        }
+        this.capacity = capacity;
+        this.slab = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+        this.tableMask = (int) tableSize - 1;
+        this.entryBase = (int) tableSize * 4;
+    }
+
+    /**
+     * 获得 key 对应的 value ，不存在时返回 -1
+     */
+    public int get(int key) {
+        return get(key, -1);
+    }
+
+    /**
+     * 获得 key 对应的 value ，不存在时返回 defaultValue
+     */
+    public int get(int key, int defaultValue) {
+        int slot = findSlot(key);
+        int entry = entryAt(slot);
+        if (entry == NIL) {
+            return defaultValue;
+        }
+        moveToTail(entry);
+        return value(entry);
+    }
+
+    public void put(int key, int value) {
+        int slot = findSlot(key);
+        int entry = entryAt(slot);
+        // 获得到值，设置其值
+        if (entry != NIL) {
+            setValue(entry, value);
+            moveToTail(entry);
+            return;
+        }
+
+        if (size < capacity) {
+            // 容量足够，使用下一个未使用的 entry
+            entry = size++;
+        } else {
+            // 淘汰最老访问的，复用它的 entry
+            entry = head;
+            unlink(entry);
+            removeSlot(findSlot(key(entry)));
+            // 移除后，槽位可能发生了移动，重新查找
+            slot = findSlot(key);
+        }
+
+        setKey(entry, key);
+        setValue(entry, value);
+        setEntryAt(slot, entry);
+        linkLast(entry);
+    }
+
+    /**
+     * 移除 key
+     *
+     * @return 是否存在
+     */
+    public boolean remove(int key) {
+        int slot = findSlot(key);
+        int entry = entryAt(slot);
+        if (entry == NIL) {
+            return false;
+        }
+        unlink(entry);
+        removeSlot(slot);
+
+        // 将最后一个 entry 移动到空出来的位置，保证 [0, size) 连续
+        int last = --size;
+        if (entry != last) {
+            int lastKey = key(last);
+            setKey(entry, lastKey);
+            setValue(entry, value(last));
+            int prev = prev(last);
+            int next = next(last);
+            setPrev(entry, prev);
+            setNext(entry, next);
+            if (prev == NIL) {
+                head = entry;
+            } else {
+                setNext(prev, entry);
+            }
+            if (next == NIL) {
+                tail = entry;
+            } else {
+                setPrev(next, entry);
+            }
+            setEntryAt(findSlot(lastKey), entry);
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // ========== 哈希表 ==========
+
+    /**
+     * 线性探测，获得 key 所在的槽位。不存在时，返回第一个空槽位
+     */
+    private int findSlot(int key) {
+        int slot = hash(key) & tableMask;
+        while (true) {
+            int entry = entryAt(slot);
+            if (entry == NIL || key(entry) == key) {
+                return slot;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+    }
+
+    /**
+     * 清空槽位，并将后续探测链上的槽位前移（backward shift），避免产生墓碑
+     */
+    private void removeSlot(int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & tableMask;
+            int entry = entryAt(next);
+            if (entry == NIL) {
+                break;
+            }
+            int home = hash(key(entry)) & tableMask;
+            // home 不在 (hole, next] 区间内，说明可以前移到 hole
+            boolean movable = hole <= next
+                    ? home <= hole || home > next
+                    : home <= hole && home > next;
+            if (movable) {
+                setEntryAt(hole, entry);
+                hole = next;
+            }
+        }
+        setEntryAt(hole, NIL);
+    }
+
+    private int entryAt(int slot) {
+        return slab.getInt(slot << 2) - 1;
+    }
+
+    private void setEntryAt(int slot, int entry) {
+        slab.putInt(slot << 2, entry + 1);
+    }
+
+    private static int hash(int key) {
+        // murmur3 的 fmix32
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    // ========== LRU 链表 ==========
+
+    private void moveToTail(int entry) {
+        if (entry == tail) {
+            return;
+        }
+        unlink(entry);
+        linkLast(entry);
+    }
+
+    private void linkLast(int entry) {
+        setPrev(entry, tail);
+        setNext(entry, NIL);
+        if (tail == NIL) {
+            head = entry;
+        } else {
+            setNext(tail, entry);
+        }
+        tail = entry;
+    }
+
+    private void unlink(int entry) {
+        int prev = prev(entry);
+        int next = next(entry);
+        if (prev == NIL) {
+            head = next;
+        } else {
+            setNext(prev, next);
+        }
+        if (next == NIL) {
+            tail = prev;
+        } else {
+            setPrev(next, prev);
+        }
+    }
+
+    // ========== entry 读写 ==========
+
+    private int key(int entry) {
+        return slab.getInt(entryBase + entry * ENTRY_SIZE + ENTRY_KEY);
+    }
+
+    private void setKey(int entry, int key) {
+        slab.putInt(entryBase + entry * ENTRY_SIZE + ENTRY_KEY, key);
+    }
+
+    private int value(int entry) {
+        return slab.getInt(entryBase + entry * ENTRY_SIZE + ENTRY_VALUE);
+    }
+
+    private void setValue(int entry, int value) {
+        slab.putInt(entryBase + entry * ENTRY_SIZE + ENTRY_VALUE, value);
+    }
+
+    private int prev(int entry) {
+        return slab.getInt(entryBase + entry * ENTRY_SIZE + ENTRY_PREV);
+    }
+
+    private void setPrev(int entry, int prev) {
+        slab.putInt(entryBase + entry * ENTRY_SIZE + ENTRY_PREV, prev);
+    }
+
+    private int next(int entry) {
+        return slab.getInt(entryBase + entry * ENTRY_SIZE + ENTRY_NEXT);
+    }
+
+    private void setNext(int entry, int next) {
+        slab.putInt(entryBase + entry * ENTRY_SIZE + ENTRY_NEXT, next);
+    }
+
+    public static void main(String[] args) {
+        OffHeapIntLruCache cache = new OffHeapIntLruCache(2 /* 缓存容量 */);
+
+        cache.put(1, 1);
+        cache.put(2, 2);
+        System.out.println(cache.get(1));       // 返回  1
+        cache.put(3, 3);    // 该操作会使得密钥 2 作废
+        System.out.println(cache.get(2));       // 返回 -1 (未找到)
+        cache.put(4, 4);    // 该操作会使得密钥 1 作废
+        System.out.println(cache.get(1));       // 返回 -1 (未找到)
+        System.out.println(cache.get(3));       // 返回  3
+        System.out.println(cache.get(4));       // 返回  4
+    }
+
+}
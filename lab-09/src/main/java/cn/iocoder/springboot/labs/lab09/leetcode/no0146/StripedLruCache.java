@@ -0,0 +1,355 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0146;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/**
+ * 分段加锁的线程安全 LRU 缓存。
+ *
+ * {@link LRUCache} 和 {@link LRUCache02} 都不是线程安全的，如果直接加 synchronized ，每次 get 都需要争抢同一把锁。
+ * 这里参考 ConcurrentHashMap 分段和 Caffeine 读缓冲的思路：
+ *
+ * 1. 按照 key 的 hash ，将缓存拆分成 N 个 {@link Segment} ，每个 Segment 有独立的锁和 LRU 链表，容量为总容量 / N 。
+ * 2. get 命中时不加锁，只是将节点记录到 Segment 的读缓冲 {@link Segment#readBuffer} 中。
+ *    读缓冲积累到一定数量后，尝试获取锁，批量调整 LRU 链表。读缓冲满了，则直接丢弃，即 LRU 顺序是"近似"的。
+ * 3. put、remove 加锁执行，执行前先处理读缓冲。
+ *
+ * 因此，每个 Segment 内部是 LRU 语义，整体是近似 LRU 。
+ *
+ * 可以为每个 Segment 设置一个 {@link AdmissionPolicy} ，Segment 已满时，由它决定淘汰最老访问的，还是不加入新的 key 。
+ * 准入策略只在持有 Segment 的锁时访问：put 时记录，get 命中时随读缓冲一起批量记录，读缓冲丢弃的访问不会被记录。
+ */
+public class StripedLruCache<K, V> {
+
+    /**
+     * 读缓冲大小，必须是 2 的幂
+     */
+    private static final int READ_BUFFER_SIZE = 64;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    /**
+     * 读缓冲积累多少个后，尝试处理
+     */
+    private static final int READ_BUFFER_DRAIN_THRESHOLD = 32;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public StripedLruCache(int capacity) {
+        this(capacity, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * @param segmentCount 分段数量，会向上取整到 2 的幂，并且不超过 capacity
+     */
+    public StripedLruCache(int capacity, int segmentCount) {
+        this(capacity, segmentCount, null);
+    }
+
+    /**
+     * @param segmentCount 分段数量，会向上取整到 2 的幂，并且不超过 capacity
+     * @param admissionPolicyFactory 根据 Segment 的容量，创建它的准入策略，例如说 AdmissionPolicy::tinyLfu 。为空时，不做准入判断
+     */
+    @SuppressWarnings("unchecked")
+    public StripedLruCache(int capacity, int segmentCount, IntFunction<AdmissionPolicy<K>> admissionPolicyFactory) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须大于 0");
+        }
+        int count = 1;
+        while (count < segmentCount && count < capacity) {
+            count <<= 1;
+        }
+        if (count > capacity) {
+            count >>>= 1;
+        }
+        this.segments = (Segment<K, V>[]) new Segment<?, ?>[count];
+        this.segmentMask = count - 1;
+        // 容量平均分配到各个 Segment ，余数分配给前面的 Segment
+        for (int i = 0; i < count; i++) {
+            int segmentCapacity = capacity / count + (i < capacity % count ? 1 : 0);
+            segments[i] = new Segment<>(segmentCapacity,
+                    admissionPolicyFactory != null ? admissionPolicyFactory.apply(segmentCapacity) : null);
+        }
+    }
+
+    /**
+     * 获得 key 对应的 value ，不存在时返回 null
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        Node<K, V> node = segment.map.get(key);
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        segment.recordRead(node);
+        return node.value;
+    }
+
+    public void put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            segment.drainReadBuffer();
+            int evicted = segment.put(key, value);
+            if (evicted > 0) {
+                evictionCount.add(evicted);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * 移除 key
+     *
+     * @return 被移除的 value ，不存在时返回 null
+     */
+    public V remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            segment.drainReadBuffer();
+            return segment.remove(key);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.map.size();
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    public double hitRate() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 1.0 : (double) hits / total;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        // 与 HashMap 相同，高 16 位参与运算，减少冲突
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & segmentMask];
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private volatile V value;
+
+        // ========== 以下字段，需要持有 Segment 的锁才能访问 ==========
+
+        private Node<K, V> prev;
+        private Node<K, V> next;
+        /**
+         * 是否还在 LRU 链表中。被移除或者淘汰后，读缓冲中可能还残留它
+         */
+        private boolean alive = true;
+
+        private Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+    }
+
+    private static final class Segment<K, V> {
+
+        private final int capacity;
+        private final ConcurrentHashMap<K, Node<K, V>> map;
+        private final ReentrantLock lock = new ReentrantLock();
+        /**
+         * 准入策略，为空时为纯 LRU 。需要持有锁才能访问
+         */
+        private final AdmissionPolicy<K> admissionPolicy;
+
+        /**
+         * 指向头，最老访问的元素
+         */
+        private Node<K, V> head;
+        /**
+         * 指向尾，最新访问的元素
+         */
+        private Node<K, V> tail;
+
+        /**
+         * 读缓冲，环形数组
+         */
+        private final AtomicReferenceArray<Node<K, V>> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        /**
+         * 读缓冲的写入位置，多个读线程通过 CAS 竞争
+         */
+        private final AtomicLong readBufferWriteCount = new AtomicLong();
+        /**
+         * 读缓冲的处理位置，持有锁时才修改
+         */
+        private volatile long readBufferReadCount;
+
+        private Segment(int capacity, AdmissionPolicy<K> admissionPolicy) {
+            this.capacity = capacity;
+            this.admissionPolicy = admissionPolicy;
+            this.map = new ConcurrentHashMap<>((int) Math.ceil(capacity / 0.75f) + 1);
+        }
+
+        private void recordRead(Node<K, V> node) {
+            long writeCount = readBufferWriteCount.get();
+            // 读缓冲已满，丢弃本次访问记录，并尝试处理
+            if (writeCount - readBufferReadCount >= READ_BUFFER_SIZE) {
+                tryDrainReadBuffer();
+                return;
+            }
+            if (readBufferWriteCount.compareAndSet(writeCount, writeCount + 1)) {
+                readBuffer.lazySet((int) (writeCount & READ_BUFFER_MASK), node);
+                if (((writeCount + 1) & (READ_BUFFER_DRAIN_THRESHOLD - 1)) == 0) {
+                    tryDrainReadBuffer();
+                }
+            }
+        }
+
+        private void tryDrainReadBuffer() {
+            // 获取不到锁，说明其它线程正在处理，直接返回即可
+            if (lock.tryLock()) {
+                try {
+                    drainReadBuffer();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        /**
+         * 处理读缓冲，将访问过的节点移动到尾部。需要持有锁
+         */
+        private void drainReadBuffer() {
+            long readCount = readBufferReadCount;
+            long writeCount = readBufferWriteCount.get();
+            for (; readCount < writeCount; readCount++) {
+                int index = (int) (readCount & READ_BUFFER_MASK);
+                Node<K, V> node = readBuffer.get(index);
+                // 写入位置已经分配，但是还没写入，下次再处理
+                if (node == null) {
+                    break;
+                }
+                readBuffer.lazySet(index, null);
+                if (admissionPolicy != null) {
+                    admissionPolicy.record(node.key);
+                }
+                if (node.alive) {
+                    moveToTail(node);
+                }
+            }
+            readBufferReadCount = readCount;
+        }
+
+        /**
+         * @return 淘汰的数量。准入策略拒绝新的 key 时，视为淘汰了它，返回 1
+         */
+        private int put(K key, V value) {
+            if (admissionPolicy != null) {
+                admissionPolicy.record(key);
+            }
+            Node<K, V> node = map.get(key);
+            // 已存在，设置其值
+            if (node != null) {
+                node.value = value;
+                moveToTail(node);
+                return 0;
+            }
+
+            // 已满时，由准入策略决定淘汰最老访问的，还是不加入新的 key
+            if (admissionPolicy != null && map.size() >= capacity && !admissionPolicy.admit(key, head.key)) {
+                return 1;
+            }
+
+            // 添加到尾部
+            node = new Node<>(key, value);
+            map.put(key, node);
+            linkLast(node);
+
+            // 移除最老访问的
+            int evicted = 0;
+            while (map.size() > capacity) {
+                Node<K, V> eldest = head;
+                unlink(eldest);
+                map.remove(eldest.key);
+                evicted++;
+            }
+            return evicted;
+        }
+
+        private V remove(K key) {
+            Node<K, V> node = map.remove(key);
+            if (node == null) {
+                return null;
+            }
+            unlink(node);
+            return node.value;
+        }
+
+        private void moveToTail(Node<K, V> node) {
+            if (node == tail) {
+                return;
+            }
+            unlink(node);
+            linkLast(node);
+        }
+
+        private void linkLast(Node<K, V> node) {
+            node.alive = true;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        private void unlink(Node<K, V> node) {
+            Node<K, V> prev = node.prev;
+            Node<K, V> next = node.next;
+            if (prev == null) {
+                head = next;
+            } else {
+                prev.next = next;
+            }
+            if (next == null) {
+                tail = prev;
+            } else {
+                next.prev = prev;
+            }
+            node.prev = node.next = null;
+            node.alive = false;
+        }
+
+    }
+
+}
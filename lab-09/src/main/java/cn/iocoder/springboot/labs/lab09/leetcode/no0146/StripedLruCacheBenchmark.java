@@ -0,0 +1,119 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0146;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link StripedLruCache} 和加 synchronized 的 {@link LRUCache} ，在 1 ~ 32 个读线程下的吞吐量对比。
+ *
+ * 操作比例为 95% get、5% put ，key 的范围是容量的 2 倍。
+ */
+public class StripedLruCacheBenchmark {
+
+    private static final int CAPACITY = 100_000;
+
+    private static final int KEY_RANGE = CAPACITY * 2;
+
+    private static final long DURATION_MILLIS = 2000;
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+
+    /**
+     * 被测对象的统一抽象
+     */
+    private interface Target {
+
+        void get(int key);
+
+        void put(int key);
+
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println(String.format("%-24s %8s %14s", "target", "threads", "ops/ms"));
+        for (int threads : THREADS) {
+            run("LRUCache(synchronized)", threads, newLRUCache());
+            StripedLruCache<Integer, Integer> cache = new StripedLruCache<>(CAPACITY);
+            run("StripedLruCache", threads, newStripedLruCache(cache));
+            System.out.println(String.format("%-24s 命中率：%.4f，淘汰：%d", "", cache.hitRate(), cache.evictionCount()));
+        }
+    }
+
+    private static void run(String name, int threads, Target target) throws InterruptedException {
+        // 预热数据
+        for (int i = 0; i < CAPACITY; i++) {
+            target.put(i);
+        }
+
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch end = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                try {
+                    start.await();
+                    while (System.nanoTime() < deadline) {
+                        // 每批次执行 128 次操作，减少 nanoTime 的开销
+                        for (int j = 0; j < 128; j++) {
+                            int key = random.nextInt(KEY_RANGE);
+                            if (random.nextInt(20) == 0) {
+                                target.put(key);
+                            } else {
+                                target.get(key);
+                            }
+                        }
+                        count += 128;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    ops.add(count);
+                    end.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        end.await();
+
+        System.out.println(String.format("%-24s %8d %14d", name, threads, ops.sum() / DURATION_MILLIS));
+    }
+
+    private static Target newLRUCache() {
+        LRUCache cache = new LRUCache(CAPACITY);
+        return new Target() {
+
+            @Override
+            public synchronized void get(int key) {
+                cache.get(key);
+            }
+
+            @Override
+            public synchronized void put(int key) {
+                cache.put(key, key);
+            }
+
+        };
+    }
+
+    private static Target newStripedLruCache(StripedLruCache<Integer, Integer> cache) {
+        return new Target() {
+
+            @Override
+            public void get(int key) {
+                cache.get(key);
+            }
+
+            @Override
+            public void put(int key) {
+                cache.put(key, key);
+            }
+
+        };
+    }
+
+}
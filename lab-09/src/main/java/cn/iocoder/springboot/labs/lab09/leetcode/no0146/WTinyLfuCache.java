@@ -0,0 +1,250 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0146;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * W-TinyLFU 缓存。
+ *
+ * {@link LRUCache02} 这样的纯 LRU ，遇到批量扫描时，热点数据会被一次性访问的数据全部挤掉，命中率断崖式下跌。
+ * W-TinyLFU 将缓存拆分成三个 LRU 队列：
+ *
+ * 1. window ：新元素先进入这里，容量约为 1% ，用于应对突发的新热点。
+ * 2. probation ：从 window 淘汰出来的元素，进入 main 区的这个队列，等待"转正"。
+ * 3. protected ：在 probation 中被再次访问的元素，晋升到这里，容量约为 main 区的 80% 。
+ *
+ * 当 main 区已满时，由 {@link AdmissionPolicy} 决定，window 淘汰出来的元素，是否可以替换掉 probation 的队头。
+ * 使用 {@link AdmissionPolicy#tinyLfu(int)} 时，访问频率低的扫描数据，无法挤掉热点数据。
+ *
+ * 非线程安全。
+ */
+public class WTinyLfuCache<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final class Node {
+
+        private final K key;
+        private V value;
+        private Node prev;
+        private Node next;
+        /**
+         * 所在的队列
+         */
+        private int queue;
+
+        private Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+    }
+
+    /**
+     * 基于带哨兵的循环链表实现的 LRU 队列。最新访问的元素，放在尾部
+     */
+    private final class AccessQueue {
+
+        private final Node head = new Node(null, null);
+        private int size;
+
+        private AccessQueue() {
+            head.prev = head.next = head;
+        }
+
+        private Node first() {
+            return head.next != head ? head.next : null;
+        }
+
+        private void addLast(Node node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+            size++;
+        }
+
+        private void remove(Node node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = node.next = null;
+            size--;
+        }
+
+        private void moveToLast(Node node) {
+            remove(node);
+            addLast(node);
+        }
+
+    }
+
+    private final Map<K, Node> cache;
+    private final AdmissionPolicy<K> admissionPolicy;
+
+    private final AccessQueue window = new AccessQueue();
+    private final AccessQueue probation = new AccessQueue();
+    private final AccessQueue protectedQueue = new AccessQueue();
+
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public WTinyLfuCache(int capacity) {
+        this(capacity, AdmissionPolicy.tinyLfu(capacity));
+    }
+
+    public WTinyLfuCache(int capacity, AdmissionPolicy<K> admissionPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须大于 0");
+        }
+        this.cache = new HashMap<>((int) Math.ceil(capacity / 0.75f) + 1);
+        this.admissionPolicy = admissionPolicy;
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = capacity - windowCapacity;
+        this.protectedCapacity = mainCapacity * 8 / 10;
+    }
+
+    /**
+     * 获得 key 对应的 value ，不存在时返回 null 。
+     *
+     * 未命中时不记录访问：调用方通常会接着 put ，由 put 记录，避免同一次访问被记录两次
+     */
+    public V get(K key) {
+        Node node = cache.get(key);
+        if (node == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        admissionPolicy.record(key);
+        onHit(node);
+        return node.value;
+    }
+
+    /**
+     * 加入或者更新 key 。新加入、更新都会记录一次访问，否则只有 put、没有 get 的写入流量，
+     * 候选元素的访问频率永远不会高于 victim ，main 区满了之后，新元素都无法准入
+     */
+    public void put(K key, V value) {
+        admissionPolicy.record(key);
+        Node node = cache.get(key);
+        // 获得到值，设置其值
+        if (node != null) {
+            node.value = value;
+            onHit(node);
+            return;
+        }
+
+        // 新元素，先进入 window
+        node = new Node(key, value);
+        node.queue = WINDOW;
+        cache.put(key, node);
+        window.addLast(node);
+        evictFromWindow();
+    }
+
+    /**
+     * 移除 key
+     *
+     * @return 被移除的 value ，不存在时返回 null
+     */
+    public V remove(K key) {
+        Node node = cache.remove(key);
+        if (node == null) {
+            return null;
+        }
+        queueOf(node).remove(node);
+        return node.value;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long hitCount() {
+        return hitCount;
+    }
+
+    public long missCount() {
+        return missCount;
+    }
+
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    private void onHit(Node node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                // 晋升到 protected
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                // protected 超出容量，将队头降级回 probation
+                if (protectedQueue.size > protectedCapacity) {
+                    Node demoted = protectedQueue.first();
+                    protectedQueue.remove(demoted);
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            default:
+                protectedQueue.moveToLast(node);
+                break;
+        }
+    }
+
+    /**
+     * window 超出容量时，将队头移动到 probation 。如果 main 区也超出容量，由准入策略决定淘汰谁
+     */
+    private void evictFromWindow() {
+        if (window.size <= windowCapacity) {
+            return;
+        }
+        Node candidate = window.first();
+        window.remove(candidate);
+        candidate.queue = PROBATION;
+        probation.addLast(candidate);
+
+        if (probation.size + protectedQueue.size <= mainCapacity) {
+            return;
+        }
+        // probation 队头为 victim 。极端情况下（probation 只剩 candidate），从 protected 中选择
+        Node victim = probation.first();
+        if (victim == candidate) {
+            victim = protectedQueue.first();
+            if (victim == null) {
+                evict(candidate);
+                return;
+            }
+        }
+        evict(admissionPolicy.admit(candidate.key, victim.key) ? victim : candidate);
+    }
+
+    private void evict(Node node) {
+        queueOf(node).remove(node);
+        cache.remove(node.key);
+        evictionCount++;
+    }
+
+    private AccessQueue queueOf(Node node) {
+        switch (node.queue) {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            default:
+                return protectedQueue;
+        }
+    }
+
+}
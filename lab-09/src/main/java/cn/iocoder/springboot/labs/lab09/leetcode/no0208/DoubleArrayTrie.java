@@ -0,0 +1,391 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0208;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 双数组 Trie（Double-Array Trie）。
+ *
+ * {@link Trie} 每个节点都要创建一个长度为 26 的 Node 数组，并且只支持 'a' ~ 'z' 。
+ * 这里，将整棵树压缩到 base、check 两个 int 数组中：
+ *
+ * 1. 状态 s 经过字节 b ，转移到状态 t = base[s] + b + 1 ，当且仅当 check[t] == s 时有效。
+ * 2. 字符串按照 UTF-8 编码成字节，因此支持任意 Unicode 字符（包括中文），并且每个节点最多 257 个子节点。
+ * 3. 编码 0 表示词尾，对应的叶子节点中，base 存储 -(词的编号 + 1) 。
+ *
+ * 构建后只读，线程安全。除了 {@link #prefixEnumerate(String)} 之外，查询时不创建任何对象。
+ */
+public class DoubleArrayTrie {
+
+    private static final int ROOT = 0;
+
+    private static final int FREE = -1;
+
+    /**
+     * 词尾的编码
+     */
+    private static final int END = 0;
+
+    private int[] base;
+    private int[] check;
+
+    /**
+     * 词的数量
+     */
+    private int size;
+
+    // ========== 构建时使用 ==========
+
+    private byte[][] keys;
+    private boolean[] used;
+    private int nextCheckPos;
+    /**
+     * 使用过的最大位置
+     */
+    private int maxPos;
+
+    private DoubleArrayTrie() {
+    }
+
+    /**
+     * 构建双数组 Trie 。传入的词会按照 UTF-8 字节序排序并去重，词的编号即为排序后的位置
+     */
+    public static DoubleArrayTrie build(Collection<String> words) {
+        // 编码，排序，去重
+        byte[][] keys = new byte[words.size()][];
+        int count = 0;
+        for (String word : words) {
+            if (word == null || word.isEmpty()) {
+                throw new IllegalArgumentException("不允许空字符串");
+            }
+            keys[count++] = encode(word);
+        }
+        Arrays.sort(keys, DoubleArrayTrie::compare);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || compare(keys[unique - 1], keys[i]) != 0) {
+                keys[unique++] = keys[i];
+            }
+        }
+
+        DoubleArrayTrie trie = new DoubleArrayTrie();
+        trie.doBuild(Arrays.copyOf(keys, unique));
+        return trie;
+    }
+
+    private void doBuild(byte[][] keys) {
+        this.keys = keys;
+        this.size = keys.length;
+        int capacity = Math.max(1024, keys.length * 4);
+        this.base = new int[capacity];
+        this.check = new int[capacity];
+        this.used = new boolean[capacity];
+        Arrays.fill(check, FREE);
+        // 根节点
+        check[ROOT] = ROOT;
+        base[ROOT] = 1;
+        nextCheckPos = 1;
+
+        if (keys.length > 0) {
+            insert(ROOT, 0, 0, keys.length);
+        }
+
+        // 释放构建时的数据，并裁剪数组
+        this.keys = null;
+        this.used = null;
+        this.base = Arrays.copyOf(base, maxPos + 1);
+        this.check = Arrays.copyOf(check, maxPos + 1);
+    }
+
+    /**
+     * 为 keys[low, high) 这些拥有相同的 depth 长度前缀的词，在 parent 下创建子节点
+     */
+    private void insert(int parent, int depth, int low, int high) {
+        // 按照第 depth 个字节分组，每组即为一个子节点。因为已经排序，词尾（编码 0）必然在第一个
+        int[] codes = new int[257];
+        int[] starts = new int[258];
+        int count = 0;
+        for (int i = low; i < high; i++) {
+            int code = depth < keys[i].length ? (keys[i][depth] & 0xff) + 1 : END;
+            if (count == 0 || codes[count - 1] != code) {
+                codes[count] = code;
+                starts[count] = i;
+                count++;
+            }
+        }
+        starts[count] = high;
+
+        // 寻找可以容纳所有子节点的 begin
+        int begin = findBegin(codes, count);
+        base[parent] = begin;
+        for (int i = 0; i < count; i++) {
+            check[begin + codes[i]] = parent;
+        }
+
+        // 递归创建孙子节点
+        for (int i = 0; i < count; i++) {
+            int child = begin + codes[i];
+            if (codes[i] == END) {
+                base[child] = -starts[i] - 1;
+            } else {
+                insert(child, depth + 1, starts[i], starts[i + 1]);
+            }
+        }
+    }
+
+    private int findBegin(int[] codes, int count) {
+        int first = codes[0];
+        int last = codes[count - 1];
+        int pos = Math.max(first + 1, nextCheckPos) - 1;
+        int nonFree = 0;
+        boolean firstFree = true;
+        outer:
+        while (true) {
+            pos++;
+            ensureCapacity(pos + 1);
+            if (check[pos] != FREE) {
+                nonFree++;
+                continue;
+            }
+            // 记录第一个空闲位置，下次从这里开始寻找
+            if (firstFree) {
+                nextCheckPos = pos;
+                firstFree = false;
+            }
+            int begin = pos - first;
+            if (used[begin]) {
+                continue;
+            }
+            ensureCapacity(begin + last + 1);
+            for (int i = 1; i < count; i++) {
+                if (check[begin + codes[i]] != FREE) {
+                    continue outer;
+                }
+            }
+
+            // 从 nextCheckPos 到 pos 之间，已经 95% 被占用，下次直接从 pos 开始
+            if ((double) nonFree / (pos - nextCheckPos + 1) >= 0.95) {
+                nextCheckPos = pos;
+            }
+            used[begin] = true;
+            maxPos = Math.max(maxPos, begin + last);
+            return begin;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= base.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, base.length + (base.length >> 1));
+        int oldCapacity = base.length;
+        base = Arrays.copyOf(base, newCapacity);
+        check = Arrays.copyOf(check, newCapacity);
+        used = Arrays.copyOf(used, newCapacity);
+        Arrays.fill(check, oldCapacity, newCapacity, FREE);
+    }
+
+    // ========== 查询 ==========
+
+    /**
+     * 获得词的编号，不存在时返回 -1
+     */
+    public int indexOf(String word) {
+        int state = walk(word, 0, word.length());
+        if (state < 0) {
+            return -1;
+        }
+        int leaf = transition(state, END);
+        return leaf >= 0 ? -base[leaf] - 1 : -1;
+    }
+
+    public boolean contains(String word) {
+        return indexOf(word) >= 0;
+    }
+
+    /**
+     * 是否存在以 prefix 为前缀的词
+     */
+    public boolean startsWith(String prefix) {
+        return walk(prefix, 0, prefix.length()) >= 0;
+    }
+
+    /**
+     * 获得所有以 prefix 为前缀的词，按照 UTF-8 字节序排列
+     */
+    public List<String> prefixEnumerate(String prefix) {
+        List<String> result = new ArrayList<>();
+        int state = walk(prefix, 0, prefix.length());
+        if (state < 0) {
+            return result;
+        }
+        // 记录自根节点到当前节点的路径，用于还原出词
+        byte[] prefixBytes = encode(prefix);
+        byte[] path = Arrays.copyOf(prefixBytes, Math.max(64, prefixBytes.length * 2));
+        collect(state, path, prefixBytes.length, result);
+        return result;
+    }
+
+    private void collect(int state, byte[] path, int length, List<String> result) {
+        for (int code = END; code <= 256; code++) {
+            int child = transition(state, code);
+            if (child < 0) {
+                continue;
+            }
+            if (code == END) {
+                result.add(new String(path, 0, length, StandardCharsets.UTF_8));
+                continue;
+            }
+            if (length == path.length) {
+                path = Arrays.copyOf(path, length << 1);
+            }
+            path[length] = (byte) (code - 1);
+            collect(child, path, length + 1, result);
+        }
+    }
+
+    /**
+     * 最长前缀匹配：获得 text 从 offset 开始，能够匹配到的最长的词的长度（char 数）。不存在时，返回 0
+     *
+     * 常用于分词，不创建任何对象。
+     */
+    public int longestPrefixMatch(CharSequence text, int offset) {
+        int state = ROOT;
+        int matched = 0;
+        int i = offset;
+        while (i < text.length()) {
+            int codePoint = Character.codePointAt(text, i);
+            state = walkCodePoint(state, codePoint);
+            if (state < 0) {
+                break;
+            }
+            i += Character.charCount(codePoint);
+            if (transition(state, END) >= 0) {
+                matched = i - offset;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 最长前缀匹配：获得 text 能够匹配到的最长的词。不存在时，返回 null
+     */
+    public String longestPrefixMatch(String text) {
+        int length = longestPrefixMatch(text, 0);
+        return length > 0 ? text.substring(0, length) : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 双数组占用的字节数
+     */
+    public long memoryBytes() {
+        return (long) (base.length + check.length) * 4;
+    }
+
+    /**
+     * 自根节点开始，沿着 text[start, end) 的 UTF-8 字节转移
+     *
+     * @return 最终状态，不存在时返回 -1
+     */
+    private int walk(CharSequence text, int start, int end) {
+        int state = ROOT;
+        int i = start;
+        while (i < end && state >= 0) {
+            int codePoint = Character.codePointAt(text, i);
+            state = walkCodePoint(state, codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return state;
+    }
+
+    /**
+     * 按照 UTF-8 编码，沿着码点的 1 ~ 4 个字节转移
+     */
+    private int walkCodePoint(int state, int codePoint) {
+        if (codePoint < 0x80) {
+            return transition(state, codePoint + 1);
+        }
+        if (codePoint < 0x800) {
+            state = transition(state, (0xc0 | (codePoint >> 6)) + 1);
+            return state < 0 ? state : transition(state, (0x80 | (codePoint & 0x3f)) + 1);
+        }
+        if (codePoint < 0x10000) {
+            state = transition(state, (0xe0 | (codePoint >> 12)) + 1);
+            state = state < 0 ? state : transition(state, (0x80 | ((codePoint >> 6) & 0x3f)) + 1);
+            return state < 0 ? state : transition(state, (0x80 | (codePoint & 0x3f)) + 1);
+        }
+        state = transition(state, (0xf0 | (codePoint >> 18)) + 1);
+        state = state < 0 ? state : transition(state, (0x80 | ((codePoint >> 12) & 0x3f)) + 1);
+        state = state < 0 ? state : transition(state, (0x80 | ((codePoint >> 6) & 0x3f)) + 1);
+        return state < 0 ? state : transition(state, (0x80 | (codePoint & 0x3f)) + 1);
+    }
+
+    private int transition(int state, int code) {
+        int next = base[state] + code;
+        if (next < 0 || next >= check.length || check[next] != state) {
+            return -1;
+        }
+        return next;
+    }
+
+    /**
+     * 按照 UTF-8 编码。与 {@link #walkCodePoint(int, int)} 保持一致，单独的代理字符也按照 3 字节编码
+     */
+    private static byte[] encode(String word) {
+        byte[] bytes = new byte[word.length() * 3];
+        int length = 0;
+        for (int i = 0; i < word.length(); ) {
+            int codePoint = word.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (codePoint < 0x80) {
+                bytes[length++] = (byte) codePoint;
+            } else if (codePoint < 0x800) {
+                bytes[length++] = (byte) (0xc0 | (codePoint >> 6));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (codePoint < 0x10000) {
+                bytes[length++] = (byte) (0xe0 | (codePoint >> 12));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else {
+                bytes[length++] = (byte) (0xf0 | (codePoint >> 18));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3f));
+            }
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * 按照无符号字节比较
+     */
+    private static int compare(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    public static void main(String[] args) {
+        DoubleArrayTrie trie = DoubleArrayTrie.build(Arrays.asList("apple", "app", "芋道源码", "芋艿", "application"));
+
+        System.out.println(trie.contains("apple"));   // 返回 true
+        System.out.println(trie.contains("appl"));    // 返回 false
+        System.out.println(trie.startsWith("appl"));  // 返回 true
+        System.out.println(trie.contains("芋艿"));     // 返回 true
+        System.out.println(trie.prefixEnumerate("app")); // 返回 [app, apple, application]
+        System.out.println(trie.longestPrefixMatch("芋道源码的博客")); // 返回 芋道源码
+    }
+
+}
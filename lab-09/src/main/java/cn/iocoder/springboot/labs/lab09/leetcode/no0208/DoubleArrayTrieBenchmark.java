@@ -0,0 +1,101 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0208;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link DoubleArrayTrie} 和 {@link Trie} 的内存占用、查询耗时对比。
+ *
+ * 因为 {@link Trie} 只支持 'a' ~ 'z' ，所以随机生成的都是小写字母组成的词。
+ *
+ * 内存占用通过 GC 前后 {@link Runtime} 的已使用堆内存估算，建议使用 -Xmx4g 运行。
+ */
+public class DoubleArrayTrieBenchmark {
+
+    private static final int WORD_COUNT = 500_000;
+
+    private static final int LOOKUPS = 2_000_000;
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        Random random = new Random(0);
+        List<String> words = new ArrayList<>(WORD_COUNT);
+        for (int i = 0; i < WORD_COUNT; i++) {
+            words.add(randomWord(random));
+        }
+        // 一半命中，一半不命中
+        String[] queries = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            queries[i] = i % 2 == 0 ? words.get(random.nextInt(WORD_COUNT)) : randomWord(random);
+        }
+
+        // 多轮执行，前几轮用于 JIT 预热
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("第 " + (round + 1) + " 轮");
+            benchmarkTrie(words, queries);
+            benchmarkDoubleArrayTrie(words, queries);
+        }
+    }
+
+    private static void benchmarkTrie(List<String> words, String[] queries) {
+        long before = usedMemory();
+        long start = System.nanoTime();
+        Trie trie = new Trie();
+        for (String word : words) {
+            trie.insert(word);
+        }
+        long buildNanos = System.nanoTime() - start;
+        long after = usedMemory();
+
+        start = System.nanoTime();
+        int found = 0;
+        for (String query : queries) {
+            if (trie.search(query)) {
+                found++;
+            }
+        }
+        print("Trie", after - before, buildNanos, System.nanoTime() - start, found);
+    }
+
+    private static void benchmarkDoubleArrayTrie(List<String> words, String[] queries) {
+        long before = usedMemory();
+        long start = System.nanoTime();
+        DoubleArrayTrie trie = DoubleArrayTrie.build(words);
+        long buildNanos = System.nanoTime() - start;
+        long after = usedMemory();
+
+        start = System.nanoTime();
+        int found = 0;
+        for (String query : queries) {
+            if (trie.contains(query)) {
+                found++;
+            }
+        }
+        print("DoubleArrayTrie", after - before, buildNanos, System.nanoTime() - start, found);
+    }
+
+    private static String randomWord(Random random) {
+        int length = 5 + random.nextInt(8);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    private static void print(String name, long bytes, long buildNanos, long lookupNanos, int found) {
+        System.out.println(String.format("%-16s 内存：%7d KB，构建：%6d ms，查询：%5d ns/op，命中：%d",
+                name, bytes / 1024, buildNanos / 1_000_000, lookupNanos / LOOKUPS, found));
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,328 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0300;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+/**
+ * 流式的最长上升子序列（LIS），基于耐心排序（patience sorting），时间复杂度 O(n * log(L)) ，L 为 LIS 的长度。
+ *
+ * 在 {@link Solution02} 的基础上：
+ *
+ * 1. 元素逐个加入，支持 {@link IntStream}、{@link PrimitiveIterator.OfInt} ，不需要先收集成数组。
+ * 2. 每一堆（pile）的堆顶值、堆顶元素的编号，使用 int[] 保存，不需要装箱；二分查找使用基本类型数组。
+ *    元素大于最后一堆的堆顶时（单调上升的区间），直接追加，不需要二分查找。
+ * 3. 需要子序列本身时，记录每个元素加入时前一堆的堆顶，作为前驱，使用 int[] 保存，最后从最后一堆的堆顶沿着前驱回溯。
+ *    只需要长度时，不记录前驱，内存只和 LIS 的长度有关，可以处理无限的流。
+ * 4. 支持严格上升、非严格上升（允许相等，用于检测监控指标的单调区间）。
+ * 5. {@link Window} ：只计算最近 windowSize 个元素的 LIS 。
+ *
+ * 非线程安全。
+ */
+public class PatienceSortingLis {
+
+    /**
+     * 数组的最大长度
+     */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    /**
+     * 是否严格上升
+     */
+    private final boolean strict;
+    /**
+     * 是否记录前驱，用于回溯子序列
+     */
+    private final boolean tracking;
+
+    /**
+     * tails[i] 为第 i 堆的堆顶值，即长度为 i + 1 的上升子序列，最小的结尾值。tails 是有序的
+     */
+    private int[] tails = new int[16];
+    /**
+     * tailIndexes[i] 为第 i 堆的堆顶元素的编号。只在 tracking 时使用
+     */
+    private int[] tailIndexes;
+    /**
+     * 堆数，即 LIS 的长度
+     */
+    private int length;
+    /**
+     * 已加入的元素个数
+     */
+    private long count;
+
+    /**
+     * 每个元素的值。只在 tracking 时使用
+     */
+    private int[] values;
+    /**
+     * 每个元素的前驱编号，-1 表示没有前驱。只在 tracking 时使用
+     */
+    private int[] predecessors;
+
+    public PatienceSortingLis() {
+        this(true, true);
+    }
+
+    /**
+     * @param strict 是否严格上升。false 时，允许相等的元素
+     * @param tracking 是否记录前驱，用于 {@link #subsequence()} 。false 时，只能获取长度
+     */
+    public PatienceSortingLis(boolean strict, boolean tracking) {
+        this.strict = strict;
+        this.tracking = tracking;
+        if (tracking) {
+            this.tailIndexes = new int[16];
+            this.values = new int[16];
+            this.predecessors = new int[16];
+        }
+    }
+
+    // ========== 加入 ==========
+
+    public void add(int value) {
+        // 1. 二分查找加入哪一堆：严格上升时，为第一个 >= value 的堆顶；非严格上升时，为第一个 > value 的堆顶
+        //    大于最后一堆的堆顶时，直接追加
+        int pile = length > 0 && (strict ? tails[length - 1] < value : tails[length - 1] <= value)
+                ? length : search(tails, length, value, strict);
+        if (pile == length) {
+            if (length == tails.length) {
+                tails = Arrays.copyOf(tails, grow(length));
+                if (tracking) {
+                    tailIndexes = Arrays.copyOf(tailIndexes, tails.length);
+                }
+            }
+            length++;
+        }
+        tails[pile] = value;
+
+        // 2. 记录前驱：前一堆当前的堆顶
+        if (tracking) {
+            if (count == values.length) {
+                if (count == MAX_CAPACITY) {
+                    throw new IllegalStateException("记录前驱时，元素个数不能超过 " + MAX_CAPACITY);
+                }
+                int capacity = grow(values.length);
+                values = Arrays.copyOf(values, capacity);
+                predecessors = Arrays.copyOf(predecessors, capacity);
+            }
+            int index = (int) count;
+            values[index] = value;
+            predecessors[index] = pile > 0 ? tailIndexes[pile - 1] : -1;
+            tailIndexes[pile] = index;
+        }
+        count++;
+    }
+
+    public void addAll(PrimitiveIterator.OfInt iterator) {
+        while (iterator.hasNext()) {
+            add(iterator.nextInt());
+        }
+    }
+
+    /**
+     * 加入流中的所有元素。流需要是顺序的，不能是并行的
+     */
+    public void addAll(IntStream stream) {
+        if (stream.isParallel()) {
+            throw new IllegalArgumentException("流不能是并行的");
+        }
+        stream.forEachOrdered(this::add);
+    }
+
+    // ========== 查询 ==========
+
+    /**
+     * @return LIS 的长度
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return 已加入的元素个数
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return 一个最长上升子序列的元素编号（从 0 开始，即第几个加入的元素）
+     */
+    public int[] indexes() {
+        if (!tracking) {
+            throw new IllegalStateException("未记录前驱，无法回溯子序列");
+        }
+        int[] result = new int[length];
+        int index = length > 0 ? tailIndexes[length - 1] : -1;
+        for (int i = length - 1; i >= 0; i--) {
+            result[i] = index;
+            index = predecessors[index];
+        }
+        return result;
+    }
+
+    /**
+     * @return 一个最长上升子序列
+     */
+    public int[] subsequence() {
+        int[] result = indexes();
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values[result[i]];
+        }
+        return result;
+    }
+
+    // ========== 公共 ==========
+
+    /**
+     * 在有序的 tails[0, length) 中查找：lower 为 true 时，返回第一个 >= value 的位置；否则，返回第一个 > value 的位置。
+     * 都不满足时，返回 length
+     */
+    private static int search(int[] tails, int length, int value, boolean lower) {
+        if (length == 0) {
+            return 0;
+        }
+        // 没有分支的二分查找：每次只移动 base ，循环次数固定为 log(length) ，JIT 可以编译成条件传送指令（cmov），避免分支预测失败
+        int base = 0;
+        int n = length;
+        if (lower) {
+            while (n > 1) {
+                int half = n >>> 1;
+                base = tails[base + half - 1] < value ? base + half : base;
+                n -= half;
+            }
+            return tails[base] < value ? base + 1 : base;
+        }
+        while (n > 1) {
+            int half = n >>> 1;
+            base = tails[base + half - 1] <= value ? base + half : base;
+            n -= half;
+        }
+        return tails[base] <= value ? base + 1 : base;
+    }
+
+    private static int grow(int capacity) {
+        return (int) Math.min(MAX_CAPACITY, capacity + (capacity >> 1) + 16L);
+    }
+
+    /**
+     * 滑动窗口：只计算最近 windowSize 个元素的 LIS ，例如说"最近 10 分钟，指标是否持续上升"。
+     *
+     * 最近的元素保存在环形数组中；查询时，对窗口内的元素执行一次耐心排序，时间复杂度 O(windowSize * log(L)) 。
+     * 适用于写入频繁、定期查询的场景。查询复用内部数组，没有内存分配（{@link #subsequence()} 的结果除外）。
+     *
+     * 非线程安全。
+     */
+    public static class Window {
+
+        private final boolean strict;
+        /**
+         * 环形数组
+         */
+        private final int[] ring;
+        /**
+         * 已加入的元素个数
+         */
+        private long count;
+
+        // ========== 以下字段，在查询时使用 ==========
+
+        private final int[] tails;
+        private final int[] tailIndexes;
+        private final int[] predecessors;
+
+        public Window(int windowSize, boolean strict) {
+            if (windowSize <= 0) {
+                throw new IllegalArgumentException("windowSize 必须大于 0");
+            }
+            this.strict = strict;
+            this.ring = new int[windowSize];
+            this.tails = new int[windowSize];
+            this.tailIndexes = new int[windowSize];
+            this.predecessors = new int[windowSize];
+        }
+
+        public void add(int value) {
+            ring[(int) (count % ring.length)] = value;
+            count++;
+        }
+
+        public void addAll(IntStream stream) {
+            if (stream.isParallel()) {
+                throw new IllegalArgumentException("流不能是并行的");
+            }
+            stream.forEachOrdered(this::add);
+        }
+
+        /**
+         * @return 窗口内的元素个数
+         */
+        public int size() {
+            return (int) Math.min(count, ring.length);
+        }
+
+        /**
+         * @return 窗口内 LIS 的长度
+         */
+        public int length() {
+            return compute();
+        }
+
+        /**
+         * @return 窗口内的一个最长上升子序列
+         */
+        public int[] subsequence() {
+            int length = compute();
+            int size = size();
+            int[] result = new int[length];
+            int index = length > 0 ? tailIndexes[length - 1] : -1;
+            for (int i = length - 1; i >= 0; i--) {
+                result[i] = get(index, size);
+                index = predecessors[index];
+            }
+            return result;
+        }
+
+        /**
+         * 对窗口内的元素执行一次耐心排序，返回 LIS 的长度
+         */
+        private int compute() {
+            int size = size();
+            int length = 0;
+            for (int i = 0; i < size; i++) {
+                int value = get(i, size);
+                int pile = length > 0 && (strict ? tails[length - 1] < value : tails[length - 1] <= value)
+                        ? length : search(tails, length, value, strict);
+                if (pile == length) {
+                    length++;
+                }
+                tails[pile] = value;
+                predecessors[i] = pile > 0 ? tailIndexes[pile - 1] : -1;
+                tailIndexes[pile] = i;
+            }
+            return length;
+        }
+
+        /**
+         * 窗口内第 i 个（从旧到新）元素
+         */
+        private int get(int i, int size) {
+            return ring[(int) ((count - size + i) % ring.length)];
+        }
+
+    }
+
+    public static void main(String[] args) {
+        PatienceSortingLis lis = new PatienceSortingLis();
+        lis.addAll(IntStream.of(10, 9, 2, 5, 3, 7, 101, 18));
+        System.out.println(lis.length() + " " + Arrays.toString(lis.subsequence()));
+
+        // 最近 5 个元素
+        Window window = new Window(5, false);
+        window.addAll(IntStream.of(7, 8, 9, 10, 1, 2, 3, 4, 5, 5));
+        System.out.println(window.length() + " " + Arrays.toString(window.subsequence()));
+    }
+
+}
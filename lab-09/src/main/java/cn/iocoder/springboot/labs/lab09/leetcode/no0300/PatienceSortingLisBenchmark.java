@@ -0,0 +1,70 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0300;
+
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * {@link PatienceSortingLis} 和 {@link Solution02} 在 1 亿个元素下的耗时对比。
+ *
+ * 数据为随机数，以及模拟监控指标的随机游走（整体缓慢上升）。{@link Solution02} 需要先把流收集成 int[] 。
+ * 记录前驱时，1 亿个元素需要约 1 GB 内存，需要使用 -Xmx4g 运行。
+ *
+ * 使用方式：java PatienceSortingLisBenchmark [元素个数] [窗口大小]
+ */
+public class PatienceSortingLisBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000_000;
+        int windowSize = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        System.out.println(String.format("元素个数：%d，窗口大小：%d", size, windowSize));
+        benchmark("随机数", () -> new SplittableRandom(0).ints(size), windowSize);
+        benchmark("随机游走", () -> randomWalk(size), windowSize);
+    }
+
+    private static void benchmark(String name, Supplier<IntStream> streams, int windowSize) {
+        long start = System.nanoTime();
+        int[] array = streams.get().toArray();
+        int expected = new Solution02().lengthOfLIS(array);
+        long solutionNanos = System.nanoTime() - start;
+        array = null;
+
+        start = System.nanoTime();
+        PatienceSortingLis lengthOnly = new PatienceSortingLis(true, false);
+        lengthOnly.addAll(streams.get());
+        long lengthNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        PatienceSortingLis tracking = new PatienceSortingLis(true, true);
+        tracking.addAll(streams.get());
+        int[] subsequence = tracking.subsequence();
+        long trackingNanos = System.nanoTime() - start;
+        if (lengthOnly.length() != expected || subsequence.length != expected) {
+            throw new IllegalStateException("结果不一致");
+        }
+        tracking = null;
+
+        start = System.nanoTime();
+        PatienceSortingLis.Window window = new PatienceSortingLis.Window(windowSize, true);
+        window.addAll(streams.get());
+        long addNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        int windowLength = window.length();
+        long queryNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("%s LIS 长度：%d，Solution02：%6d ms，只计算长度：%6d ms，回溯子序列：%6d ms",
+                name, expected, solutionNanos / 1_000_000, lengthNanos / 1_000_000, trackingNanos / 1_000_000));
+        System.out.println(String.format("%s 窗口 LIS 长度：%d，写入：%6d ms，查询：%4d ms",
+                name, windowLength, addNanos / 1_000_000, queryNanos / 1_000_000));
+    }
+
+    /**
+     * 随机游走：每次 -100 ~ +100 ，并且略偏向上升
+     */
+    private static IntStream randomWalk(int size) {
+        SplittableRandom random = new SplittableRandom(0);
+        int[] current = new int[1];
+        return IntStream.range(0, size).map(i -> current[0] += random.nextInt(-100, 102));
+    }
+
+}
@@ -55,7 +55,7 @@ public class Solution02 {
             if (lis.get(mid) == num) {
                 return mid;
             } else if (num < lis.get(mid)) {
-                if (lis.get(mid - 1) > num) {
+                if (lis.get(mid - 1) < num) { // 前一个小于 num ，说明 mid 就是第一个大于 num 的位置
                     return mid;
                 } else {
                     high = mid - 1;
@@ -0,0 +1,562 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0703;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 多线程写入、滑动时间窗口的 Top K 统计，例如说"最近 5 分钟最热门的商品"。
+ *
+ * 在 {@link KthLargest} 的基础上：
+ *
+ * 1. 事件是 (key, count) ，同一个 key 的 count 需要先累加，再取 Top K 。
+ *    所以每个写线程先在自己的 long -> long 开放寻址哈希表中累加，写入时只有一把几乎没有竞争的锁。
+ * 2. 时间窗口切分成多个时间片（slot）。写线程按照事件所在的时间片，分别记录。
+ * 3. 合并时，将每个写线程已经记录的数据取走（只在锁内交换引用），累加到全局的时间片，以及整个窗口的合计中；
+ *    同时，将滑出窗口的时间片，从窗口的合计中减去。
+ * 4. 遍历窗口的合计，使用 {@link KthLargest} 一样的小顶堆（基本类型数组实现）选出 Top K ，生成不可变的 {@link Ranking} 。
+ *    查询直接返回最近一次合并的 {@link Ranking} ，不影响写入。
+ *
+ * 合并可以调用 {@link #merge()} 手动执行，也可以调用 {@link #start(long)} 由后台线程定期执行。
+ * 早于窗口的事件（例如说写线程长时间没有被合并）会被丢弃，并计入 {@link #droppedCount()} 。
+ */
+public class TopKAggregator implements Closeable {
+
+    /**
+     * Top K 的 K
+     */
+    private final int k;
+    /**
+     * 时间片的长度，单位：毫秒
+     */
+    private final long slotMillis;
+    /**
+     * 窗口包含的时间片数
+     */
+    private final int slotCount;
+    /**
+     * 时钟，单位：毫秒
+     */
+    private final LongSupplier clock;
+
+    /**
+     * 每个写线程的记录器
+     */
+    private final ThreadLocal<Recorder> recorder = ThreadLocal.withInitial(this::register);
+    private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+
+    // ========== 以下字段，只在 merge 时访问，由 synchronized 保护 ==========
+
+    /**
+     * 环形的时间片。slots[slot % slotCount] 记录时间片 slot 的合计
+     */
+    private final LongLongMap[] slots;
+    /**
+     * slots 中每个位置，当前记录的时间片编号
+     */
+    private final long[] slotIds;
+    /**
+     * 窗口内所有时间片的合计
+     */
+    private final LongLongMap window = new LongLongMap();
+    private long droppedCount;
+
+    /**
+     * 最近一次合并的结果
+     */
+    private volatile Ranking ranking;
+    private ScheduledExecutorService scheduler;
+
+    public TopKAggregator(int k, long windowMillis, int slotCount) {
+        this(k, windowMillis, slotCount, System::currentTimeMillis);
+    }
+
+    public TopKAggregator(int k, long windowMillis, int slotCount, LongSupplier clock) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k 必须大于 0");
+        }
+        if (slotCount <= 0 || windowMillis < slotCount) {
+            throw new IllegalArgumentException("slotCount 必须大于 0 ，且不大于 windowMillis");
+        }
+        this.k = k;
+        this.slotMillis = windowMillis / slotCount;
+        this.slotCount = slotCount;
+        this.clock = clock;
+        this.slots = new LongLongMap[slotCount];
+        this.slotIds = new long[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new LongLongMap();
+            slotIds[i] = Long.MIN_VALUE;
+        }
+        long now = clock.getAsLong();
+        this.ranking = new Ranking(new long[0], new long[0], now - slotMillis * slotCount, now);
+    }
+
+    // ========== 写入 ==========
+
+    public void add(long key) {
+        add(key, 1);
+    }
+
+    /**
+     * 记录一次事件，线程安全
+     *
+     * @param key 例如说商品编号
+     * @param count 次数，必须大于 0
+     */
+    public void add(long key, long count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count 必须大于 0");
+        }
+        recorder.get().add(Math.floorDiv(clock.getAsLong(), slotMillis), key, count);
+    }
+
+    private Recorder register() {
+        Recorder result = new Recorder(Thread.currentThread());
+        recorders.add(result);
+        return result;
+    }
+
+    // ========== 查询 ==========
+
+    /**
+     * @return 最近一次合并的 Top K
+     */
+    public Ranking topK() {
+        return ranking;
+    }
+
+    /**
+     * @return 早于窗口而被丢弃的事件次数
+     */
+    public synchronized long droppedCount() {
+        return droppedCount;
+    }
+
+    // ========== 合并 ==========
+
+    /**
+     * 合并所有写线程的记录，滑动窗口，并计算新的 Top K
+     *
+     * @return 新的 Top K
+     */
+    public synchronized Ranking merge() {
+        long now = clock.getAsLong();
+        long currentSlot = Math.floorDiv(now, slotMillis);
+        long oldestSlot = currentSlot - slotCount + 1;
+        // 1. 滑出窗口的时间片，从合计中减去
+        for (int i = 0; i < slotCount; i++) {
+            if (slotIds[i] != Long.MIN_VALUE && slotIds[i] < oldestSlot) {
+                expire(i);
+            }
+        }
+
+        // 2. 取走每个写线程的记录，累加到对应的时间片
+        List<Segment> segments = new ArrayList<>();
+        for (Recorder recorder : recorders) {
+            recorder.drainTo(segments);
+            // 线程已经结束，并且数据已经取走，不再需要它的记录器
+            if (!recorder.thread.isAlive()) {
+                recorder.drainTo(segments);
+                recorders.remove(recorder);
+            }
+        }
+        for (Segment segment : segments) {
+            if (segment.slot < oldestSlot) {
+                droppedCount += segment.total;
+                continue;
+            }
+            int index = (int) Math.floorMod(segment.slot, (long) slotCount);
+            if (slotIds[index] != segment.slot) {
+                // 时钟回拨等情况下，该位置可能还是更早的时间片
+                if (slotIds[index] != Long.MIN_VALUE) {
+                    expire(index);
+                }
+                slotIds[index] = segment.slot;
+            }
+            LongLongMap counts = segment.counts;
+            for (int i = 0; i < counts.keys.length; i++) {
+                long value = counts.values[i];
+                if (value != 0) {
+                    slots[index].add(counts.keys[i], value);
+                    window.add(counts.keys[i], value);
+                }
+            }
+        }
+
+        // 3. 计算 Top K
+        ranking = select(now);
+        return ranking;
+    }
+
+    private void expire(int index) {
+        LongLongMap counts = slots[index];
+        for (int i = 0; i < counts.keys.length; i++) {
+            long value = counts.values[i];
+            if (value != 0) {
+                window.add(counts.keys[i], -value);
+            }
+        }
+        counts.clear();
+        slotIds[index] = Long.MIN_VALUE;
+    }
+
+    /**
+     * 使用小顶堆，从窗口的合计中选出 Top K 。count 相同时，key 小的优先
+     */
+    private Ranking select(long now) {
+        // 下标从 1 开始，和 KthLargest 一致
+        long[] heapKeys = new long[k + 1];
+        long[] heapCounts = new long[k + 1];
+        int size = 0;
+        for (int i = 0; i < window.keys.length; i++) {
+            long count = window.values[i];
+            if (count == 0) {
+                continue;
+            }
+            long key = window.keys[i];
+            if (size < k) {
+                size++;
+                heapKeys[size] = key;
+                heapCounts[size] = count;
+                heapifyUp(heapKeys, heapCounts, size);
+            } else if (less(heapKeys[1], heapCounts[1], key, count)) {
+                // 比堆顶（第 K 名）大，才有资格加入
+                heapKeys[1] = key;
+                heapCounts[1] = count;
+                heapifyDown(heapKeys, heapCounts, size, 1);
+            }
+        }
+        // 依次取出堆顶，从后往前填充，得到从大到小的顺序
+        long[] keys = new long[size];
+        long[] counts = new long[size];
+        for (int i = size - 1; i >= 0; i--) {
+            keys[i] = heapKeys[1];
+            counts[i] = heapCounts[1];
+            heapKeys[1] = heapKeys[i + 1];
+            heapCounts[1] = heapCounts[i + 1];
+            heapifyDown(heapKeys, heapCounts, i, 1);
+        }
+        return new Ranking(keys, counts, (Math.floorDiv(now, slotMillis) - slotCount + 1) * slotMillis, now);
+    }
+
+    /**
+     * (key1, count1) 的排名是否在 (key2, count2) 之后
+     */
+    private static boolean less(long key1, long count1, long key2, long count2) {
+        return count1 < count2 || (count1 == count2 && key1 > key2);
+    }
+
+    private static void heapifyUp(long[] keys, long[] counts, int index) {
+        while (index > 1) {
+            int parent = index / 2;
+            if (!less(keys[index], counts[index], keys[parent], counts[parent])) {
+                break;
+            }
+            swap(keys, counts, index, parent);
+            index = parent;
+        }
+    }
+
+    private static void heapifyDown(long[] keys, long[] counts, int size, int index) {
+        while (true) {
+            int pos = index;
+            int left = index * 2;
+            if (left <= size && less(keys[left], counts[left], keys[pos], counts[pos])) {
+                pos = left;
+            }
+            if (left + 1 <= size && less(keys[left + 1], counts[left + 1], keys[pos], counts[pos])) {
+                pos = left + 1;
+            }
+            if (pos == index) {
+                return;
+            }
+            swap(keys, counts, index, pos);
+            index = pos;
+        }
+    }
+
+    private static void swap(long[] keys, long[] counts, int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long count = counts[i];
+        counts[i] = counts[j];
+        counts[j] = count;
+    }
+
+    // ========== 后台合并 ==========
+
+    /**
+     * 启动后台线程，每隔 periodMillis 毫秒合并一次
+     */
+    public synchronized void start(long periodMillis) {
+        if (scheduler != null) {
+            throw new IllegalStateException("已经启动");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "top-k-merger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::merge, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    // ========== 内部类 ==========
+
+    /**
+     * 一次合并的结果，不可变。按照 count 从大到小排序
+     */
+    public static final class Ranking {
+
+        private final long[] keys;
+        private final long[] counts;
+        /**
+         * 窗口的起始时间（包含），单位：毫秒
+         */
+        private final long windowStart;
+        /**
+         * 窗口的结束时间，即合并的时间，单位：毫秒
+         */
+        private final long windowEnd;
+
+        private Ranking(long[] keys, long[] counts, long windowStart, long windowEnd) {
+            this.keys = keys;
+            this.counts = counts;
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+        }
+
+        public int size() {
+            return keys.length;
+        }
+
+        public long key(int rank) {
+            return keys[rank];
+        }
+
+        public long count(int rank) {
+            return counts[rank];
+        }
+
+        public long windowStart() {
+            return windowStart;
+        }
+
+        public long windowEnd() {
+            return windowEnd;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("[");
+            for (int i = 0; i < keys.length; i++) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                builder.append(keys[i]).append('=').append(counts[i]);
+            }
+            return builder.append(']').toString();
+        }
+
+    }
+
+    /**
+     * 写线程的记录器。锁只在合并时才会有竞争
+     */
+    private static final class Recorder {
+
+        private final Thread thread;
+        /**
+         * 当前记录的时间片
+         */
+        private long slot = Long.MIN_VALUE;
+        private LongLongMap current = new LongLongMap();
+        private long currentTotal;
+        /**
+         * 已经切换走的时间片，等待合并
+         */
+        private final List<Segment> sealed = new ArrayList<>();
+
+        private Recorder(Thread thread) {
+            this.thread = thread;
+        }
+
+        private synchronized void add(long slot, long key, long count) {
+            if (slot != this.slot) {
+                seal();
+                this.slot = slot;
+            }
+            current.add(key, count);
+            currentTotal += count;
+        }
+
+        private synchronized void drainTo(List<Segment> segments) {
+            seal();
+            segments.addAll(sealed);
+            sealed.clear();
+        }
+
+        private void seal() {
+            if (currentTotal == 0) {
+                return;
+            }
+            sealed.add(new Segment(slot, current, currentTotal));
+            current = new LongLongMap();
+            currentTotal = 0;
+        }
+
+    }
+
+    /**
+     * 某个写线程，在某个时间片的记录
+     */
+    private static final class Segment {
+
+        private final long slot;
+        private final LongLongMap counts;
+        /**
+         * 事件次数的合计
+         */
+        private final long total;
+
+        private Segment(long slot, LongLongMap counts, long total) {
+            this.slot = slot;
+            this.counts = counts;
+            this.total = total;
+        }
+
+    }
+
+    /**
+     * long -> long 的开放寻址（线性探测）哈希表。value 为 0 表示该位置为空，所以 value 为 0 的 key 会被删除。
+     *
+     * 非线程安全。
+     */
+    static final class LongLongMap {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private long[] values = new long[INITIAL_CAPACITY];
+        private int size;
+
+        /**
+         * 将 key 的 value 加上 delta 。结果为 0 时，删除 key
+         */
+        void add(long key, long delta) {
+            int mask = keys.length - 1;
+            int index = index(key, mask);
+            while (values[index] != 0) {
+                if (keys[index] == key) {
+                    values[index] += delta;
+                    if (values[index] == 0) {
+                        remove(index);
+                    }
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = delta;
+            // 负载因子 0.5
+            if (++size > keys.length >>> 1) {
+                resize();
+            }
+        }
+
+        void clear() {
+            if (keys.length > INITIAL_CAPACITY && size < keys.length >>> 3) {
+                // 时间片之间 key 的数量差异较大时，避免一直占用大数组
+                keys = new long[INITIAL_CAPACITY];
+                values = new long[INITIAL_CAPACITY];
+            } else {
+                Arrays.fill(values, 0);
+            }
+            size = 0;
+        }
+
+        /**
+         * 删除 index 位置，并将后续同一探测序列的元素前移，不需要墓碑标记
+         */
+        private void remove(int index) {
+            int mask = keys.length - 1;
+            size--;
+            int hole = index;
+            for (int next = (hole + 1) & mask; values[next] != 0; next = (next + 1) & mask) {
+                int home = index(keys[next], mask);
+                // home 不在 (hole, next] 之间，说明 next 可以前移到 hole
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+            }
+            values[hole] = 0;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length << 1];
+            values = new long[oldValues.length << 1];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != 0) {
+                    int index = index(oldKeys[i], mask);
+                    while (values[index] != 0) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+
+        private static int index(long key, int mask) {
+            // Fibonacci 散列，打散连续的 key
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // 窗口 1 分钟，切分成 60 个时间片
+        try (TopKAggregator aggregator = new TopKAggregator(3, 60_000, 60)) {
+            Thread[] threads = new Thread[4];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(() -> {
+                    for (int j = 0; j < 100_000; j++) {
+                        // 商品 j % 10 的热度为 j % 10 + 1
+                        for (int product = 0; product < 10; product++) {
+                            if (j % 10 <= product) {
+                                aggregator.add(product);
+                            }
+                        }
+                    }
+                });
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            System.out.println(aggregator.merge());
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package cn.iocoder.springboot.labs.lab09.leetcode.no0703;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link TopKAggregator} 在 1 ~ 8 个写线程下的吞吐量，以及合并的耗时。
+ *
+ * 模拟"最热门商品"：100 万个商品，热度近似 Zipf 分布；窗口 5 分钟、切分成 60 个时间片，每 100 ms 合并一次。
+ */
+public class TopKAggregatorBenchmark {
+
+    private static final int PRODUCTS = 1_000_000;
+
+    private static final int K = 100;
+
+    private static final long DURATION_MILLIS = 3000;
+
+    private static final long MERGE_PERIOD_MILLIS = 100;
+
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println(String.format("%8s %14s %14s %10s", "threads", "events/s", "merge(ms)", "top1"));
+        for (int threads : THREADS) {
+            run(threads);
+        }
+    }
+
+    private static void run(int threads) throws InterruptedException {
+        try (TopKAggregator aggregator = new TopKAggregator(K, TimeUnit.MINUTES.toMillis(5), 60)) {
+            LongAdder events = new LongAdder();
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch end = new CountDownLatch(threads);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+            for (int i = 0; i < threads; i++) {
+                new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long count = 0;
+                    try {
+                        start.await();
+                        while (System.nanoTime() < deadline) {
+                            // 每批次写入 128 次，减少 nanoTime 的开销
+                            for (int j = 0; j < 128; j++) {
+                                aggregator.add(zipf(random));
+                            }
+                            count += 128;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        events.add(count);
+                        end.countDown();
+                    }
+                }).start();
+            }
+
+            // 在当前线程定期合并，同时统计合并的耗时
+            long merges = 0;
+            long mergeNanos = 0;
+            start.countDown();
+            while (!end.await(MERGE_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) {
+                long mergeStart = System.nanoTime();
+                aggregator.merge();
+                mergeNanos += System.nanoTime() - mergeStart;
+                merges++;
+            }
+            TopKAggregator.Ranking ranking = aggregator.merge();
+            System.out.println(String.format("%8d %14d %14.2f %10s", threads, events.sum() * 1000 / DURATION_MILLIS,
+                    mergeNanos / 1e6 / Math.max(1, merges), ranking.key(0) + "=" + ranking.count(0)));
+        }
+    }
+
+    /**
+     * 近似 Zipf 分布：商品编号越小越热门
+     */
+    private static long zipf(ThreadLocalRandom random) {
+        return (long) Math.pow(PRODUCTS, random.nextDouble()) - 1;
+    }
+
+}
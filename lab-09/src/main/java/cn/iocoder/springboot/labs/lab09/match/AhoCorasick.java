@@ -0,0 +1,374 @@
+package cn.iocoder.springboot.labs.lab09.match;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Aho–Corasick 多模式匹配自动机。
+ *
+ * {@link RabinKarp} 一次只能在一个 String 中查找一个模式串。这里，一次遍历输入，就可以找出所有模式串的所有出现位置：
+ *
+ * 1. 将模式串按照 UTF-8 编码成字节，构建 Trie（思路同 {@link cn.iocoder.springboot.labs.lab09.leetcode.no0208.Trie}）。
+ * 2. 按照 BFS 顺序计算失配指针，并将其"压平"到转移表中，得到一个 DFA 。匹配时每个字节只需要查一次表，不需要回溯。
+ * 3. 为了减小转移表，只有在模式串中出现过的字节，才拥有独立的字节类别，其它字节都归为类别 0 。
+ * 4. 每个状态记录以它结尾的模式串 {@link #outputs}，以及失配链上下一个有输出的状态 {@link #dictLinks} 。
+ *
+ * 为了让扫描的循环足够紧凑，转移表中存储的是"状态 * classCount"，省去每个字节的一次乘法；
+ * 如果目标状态有输出，则存储其取反后的负数，这样每个字节只需要一次判断。
+ *
+ * 匹配过程中不创建任何对象，可以直接扫描内存映射的大文件。构建后只读，线程安全。
+ */
+public class AhoCorasick {
+
+    private static final int ROOT = 0;
+
+    private static final int NONE = -1;
+
+    /**
+     * 每次映射的文件窗口大小
+     */
+    private static final long MAP_WINDOW = 1L << 30;
+
+    /**
+     * 扫描时，每次从 ByteBuffer 批量复制的字节数
+     */
+    private static final int SCAN_CHUNK = 1 << 16;
+
+    /**
+     * 匹配回调
+     */
+    public interface MatchHandler {
+
+        /**
+         * @param end       匹配结束的位置（不包含）。对于字节输入，是字节偏移；对于 {@link Reader} ，是字符偏移
+         * @param patternId 模式串的编号，即构建时传入的顺序
+         * @return 是否继续匹配
+         */
+        boolean onMatch(long end, int patternId);
+
+    }
+
+    private final String[] patterns;
+    /**
+     * 模式串 UTF-8 编码后的字节长度
+     */
+    private final int[] patternLengths;
+
+    /**
+     * 字节到字节类别的映射
+     */
+    private final int[] byteClasses = new int[256];
+    private final int classCount;
+
+    /**
+     * DFA 转移表，状态 s 经过类别 c ，转移到 transitions[s * classCount + c] 。
+     * 值为目标状态 * classCount ，目标状态有输出时取反
+     */
+    private final int[] transitions;
+    /**
+     * 以该状态结尾的模式串编号，不存在时为 {@link #NONE}
+     */
+    private final int[] outputs;
+    /**
+     * 失配链上，下一个有输出的状态，不存在时为 {@link #NONE}
+     */
+    private final int[] dictLinks;
+
+    /**
+     * 构建自动机。重复的模式串，只会以第一次出现的编号匹配
+     */
+    public AhoCorasick(Collection<String> patterns) {
+        this.patterns = patterns.toArray(new String[0]);
+        this.patternLengths = new int[this.patterns.length];
+        byte[][] keys = new byte[this.patterns.length][];
+        long totalLength = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (this.patterns[i] == null || this.patterns[i].isEmpty()) {
+                throw new IllegalArgumentException("不允许空的模式串");
+            }
+            keys[i] = this.patterns[i].getBytes(StandardCharsets.UTF_8);
+            patternLengths[i] = keys[i].length;
+            totalLength += keys[i].length;
+        }
+
+        // 计算字节类别
+        int count = 1;
+        for (byte[] key : keys) {
+            for (byte b : key) {
+                if (byteClasses[b & 0xff] == 0) {
+                    byteClasses[b & 0xff] = count++;
+                }
+            }
+        }
+        this.classCount = count;
+
+        // 构建 Trie 。状态数不会超过模式串的总长度 + 1 。转移表的下标、编码后的状态都是 int ，不能溢出
+        if ((totalLength + 1) * classCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format("模式串过多，转移表过大：%d 个状态，%d 个字节类别",
+                    totalLength + 1, classCount));
+        }
+        int maxStates = (int) totalLength + 1;
+        int[] trie = new int[maxStates * classCount];
+        Arrays.fill(trie, NONE);
+        int[] output = new int[maxStates];
+        Arrays.fill(output, NONE);
+        int stateCount = 1;
+        for (int i = 0; i < keys.length; i++) {
+            int state = ROOT;
+            for (byte b : keys[i]) {
+                int index = state * classCount + byteClasses[b & 0xff];
+                if (trie[index] == NONE) {
+                    trie[index] = stateCount++;
+                }
+                state = trie[index];
+            }
+            if (output[state] == NONE) {
+                output[state] = i;
+            }
+        }
+
+        // BFS 计算失配指针，并将缺失的转移，替换成失配状态的转移
+        int[] fails = new int[stateCount];
+        int[] links = new int[stateCount];
+        Arrays.fill(links, NONE);
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        for (int c = 0; c < classCount; c++) {
+            int child = trie[c];
+            if (child == NONE) {
+                trie[c] = ROOT;
+            } else {
+                fails[child] = ROOT;
+                queue[tail++] = child;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            int failBase = fails[state] * classCount;
+            for (int c = 0; c < classCount; c++) {
+                int index = state * classCount + c;
+                int child = trie[index];
+                if (child == NONE) {
+                    trie[index] = trie[failBase + c];
+                } else {
+                    int fail = trie[failBase + c];
+                    fails[child] = fail;
+                    links[child] = output[fail] != NONE ? fail : links[fail];
+                    queue[tail++] = child;
+                }
+            }
+        }
+
+        // 将转移表中的状态，编码成 "状态 * classCount" ，有输出的取反
+        for (int i = 0, length = stateCount * classCount; i < length; i++) {
+            int target = trie[i];
+            trie[i] = output[target] != NONE || links[target] != NONE ? ~(target * classCount) : target * classCount;
+        }
+        this.transitions = Arrays.copyOf(trie, stateCount * classCount);
+        this.outputs = Arrays.copyOf(output, stateCount);
+        this.dictLinks = links;
+    }
+
+    /**
+     * 扫描 buffer 的 [position, limit) 范围，不修改 buffer 的 position
+     *
+     * @return 匹配的数量
+     */
+    public long scan(ByteBuffer buffer, MatchHandler handler) {
+        long[] matches = {0};
+        scan(buffer, ROOT, -buffer.position(), handler, matches);
+        return matches[0];
+    }
+
+    /**
+     * 扫描文件。文件按照 {@link #MAP_WINDOW} 分段映射，状态在窗口之间延续，因此跨窗口的匹配不会丢失
+     *
+     * @return 匹配的数量
+     */
+    public long scan(Path file, MatchHandler handler) throws IOException {
+        long[] matches = {0};
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int state = ROOT;
+            for (long position = 0; position < size; position += MAP_WINDOW) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(MAP_WINDOW, size - position));
+                state = scan(buffer, state, position, handler, matches);
+                if (state == NONE) {
+                    break;
+                }
+            }
+        }
+        return matches[0];
+    }
+
+    /**
+     * 扫描字符流。字符按照 UTF-8 编码后匹配，回调的位置为字符偏移
+     *
+     * @return 匹配的数量
+     */
+    public long scan(Reader reader, MatchHandler handler) throws IOException {
+        char[] chars = new char[8192];
+        long[] matches = {0};
+        long offset = 0;
+        // 编码后的状态，即 状态 * classCount
+        int state = ROOT;
+        // 上一个字符，未配对的高代理字符（可能在上一批字符的末尾）
+        char pendingHigh = 0;
+        int read;
+        while ((read = reader.read(chars)) != -1) {
+            for (int i = 0; i < read; i++, offset++) {
+                char ch = chars[i];
+                if (pendingHigh != 0) {
+                    if (Character.isLowSurrogate(ch)) {
+                        int codePoint = Character.toCodePoint(pendingHigh, ch);
+                        pendingHigh = 0;
+                        state = scanChar(state, codePoint, offset + 1, handler, matches);
+                        if (state == NONE) {
+                            return matches[0];
+                        }
+                        continue;
+                    }
+                    // 未配对的高代理字符，替换为 '?' ，结束于上一个字符；当前字符继续按照正常的字符处理
+                    pendingHigh = 0;
+                    state = scanChar(state, '?', offset, handler, matches);
+                    if (state == NONE) {
+                        return matches[0];
+                    }
+                }
+                if (Character.isHighSurrogate(ch)) {
+                    pendingHigh = ch;
+                    continue;
+                }
+                state = scanChar(state, Character.isLowSurrogate(ch) ? '?' : ch, offset + 1, handler, matches);
+                if (state == NONE) {
+                    return matches[0];
+                }
+            }
+        }
+        // 输入以未配对的高代理字符结尾
+        if (pendingHigh != 0) {
+            scanChar(state, '?', offset, handler, matches);
+        }
+        return matches[0];
+    }
+
+    /**
+     * 按照 UTF-8 编码，逐字节转移一个字符，并回调以它结尾的匹配
+     *
+     * @param state 编码后的状态，不为负数
+     * @param end   字符结束的位置（不包含）
+     * @return 编码后的状态，不为负数。如果 handler 要求停止，返回 {@link #NONE}
+     */
+    private int scanChar(int state, int codePoint, long end, MatchHandler handler, long[] matches) {
+        if (codePoint < 0x80) {
+            state = step(state, codePoint);
+        } else if (codePoint < 0x800) {
+            state = step(state, 0xc0 | (codePoint >> 6));
+            state = step(state, 0x80 | (codePoint & 0x3f));
+        } else if (codePoint < 0x10000) {
+            state = step(state, 0xe0 | (codePoint >> 12));
+            state = step(state, 0x80 | ((codePoint >> 6) & 0x3f));
+            state = step(state, 0x80 | (codePoint & 0x3f));
+        } else {
+            state = step(state, 0xf0 | (codePoint >> 18));
+            state = step(state, 0x80 | ((codePoint >> 12) & 0x3f));
+            state = step(state, 0x80 | ((codePoint >> 6) & 0x3f));
+            state = step(state, 0x80 | (codePoint & 0x3f));
+        }
+
+        // 模式串都是完整的 UTF-8 字符，所以只需要在字符边界检查输出
+        if (state < 0) {
+            state = ~state;
+            for (int s = firstOutput(state / classCount); s != NONE; s = dictLinks[s]) {
+                matches[0]++;
+                if (!handler.onMatch(end, outputs[s])) {
+                    return NONE;
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * @param state 编码后的起始状态
+     * @return 编码后的最终状态。如果 handler 要求停止，返回 {@link #NONE}
+     */
+    private int scan(ByteBuffer buffer, int state, long baseOffset, MatchHandler handler, long[] matches) {
+        int[] transitions = this.transitions;
+        int[] byteClasses = this.byteClasses;
+        // 分块批量复制到堆内数组，避免逐字节调用 ByteBuffer#get(int) 的边界检查
+        ByteBuffer source = buffer.duplicate();
+        byte[] chunk = new byte[Math.min(SCAN_CHUNK, source.remaining())];
+        while (source.hasRemaining()) {
+            long chunkOffset = baseOffset + source.position();
+            int length = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, length);
+            for (int i = 0; i < length; i++) {
+                state = transitions[state + byteClasses[chunk[i] & 0xff]];
+                if (state >= 0) {
+                    continue;
+                }
+                state = ~state;
+                for (int s = firstOutput(state / classCount); s != NONE; s = dictLinks[s]) {
+                    matches[0]++;
+                    if (!handler.onMatch(chunkOffset + i + 1, outputs[s])) {
+                        return NONE;
+                    }
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 状态 state 的输出链上的第一个状态
+     */
+    private int firstOutput(int state) {
+        return outputs[state] != NONE ? state : dictLinks[state];
+    }
+
+    /**
+     * 转移一个字节。结果为编码后的状态，有输出时为负数
+     */
+    private int step(int state, int b) {
+        return transitions[(state < 0 ? ~state : state) + byteClasses[b]];
+    }
+
+    public String pattern(int patternId) {
+        return patterns[patternId];
+    }
+
+    /**
+     * 模式串 UTF-8 编码后的字节长度，用于根据结束位置计算开始位置
+     */
+    public int patternByteLength(int patternId) {
+        return patternLengths[patternId];
+    }
+
+    /**
+     * 状态数
+     */
+    public int stateCount() {
+        return outputs.length;
+    }
+
+    public static void main(String[] args) throws IOException {
+        AhoCorasick ac = new AhoCorasick(Arrays.asList("he", "she", "his", "hers", "芋艿"));
+        ac.scan(new StringReader("ushers 芋艿"), (end, patternId) -> {
+            System.out.println(ac.pattern(patternId) + " 结束于 " + end); // she 4, he 4, hers 6, 芋艿 9
+            return true;
+        });
+    }
+
+}
@@ -0,0 +1,120 @@
+package cn.iocoder.springboot.labs.lab09.match;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link AhoCorasick} 扫描内存映射文件的吞吐量，以及和逐个模式串执行 {@link RabinKarp} 的耗时对比。
+ *
+ * 使用方式：java AhoCorasickBenchmark [文件大小 MB] [模式串数量]
+ * 生成的临时文件，在运行结束后删除。
+ */
+public class AhoCorasickBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    /**
+     * 对比 {@link RabinKarp} 时使用的文本长度。RabinKarp 需要逐个模式串扫描，文本太长耗时过久
+     */
+    private static final int RABIN_KARP_TEXT_LENGTH = 1 << 16;
+
+    public static void main(String[] args) throws IOException {
+        int fileMb = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int patternCount = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+
+        Random random = new Random(0);
+        List<String> patterns = new ArrayList<>(patternCount);
+        for (int i = 0; i < patternCount; i++) {
+            patterns.add(randomWord(random, 6 + random.nextInt(6)));
+        }
+        Path file = generateFile(fileMb, patterns, random);
+        try {
+            long start = System.nanoTime();
+            AhoCorasick ac = new AhoCorasick(patterns);
+            System.out.println(String.format("模式串：%d，状态数：%d，构建：%d ms",
+                    patternCount, ac.stateCount(), (System.nanoTime() - start) / 1_000_000));
+
+            // 多轮执行，前几轮用于 JIT 预热
+            for (int round = 0; round < ROUNDS; round++) {
+                System.out.println("第 " + (round + 1) + " 轮");
+                benchmarkFile(ac, file);
+            }
+            benchmarkRabinKarp(ac, patterns, file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void benchmarkFile(AhoCorasick ac, Path file) throws IOException {
+        long size = Files.size(file);
+        long start = System.nanoTime();
+        long matches = ac.scan(file, (end, patternId) -> true);
+        long nanos = System.nanoTime() - start;
+        System.out.println(String.format("AhoCorasick  文件：%d MB，耗时：%d ms，吞吐：%.1f MB/s，匹配：%d",
+                size >> 20, nanos / 1_000_000, size * 1e9 / nanos / (1 << 20), matches));
+    }
+
+    private static void benchmarkRabinKarp(AhoCorasick ac, List<String> patterns, Path file) throws IOException {
+        byte[] head = new byte[RABIN_KARP_TEXT_LENGTH];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read = 0;
+            while (read < head.length) {
+                read += in.read(head, read, head.length - read);
+            }
+        }
+        String text = new String(head, StandardCharsets.US_ASCII);
+
+        long start = System.nanoTime();
+        long matches = ac.scan(ByteBuffer.wrap(head), (end, patternId) -> true);
+        long acNanos = System.nanoTime() - start;
+
+        // RabinKarp 只返回第一次出现的位置，这里统计出现过的模式串数量
+        start = System.nanoTime();
+        int found = 0;
+        for (String pattern : patterns) {
+            if (RabinKarp.find(text, pattern, 31, 1_000_003) >= 0) {
+                found++;
+            }
+        }
+        long rkNanos = System.nanoTime() - start;
+        System.out.println(String.format("文本：%d KB，AhoCorasick 耗时：%d ms（匹配：%d），RabinKarp 逐个模式串耗时：%d ms（出现：%d）",
+                RABIN_KARP_TEXT_LENGTH >> 10, acNanos / 1_000_000, matches, rkNanos / 1_000_000, found));
+    }
+
+    /**
+     * 生成随机小写字母文本，每隔约 1 KB 插入一个模式串
+     */
+    private static Path generateFile(int sizeMb, List<String> patterns, Random random) throws IOException {
+        Path file = Files.createTempFile("aho-corasick", ".txt");
+        byte[] block = new byte[1024];
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            for (long i = 0, blocks = (long) sizeMb << 10; i < blocks; i++) {
+                for (int j = 0; j < block.length; j++) {
+                    block[j] = (byte) ('a' + random.nextInt(26));
+                }
+                byte[] pattern = patterns.get(random.nextInt(patterns.size())).getBytes(StandardCharsets.US_ASCII);
+                System.arraycopy(pattern, 0, block, random.nextInt(block.length - pattern.length), pattern.length);
+                out.write(block);
+            }
+        }
+        return file;
+    }
+
+    private static String randomWord(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+}
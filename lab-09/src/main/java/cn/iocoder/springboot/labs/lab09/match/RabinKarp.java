@@ -1,5 +1,21 @@
 package cn.iocoder.springboot.labs.lab09.match;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
 /**
  * 参考 https://blog.csdn.net/jianke0503/article/details/79735928 文章
  *
@@ -7,6 +23,16 @@ package cn.iocoder.springboot.labs.lab09.match;
  */
 public class RabinKarp {
 
+    /**
+     * 梅森素数 2^61 - 1 ，作为 64 位哈希的模数
+     */
+    private static final long MOD = (1L << 61) - 1;
+
+    /**
+     * 每次映射的文件窗口大小
+     */
+    private static final int MAP_WINDOW = 1 << 30;
+
     // power 指数
     // base 计算超过范围，则返回 base
     public static int find(String src, String target, int power, int base) {
@@ -48,10 +74,244 @@ public class RabinKarp {
         return -1;
     }
 
-    public static void main(String[] args) {
+    /**
+     * 在文件中查找 pattern 的所有出现位置。
+     *
+     * 和 {@link #find(String, String, int, int)} 相比：
+     *
+     * 1. 文件按照 {@link #MAP_WINDOW} 分段映射（相邻窗口重叠 pattern.length - 1 个字节），不需要将整个文件加载到堆内存中。
+     * 2. 使用 64 位的多项式哈希，模数为梅森素数 2^61 - 1 ，并且每次查找随机选择 base ，哈希冲突的概率可以忽略。
+     *    哈希相等时，仍然会逐字节比较，确保结果正确。
+     *
+     * 返回的 LongStream 是惰性的，需要关闭以释放文件句柄，建议配合 try-with-resources 使用。遍历结束时，也会自动关闭。
+     *
+     * @return 匹配的字节偏移，从小到大
+     */
+    public static LongStream find(Path file, byte[] pattern) throws IOException {
+        return find(file, pattern, MAP_WINDOW);
+    }
+
+    static LongStream find(Path file, byte[] pattern, int window) throws IOException {
+        if (pattern.length == 0) {
+            throw new IllegalArgumentException("模式串不能为空");
+        }
+        if (pattern.length > window) {
+            throw new IllegalArgumentException("模式串过长：" + pattern.length);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        MappedMatchIterator iterator = new MappedMatchIterator(channel, pattern, window);
+        Spliterator.OfLong spliterator = Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.longStream(spliterator, false).onClose(iterator::close);
+    }
+
+    /**
+     * 逐个窗口查找匹配位置的迭代器
+     */
+    private static class MappedMatchIterator implements PrimitiveIterator.OfLong {
+
+        private final FileChannel channel;
+        private final byte[] pattern;
+        private final int window;
+        private final long size;
+
+        private final long base;
+        /**
+         * base ^ (pattern.length - 1) ，用于移除窗口最左边的字节
+         */
+        private final long highPower;
+        private final long patternHash;
+
+        /**
+         * 当前映射窗口在文件中的起始位置
+         */
+        private long position;
+        private MappedByteBuffer buffer;
+        /**
+         * 当前窗口中，可作为匹配起点的位置数量
+         */
+        private int starts;
+        /**
+         * 下一个检查的起点，在窗口中的位置
+         */
+        private int index;
+        /**
+         * 以 index 为起点的哈希值
+         */
+        private long hash;
+
+        /**
+         * 已找到、尚未返回的匹配位置，-1 表示没有
+         */
+        private long next = -1;
+        private boolean closed;
+
+        private MappedMatchIterator(FileChannel channel, byte[] pattern, int window) throws IOException {
+            this.channel = channel;
+            this.pattern = pattern;
+            this.window = window;
+            this.size = channel.size();
+            this.base = ThreadLocalRandom.current().nextLong(256, MOD);
+            long power = 1;
+            long h = 0;
+            for (int i = 0; i < pattern.length; i++) {
+                if (i > 0) {
+                    power = mulMod(power, base);
+                }
+                h = addMod(mulMod(h, base), pattern[i] & 0xff);
+            }
+            this.highPower = power;
+            this.patternHash = h;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next >= 0) {
+                return true;
+            }
+            if (closed) {
+                return false;
+            }
+            try {
+                if (advance()) {
+                    return true;
+                }
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            long result = next;
+            next = -1;
+            return result;
+        }
+
+        private boolean advance() throws IOException {
+            int m = pattern.length;
+            while (true) {
+                if (buffer == null && !mapNext()) {
+                    return false;
+                }
+                while (index < starts) {
+                    int start = index++;
+                    boolean hit = hash == patternHash && equalsAt(start);
+                    // 滚动到下一个起点：移除最左边的字节，加入新的字节
+                    if (index < starts) {
+                        hash = addMod(mulMod(subMod(hash, mulMod(buffer.get(start) & 0xff, highPower)), base),
+                                buffer.get(start + m) & 0xff);
+                    }
+                    if (hit) {
+                        next = position + start;
+                        return true;
+                    }
+                }
+                position += starts;
+                buffer = null;
+            }
+        }
+
+        /**
+         * 映射下一个窗口，并计算第一个起点的哈希值
+         *
+         * @return 是否还有剩余的窗口
+         */
+        private boolean mapNext() throws IOException {
+            int m = pattern.length;
+            if (size - position < m) {
+                return false;
+            }
+            long length = Math.min((long) window + m - 1, size - position);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            starts = (int) (length - m + 1);
+            index = 0;
+            hash = 0;
+            for (int i = 0; i < m; i++) {
+                hash = addMod(mulMod(hash, base), buffer.get(i) & 0xff);
+            }
+            return true;
+        }
+
+        private boolean equalsAt(int start) {
+            for (int i = 0; i < pattern.length; i++) {
+                if (buffer.get(start + i) != pattern[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            buffer = null;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+    // ========== 模 2^61 - 1 运算 ==========
+
+    /**
+     * 计算 a * b mod (2^61 - 1) ，要求 a、b 都小于 2^61 。
+     *
+     * 将 a、b 拆分成高 30 位、低 31 位，分别相乘，再利用 2^61 ≡ 1 折叠，避免 64 位溢出
+     */
+    static long mulMod(long a, long b) {
+        long aHigh = a >>> 31;
+        long aLow = a & 0x7fffffffL;
+        long bHigh = b >>> 31;
+        long bLow = b & 0x7fffffffL;
+        long middle = aLow * bHigh + aHigh * bLow;
+        long result = (aHigh * bHigh << 1) + (middle >>> 30) + ((middle & 0x3fffffffL) << 31) + aLow * bLow;
+        return reduce(result);
+    }
+
+    private static long addMod(long a, long b) {
+        long result = a + b;
+        return result >= MOD ? result - MOD : result;
+    }
+
+    private static long subMod(long a, long b) {
+        long result = a - b;
+        return result < 0 ? result + MOD : result;
+    }
+
+    /**
+     * 将无符号的 64 位整数，对 2^61 - 1 取模
+     */
+    private static long reduce(long x) {
+        long result = (x >>> 61) + (x & MOD);
+        return result >= MOD ? result - MOD : result;
+    }
+
+    public static void main(String[] args) throws IOException {
         String src = "2359023141526739921";
         String target = "5902";
         System.out.println(find(src, target, 31, 100));
+
+        Path file = Files.createTempFile("rabin-karp", ".txt");
+        try {
+            Files.write(file, "abcabcab".getBytes(StandardCharsets.UTF_8));
+            try (LongStream offsets = find(file, "abcab".getBytes(StandardCharsets.UTF_8))) {
+                offsets.forEach(System.out::println); // 0 3
+            }
+        } finally {
+            Files.delete(file);
+        }
     }
 
 }
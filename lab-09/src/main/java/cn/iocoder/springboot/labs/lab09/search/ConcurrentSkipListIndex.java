@@ -0,0 +1,455 @@
+package cn.iocoder.springboot.labs.lab09.search;
+
+import java.util.AbstractMap;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁并发跳表，可作为排行榜、排名等有序索引使用。
+ *
+ * 相比 {@link SkipList} 和 {@link SkipList2} ：
+ *
+ * 1. 支持泛型 K / V ，通过 {@link Comparator} 比较 key 。
+ * 2. 每一层的 forward 指针为 {@link AtomicMarkableReference} ，通过 CAS 修改。
+ * 3. 删除分为三步：先通过 CAS 把 value 置为 null（线性化点），再打上逻辑删除标记（mark），
+ *    最后由后续的 {@link #find(Object, Node[], Node[])} 负责物理摘除。
+ *    替换 value 时，同样通过 CAS ，只替换不为 null 的 value ，保证不会写到已删除的节点上。
+ * 4. 层高使用 {@link ThreadLocalRandom} 生成，避免多线程争抢同一个 {@link java.util.Random} 的 seed 。
+ *
+ * 实现参考《The Art of Multiprocessor Programming》中的 LockFreeSkipList ，并修复了书中插入上层时未更新 next 指针的问题。
+ *
+ * 注意，{@link #floor(Object)}、{@link #ceiling(Object)}、{@link #subMap(Object, Object)}、{@link #rankOf(Object)} 都是弱一致的，
+ * 和 {@link java.util.concurrent.ConcurrentSkipListMap} 的迭代器语义相同。
+ */
+@SuppressWarnings("unchecked")
+public class ConcurrentSkipListIndex<K, V> {
+
+    /**
+     * 最大层级数。按照 1/2 的概率晋升，可以支撑 2^32 级别的数据量
+     */
+    private static final int MAX_LEVEL = 32;
+
+    private static final AtomicReferenceFieldUpdater<Node<?, ?>, Object> VALUE_UPDATER
+            = (AtomicReferenceFieldUpdater<Node<?, ?>, Object>) (AtomicReferenceFieldUpdater<?, Object>)
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "value");
+
+    private final Comparator<? super K> comparator;
+
+    /**
+     * 头节点，表示负无穷
+     */
+    private final Node<K, V> head;
+    /**
+     * 尾节点，表示正无穷
+     */
+    private final Node<K, V> tail;
+
+    /**
+     * 当前出现过的最高层级（从 0 开始）。
+     *
+     * 只增不减，查询时从该层开始往下，避免每次都从 {@link #MAX_LEVEL} 开始遍历空层。
+     */
+    private final AtomicInteger topLevel = new AtomicInteger(0);
+
+    /**
+     * 元素数量
+     */
+    private final LongAdder size = new LongAdder();
+
+    public ConcurrentSkipListIndex() {
+        this(null);
+    }
+
+    public ConcurrentSkipListIndex(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+        this.tail = new Node<>(null, null, MAX_LEVEL - 1);
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            tail.next[i] = new AtomicMarkableReference<>(null, false);
+        }
+        this.head = new Node<>(null, null, MAX_LEVEL - 1);
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            head.next[i] = new AtomicMarkableReference<>(tail, false);
+        }
+    }
+
+    /**
+     * 添加或替换 key 对应的 value
+     *
+     * @return 原先的 value ，不存在时返回 null
+     */
+    public V put(K key, V value) {
+        checkNotNull(key, value);
+        int nodeLevel = randomLevel();
+        Node<K, V>[] preds = newNodeArray(MAX_LEVEL);
+        Node<K, V>[] succs = newNodeArray(MAX_LEVEL);
+        while (true) {
+            // 已存在，替换 value 。value 为 null 时，说明节点正在被删除：帮助打上删除标记，重新 find 摘除后，再走插入的流程
+            if (find(key, preds, succs)) {
+                Node<K, V> node = succs[0];
+                V oldValue = replaceValue(node, value);
+                if (oldValue != null) {
+                    return oldValue;
+                }
+                markNode(node);
+                continue;
+            }
+
+            // 创建节点，先指向各层的后继节点
+            Node<K, V> node = new Node<>(key, value, nodeLevel);
+            for (int level = 0; level <= nodeLevel; level++) {
+                node.next[level] = new AtomicMarkableReference<>(succs[level], false);
+            }
+
+            // 先链入第 0 层。成功即代表插入成功（线性化点）
+            if (!preds[0].next[0].compareAndSet(succs[0], node, false, false)) {
+                continue;
+            }
+            size.increment();
+
+            // 再逐层链入上层索引
+            for (int level = 1; level <= nodeLevel; level++) {
+                while (true) {
+                    Node<K, V> pred = preds[level];
+                    Node<K, V> succ = succs[level];
+                    // 已被其它线程标记删除，无需继续建立索引
+                    AtomicMarkableReference<Node<K, V>> next = node.next[level];
+                    if (next.isMarked()) {
+                        return null;
+                    }
+                    // 重新 find 后，后继节点可能发生变化，需要同步修改
+                    Node<K, V> oldSucc = next.getReference();
+                    if (oldSucc != succ && !next.compareAndSet(oldSucc, succ, false, false)) {
+                        continue;
+                    }
+                    if (pred.next[level].compareAndSet(succ, node, false, false)) {
+                        break;
+                    }
+                    find(key, preds, succs);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 移除 key
+     *
+     * @return 被移除的 value ，不存在时返回 null
+     */
+    public V remove(K key) {
+        checkNotNull(key);
+        Node<K, V>[] preds = newNodeArray(MAX_LEVEL);
+        Node<K, V>[] succs = newNodeArray(MAX_LEVEL);
+        if (!find(key, preds, succs)) {
+            return null;
+        }
+        Node<K, V> node = succs[0];
+
+        // 1. 把 value 置为 null 。谁置成功，谁就是真正的删除者
+        V value;
+        do {
+            value = node.value;
+            if (value == null) {
+                return null;
+            }
+        } while (!VALUE_UPDATER.compareAndSet(node, value, null));
+        size.decrement();
+
+        // 2. 自上而下，标记各层为删除
+        markNode(node);
+
+        // 3. 通过 find 物理摘除
+        find(key, preds, succs);
+        return value;
+    }
+
+    /**
+     * 替换 node 的 value 。node 已被删除（value 为 null）时，不替换
+     *
+     * @return 原先的 value ；node 已被删除时，返回 null
+     */
+    private V replaceValue(Node<K, V> node, V value) {
+        while (true) {
+            V oldValue = node.value;
+            if (oldValue == null) {
+                return null;
+            }
+            if (VALUE_UPDATER.compareAndSet(node, oldValue, value)) {
+                return oldValue;
+            }
+        }
+    }
+
+    /**
+     * 自上而下，标记 node 在各层为删除。可以由多个线程重复执行
+     */
+    private static <K, V> void markNode(Node<K, V> node) {
+        boolean[] marked = {false};
+        for (int level = node.level; level >= 0; level--) {
+            Node<K, V> succ = node.next[level].get(marked);
+            while (!marked[0]) {
+                node.next[level].compareAndSet(succ, succ, false, true);
+                succ = node.next[level].get(marked);
+            }
+        }
+    }
+
+    public V get(K key) {
+        checkNotNull(key);
+        Node<K, V> node = findNode(key);
+        return node != null ? node.value : null;
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * 获得小于等于 key 的最大元素
+     */
+    public Map.Entry<K, V> floor(K key) {
+        checkNotNull(key);
+        while (true) {
+            Node<K, V> pred = head;
+            for (int level = topLevel.get(); level >= 0; level--) {
+                Node<K, V> curr = nextUnmarked(pred, level);
+                while (curr != tail && compare(curr.key, key) <= 0) {
+                    pred = curr;
+                    curr = nextUnmarked(pred, level);
+                }
+            }
+            if (pred == head) {
+                return null;
+            }
+            // pred 在遍历过程中被删除，帮助打上删除标记后，重新查找
+            V value = pred.value;
+            if (value == null) {
+                markNode(pred);
+                continue;
+            }
+            return new AbstractMap.SimpleImmutableEntry<>(pred.key, value);
+        }
+    }
+
+    /**
+     * 获得大于等于 key 的最小元素
+     */
+    public Map.Entry<K, V> ceiling(K key) {
+        checkNotNull(key);
+        for (Node<K, V> node = findGreaterOrEqual(key); node != tail; node = nextUnmarked(node, 0)) {
+            // value 为 null 的节点正在被删除，跳过
+            V value = node.value;
+            if (value != null) {
+                return new AbstractMap.SimpleImmutableEntry<>(node.key, value);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获得 [fromKey, toKey) 范围内的元素快照
+     */
+    public NavigableMap<K, V> subMap(K fromKey, K toKey) {
+        checkNotNull(fromKey, toKey);
+        NavigableMap<K, V> result = new TreeMap<>(comparator);
+        for (Node<K, V> node = findGreaterOrEqual(fromKey);
+             node != tail && compare(node.key, toKey) < 0;
+             node = nextUnmarked(node, 0)) {
+            V value = node.value;
+            if (value != null) {
+                result.put(node.key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获得 key 的排名（从 0 开始），即小于 key 的元素数量。key 不存在时返回 -1 。
+     *
+     * 因为没有在索引层维护跨度，需要遍历第 0 层，时间复杂度为 O(n) 。无锁地维护跨度（每次插入、删除都要更新各层前驱的跨度）
+     * 无法和指针的 CAS 原子地完成，所以这里不提供 O(log n) 的排名，只适用于数据量较小、或者低频的排名查询；
+     * 高频的排行榜排名，需要使用加锁的、带跨度的跳表（例如 Redis 的 zset）。
+     */
+    public int rankOf(K key) {
+        checkNotNull(key);
+        int rank = 0;
+        for (Node<K, V> node = nextUnmarked(head, 0); node != tail; node = nextUnmarked(node, 0)) {
+            // value 为 null 的节点正在被删除，不计入排名
+            if (node.value == null) {
+                continue;
+            }
+            int cmp = compare(node.key, key);
+            if (cmp == 0) {
+                return rank;
+            }
+            if (cmp > 0) {
+                return -1;
+            }
+            rank++;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return size.intValue();
+    }
+
+    public boolean isEmpty() {
+        for (Node<K, V> node = nextUnmarked(head, 0); node != tail; node = nextUnmarked(node, 0)) {
+            if (node.value != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 寻找 key 在每一层的前驱 preds 和后继 succs 节点，同时摘除遍历路径上已标记删除的节点
+     *
+     * @return 是否存在 key
+     */
+    private boolean find(K key, Node<K, V>[] preds, Node<K, V>[] succs) {
+        boolean[] marked = {false};
+        retry:
+        while (true) {
+            Node<K, V> pred = head;
+            for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+                // 高于 topLevel 的层一定是空的，直接记录 head -> tail
+                if (level > topLevel.get()) {
+                    preds[level] = head;
+                    succs[level] = tail;
+                    continue;
+                }
+                Node<K, V> curr = pred.next[level].getReference();
+                while (true) {
+                    Node<K, V> succ = curr.next[level].get(marked);
+                    // 摘除已标记删除的节点
+                    while (marked[0]) {
+                        if (!pred.next[level].compareAndSet(curr, succ, false, false)) {
+                            continue retry;
+                        }
+                        curr = pred.next[level].getReference();
+                        succ = curr.next[level].get(marked);
+                    }
+                    if (curr != tail && compare(curr.key, key) < 0) {
+                        pred = curr;
+                        curr = succ;
+                    } else {
+                        break;
+                    }
+                }
+                preds[level] = pred;
+                succs[level] = curr;
+            }
+            return succs[0] != tail && compare(succs[0].key, key) == 0;
+        }
+    }
+
+    /**
+     * 只读查找，不摘除节点，因此是 wait-free 的
+     */
+    private Node<K, V> findNode(K key) {
+        Node<K, V> node = findGreaterOrEqual(key);
+        return node != tail && compare(node.key, key) == 0 ? node : null;
+    }
+
+    /**
+     * 获得第一个大于等于 key ，并且未被标记删除的节点。不存在时，返回 {@link #tail}
+     */
+    private Node<K, V> findGreaterOrEqual(K key) {
+        Node<K, V> pred = head;
+        Node<K, V> curr = tail;
+        for (int level = topLevel.get(); level >= 0; level--) {
+            curr = nextUnmarked(pred, level);
+            while (curr != tail && compare(curr.key, key) < 0) {
+                pred = curr;
+                curr = nextUnmarked(pred, level);
+            }
+        }
+        return curr;
+    }
+
+    /**
+     * 获得 node 在 level 层，第一个未被标记删除的后继节点
+     */
+    private Node<K, V> nextUnmarked(Node<K, V> node, int level) {
+        Node<K, V> curr = node.next[level].getReference();
+        while (curr != tail && curr.next[level].isMarked()) {
+            curr = curr.next[level].getReference();
+        }
+        return curr;
+    }
+
+    private int randomLevel() {
+        // 每一位代表一次抛硬币，按照 1/2 的概率晋升
+        int random = ThreadLocalRandom.current().nextInt();
+        int level = 0;
+        while ((random & 1) != 0 && level < MAX_LEVEL - 1) {
+            level++;
+            random >>>= 1;
+        }
+        // 更新最高层级
+        int current;
+        while (level > (current = topLevel.get())) {
+            if (topLevel.compareAndSet(current, level)) {
+                break;
+            }
+        }
+        return level;
+    }
+
+    private int compare(K k1, K k2) {
+        return comparator != null ? comparator.compare(k1, k2) : ((Comparable<? super K>) k1).compareTo(k2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Node<K, V>[] newNodeArray(int length) {
+        return (Node<K, V>[]) new Node<?, ?>[length];
+    }
+
+    private static void checkNotNull(Object... objects) {
+        for (Object object : objects) {
+            if (object == null) {
+                throw new NullPointerException();
+            }
+        }
+    }
+
+    /**
+     * 节点
+     *
+     * {@link #next} 数组的长度为 {@link #level} + 1 ，按照实际层级分配。
+     */
+    private static final class Node<K, V> {
+
+        private final K key;
+        /**
+         * 不能为 private ，否则 {@link #VALUE_UPDATER} 在 JDK 8 下无法反射访问
+         */
+        volatile V value;
+        /**
+         * 最高层级（从 0 开始）
+         */
+        private final int level;
+        /**
+         * 对指定层级的指向。mark 为 true 时，表示当前节点在该层已被逻辑删除
+         */
+        private final AtomicMarkableReference<Node<K, V>>[] next;
+
+        Node(K key, V value, int level) {
+            this.key = key;
+            this.value = value;
+            this.level = level;
+            this.next = (AtomicMarkableReference<Node<K, V>>[]) new AtomicMarkableReference<?>[level + 1];
+        }
+
+    }
+
+}
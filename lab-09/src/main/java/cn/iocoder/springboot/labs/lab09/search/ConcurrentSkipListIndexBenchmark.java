@@ -0,0 +1,162 @@
+package cn.iocoder.springboot.labs.lab09.search;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ConcurrentSkipListIndex} 的性能测试。
+ *
+ * 对比 {@link SkipList2}（通过 synchronized 保证线程安全）、{@link ConcurrentSkipListMap} ，在 1 ~ 64 线程下的吞吐量。
+ *
+ * 操作比例为 80% 查询、10% 添加、10% 删除。
+ *
+ * 注意，{@link SkipList2} 的层高是均匀分布的，顶层节点数量与数据量成正比，所以 key 范围不宜过大。
+ */
+public class ConcurrentSkipListIndexBenchmark {
+
+    private static final int KEY_RANGE = 1 << 16;
+
+    private static final long DURATION_MILLIS = 2000;
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    /**
+     * 被测对象的统一抽象
+     */
+    private interface Target {
+
+        void put(int key);
+
+        boolean contains(int key);
+
+        void remove(int key);
+
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println(String.format("%-28s %8s %14s", "target", "threads", "ops/ms"));
+        for (int threads : THREADS) {
+            run("SkipList2(synchronized)", threads, newSkipList2());
+            run("ConcurrentSkipListIndex", threads, newConcurrentSkipListIndex());
+            run("ConcurrentSkipListMap", threads, newConcurrentSkipListMap());
+        }
+    }
+
+    private static void run(String name, int threads, Target target) throws InterruptedException {
+        // 预热数据，填充一半的 key
+        for (int i = 0; i < KEY_RANGE; i += 2) {
+            target.put(i);
+        }
+
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch end = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                try {
+                    start.await();
+                    while (System.nanoTime() < deadline) {
+                        // 每批次执行 128 次操作，减少 nanoTime 的开销
+                        for (int j = 0; j < 128; j++) {
+                            int key = random.nextInt(KEY_RANGE);
+                            int op = random.nextInt(10);
+                            if (op == 0) {
+                                target.put(key);
+                            } else if (op == 1) {
+                                target.remove(key);
+                            } else {
+                                target.contains(key);
+                            }
+                        }
+                        count += 128;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    ops.add(count);
+                    end.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        end.await();
+
+        System.out.println(String.format("%-28s %8d %14d", name, threads, ops.sum() / DURATION_MILLIS));
+    }
+
+    private static Target newSkipList2() {
+        SkipList2 skipList = new SkipList2();
+        return new Target() {
+
+            @Override
+            public synchronized void put(int key) {
+                // SkipList2 不支持去重，先判断是否存在
+                if (skipList.find(key) == null) {
+                    skipList.insert(key);
+                }
+            }
+
+            @Override
+            public synchronized boolean contains(int key) {
+                return skipList.find(key) != null;
+            }
+
+            @Override
+            public synchronized void remove(int key) {
+                skipList.delete(key);
+            }
+
+        };
+    }
+
+    private static Target newConcurrentSkipListIndex() {
+        ConcurrentSkipListIndex<Integer, Boolean> index = new ConcurrentSkipListIndex<>();
+        return new Target() {
+
+            @Override
+            public void put(int key) {
+                index.put(key, Boolean.TRUE);
+            }
+
+            @Override
+            public boolean contains(int key) {
+                return index.containsKey(key);
+            }
+
+            @Override
+            public void remove(int key) {
+                index.remove(key);
+            }
+
+        };
+    }
+
+    private static Target newConcurrentSkipListMap() {
+        ConcurrentSkipListMap<Integer, Boolean> map = new ConcurrentSkipListMap<>();
+        return new Target() {
+
+            @Override
+            public void put(int key) {
+                map.put(key, Boolean.TRUE);
+            }
+
+            @Override
+            public boolean contains(int key) {
+                return map.containsKey(key);
+            }
+
+            @Override
+            public void remove(int key) {
+                map.remove(key);
+            }
+
+        };
+    }
+
+}
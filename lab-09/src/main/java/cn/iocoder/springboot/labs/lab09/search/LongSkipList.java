@@ -0,0 +1,287 @@
+package cn.iocoder.springboot.labs.lab09.search;
+
+import java.util.Arrays;
+
+/**
+ * 基于基本类型数组实现的跳表，key 和 value 都是 long 。
+ *
+ * {@link SkipList} 中，每个 Node 都会创建一个长度为 16 的 Node 数组，不管它实际在第几层。百万级别的数据，光指针数组就要上百 MB 。
+ * 这里，将所有节点"拍平"到几个并行的数组（arena）中：
+ *
+ * 1. {@link #keys}、{@link #values} ：节点的 key 和 value ，下标即节点编号。
+ * 2. {@link #levels}、{@link #linkOffsets} ：节点的层高，以及它在 {@link #links} 中的起始位置。
+ * 3. {@link #links} ：所有节点的 forward 指针，每个节点按照实际层高，占用连续的 level 个位置。
+ *
+ * 删除的节点，按照层高放入 {@link #freeLists} 中，后续插入相同层高的节点时复用。
+ * 因此，除了 arena 扩容之外，插入、删除都不会创建任何对象。
+ *
+ * 非线程安全。
+ */
+public class LongSkipList {
+
+    private static final int MAX_LEVEL = 16;
+
+    /**
+     * 空指针
+     */
+    private static final int NIL = -1;
+
+    /**
+     * 头节点编号。它固定占用 {@link #links} 的前 {@link #MAX_LEVEL} 个位置
+     */
+    private static final int HEAD = 0;
+
+    private long[] keys;
+    private long[] values;
+    private byte[] levels;
+    private int[] linkOffsets;
+
+    /**
+     * 节点数量（包括头节点，以及空闲链表中的节点）
+     */
+    private int nodeCount;
+
+    private int[] links;
+    /**
+     * {@link #links} 已使用的数量
+     */
+    private int linkCount;
+
+    /**
+     * 按照层高划分的空闲节点链表，通过节点的第 0 层指针串联
+     */
+    private final int[] freeLists = new int[MAX_LEVEL + 1];
+
+    /**
+     * 总层级数
+     */
+    private int levelCount = 1;
+
+    /**
+     * 元素数量
+     */
+    private int size;
+
+    /**
+     * 查找路径，复用以避免每次插入都创建数组
+     */
+    private final int[] update = new int[MAX_LEVEL];
+
+    /**
+     * xorshift 随机数种子
+     */
+    private long seed = System.nanoTime() | 1;
+
+    public LongSkipList() {
+        this(16);
+    }
+
+    public LongSkipList(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1) + 1;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.levels = new byte[capacity];
+        this.linkOffsets = new int[capacity];
+        // 按照 1/4 的晋升概率，平均每个节点 4/3 个指针
+        this.links = new int[MAX_LEVEL + capacity * 4 / 3 + 1];
+        Arrays.fill(freeLists, NIL);
+
+        // 初始化头节点
+        levels[HEAD] = MAX_LEVEL;
+        linkOffsets[HEAD] = 0;
+        Arrays.fill(links, 0, MAX_LEVEL, NIL);
+        linkCount = MAX_LEVEL;
+        nodeCount = 1;
+    }
+
+    /**
+     * 添加或替换 key 对应的 value
+     *
+     * @return 是否为新增
+     */
+    public boolean put(long key, long value) {
+        // 寻找每一层的前驱节点
+        int p = HEAD;
+        for (int i = levelCount - 1; i >= 0; i--) {
+            int next;
+            while ((next = forward(p, i)) != NIL && keys[next] < key) {
+                p = next;
+            }
+            update[i] = p;
+        }
+
+        // 已存在，替换
+        int next = forward(p, 0);
+        if (next != NIL && keys[next] == key) {
+            values[next] = value;
+            return false;
+        }
+
+        // 创建节点
+        int level = randomLevel();
+        if (level > levelCount) {
+            for (int i = levelCount; i < level; i++) {
+                update[i] = HEAD;
+            }
+            levelCount = level;
+        }
+        int node = allocate(level);
+        keys[node] = key;
+        values[node] = value;
+
+        // 设置指向
+        int offset = linkOffsets[node];
+        for (int i = 0; i < level; i++) {
+            links[offset + i] = forward(update[i], i);
+            links[linkOffsets[update[i]] + i] = node;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * 获得 key 对应的 value ，不存在时返回 defaultValue
+     */
+    public long get(long key, long defaultValue) {
+        int node = findNode(key);
+        return node != NIL ? values[node] : defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        return findNode(key) != NIL;
+    }
+
+    /**
+     * 移除 key
+     *
+     * @return 是否存在
+     */
+    public boolean remove(long key) {
+        int p = HEAD;
+        for (int i = levelCount - 1; i >= 0; i--) {
+            int next;
+            while ((next = forward(p, i)) != NIL && keys[next] < key) {
+                p = next;
+            }
+            update[i] = p;
+        }
+
+        int node = forward(p, 0);
+        if (node == NIL || keys[node] != key) {
+            return false;
+        }
+
+        // 从每一层摘除
+        int offset = linkOffsets[node];
+        for (int i = 0; i < levels[node]; i++) {
+            links[linkOffsets[update[i]] + i] = links[offset + i];
+        }
+        // 降低空出来的层级
+        while (levelCount > 1 && forward(HEAD, levelCount - 1) == NIL) {
+            levelCount--;
+        }
+
+        // 放入空闲链表
+        links[offset] = freeLists[levels[node]];
+        freeLists[levels[node]] = node;
+        size--;
+        return true;
+    }
+
+    /**
+     * 获得大于等于 key 的最小 key ，不存在时返回 defaultValue
+     */
+    public long ceilingKey(long key, long defaultValue) {
+        int p = HEAD;
+        for (int i = levelCount - 1; i >= 0; i--) {
+            int next;
+            while ((next = forward(p, i)) != NIL && keys[next] < key) {
+                p = next;
+            }
+        }
+        int next = forward(p, 0);
+        return next != NIL ? keys[next] : defaultValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 按照 key 升序，获得所有的 key
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int index = 0;
+        for (int node = forward(HEAD, 0); node != NIL; node = forward(node, 0)) {
+            result[index++] = keys[node];
+        }
+        return result;
+    }
+
+    private int findNode(long key) {
+        int p = HEAD;
+        for (int i = levelCount - 1; i >= 0; i--) {
+            int next;
+            while ((next = forward(p, i)) != NIL && keys[next] < key) {
+                p = next;
+            }
+        }
+        int next = forward(p, 0);
+        return next != NIL && keys[next] == key ? next : NIL;
+    }
+
+    private int forward(int node, int level) {
+        return links[linkOffsets[node] + level];
+    }
+
+    /**
+     * 分配一个 level 层的节点。优先从空闲链表中获取，否则从 arena 尾部分配
+     */
+    private int allocate(int level) {
+        int node = freeLists[level];
+        if (node != NIL) {
+            freeLists[level] = links[linkOffsets[node]];
+            return node;
+        }
+
+        // 节点数组扩容
+        if (nodeCount == keys.length) {
+            int capacity = keys.length + (keys.length >> 1);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            linkOffsets = Arrays.copyOf(linkOffsets, capacity);
+        }
+        // 指针数组扩容
+        if (linkCount + level > links.length) {
+            links = Arrays.copyOf(links, Math.max(linkCount + level, links.length + (links.length >> 1)));
+        }
+
+        node = nodeCount++;
+        levels[node] = (byte) level;
+        linkOffsets[node] = linkCount;
+        linkCount += level;
+        return node;
+    }
+
+    /**
+     * 按照 1/4 的概率晋升，与 Redis zset 相同
+     */
+    private int randomLevel() {
+        // xorshift64
+        long x = seed;
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        seed = x;
+
+        int level = 1;
+        while ((x & 3) == 0 && level < MAX_LEVEL) {
+            level++;
+            x >>>= 2;
+        }
+        return level;
+    }
+
+}
@@ -0,0 +1,89 @@
+package cn.iocoder.springboot.labs.lab09.search;
+
+import java.util.Random;
+
+/**
+ * {@link LongSkipList} 和 {@link SkipList} 的内存占用、查询耗时对比。
+ *
+ * 注意，{@link SkipList} 的层高服从二项分布，并且 insert 只从新节点的层高开始查找，插入接近 O(n) ，所以数据量不宜过大。
+ * 内存对比以"每个元素占用的字节数"为准。
+ *
+ * 内存占用通过 GC 前后 {@link Runtime} 的已使用堆内存估算，建议使用 -Xmx2g 运行。
+ */
+public class LongSkipListBenchmark {
+
+    private static final int COUNT = 20_000;
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int[] keys = new int[COUNT];
+        Random random = new Random(0);
+        for (int i = 0; i < COUNT; i++) {
+            keys[i] = random.nextInt(Integer.MAX_VALUE);
+        }
+
+        // 多轮执行，前几轮用于 JIT 预热
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("第 " + (round + 1) + " 轮");
+            benchmarkSkipList(keys);
+            benchmarkLongSkipList(keys);
+        }
+    }
+
+    private static void benchmarkSkipList(int[] keys) {
+        long before = usedMemory();
+        long start = System.nanoTime();
+        SkipList skipList = new SkipList();
+        for (int key : keys) {
+            skipList.insert(key);
+        }
+        long insertNanos = System.nanoTime() - start;
+        long after = usedMemory();
+
+        start = System.nanoTime();
+        int found = 0;
+        for (int key : keys) {
+            if (skipList.find(key) != null) {
+                found++;
+            }
+        }
+        long findNanos = System.nanoTime() - start;
+        print("SkipList", after - before, insertNanos, findNanos, found);
+    }
+
+    private static void benchmarkLongSkipList(int[] keys) {
+        long before = usedMemory();
+        long start = System.nanoTime();
+        LongSkipList skipList = new LongSkipList(COUNT);
+        for (int key : keys) {
+            skipList.put(key, key);
+        }
+        long insertNanos = System.nanoTime() - start;
+        long after = usedMemory();
+
+        start = System.nanoTime();
+        int found = 0;
+        for (int key : keys) {
+            if (skipList.containsKey(key)) {
+                found++;
+            }
+        }
+        long findNanos = System.nanoTime() - start;
+        print("LongSkipList", after - before, insertNanos, findNanos, found);
+    }
+
+    private static void print(String name, long bytes, long insertNanos, long findNanos, int found) {
+        System.out.println(String.format("%-14s 内存：%6d KB（%4d B/元素），插入：%6d ms，查询：%5d ns/op，命中：%d",
+                name, bytes / 1024, bytes / COUNT, insertNanos / 1_000_000, findNanos / COUNT, found));
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,553 @@
+package cn.iocoder.springboot.labs.lab09.search;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 方程求根：Newton-Raphson 法、Brent 法，支持 double[] 批量计算。
+ *
+ * 在 {@link SquareTest} 的基础上：
+ *
+ * 1. 二分查找每轮只能缩小一半，收敛很慢。Newton 法在根附近是二次收敛，每轮有效位数翻倍；
+ *    给定区间时，Newton 的下一步跳出区间则改为二分，不会发散。
+ *    Brent 法结合二分、割线、逆二次插值，不需要导数，在保证不跳出区间的前提下，通常也是超线性收敛。
+ * 2. 批量计算时，第 i 个方程为 f(i, x) = 0 ，例如说第 i 个期权，根据价格反推隐含波动率。
+ *    函数使用基本类型参数的接口，循环中没有装箱、没有内存分配。
+ * 3. 批量较大时，切分成多个块，使用 ForkJoinPool 并行计算。
+ * 4. 不再每轮打印，而是通过计数器统计：求解个数、失败个数、总迭代次数、最大迭代次数。
+ *    每个块先在局部变量中累加，结束后再更新计数器，避免多线程争抢。
+ *
+ * 没有收敛、区间两端同号、导数为 0 等情况，结果为 NaN ，并计入失败个数。
+ *
+ * 线程安全。
+ */
+public class RootFinder {
+
+    /**
+     * 元素个数不小于该值时，并行计算
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+    /**
+     * 并行计算时，每个任务的元素个数
+     */
+    private static final int GRAIN = 1 << 12;
+
+    private static final double EPSILON = Math.ulp(1.0);
+
+    private static final double TWO_POW_54 = 0x1.0p54;
+
+    /**
+     * 第 index 个方程的函数
+     */
+    @FunctionalInterface
+    public interface Function {
+
+        double value(int index, double x);
+
+    }
+
+    /**
+     * 可导的函数，用于 Newton 法
+     */
+    public interface DifferentiableFunction extends Function {
+
+        double derivative(int index, double x);
+
+    }
+
+    /**
+     * 精度：|Δx| <= tolerance * max(1, |x|) 时，认为收敛
+     */
+    private final double tolerance;
+    /**
+     * 每个方程的最大迭代次数
+     */
+    private final int maxIterations;
+    private final ForkJoinPool pool;
+
+    // ========== 计数器 ==========
+
+    /**
+     * 成功求解的个数
+     */
+    private final LongAdder solvedCount = new LongAdder();
+    /**
+     * 失败的个数
+     */
+    private final LongAdder failureCount = new LongAdder();
+    /**
+     * 总迭代次数
+     */
+    private final LongAdder iterationCount = new LongAdder();
+    /**
+     * 单个方程的最大迭代次数
+     */
+    private final LongAccumulator maxIterationCount = new LongAccumulator(Math::max, 0);
+
+    public RootFinder(double tolerance, int maxIterations) {
+        this(tolerance, maxIterations, ForkJoinPool.commonPool());
+    }
+
+    public RootFinder(double tolerance, int maxIterations, ForkJoinPool pool) {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("tolerance 必须大于 0");
+        }
+        if (maxIterations <= 0) {
+            throw new IllegalArgumentException("maxIterations 必须大于 0");
+        }
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+        this.pool = pool;
+    }
+
+    // ========== Newton-Raphson ==========
+
+    /**
+     * 使用 Newton 法，求解 f(index, x) = 0
+     *
+     * @param initial 初始值，越接近根收敛越快
+     * @return 根。失败时为 NaN
+     */
+    public double newton(DifferentiableFunction function, int index, double initial) {
+        Counter counter = new Counter();
+        double root = newton(function, index, initial, counter);
+        counter.flush();
+        return root;
+    }
+
+    /**
+     * 批量使用 Newton 法，求解 f(i, x) = 0 ，i 从 0 到 initials.length - 1
+     *
+     * @param initials 每个方程的初始值
+     * @param roots 结果。可以和 initials 是同一个数组
+     */
+    public void newton(DifferentiableFunction function, double[] initials, double[] roots) {
+        checkLength(initials, roots);
+        forEach(initials.length, (from, to, counter) -> {
+            for (int i = from; i < to; i++) {
+                roots[i] = newton(function, i, initials[i], counter);
+            }
+        });
+    }
+
+    private double newton(DifferentiableFunction function, int index, double x, Counter counter) {
+        for (int iteration = 1; iteration <= maxIterations; iteration++) {
+            double value = function.value(index, x);
+            if (value == 0) {
+                return counter.solved(x, iteration);
+            }
+            double derivative = function.derivative(index, x);
+            double delta = value / derivative;
+            if (Double.isNaN(delta) || Double.isInfinite(delta)) {
+                return counter.failed(iteration);
+            }
+            x -= delta;
+            if (Math.abs(delta) <= tolerance * Math.max(1, Math.abs(x))) {
+                return counter.solved(x, iteration);
+            }
+        }
+        return counter.failed(maxIterations);
+    }
+
+    /**
+     * 带区间保护的 Newton 法：f(lower)、f(upper) 需要异号。
+     * Newton 的下一步跳出当前区间、或者收敛不够快时，改为二分，保证不会发散；在根附近仍然是二次收敛。
+     *
+     * @param initial 初始值，不在区间内时使用区间的中点
+     * @return 根。失败时为 NaN
+     */
+    public double newton(DifferentiableFunction function, int index, double lower, double upper, double initial) {
+        Counter counter = new Counter();
+        double root = newton(function, index, lower, upper, initial, counter);
+        counter.flush();
+        return root;
+    }
+
+    /**
+     * 批量使用带区间保护的 Newton 法，所有方程使用相同的区间 [lower, upper]
+     *
+     * @param initials 每个方程的初始值
+     * @param roots 结果。可以和 initials 是同一个数组
+     */
+    public void newton(DifferentiableFunction function, double lower, double upper, double[] initials, double[] roots) {
+        checkLength(initials, roots);
+        forEach(initials.length, (from, to, counter) -> {
+            for (int i = from; i < to; i++) {
+                roots[i] = newton(function, i, lower, upper, initials[i], counter);
+            }
+        });
+    }
+
+    private double newton(DifferentiableFunction function, int index, double lower, double upper, double x,
+                          Counter counter) {
+        double fLower = function.value(index, lower);
+        double fUpper = function.value(index, upper);
+        if (fLower == 0) {
+            return counter.solved(lower, 0);
+        }
+        if (fUpper == 0) {
+            return counter.solved(upper, 0);
+        }
+        if ((fLower > 0) == (fUpper > 0)) {
+            return counter.failed(0);
+        }
+        // negative 为 f < 0 的一端，positive 为 f > 0 的一端，根始终在两者之间
+        double negative = fLower < 0 ? lower : upper;
+        double positive = fLower < 0 ? upper : lower;
+        if (!(x > Math.min(lower, upper) && x < Math.max(lower, upper))) {
+            x = 0.5 * (lower + upper);
+        }
+        double step = Math.abs(upper - lower);
+        for (int iteration = 1; iteration <= maxIterations; iteration++) {
+            double value = function.value(index, x);
+            if (value == 0) {
+                return counter.solved(x, iteration);
+            }
+            if (value < 0) {
+                negative = x;
+            } else {
+                positive = x;
+            }
+            double derivative = function.derivative(index, x);
+            double next = x - value / derivative;
+            double previousStep = step;
+            // 跳出区间（包括 NaN），或者步长没有减半时，二分
+            if (!((next - negative) * (next - positive) < 0) || Math.abs(2 * value) > Math.abs(previousStep * derivative)) {
+                next = 0.5 * (negative + positive);
+            }
+            step = next - x;
+            x = next;
+            if (Math.abs(step) <= tolerance * Math.max(1, Math.abs(x))) {
+                return counter.solved(x, iteration);
+            }
+        }
+        return counter.failed(maxIterations);
+    }
+
+    // ========== Brent ==========
+
+    /**
+     * 使用 Brent 法，在区间 [lower, upper] 中求解 f(index, x) = 0 。f(lower)、f(upper) 需要异号
+     *
+     * @return 根。失败时为 NaN
+     */
+    public double brent(Function function, int index, double lower, double upper) {
+        Counter counter = new Counter();
+        double root = brent(function, index, lower, upper, counter);
+        counter.flush();
+        return root;
+    }
+
+    /**
+     * 批量使用 Brent 法，求解 f(i, x) = 0 ，i 从 0 到 roots.length - 1 ，区间为 [lowers[i], uppers[i]]
+     */
+    public void brent(Function function, double[] lowers, double[] uppers, double[] roots) {
+        checkLength(lowers, roots);
+        checkLength(uppers, roots);
+        forEach(roots.length, (from, to, counter) -> {
+            for (int i = from; i < to; i++) {
+                roots[i] = brent(function, i, lowers[i], uppers[i], counter);
+            }
+        });
+    }
+
+    /**
+     * 批量使用 Brent 法，所有方程使用相同的区间 [lower, upper]
+     */
+    public void brent(Function function, double lower, double upper, double[] roots) {
+        forEach(roots.length, (from, to, counter) -> {
+            for (int i = from; i < to; i++) {
+                roots[i] = brent(function, i, lower, upper, counter);
+            }
+        });
+    }
+
+    /**
+     * 参考 Brent 的 zero 算法：b 为当前最好的估计值，a 为上一个估计值，根始终在 b 和 c 之间
+     */
+    private double brent(Function function, int index, double lower, double upper, Counter counter) {
+        double a = lower;
+        double b = upper;
+        double fa = function.value(index, a);
+        double fb = function.value(index, b);
+        if (fa == 0) {
+            return counter.solved(a, 0);
+        }
+        if (fb == 0) {
+            return counter.solved(b, 0);
+        }
+        if ((fa > 0) == (fb > 0)) {
+            // 区间两端同号，无法保证有根
+            return counter.failed(0);
+        }
+        double c = a;
+        double fc = fa;
+        double d = b - a;
+        double e = d;
+        for (int iteration = 1; iteration <= maxIterations; iteration++) {
+            // 1. 保证 b 是 |f| 最小的点，根在 b、c 之间
+            if ((fb > 0) == (fc > 0)) {
+                c = a;
+                fc = fa;
+                d = b - a;
+                e = d;
+            }
+            if (Math.abs(fc) < Math.abs(fb)) {
+                a = b;
+                b = c;
+                c = a;
+                fa = fb;
+                fb = fc;
+                fc = fa;
+            }
+            double tol = 2 * EPSILON * Math.abs(b) + 0.5 * tolerance * Math.max(1, Math.abs(b));
+            double middle = 0.5 * (c - b);
+            if (Math.abs(middle) <= tol || fb == 0) {
+                return counter.solved(b, iteration);
+            }
+
+            // 2. 尝试插值：a == c 时使用割线法，否则使用逆二次插值
+            if (Math.abs(e) >= tol && Math.abs(fa) > Math.abs(fb)) {
+                double s = fb / fa;
+                double p;
+                double q;
+                if (a == c) {
+                    p = 2 * middle * s;
+                    q = 1 - s;
+                } else {
+                    double r = fb / fc;
+                    double t = fa / fc;
+                    p = s * (2 * middle * t * (t - r) - (b - a) * (r - 1));
+                    q = (t - 1) * (r - 1) * (s - 1);
+                }
+                if (p > 0) {
+                    q = -q;
+                } else {
+                    p = -p;
+                }
+                // 插值点在区间内，并且收敛足够快时，接受插值；否则二分
+                if (2 * p < Math.min(3 * middle * q - Math.abs(tol * q), Math.abs(e * q))) {
+                    e = d;
+                    d = p / q;
+                } else {
+                    d = middle;
+                    e = d;
+                }
+            } else {
+                d = middle;
+                e = d;
+            }
+
+            // 3. 移动 b ，步长至少为 tol
+            a = b;
+            fa = fb;
+            b += Math.abs(d) > tol ? d : Math.copySign(tol, middle);
+            fb = function.value(index, b);
+        }
+        return counter.failed(maxIterations);
+    }
+
+    // ========== 常用函数 ==========
+
+    /**
+     * 批量计算 n 次方根，使用 Newton 法。负数只有 n 为奇数时才有实数根，否则结果为 NaN 。
+     * 精度为相对精度：|Δx| <= tolerance * x ，很小的数也能得到足够的有效位数
+     *
+     * @param values 被开方数
+     * @param n 次数，例如说 2 为平方根
+     * @param roots 结果。可以和 values 是同一个数组
+     */
+    public void root(double[] values, int n, double[] roots) {
+        if (n <= 0 || n > 1023) {
+            throw new IllegalArgumentException("n 必须在 [1, 1023] 之间");
+        }
+        checkLength(values, roots);
+        forEach(values.length, (from, to, counter) -> {
+            for (int i = from; i < to; i++) {
+                roots[i] = root(values[i], n, counter);
+            }
+        });
+    }
+
+    private double root(double value, int n, Counter counter) {
+        if (Double.isNaN(value)) {
+            return counter.failed(0);
+        }
+        // 先处理负数，包括负无穷
+        if (value < 0) {
+            if ((n & 1) == 0) {
+                return counter.failed(0);
+            }
+            return -root(-value, n, counter);
+        }
+        if (value == 0 || Double.isInfinite(value) || n == 1) {
+            return counter.solved(value, 0);
+        }
+        // 缩放到 [1, 2^n) ：value = scaled * 2^(k * n) ，则 root(value) = root(scaled) * 2^k 。
+        // 乘以 2 的幂是精确的，并且迭代过程中不会溢出，也不会出现非规格化数
+        int exponent = value < Double.MIN_NORMAL ? Math.getExponent(value * TWO_POW_54) - 54 : Math.getExponent(value);
+        int k = Math.floorDiv(exponent, n);
+        double scaled = Math.scalb(value, -k * n);
+        // root(scaled) 在 [1, 2) 之间。以 Math.pow 的结果作为初始值，只差几个 ulp ，再稍微放大，保证从根的右侧开始：
+        // x^n 是凸函数，Newton 法从右侧单调递减收敛到根，n 很大时也只需要几次迭代
+        double x = Math.min(2, Math.pow(scaled, 1.0 / n) * (1 + 0x1.0p-48));
+        for (int iteration = 1; iteration <= maxIterations; iteration++) {
+            double power = pow(x, n - 1);
+            // 等价于 x - (x^n - scaled) / (n * x^(n - 1)) 。先做除法，n * x^(n - 1) 在 n 接近 1023 时会溢出
+            double next = x - (x - scaled / power) / n;
+            // 不再减小，说明已经到达 double 的精度
+            if (next >= x || x - next <= tolerance * next) {
+                return counter.solved(Math.scalb(Math.min(x, next), k), iteration);
+            }
+            x = next;
+        }
+        return counter.failed(maxIterations);
+    }
+
+    /**
+     * 快速幂
+     */
+    private static double pow(double x, int n) {
+        double result = 1;
+        while (n > 0) {
+            if ((n & 1) == 1) {
+                result *= x;
+            }
+            x *= x;
+            n >>= 1;
+        }
+        return result;
+    }
+
+    // ========== 计数器 ==========
+
+    public long solvedCount() {
+        return solvedCount.sum();
+    }
+
+    public long failureCount() {
+        return failureCount.sum();
+    }
+
+    public long iterationCount() {
+        return iterationCount.sum();
+    }
+
+    public long maxIterationCount() {
+        return maxIterationCount.get();
+    }
+
+    public void resetCounters() {
+        solvedCount.reset();
+        failureCount.reset();
+        iterationCount.reset();
+        maxIterationCount.reset();
+    }
+
+    /**
+     * 一个块内的局部计数，结束后调用 {@link #flush()} 更新到计数器
+     */
+    private final class Counter {
+
+        private long solved;
+        private long failed;
+        private long iterations;
+        private long maxIterations;
+
+        private double solved(double root, int iterations) {
+            solved++;
+            record(iterations);
+            return root;
+        }
+
+        private double failed(int iterations) {
+            failed++;
+            record(iterations);
+            return Double.NaN;
+        }
+
+        private void record(int iterations) {
+            this.iterations += iterations;
+            if (iterations > maxIterations) {
+                maxIterations = iterations;
+            }
+        }
+
+        private void flush() {
+            solvedCount.add(solved);
+            failureCount.add(failed);
+            iterationCount.add(iterations);
+            maxIterationCount.accumulate(maxIterations);
+        }
+
+    }
+
+    // ========== 并行 ==========
+
+    /**
+     * 对 [from, to) 范围的元素执行的操作
+     */
+    private interface RangeAction {
+
+        void run(int from, int to, Counter counter);
+
+    }
+
+    private void forEach(int n, RangeAction action) {
+        if (n < PARALLEL_THRESHOLD) {
+            Counter counter = new Counter();
+            action.run(0, n, counter);
+            counter.flush();
+            return;
+        }
+        pool.invoke(new RangeTask(action, 0, n));
+    }
+
+    @SuppressWarnings("serial")
+    private final class RangeTask extends RecursiveAction {
+
+        private final RangeAction action;
+        private final int from;
+        private final int to;
+
+        private RangeTask(RangeAction action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GRAIN) {
+                Counter counter = new Counter();
+                action.run(from, to, counter);
+                counter.flush();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(action, from, middle), new RangeTask(action, middle, to));
+        }
+
+    }
+
+    private static void checkLength(double[] input, double[] output) {
+        if (input.length != output.length) {
+            throw new IllegalArgumentException("数组长度不一致");
+        }
+    }
+
+    public static void main(String[] args) {
+        RootFinder finder = new RootFinder(1e-12, 100);
+        double[] values = {5, 2, 100, 0.25, -8};
+        double[] roots = new double[values.length];
+        finder.root(values, 2, roots);
+        System.out.println(java.util.Arrays.toString(roots));
+        // x^3 - 2x - 5 = 0 ，Newton 当年使用的例子
+        System.out.println(finder.brent((index, x) -> x * x * x - 2 * x - 5, 0, 2, 3));
+        System.out.println(String.format("求解：%d，失败：%d，总迭代次数：%d，最大迭代次数：%d", finder.solvedCount(),
+                finder.failureCount(), finder.iterationCount(), finder.maxIterationCount()));
+    }
+
+}
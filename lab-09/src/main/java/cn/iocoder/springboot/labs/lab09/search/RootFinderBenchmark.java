@@ -0,0 +1,212 @@
+package cn.iocoder.springboot.labs.lab09.search;
+
+import java.util.SplittableRandom;
+
+/**
+ * {@link RootFinder} 的耗时。
+ *
+ * 1. 平方根：和 {@link Math#sqrt(double)}、{@link SquareTest} 的二分查找（去掉打印）对比。
+ * 2. 隐含波动率：根据 Black-Scholes 看涨期权的价格反推波动率。Newton 法（导数为 vega）、带区间保护的 Newton 法、Brent 法对比。
+ *    深度虚值的期权 vega 很小，Newton 法容易发散，失败的个数会打印出来。
+ *
+ * 使用方式：java RootFinderBenchmark [元素个数]
+ */
+public class RootFinderBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    private static final double PRECISION = 1e-12;
+
+    /**
+     * 隐含波动率的区间
+     */
+    private static final double MIN_VOLATILITY = 1e-4;
+    private static final double MAX_VOLATILITY = 5;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        RootFinder finder = new RootFinder(PRECISION, 100);
+        System.out.println(String.format("元素个数：%d，CPU：%d", size, Runtime.getRuntime().availableProcessors()));
+
+        SplittableRandom random = new SplittableRandom(0);
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextDouble(1, 1_000_000);
+        }
+        Options options = new Options(size, random);
+
+        // 多轮执行，前几轮用于 JIT 预热
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("第 " + (round + 1) + " 轮");
+            sqrt(finder, values);
+            impliedVolatility(finder, options);
+        }
+    }
+
+    private static void sqrt(RootFinder finder, double[] values) {
+        int size = values.length;
+        double[] expected = new double[size];
+        long start = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            expected[i] = Math.sqrt(values[i]);
+        }
+        long mathNanos = System.nanoTime() - start;
+
+        double[] roots = new double[size];
+        finder.resetCounters();
+        start = System.nanoTime();
+        finder.root(values, 2, roots);
+        long newtonNanos = System.nanoTime() - start;
+        check(expected, roots);
+        long iterations = finder.iterationCount();
+
+        start = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            roots[i] = bisection(values[i]);
+        }
+        long bisectionNanos = System.nanoTime() - start;
+        check(expected, roots);
+        System.out.println(String.format("平方根 Math.sqrt：%5d ms，RootFinder.root：%5d ms（平均 %.2f 轮），二分查找：%5d ms",
+                mathNanos / 1_000_000, newtonNanos / 1_000_000, (double) iterations / size, bisectionNanos / 1_000_000));
+    }
+
+    private static void impliedVolatility(RootFinder finder, Options options) {
+        int size = options.prices.length;
+        double[] volatilities = new double[size];
+        // 初始值使用 Brenner-Subrahmanyam 近似
+        for (int i = 0; i < size; i++) {
+            volatilities[i] = Math.max(0.05, Math.sqrt(2 * Math.PI / options.expiries[i]) * options.prices[i] / options.spots[i]);
+        }
+        double[] initials = volatilities.clone();
+        finder.resetCounters();
+        long start = System.nanoTime();
+        finder.newton(options, initials, volatilities);
+        long newtonNanos = System.nanoTime() - start;
+        String newton = String.format("Newton：%5d ms（平均 %.2f 轮，失败 %d）",
+                newtonNanos / 1_000_000, (double) finder.iterationCount() / size, finder.failureCount());
+
+        finder.resetCounters();
+        start = System.nanoTime();
+        finder.newton(options, MIN_VOLATILITY, MAX_VOLATILITY, initials, volatilities);
+        long safeNewtonNanos = System.nanoTime() - start;
+        checkPrices(options, volatilities);
+        String safeNewton = String.format("带区间的 Newton：%5d ms（平均 %.2f 轮，失败 %d）",
+                safeNewtonNanos / 1_000_000, (double) finder.iterationCount() / size, finder.failureCount());
+
+        finder.resetCounters();
+        start = System.nanoTime();
+        finder.brent(options, MIN_VOLATILITY, MAX_VOLATILITY, volatilities);
+        long brentNanos = System.nanoTime() - start;
+        checkPrices(options, volatilities);
+        String brent = String.format("Brent：%5d ms（平均 %.2f 轮，失败 %d）",
+                brentNanos / 1_000_000, (double) finder.iterationCount() / size, finder.failureCount());
+        System.out.println("隐含波动率 " + newton + "，" + safeNewton + "，" + brent);
+    }
+
+    private static void check(double[] expected, double[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            if (!(Math.abs(expected[i] - actual[i]) <= 1e-6 * Math.max(1, expected[i]))) {
+                throw new IllegalStateException("结果不一致：" + expected[i] + " " + actual[i]);
+            }
+        }
+    }
+
+    /**
+     * 校验反推的波动率，重新计算的价格和原价格一致。
+     * 深度虚值的期权 vega 接近 0 ，价格对波动率不敏感，所以不直接比较波动率
+     */
+    private static void checkPrices(Options options, double[] volatilities) {
+        for (int i = 0; i < volatilities.length; i++) {
+            if (!(Math.abs(options.value(i, volatilities[i])) <= 1e-8)) {
+                throw new IllegalStateException("结果不一致：" + options.volatilities[i] + " " + volatilities[i]);
+            }
+        }
+    }
+
+    /**
+     * {@link SquareTest} 的二分查找，去掉打印，精度为 x 的 PRECISION 倍
+     */
+    private static double bisection(double number) {
+        double low = 0;
+        double high = Math.max(1, number);
+        while (high - low > PRECISION * high) {
+            double middle = low + (high - low) / 2;
+            if (middle * middle < number) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return low + (high - low) / 2;
+    }
+
+    /**
+     * 一批看涨期权：f(i, σ) = BlackScholes(σ) - price[i]
+     */
+    private static final class Options implements RootFinder.DifferentiableFunction {
+
+        private static final double RATE = 0.02;
+
+        private final double[] spots;
+        private final double[] strikes;
+        private final double[] expiries;
+        private final double[] prices;
+        /**
+         * 生成价格时使用的波动率
+         */
+        private final double[] volatilities;
+
+        private Options(int size, SplittableRandom random) {
+            spots = new double[size];
+            strikes = new double[size];
+            expiries = new double[size];
+            prices = new double[size];
+            volatilities = new double[size];
+            for (int i = 0; i < size; i++) {
+                spots[i] = 100;
+                strikes[i] = random.nextDouble(80, 120);
+                expiries[i] = random.nextDouble(0.1, 2);
+                volatilities[i] = random.nextDouble(0.1, 0.8);
+                prices[i] = price(i, volatilities[i]);
+            }
+        }
+
+        @Override
+        public double value(int index, double volatility) {
+            return price(index, volatility) - prices[index];
+        }
+
+        /**
+         * vega ：价格对波动率的导数
+         */
+        @Override
+        public double derivative(int index, double volatility) {
+            double d1 = d1(index, volatility);
+            return spots[index] * Math.exp(-0.5 * d1 * d1) / Math.sqrt(2 * Math.PI) * Math.sqrt(expiries[index]);
+        }
+
+        private double price(int index, double volatility) {
+            double d1 = d1(index, volatility);
+            double d2 = d1 - volatility * Math.sqrt(expiries[index]);
+            return spots[index] * cdf(d1) - strikes[index] * Math.exp(-RATE * expiries[index]) * cdf(d2);
+        }
+
+        private double d1(int index, double volatility) {
+            double sqrtT = Math.sqrt(expiries[index]);
+            return (Math.log(spots[index] / strikes[index]) + (RATE + 0.5 * volatility * volatility) * expiries[index])
+                    / (volatility * sqrtT);
+        }
+
+        /**
+         * 标准正态分布的累积分布函数，Abramowitz-Stegun 26.2.17 近似，误差小于 7.5e-8
+         */
+        private static double cdf(double x) {
+            double t = 1 / (1 + 0.2316419 * Math.abs(x));
+            double poly = t * (0.319381530 + t * (-0.356563782 + t * (1.781477937 + t * (-1.821255978 + t * 1.330274429))));
+            double tail = Math.exp(-0.5 * x * x) / Math.sqrt(2 * Math.PI) * poly;
+            return x >= 0 ? 1 - tail : tail;
+        }
+
+    }
+
+}
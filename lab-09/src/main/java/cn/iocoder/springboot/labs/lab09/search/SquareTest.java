@@ -2,6 +2,8 @@ package cn.iocoder.springboot.labs.lab09.search;
 
 /**
  * 使用二分查找，计算平方根。
+ *
+ * Newton、Brent 法，支持批量、并行计算的版本，见 {@link RootFinder} 。
  */
 public class SquareTest {
 
@@ -0,0 +1,277 @@
+package cn.iocoder.springboot.labs.lab09.search.filter;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * 分块的布隆过滤器（blocked Bloom filter）。
+ *
+ * 普通的布隆过滤器，k 个哈希函数对应的 k 个位分散在整个位数组中，每次查询有 k 次 cache miss 。这里：
+ *
+ * 1. 位数组使用 long[] ，按照 512 位（8 个 long ，64 字节，一个 CPU cache line）分块。
+ * 2. 一个 key 的哈希值，先选择一个块，k 个位都落在这个块内，每次加入、查询只访问一个 cache line 。
+ * 3. 块内的 k 个位置，由同一个 64 位哈希值连续乘以一个奇数常量，取乘积的高 9 位得到，不需要 k 次哈希。
+ *
+ * 代价是：各个块的负载不均匀，相同的位数下，误判率高于普通的布隆过滤器。
+ * 所以构造时按照泊松分布估算分块后的误判率，增加块数，直到满足期望的误判率（1% 时约多 6% 的位）。
+ * 和所有布隆过滤器一样，不支持删除；需要删除时，见 {@link CuckooFilter} 。
+ *
+ * 非线程安全。构建完成后，只读的查询可以多线程并发。
+ */
+public class BlockedBloomFilter {
+
+    /**
+     * 序列化的魔数，"BBF1"
+     */
+    private static final int MAGIC = 0x42424631;
+
+    private static final int BLOCK_WORDS = 8;
+    private static final int BLOCK_BITS = BLOCK_WORDS * Long.SIZE;
+
+    private static final int MAX_HASH_COUNT = 16;
+
+    /**
+     * 估算误判率时，可以忽略的泊松分布概率
+     */
+    private static final double NEGLIGIBLE_PROBABILITY = 1e-20;
+
+    /**
+     * 计算块内位置的乘数
+     */
+    private static final long POSITION_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /**
+     * 位数组
+     */
+    private final long[] words;
+    /**
+     * 块数
+     */
+    private final int blockCount;
+    /**
+     * 每个 key 设置的位数，即哈希函数的个数 k
+     */
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions 预计加入的 key 个数
+     * @param fpp 期望的误判率（false positive probability）
+     */
+    public BlockedBloomFilter(long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions 必须大于 0");
+        }
+        if (!(fpp > 0 && fpp < 1)) {
+            throw new IllegalArgumentException("fpp 必须在 (0, 1) 之间");
+        }
+        // 先按照普通布隆过滤器估算：位数 m = -n * ln(p) / (ln2)^2 。
+        // 分块后，各个块中的 key 个数不均匀，误判率会升高，所以逐步增加块数，直到估算的误判率满足要求
+        double bits = -expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2));
+        long blocks = Math.max(1, (long) Math.ceil(bits / BLOCK_BITS));
+        while (blockedFpp(expectedInsertions, blocks, hashCount(expectedInsertions, blocks)) > fpp) {
+            blocks = blocks + Math.max(1, blocks >> 4);
+        }
+        if (blocks > Integer.MAX_VALUE / BLOCK_WORDS) {
+            throw new IllegalArgumentException("位数组过大：" + blocks + " 块");
+        }
+        this.blockCount = (int) blocks;
+        this.words = new long[blockCount * BLOCK_WORDS];
+        this.hashCount = hashCount(expectedInsertions, blocks);
+    }
+
+    /**
+     * 哈希函数个数 k = m / n * ln2
+     */
+    private static int hashCount(long expectedInsertions, long blocks) {
+        double bitsPerKey = (double) blocks * BLOCK_BITS / expectedInsertions;
+        return (int) Math.max(1, Math.min(MAX_HASH_COUNT, Math.round(bitsPerKey * Math.log(2))));
+    }
+
+    /**
+     * 估算分块布隆过滤器的误判率：每个块中的 key 个数近似服从泊松分布，λ = n / 块数 ，
+     * 对每个可能的个数 i ，按照一个 512 位的普通布隆过滤器计算误判率 (1 - (1 - 1/512)^(i * k))^k ，再按照概率加权。
+     *
+     * λ 较大时（期望误判率较高），e^(-λ) 会下溢为 0 ，所以不从 i = 0 开始累加，而是在对数空间中算出众数 ⌊λ⌋ 的概率，
+     * 再向两侧递推，直到概率可以忽略
+     */
+    private static double blockedFpp(long expectedInsertions, long blocks, int hashCount) {
+        double lambda = (double) expectedInsertions / blocks;
+        long mode = (long) lambda;
+        double modeProbability = Math.exp(mode * Math.log(lambda) - lambda - logFactorial(mode));
+        double fpp = modeProbability * blockFpp(mode, hashCount);
+        // 向右：P(i) = P(i - 1) * λ / i
+        double probability = modeProbability;
+        for (long i = mode + 1; probability > NEGLIGIBLE_PROBABILITY; i++) {
+            probability *= lambda / i;
+            fpp += probability * blockFpp(i, hashCount);
+        }
+        // 向左：P(i - 1) = P(i) * i / λ
+        probability = modeProbability;
+        for (long i = mode; i > 0 && probability > NEGLIGIBLE_PROBABILITY; i--) {
+            probability *= i / lambda;
+            fpp += probability * blockFpp(i - 1, hashCount);
+        }
+        return fpp;
+    }
+
+    /**
+     * 一个块中有 i 个 key 时的误判率
+     */
+    private static double blockFpp(long i, int hashCount) {
+        return Math.pow(1 - Math.pow(1 - 1.0 / BLOCK_BITS, (double) i * hashCount), hashCount);
+    }
+
+    /**
+     * ln(n!) 。n 较小时直接累加，否则使用 Stirling 公式，误差小于 1e-12
+     */
+    private static double logFactorial(long n) {
+        if (n < 16) {
+            double result = 0;
+            for (int i = 2; i <= n; i++) {
+                result += Math.log(i);
+            }
+            return result;
+        }
+        double x = n;
+        return x * Math.log(x) - x + 0.5 * Math.log(2 * Math.PI * x) + 1 / (12 * x) - 1 / (360 * x * x * x);
+    }
+
+    private BlockedBloomFilter(long[] words, int hashCount) {
+        this.words = words;
+        this.blockCount = words.length / BLOCK_WORDS;
+        this.hashCount = hashCount;
+    }
+
+    // ========== 加入 ==========
+
+    public void add(long key) {
+        addHash(FilterHashes.hash(key));
+    }
+
+    public void add(CharSequence key) {
+        addHash(FilterHashes.hash(key));
+    }
+
+    public void add(byte[] key) {
+        addHash(FilterHashes.hash(key));
+    }
+
+    private void addHash(long hash) {
+        int base = block(hash);
+        long h = hash;
+        for (int i = 0; i < hashCount; i++) {
+            // 每次乘以一个奇数常量，取乘积的高 9 位，作为块内的位置。移位时 Java 只取低 6 位，即 long 内的位置
+            h *= POSITION_MULTIPLIER;
+            int bit = (int) (h >>> (Long.SIZE - 9));
+            words[base + (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    // ========== 查询 ==========
+
+    /**
+     * @return false 时，key 一定不存在；true 时，key 可能存在
+     */
+    public boolean mightContain(long key) {
+        return mightContainHash(FilterHashes.hash(key));
+    }
+
+    public boolean mightContain(CharSequence key) {
+        return mightContainHash(FilterHashes.hash(key));
+    }
+
+    public boolean mightContain(byte[] key) {
+        return mightContainHash(FilterHashes.hash(key));
+    }
+
+    private boolean mightContainHash(long hash) {
+        int base = block(hash);
+        long h = hash;
+        for (int i = 0; i < hashCount; i++) {
+            h *= POSITION_MULTIPLIER;
+            int bit = (int) (h >>> (Long.SIZE - 9));
+            if ((words[base + (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 使用哈希值的高 32 位选择块，返回块在 {@link #words} 中的起始位置。
+     * 乘法再右移（fastrange），代替取模
+     */
+    private int block(long hash) {
+        return (int) (((hash >>> 32) * blockCount) >>> 32) * BLOCK_WORDS;
+    }
+
+    // ========== 其它 ==========
+
+    /**
+     * @return 位数组的位数
+     */
+    public long bitSize() {
+        return (long) words.length * Long.SIZE;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    /**
+     * 根据当前被设置的位的比例，估算误判率：(设置的位数 / 总位数) ^ k
+     */
+    public double expectedFpp() {
+        long bitCount = 0;
+        for (long word : words) {
+            bitCount += Long.bitCount(word);
+        }
+        return Math.pow((double) bitCount / bitSize(), hashCount);
+    }
+
+    // ========== 序列化 ==========
+
+    /**
+     * 序列化为 byte[] ：魔数、k 、块数，以及位数组（大端序）
+     */
+    public byte[] toByteArray() {
+        if (words.length > (Integer.MAX_VALUE - 12) / Long.BYTES) {
+            throw new IllegalStateException("位数组过大，无法序列化为 byte[]");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(12 + words.length * Long.BYTES);
+        buffer.putInt(MAGIC).putInt(hashCount).putInt(blockCount);
+        buffer.asLongBuffer().put(words);
+        return buffer.array();
+    }
+
+    public static BlockedBloomFilter fromByteArray(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("不是 BlockedBloomFilter 的序列化数据");
+            }
+            int hashCount = buffer.getInt();
+            int blockCount = buffer.getInt();
+            if (hashCount < 1 || hashCount > MAX_HASH_COUNT || blockCount < 1 || blockCount > Integer.MAX_VALUE / BLOCK_WORDS
+                    || buffer.remaining() != (long) blockCount * BLOCK_WORDS * Long.BYTES) {
+                throw new IllegalArgumentException("序列化数据已损坏");
+            }
+            long[] words = new long[blockCount * BLOCK_WORDS];
+            buffer.asLongBuffer().get(words);
+            return new BlockedBloomFilter(words, hashCount);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("序列化数据长度不足", e);
+        }
+    }
+
+    public static void main(String[] args) {
+        BlockedBloomFilter filter = new BlockedBloomFilter(1000, 0.01);
+        for (int id = 1; id <= 1000; id++) {
+            filter.add("user:" + id);
+        }
+        BlockedBloomFilter copy = BlockedBloomFilter.fromByteArray(filter.toByteArray());
+        System.out.println(copy.mightContain("user:1") + " " + copy.mightContain("user:1001"));
+        System.out.println(String.format("位数：%d，k：%d，估算误判率：%.4f", copy.bitSize(), copy.hashCount(), copy.expectedFpp()));
+    }
+
+}
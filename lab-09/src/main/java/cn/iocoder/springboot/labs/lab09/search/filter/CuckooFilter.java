@@ -0,0 +1,344 @@
+package cn.iocoder.springboot.labs.lab09.search.filter;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * 布谷鸟过滤器（cuckoo filter），支持删除。
+ *
+ * 在 {@link BlockedBloomFilter} 的基础上：
+ *
+ * 1. 不再设置位，而是保存 key 的 16 位指纹（fingerprint）。表按照桶组织，每个桶 4 个指纹，使用 short[] 保存，
+ *    一个桶 8 字节，查询最多访问 2 个桶。
+ * 2. 每个指纹有两个候选桶：i1 = hash(key) ，i2 = (hash(fingerprint) - i1) mod 桶数 。只根据指纹和当前桶，就能算出另一个桶，
+ *    所以两个桶都满时，可以把其中一个指纹"踢"到它的另一个桶（布谷鸟哈希），最多踢 {@link #MAX_KICKS} 次。
+ *    常见的 i1 ^ hash(fingerprint) 要求桶数为 2 的幂，最坏时表的大小接近需要的 2 倍；减法对任意桶数都成立，所以按照容量精确分配桶数。
+ * 3. 删除时，从两个候选桶中删除一个相同的指纹即可。只能删除加入过的 key ，否则可能误删其它 key 的指纹。
+ *
+ * 误判率约为 2 * 4 / 2^16 ≈ 0.012% ，和负载无关；负载可以到 95% 左右，之后加入会失败。
+ * 同一个 key 最多加入 8 次（两个桶的容量）。
+ *
+ * 非线程安全。构建完成后，只读的查询可以多线程并发。
+ */
+public class CuckooFilter {
+
+    /**
+     * 序列化的魔数，"CKF2" 。"CKF1" 的桶数为 2 的幂，使用异或计算另一个桶，不再兼容
+     */
+    private static final int MAGIC = 0x434B4632;
+
+    private static final int BUCKET_SIZE = 4;
+
+    /**
+     * 期望的最大负载
+     */
+    private static final double MAX_LOAD_FACTOR = 0.95;
+
+    private static final int MAX_KICKS = 500;
+
+    private static final int MAX_BUCKET_COUNT = 1 << 28;
+
+    /**
+     * 空的指纹
+     */
+    private static final short EMPTY = 0;
+
+    /**
+     * 所有桶的指纹，第 i 个桶为 [i * BUCKET_SIZE, (i + 1) * BUCKET_SIZE)
+     */
+    private final short[] table;
+    /**
+     * 桶数
+     */
+    private final int bucketCount;
+    /**
+     * 已加入的 key 个数
+     */
+    private int count;
+
+    /**
+     * 踢出 {@link #MAX_KICKS} 次后，仍然没有位置的指纹。存在时，过滤器视为已满
+     */
+    private boolean hasVictim;
+    private int victimIndex;
+    private short victimFingerprint;
+
+    /**
+     * 选择被踢出的指纹的随机数，xorshift
+     */
+    private int random = 0x2545F491;
+
+    /**
+     * @param capacity 预计加入的 key 个数
+     */
+    public CuckooFilter(long capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity 必须大于 0");
+        }
+        long buckets = Math.max(1, (long) Math.ceil(capacity / (BUCKET_SIZE * MAX_LOAD_FACTOR)));
+        if (buckets > MAX_BUCKET_COUNT) {
+            throw new IllegalArgumentException("容量过大：" + capacity);
+        }
+        this.bucketCount = (int) buckets;
+        this.table = new short[bucketCount * BUCKET_SIZE];
+    }
+
+    private CuckooFilter(short[] table) {
+        this.table = table;
+        this.bucketCount = table.length / BUCKET_SIZE;
+    }
+
+    // ========== 加入 ==========
+
+    /**
+     * @return 是否加入成功。过滤器已满时，返回 false
+     */
+    public boolean add(long key) {
+        return addHash(FilterHashes.hash(key));
+    }
+
+    public boolean add(CharSequence key) {
+        return addHash(FilterHashes.hash(key));
+    }
+
+    public boolean add(byte[] key) {
+        return addHash(FilterHashes.hash(key));
+    }
+
+    private boolean addHash(long hash) {
+        if (hasVictim) {
+            return false;
+        }
+        short fingerprint = fingerprint(hash);
+        int index = index(hash);
+        insert(index, fingerprint);
+        count++;
+        return true;
+    }
+
+    /**
+     * 加入指纹。两个候选桶都满时，随机踢出一个指纹，放到它的另一个桶，直到找到空位；
+     * 踢出 {@link #MAX_KICKS} 次后仍然没有空位时，最后被踢出的指纹保存为 victim ，不会丢失
+     */
+    private void insert(int index, short fingerprint) {
+        if (insertIntoBucket(index, fingerprint)) {
+            return;
+        }
+        index = alternateIndex(index, fingerprint);
+        if (insertIntoBucket(index, fingerprint)) {
+            return;
+        }
+        for (int kick = 0; kick < MAX_KICKS; kick++) {
+            random ^= random << 13;
+            random ^= random >>> 17;
+            random ^= random << 5;
+            int slot = index * BUCKET_SIZE + (random & (BUCKET_SIZE - 1));
+            short kicked = table[slot];
+            table[slot] = fingerprint;
+            fingerprint = kicked;
+            index = alternateIndex(index, fingerprint);
+            if (insertIntoBucket(index, fingerprint)) {
+                return;
+            }
+        }
+        hasVictim = true;
+        victimIndex = index;
+        victimFingerprint = fingerprint;
+    }
+
+    private boolean insertIntoBucket(int index, short fingerprint) {
+        for (int slot = index * BUCKET_SIZE, end = slot + BUCKET_SIZE; slot < end; slot++) {
+            if (table[slot] == EMPTY) {
+                table[slot] = fingerprint;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ========== 查询 ==========
+
+    /**
+     * @return false 时，key 一定不存在；true 时，key 可能存在
+     */
+    public boolean mightContain(long key) {
+        return mightContainHash(FilterHashes.hash(key));
+    }
+
+    public boolean mightContain(CharSequence key) {
+        return mightContainHash(FilterHashes.hash(key));
+    }
+
+    public boolean mightContain(byte[] key) {
+        return mightContainHash(FilterHashes.hash(key));
+    }
+
+    private boolean mightContainHash(long hash) {
+        short fingerprint = fingerprint(hash);
+        int i1 = index(hash);
+        int i2 = alternateIndex(i1, fingerprint);
+        return bucketContains(i1, fingerprint) || bucketContains(i2, fingerprint)
+                || (hasVictim && victimFingerprint == fingerprint && (victimIndex == i1 || victimIndex == i2));
+    }
+
+    private boolean bucketContains(int index, short fingerprint) {
+        int base = index * BUCKET_SIZE;
+        return table[base] == fingerprint || table[base + 1] == fingerprint
+                || table[base + 2] == fingerprint || table[base + 3] == fingerprint;
+    }
+
+    // ========== 删除 ==========
+
+    /**
+     * 删除 key 。只能删除加入过的 key
+     *
+     * @return 是否找到并删除
+     */
+    public boolean remove(long key) {
+        return removeHash(FilterHashes.hash(key));
+    }
+
+    public boolean remove(CharSequence key) {
+        return removeHash(FilterHashes.hash(key));
+    }
+
+    public boolean remove(byte[] key) {
+        return removeHash(FilterHashes.hash(key));
+    }
+
+    private boolean removeHash(long hash) {
+        short fingerprint = fingerprint(hash);
+        int i1 = index(hash);
+        int i2 = alternateIndex(i1, fingerprint);
+        if (removeFromBucket(i1, fingerprint) || removeFromBucket(i2, fingerprint)) {
+            count--;
+            // 腾出了位置，重新加入 victim
+            if (hasVictim) {
+                hasVictim = false;
+                insert(victimIndex, victimFingerprint);
+            }
+            return true;
+        }
+        if (hasVictim && victimFingerprint == fingerprint && (victimIndex == i1 || victimIndex == i2)) {
+            hasVictim = false;
+            count--;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean removeFromBucket(int index, short fingerprint) {
+        for (int slot = index * BUCKET_SIZE, end = slot + BUCKET_SIZE; slot < end; slot++) {
+            if (table[slot] == fingerprint) {
+                table[slot] = EMPTY;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ========== 哈希 ==========
+
+    /**
+     * 使用哈希值的高 32 位选择桶。乘法再右移（fastrange），代替取模
+     */
+    private int index(long hash) {
+        return (int) (((hash >>> 32) * bucketCount) >>> 32);
+    }
+
+    /**
+     * 使用哈希值的低 16 位作为指纹，0 表示空，所以替换为 1
+     */
+    private static short fingerprint(long hash) {
+        short fingerprint = (short) hash;
+        return fingerprint == EMPTY ? 1 : fingerprint;
+    }
+
+    /**
+     * 另一个候选桶：(hash(fingerprint) - index) mod 桶数 。hash(fingerprint) - (hash(fingerprint) - index) = index ，
+     * 所以再算一次，会回到原来的桶
+     */
+    private int alternateIndex(int index, short fingerprint) {
+        int fingerprintIndex = (int) (((fingerprint * 0x5BD1E995) & 0xFFFFFFFFL) * bucketCount >>> 32);
+        int alternate = fingerprintIndex - index;
+        return alternate < 0 ? alternate + bucketCount : alternate;
+    }
+
+    // ========== 其它 ==========
+
+    /**
+     * @return 已加入的 key 个数
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return 最多可以保存的指纹个数
+     */
+    public int capacity() {
+        return table.length;
+    }
+
+    public double loadFactor() {
+        return (double) count / table.length;
+    }
+
+    // ========== 序列化 ==========
+
+    /**
+     * 序列化为 byte[] ：魔数、桶数、key 个数、victim ，以及所有指纹（大端序）
+     */
+    public byte[] toByteArray() {
+        if (table.length > (Integer.MAX_VALUE - 19) / Short.BYTES) {
+            throw new IllegalStateException("指纹数组过大，无法序列化为 byte[]");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(19 + table.length * Short.BYTES);
+        buffer.putInt(MAGIC).putInt(bucketCount).putInt(count)
+                .put((byte) (hasVictim ? 1 : 0)).putInt(victimIndex).putShort(victimFingerprint);
+        buffer.asShortBuffer().put(table);
+        return buffer.array();
+    }
+
+    public static CuckooFilter fromByteArray(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("不是 CuckooFilter 的序列化数据");
+            }
+            int bucketCount = buffer.getInt();
+            int count = buffer.getInt();
+            boolean hasVictim = buffer.get() != 0;
+            int victimIndex = buffer.getInt();
+            short victimFingerprint = buffer.getShort();
+            if (bucketCount < 1 || bucketCount > MAX_BUCKET_COUNT || count < 0
+                    || victimIndex < 0 || victimIndex >= bucketCount
+                    || buffer.remaining() != (long) bucketCount * BUCKET_SIZE * Short.BYTES) {
+                throw new IllegalArgumentException("序列化数据已损坏");
+            }
+            short[] table = new short[bucketCount * BUCKET_SIZE];
+            buffer.asShortBuffer().get(table);
+            CuckooFilter filter = new CuckooFilter(table);
+            filter.count = count;
+            filter.hasVictim = hasVictim;
+            filter.victimIndex = victimIndex;
+            filter.victimFingerprint = victimFingerprint;
+            return filter;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("序列化数据长度不足", e);
+        }
+    }
+
+    public static void main(String[] args) {
+        CuckooFilter filter = new CuckooFilter(1000);
+        for (int id = 1; id <= 1000; id++) {
+            filter.add("user:" + id);
+        }
+        // 用户被删除
+        filter.remove("user:1");
+        CuckooFilter copy = CuckooFilter.fromByteArray(filter.toByteArray());
+        System.out.println(copy.mightContain("user:1") + " " + copy.mightContain("user:2") + " " + copy.mightContain("user:1001"));
+        System.out.println(String.format("key 个数：%d，负载：%.2f", copy.count(), copy.loadFactor()));
+    }
+
+}
@@ -0,0 +1,149 @@
+package cn.iocoder.springboot.labs.lab09.search.filter;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link BlockedBloomFilter}、{@link CuckooFilter} 的误判率、耗时，以及和 {@link HashSet} 的对比。
+ *
+ * key 为用户编号（long），存在的为 [0, size) ，不存在的为 [size, 2 * size) 。
+ * 每个操作的耗时为 ns/个；误判率为不存在的 key 中，mightContain 返回 true 的比例。
+ *
+ * 使用方式：java -Xmx2g FilterBenchmark [key 个数] [布隆过滤器的期望误判率]
+ */
+public class FilterBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        double fpp = args.length > 1 ? Double.parseDouble(args[1]) : 0.01;
+        System.out.println(String.format("key 个数：%d，布隆过滤器的期望误判率：%.4f", size, fpp));
+
+        // 多轮执行，前几轮用于 JIT 预热
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("第 " + (round + 1) + " 轮");
+            bloom(size, fpp);
+            cuckoo(size);
+            hashSet(size);
+        }
+    }
+
+    private static void bloom(int size, double fpp) {
+        BlockedBloomFilter filter = new BlockedBloomFilter(size, fpp);
+        long start = System.nanoTime();
+        for (long key = 0; key < size; key++) {
+            filter.add(key);
+        }
+        long addNanos = System.nanoTime() - start;
+
+        // 序列化后再查询，同时验证序列化
+        start = System.nanoTime();
+        byte[] bytes = filter.toByteArray();
+        filter = BlockedBloomFilter.fromByteArray(bytes);
+        long serializeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (long key = 0; key < size; key++) {
+            if (!filter.mightContain(key)) {
+                throw new IllegalStateException("BlockedBloomFilter 漏判：" + key);
+            }
+        }
+        long hitNanos = System.nanoTime() - start;
+
+        long falsePositives = 0;
+        start = System.nanoTime();
+        for (long key = size; key < 2L * size; key++) {
+            if (filter.mightContain(key)) {
+                falsePositives++;
+            }
+        }
+        long missNanos = System.nanoTime() - start;
+        System.out.println(String.format("BlockedBloomFilter 加入：%5.1f ns，存在：%5.1f ns，不存在：%5.1f ns，误判率：%.4f%%，"
+                        + "%.1f bit/key ，序列化：%d ms（%d KB）",
+                (double) addNanos / size, (double) hitNanos / size, (double) missNanos / size,
+                100.0 * falsePositives / size, (double) filter.bitSize() / size, serializeNanos / 1_000_000, bytes.length / 1024));
+    }
+
+    private static void cuckoo(int size) {
+        CuckooFilter filter = new CuckooFilter(size);
+        long start = System.nanoTime();
+        for (long key = 0; key < size; key++) {
+            if (!filter.add(key)) {
+                throw new IllegalStateException("CuckooFilter 已满：" + key);
+            }
+        }
+        long addNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        byte[] bytes = filter.toByteArray();
+        filter = CuckooFilter.fromByteArray(bytes);
+        long serializeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (long key = 0; key < size; key++) {
+            if (!filter.mightContain(key)) {
+                throw new IllegalStateException("CuckooFilter 漏判：" + key);
+            }
+        }
+        long hitNanos = System.nanoTime() - start;
+
+        long falsePositives = 0;
+        start = System.nanoTime();
+        for (long key = size; key < 2L * size; key++) {
+            if (filter.mightContain(key)) {
+                falsePositives++;
+            }
+        }
+        long missNanos = System.nanoTime() - start;
+
+        // 删除一半，剩下的仍然不能漏判
+        int removed = size / 2;
+        start = System.nanoTime();
+        for (long key = 0; key < removed; key++) {
+            if (!filter.remove(key)) {
+                throw new IllegalStateException("CuckooFilter 删除失败：" + key);
+            }
+        }
+        long removeNanos = System.nanoTime() - start;
+        for (long key = removed; key < size; key++) {
+            if (!filter.mightContain(key)) {
+                throw new IllegalStateException("CuckooFilter 删除后漏判：" + key);
+            }
+        }
+        System.out.println(String.format("CuckooFilter       加入：%5.1f ns，存在：%5.1f ns，不存在：%5.1f ns，误判率：%.4f%%，"
+                        + "%.1f bit/key ，序列化：%d ms（%d KB），删除：%5.1f ns",
+                (double) addNanos / size, (double) hitNanos / size, (double) missNanos / size,
+                100.0 * falsePositives / size, 16.0 * filter.capacity() / size, serializeNanos / 1_000_000, bytes.length / 1024,
+                (double) removeNanos / removed));
+    }
+
+    private static void hashSet(int size) {
+        Set<Long> set = new HashSet<>();
+        long start = System.nanoTime();
+        for (long key = 0; key < size; key++) {
+            set.add(key);
+        }
+        long addNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (long key = 0; key < size; key++) {
+            if (!set.contains(key)) {
+                throw new IllegalStateException("HashSet 漏判：" + key);
+            }
+        }
+        long hitNanos = System.nanoTime() - start;
+
+        long falsePositives = 0;
+        start = System.nanoTime();
+        for (long key = size; key < 2L * size; key++) {
+            if (set.contains(key)) {
+                falsePositives++;
+            }
+        }
+        long missNanos = System.nanoTime() - start;
+        System.out.println(String.format("HashSet            加入：%5.1f ns，存在：%5.1f ns，不存在：%5.1f ns，误判率：%.4f%%",
+                (double) addNanos / size, (double) hitNanos / size, (double) missNanos / size, 100.0 * falsePositives / size));
+    }
+
+}
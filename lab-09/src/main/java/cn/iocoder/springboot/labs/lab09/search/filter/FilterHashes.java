@@ -0,0 +1,58 @@
+package cn.iocoder.springboot.labs.lab09.search.filter;
+
+/**
+ * filter 使用的 64 位哈希。
+ *
+ * 两种 filter 都只依赖 64 位的哈希值：高位、低位分别用于选择位置、计算指纹，所以需要每一位都足够随机。
+ * 这里使用 {@link java.util.SplittableRandom} 中的 mix64 作为最后一步，保证 key 的微小变化会扩散到所有位。
+ */
+final class FilterHashes {
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private FilterHashes() {
+    }
+
+    static long hash(long key) {
+        return mix64(key + SEED);
+    }
+
+    static long hash(CharSequence key) {
+        long h = SEED ^ key.length();
+        for (int i = 0, length = key.length(); i < length; i++) {
+            h = (h + key.charAt(i)) * 0xBF58476D1CE4E5B9L;
+        }
+        return mix64(h);
+    }
+
+    static long hash(byte[] key) {
+        long h = SEED ^ key.length;
+        int i = 0;
+        // 每次处理 8 个字节
+        for (int end = key.length & ~7; i < end; i += 8) {
+            long word = (key[i] & 0xFFL)
+                    | (key[i + 1] & 0xFFL) << 8
+                    | (key[i + 2] & 0xFFL) << 16
+                    | (key[i + 3] & 0xFFL) << 24
+                    | (key[i + 4] & 0xFFL) << 32
+                    | (key[i + 5] & 0xFFL) << 40
+                    | (key[i + 6] & 0xFFL) << 48
+                    | (key[i + 7] & 0xFFL) << 56;
+            h = Long.rotateLeft(h ^ mix64(word), 27) * 0xBF58476D1CE4E5B9L;
+        }
+        for (; i < key.length; i++) {
+            h = (h + (key[i] & 0xFF)) * 0x94D049BB133111EBL;
+        }
+        return mix64(h);
+    }
+
+    /**
+     * Stafford variant 13 ，同 SplittableRandom#mix64
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+}
@@ -0,0 +1,8 @@
+/**
+ * 概率型的集合（filter），用于在查询缓存、数据库之前，快速判断 key 一定不存在。
+ *
+ * 例如说 lab-11 中的 UserCacheDao#get(Integer) ，不存在的用户编号每次都要访问一次 Redis ；
+ * 先查询内存中的 filter ，返回 false 时直接返回空，避免无效的网络往返（以及缓存穿透）。
+ * filter 可以序列化成 byte[] ，由一个节点构建后，分发给其它节点。
+ */
+package cn.iocoder.springboot.labs.lab09.search.filter;
@@ -0,0 +1,323 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 自适应桶排序，用于 double[] ，例如说延迟等分布严重倾斜的监控数据。
+ *
+ * 在 {@link BucketSorterTest} 的基础上：
+ *
+ * 1. 桶的边界不是固定的 bucketSize ，而是对输入随机采样、排序后，按照分位数选取。
+ *    这样无论数据如何倾斜，每个桶的元素个数都接近，排序总体接近线性。
+ * 2. 桶的边界组织成一棵隐式的完全二叉树（类似堆的下标），每个元素只需要 log(桶数) 次没有分支的比较，即可定位到桶。
+ * 3. 参考 {@link LsdRadixSorter} ，数组切分成多个块，并行统计每个块、每个桶的元素个数，再通过前缀和计算写入位置，并行分发到临时数组。
+ *    每个桶在临时数组中是连续的一段，桶之间已经有序，不需要再拼接。
+ * 4. 多个桶并行排序，排序完的桶直接复制回原数组的相同位置。
+ * 5. 如果某个桶的上边界，和下一个桶的上边界相同，说明该值大量重复。该桶只需要把等于边界的元素移到末尾，其余元素排序即可。
+ *
+ * 排序结果和 {@link Arrays#sort(double[])} 一致：-0.0 排在 0.0 之前，NaN 排在最后。
+ *
+ * 线程安全：每次排序使用各自的临时数组、计数。
+ */
+public class AdaptiveBucketSorter {
+
+    /**
+     * 元素个数小于该值时，直接使用 {@link Arrays#sort(double[])}
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+    /**
+     * 每个桶期望的元素个数。2048 个 double 为 16 KB ，可以放在 L1/L2 缓存中排序
+     */
+    private static final int BUCKET_SIZE = 1 << 11;
+    /**
+     * 最大桶数。桶的编号使用 char 记录
+     */
+    private static final int MAX_BUCKETS = 1 << 16;
+    /**
+     * 每个桶的采样数。采样越多，桶的大小越均匀
+     */
+    private static final int OVERSAMPLING = 16;
+    /**
+     * 分发时，每个块的最少元素个数
+     */
+    private static final int CHUNK_SIZE = 1 << 15;
+
+    private final ForkJoinPool pool;
+
+    public AdaptiveBucketSorter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public AdaptiveBucketSorter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public void sort(double[] array) {
+        // NaN 移到末尾，之后只需要处理普通的数值
+        int n = moveNaNsToEnd(array);
+        if (n < SEQUENTIAL_THRESHOLD) {
+            Arrays.sort(array, 0, n);
+            return;
+        }
+        int bucketCount = bucketCount(n);
+        int levels = Integer.numberOfTrailingZeros(bucketCount);
+        double[] tree = splitterTree(array, n, bucketCount);
+
+        // 1. 并行定位每个元素的桶，并统计每个块、每个桶的元素个数
+        int chunks = Math.max(1, Math.min(pool.getParallelism(), n / CHUNK_SIZE));
+        int[][] counts = new int[chunks][bucketCount];
+        char[] bucketIds = new char[n];
+        forEach(chunks, chunk -> {
+            int[] count = counts[chunk];
+            for (int i = chunkFrom(n, chunks, chunk), end = chunkFrom(n, chunks, chunk + 1); i < end; i++) {
+                int bucket = bucketOf(tree, levels, array[i]);
+                bucketIds[i] = (char) bucket;
+                count[bucket]++;
+            }
+        });
+
+        // 2. 计算每个桶的起始位置，以及每个块、每个桶的写入位置
+        int[] bucketStarts = new int[bucketCount + 1];
+        int sum = 0;
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            bucketStarts[bucket] = sum;
+            for (int[] count : counts) {
+                int value = count[bucket];
+                count[bucket] = sum;
+                sum += value;
+            }
+        }
+        bucketStarts[bucketCount] = n;
+
+        // 3. 并行分发到临时数组
+        double[] buffer = new double[n];
+        forEach(chunks, chunk -> {
+            int[] offset = counts[chunk];
+            for (int i = chunkFrom(n, chunks, chunk), end = chunkFrom(n, chunks, chunk + 1); i < end; i++) {
+                buffer[offset[bucketIds[i]]++] = array[i];
+            }
+        });
+
+        // 4. 并行排序每个桶，并复制回原数组
+        pool.invoke(new BucketTask(array, buffer, bucketStarts, tree, bucketCount, 0, bucketCount));
+    }
+
+    // ========== 桶的边界 ==========
+
+    /**
+     * 桶数为 2 的幂，便于组织成完全二叉树
+     */
+    private static int bucketCount(int n) {
+        int bucketCount = Integer.highestOneBit(n / BUCKET_SIZE);
+        return Math.max(2, Math.min(MAX_BUCKETS, bucketCount));
+    }
+
+    /**
+     * 采样并选取 bucketCount - 1 个分位数作为桶的边界，组织成隐式的完全二叉树：
+     * tree[1] 为根节点，tree[i] 的子节点为 tree[2i]、tree[2i + 1] ，tree[0] 未使用
+     */
+    private static double[] splitterTree(double[] array, int n, int bucketCount) {
+        int sampleSize = Math.min(n, bucketCount * OVERSAMPLING);
+        double[] sample = new double[sampleSize];
+        SplittableRandom random = new SplittableRandom();
+        for (int i = 0; i < sampleSize; i++) {
+            sample[i] = array[random.nextInt(n)];
+        }
+        Arrays.sort(sample);
+        double[] splitters = new double[bucketCount];
+        for (int i = 1; i < bucketCount; i++) {
+            splitters[i] = sample[(int) ((long) i * sampleSize / bucketCount)];
+        }
+        // 有序的 splitters[1..bucketCount) ，按照中序遍历的顺序，填入完全二叉树
+        double[] tree = new double[bucketCount];
+        fillTree(tree, 1, splitters, 1, bucketCount);
+        return tree;
+    }
+
+    /**
+     * 使用有序的 splitters[from, to) ，填充以 node 为根的子树
+     */
+    private static void fillTree(double[] tree, int node, double[] splitters, int from, int to) {
+        if (node >= tree.length) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        tree[node] = splitters[middle];
+        fillTree(tree, node << 1, splitters, from, middle);
+        fillTree(tree, (node << 1) + 1, splitters, middle + 1, to);
+    }
+
+    /**
+     * 定位元素的桶：桶的编号 = 小于 value 的边界个数
+     */
+    private static int bucketOf(double[] tree, int levels, double value) {
+        int node = 1;
+        for (int level = 0; level < levels; level++) {
+            node = (node << 1) + (value > tree[node] ? 1 : 0);
+        }
+        return node - tree.length;
+    }
+
+    /**
+     * 桶 bucket 的上边界，即第 bucket + 1 个边界（从 1 开始）在树中的值
+     */
+    private static double upperSplitter(double[] tree, int bucketCount, int bucket) {
+        // 叶子 bucketCount + bucket 的右侧第一个祖先，即为上边界
+        int node = bucketCount + bucket;
+        while ((node & 1) == 1) {
+            node >>>= 1;
+        }
+        return tree[node >>> 1];
+    }
+
+    // ========== 桶排序 ==========
+
+    @SuppressWarnings("serial")
+    private static final class BucketTask extends RecursiveAction {
+
+        private final double[] array;
+        private final double[] buffer;
+        private final int[] bucketStarts;
+        private final double[] tree;
+        private final int bucketCount;
+        private final int from;
+        private final int to;
+
+        private BucketTask(double[] array, double[] buffer, int[] bucketStarts, double[] tree, int bucketCount,
+                           int from, int to) {
+            this.array = array;
+            this.buffer = buffer;
+            this.bucketStarts = bucketStarts;
+            this.tree = tree;
+            this.bucketCount = bucketCount;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && bucketStarts[to] - bucketStarts[from] > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BucketTask(array, buffer, bucketStarts, tree, bucketCount, from, middle),
+                        new BucketTask(array, buffer, bucketStarts, tree, bucketCount, middle, to));
+                return;
+            }
+            for (int bucket = from; bucket < to; bucket++) {
+                sortBucket(bucket);
+            }
+        }
+
+        private void sortBucket(int bucket) {
+            int start = bucketStarts[bucket];
+            int end = bucketStarts[bucket + 1];
+            if (end - start > 1) {
+                int sortEnd = end;
+                // 上边界重复，说明等于上边界的元素很多，把它们移到末尾，不参与排序。
+                // 0.0 除外，因为 -0.0 == 0.0 ，但是两者需要排序
+                if (bucket + 2 < bucketCount) {
+                    double splitter = upperSplitter(tree, bucketCount, bucket);
+                    if (splitter != 0.0 && splitter == upperSplitter(tree, bucketCount, bucket + 1)) {
+                        sortEnd = partitionLess(buffer, start, end, splitter);
+                    }
+                }
+                Arrays.sort(buffer, start, sortEnd);
+            }
+            System.arraycopy(buffer, start, array, start, end - start);
+        }
+
+    }
+
+    /**
+     * 将 [from, to) 中小于 pivot 的元素移到前面，返回分界位置
+     */
+    private static int partitionLess(double[] array, int from, int to, double pivot) {
+        int less = from;
+        for (int i = from; i < to; i++) {
+            double value = array[i];
+            if (value < pivot) {
+                array[i] = array[less];
+                array[less++] = value;
+            }
+        }
+        return less;
+    }
+
+    // ========== 公共 ==========
+
+    /**
+     * 将 NaN 移到数组末尾，返回非 NaN 元素的个数
+     */
+    private static int moveNaNsToEnd(double[] array) {
+        int end = array.length;
+        for (int i = end - 1; i >= 0; i--) {
+            if (array[i] != array[i]) {
+                double value = array[i];
+                array[i] = array[--end];
+                array[end] = value;
+            }
+        }
+        return end;
+    }
+
+    private static int chunkFrom(int n, int chunks, int chunk) {
+        return (int) ((long) n * chunk / chunks);
+    }
+
+    /**
+     * 对每个块执行的操作
+     */
+    private interface ChunkAction {
+
+        void run(int chunk);
+
+    }
+
+    private void forEach(int chunks, ChunkAction action) {
+        if (chunks == 1) {
+            action.run(0);
+            return;
+        }
+        pool.invoke(new ChunkTask(action, 0, chunks));
+    }
+
+    @SuppressWarnings("serial")
+    private static final class ChunkTask extends RecursiveAction {
+
+        private final ChunkAction action;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(ChunkAction action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.run(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(action, from, middle), new ChunkTask(action, middle, to));
+        }
+
+    }
+
+    public static void main(String[] args) {
+        // 对数正态分布，模拟接口延迟（毫秒）
+        SplittableRandom random = new SplittableRandom(0);
+        double[] array = new double[100_000];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = Math.exp(random.nextDouble() * 2 + 1) * (random.nextInt(100) == 0 ? 100 : 1);
+        }
+        new AdaptiveBucketSorter().sort(array);
+        System.out.println(String.format("min：%.2f，p50：%.2f，p99：%.2f，max：%.2f", array[0],
+                array[array.length / 2], array[array.length * 99 / 100], array[array.length - 1]));
+    }
+
+}
@@ -0,0 +1,75 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.DoubleSupplier;
+
+/**
+ * {@link AdaptiveBucketSorter} 和 {@link Arrays#sort(double[])}、{@link Arrays#parallelSort(double[])} 的耗时对比。
+ *
+ * 使用方式：java AdaptiveBucketSorterBenchmark [数组长度]
+ */
+public class AdaptiveBucketSorterBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        AdaptiveBucketSorter sorter = new AdaptiveBucketSorter();
+        System.out.println(String.format("长度：%d，CPU：%d", size, Runtime.getRuntime().availableProcessors()));
+
+        SplittableRandom random = new SplittableRandom(0);
+        double[] uniform = generate(size, random::nextDouble);
+        // 对数正态分布，模拟接口延迟：大部分几毫秒，长尾到秒级
+        double[] logNormal = generate(size, () -> Math.exp(gaussian(random) * 1.5 + 1));
+        // 延迟按 0.1 毫秒取整，并且 30% 的请求命中缓存，延迟相同
+        double[] duplicated = generate(size, () -> random.nextInt(10) < 3 ? 0.3
+                : Math.round(Math.exp(gaussian(random) * 1.5 + 1) * 10) / 10.0);
+
+        // 多轮执行，前几轮用于 JIT 预热
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("第 " + (round + 1) + " 轮");
+            benchmark("均匀分布", uniform, sorter);
+            benchmark("对数正态分布", logNormal, sorter);
+            benchmark("大量重复", duplicated, sorter);
+        }
+    }
+
+    private static double[] generate(int size, DoubleSupplier supplier) {
+        double[] array = new double[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = supplier.getAsDouble();
+        }
+        return array;
+    }
+
+    /**
+     * Box-Muller 生成标准正态分布
+     */
+    private static double gaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static void benchmark(String name, double[] source, AdaptiveBucketSorter sorter) {
+        double[] expected = source.clone();
+        long start = System.nanoTime();
+        Arrays.sort(expected);
+        long sortNanos = System.nanoTime() - start;
+
+        double[] array = source.clone();
+        start = System.nanoTime();
+        Arrays.parallelSort(array);
+        long parallelSortNanos = System.nanoTime() - start;
+
+        array = source.clone();
+        start = System.nanoTime();
+        sorter.sort(array);
+        long bucketNanos = System.nanoTime() - start;
+        if (!Arrays.equals(expected, array)) {
+            throw new IllegalStateException("排序结果不一致");
+        }
+        System.out.println(String.format("%-8s Arrays.sort：%5d ms，Arrays.parallelSort：%5d ms，AdaptiveBucketSorter：%5d ms",
+                name, sortNanos / 1_000_000, parallelSortNanos / 1_000_000, bucketNanos / 1_000_000));
+    }
+
+}
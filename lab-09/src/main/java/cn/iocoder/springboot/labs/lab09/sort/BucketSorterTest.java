@@ -4,6 +4,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Random;
 
+/**
+ * 桶排序
+ *
+ * 按照采样的分位数自适应划分桶、多线程并行的 double[] 版本，见 {@link AdaptiveBucketSorter} 。
+ */
 public class BucketSorterTest {
 
     public static void main(String[] args) {
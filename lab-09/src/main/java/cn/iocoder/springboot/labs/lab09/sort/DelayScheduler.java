@@ -0,0 +1,433 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 延迟任务调度器，适用于大量短时的定时任务，例如说请求超时、重试。
+ *
+ * 在 {@link HeapSorterTest.HeapSorter} 的基础上：
+ *
+ * 1. 堆改为小顶堆，按照到期时间（long ，纳秒）排序；堆中只存储到期时间和任务的编号（payload index），都是基本类型数组。
+ * 2. 使用 4 叉堆：高度是二叉堆的一半，并且同一个节点的 4 个孩子在数组中相邻，对 CPU 缓存更友好。
+ * 3. 记录每个任务在堆中的位置，取消任务时直接从堆中删除，不需要遍历查找。
+ * 4. 堆只由一个调度线程访问，不需要加锁。提交、取消的线程，通过 CAS 压入无锁的栈（Treiber stack），
+ *    调度线程每次用 getAndSet(null) 一次取走全部，再插入、删除堆。
+ * 5. 调度线程在最早的到期时间之前 park ；提交的任务压入空栈时，才 unpark 调度线程，避免每次提交都唤醒。
+ *
+ * 和 {@link java.util.concurrent.ScheduledThreadPoolExecutor} 相比，提交时没有锁的竞争，每个任务只创建一个 {@link Timer} 对象。
+ *
+ * 到期的任务默认在调度线程中执行，所以任务需要很快执行完；耗时的任务可以传入 {@link Executor} 执行。
+ *
+ * 加入、取消为 O(1) 的时间轮版本，见 {@link TimingWheelTimer} 。
+ */
+public class DelayScheduler implements Closeable {
+
+    private static final int ARITY = 4;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * 执行到期任务的线程池，为空时在调度线程中执行
+     */
+    private final Executor executor;
+    /**
+     * 调度线程
+     */
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * 新提交的任务，无锁栈的栈顶
+     */
+    private final AtomicReference<Timer> submitted = new AtomicReference<>();
+    /**
+     * 取消的任务，无锁栈的栈顶
+     */
+    private final AtomicReference<Timer> cancelled = new AtomicReference<>();
+
+    // ========== 以下字段，只由调度线程访问 ==========
+
+    /**
+     * 堆中的到期时间，deadlines[0] 为堆顶
+     */
+    private long[] deadlines = new long[INITIAL_CAPACITY];
+    /**
+     * 和 {@link #deadlines} 一一对应的任务编号
+     */
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int size;
+    /**
+     * 任务编号对应的任务
+     */
+    private Timer[] timers = new Timer[INITIAL_CAPACITY];
+    /**
+     * 任务编号在堆中的位置
+     */
+    private int[] positions = new int[INITIAL_CAPACITY];
+    /**
+     * 空闲的任务编号，栈
+     */
+    private int[] freeIds = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    /**
+     * 已经分配过的任务编号个数
+     */
+    private int idCount;
+
+    // ========== 统计 ==========
+
+    /**
+     * 只由调度线程写入
+     */
+    private volatile long firedCount;
+    /**
+     * 多个线程并发取消，使用 LongAdder
+     */
+    private final LongAdder cancelledCount = new LongAdder();
+
+    public DelayScheduler() {
+        this(null);
+    }
+
+    public DelayScheduler(Executor executor) {
+        this.executor = executor;
+        this.thread = new Thread(this::run, "delay-scheduler");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // ========== 提交 ==========
+
+    /**
+     * 提交延迟任务，线程安全
+     *
+     * @return 任务，可以用于取消
+     */
+    public Timer schedule(Runnable task, long delay, TimeUnit unit) {
+        if (closed) {
+            throw new RejectedExecutionException("调度器已关闭");
+        }
+        Timer timer = new Timer(this, task, System.nanoTime() + unit.toNanos(delay));
+        // 压入空栈时，说明调度线程可能在 park ，需要唤醒
+        if (push(submitted, timer, false)) {
+            LockSupport.unpark(thread);
+        }
+        return timer;
+    }
+
+    /**
+     * CAS 压入无锁栈
+     *
+     * @return 压入前栈是否为空
+     */
+    private static boolean push(AtomicReference<Timer> stack, Timer timer, boolean cancel) {
+        while (true) {
+            Timer head = stack.get();
+            if (cancel) {
+                timer.nextCancelled = head;
+            } else {
+                timer.nextSubmitted = head;
+            }
+            if (stack.compareAndSet(head, timer)) {
+                return head == null;
+            }
+        }
+    }
+
+    // ========== 调度线程 ==========
+
+    private void run() {
+        while (!closed) {
+            // 1. 取走新提交、取消的任务，更新堆
+            drainSubmitted();
+            drainCancelled();
+
+            // 2. 执行到期的任务
+            long now = System.nanoTime();
+            while (size > 0 && deadlines[0] - now <= 0) {
+                Timer timer = timers[ids[0]];
+                removeAt(0);
+                fire(timer);
+            }
+
+            // 3. park 到最早的到期时间。新任务提交时会被 unpark
+            if (submitted.get() != null) {
+                continue;
+            }
+            if (size == 0) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, deadlines[0] - now);
+            }
+        }
+    }
+
+    private void drainSubmitted() {
+        for (Timer timer = submitted.getAndSet(null); timer != null; ) {
+            Timer next = timer.nextSubmitted;
+            timer.nextSubmitted = null;
+            // 取走之前已经取消的任务，不需要加入堆
+            if (timer.state == Timer.PENDING) {
+                insert(timer);
+            }
+            timer = next;
+        }
+    }
+
+    private void drainCancelled() {
+        for (Timer timer = cancelled.getAndSet(null); timer != null; ) {
+            Timer next = timer.nextCancelled;
+            timer.nextCancelled = null;
+            if (timer.id >= 0) {
+                removeAt(positions[timer.id]);
+            }
+            timer = next;
+        }
+    }
+
+    private void fire(Timer timer) {
+        if (!Timer.STATE_UPDATER.compareAndSet(timer, Timer.PENDING, Timer.EXPIRED)) {
+            // 并发取消了
+            return;
+        }
+        if (executor != null) {
+            try {
+                executor.execute(timer.task);
+            } catch (Throwable e) {
+                // 线程池拒绝（例如已关闭）时，不能影响调度线程。该任务没有执行，不计入 firedCount
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                return;
+            }
+            firedCount++;
+            return;
+        }
+        firedCount++;
+        try {
+            timer.task.run();
+        } catch (Throwable e) {
+            // 任务的异常不能影响调度线程
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    // ========== 4 叉堆 ==========
+
+    private void insert(Timer timer) {
+        int id = allocateId();
+        timers[id] = timer;
+        timer.id = id;
+        if (size == deadlines.length) {
+            deadlines = Arrays.copyOf(deadlines, size << 1);
+            ids = Arrays.copyOf(ids, size << 1);
+        }
+        siftUp(size++, id, timer.deadline);
+    }
+
+    /**
+     * 删除堆中 position 位置的任务，并释放它的编号
+     */
+    private void removeAt(int position) {
+        int id = ids[position];
+        Timer timer = timers[id];
+        timer.id = -1;
+        timers[id] = null;
+        freeIds[freeCount++] = id;
+
+        int last = --size;
+        if (position == last) {
+            return;
+        }
+        // 用最后一个元素填补，再向上或向下调整
+        int lastId = ids[last];
+        long lastDeadline = deadlines[last];
+        if (position > 0 && lastDeadline - deadlines[(position - 1) / ARITY] < 0) {
+            siftUp(position, lastId, lastDeadline);
+        } else {
+            siftDown(position, lastId, lastDeadline);
+        }
+    }
+
+    private void siftUp(int position, int id, long deadline) {
+        while (position > 0) {
+            int parent = (position - 1) / ARITY;
+            if (deadlines[parent] - deadline <= 0) {
+                break;
+            }
+            move(parent, position);
+            position = parent;
+        }
+        set(position, id, deadline);
+    }
+
+    private void siftDown(int position, int id, long deadline) {
+        while (true) {
+            int first = position * ARITY + 1;
+            if (first >= size) {
+                break;
+            }
+            // 4 个孩子中，到期时间最早的
+            int min = first;
+            for (int child = first + 1, end = Math.min(first + ARITY, size); child < end; child++) {
+                if (deadlines[child] - deadlines[min] < 0) {
+                    min = child;
+                }
+            }
+            if (deadlines[min] - deadline >= 0) {
+                break;
+            }
+            move(min, position);
+            position = min;
+        }
+        set(position, id, deadline);
+    }
+
+    private void move(int from, int to) {
+        set(to, ids[from], deadlines[from]);
+    }
+
+    private void set(int position, int id, long deadline) {
+        ids[position] = id;
+        deadlines[position] = deadline;
+        positions[id] = position;
+    }
+
+    private int allocateId() {
+        if (freeCount > 0) {
+            return freeIds[--freeCount];
+        }
+        if (idCount == timers.length) {
+            int capacity = idCount << 1;
+            timers = Arrays.copyOf(timers, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            freeIds = Arrays.copyOf(freeIds, capacity);
+        }
+        return idCount++;
+    }
+
+    // ========== 其它 ==========
+
+    /**
+     * @return 已经执行的任务个数
+     */
+    public long firedCount() {
+        return firedCount;
+    }
+
+    /**
+     * @return 已经取消的任务个数
+     */
+    public long cancelledCount() {
+        return cancelledCount.sum();
+    }
+
+    /**
+     * 关闭调度器，未到期的任务不再执行。在到期的任务中调用时，不等待调度线程退出
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        // 在调度线程中调用时，join 自己会永远阻塞
+        if (Thread.currentThread() == thread) {
+            return;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 延迟任务
+     */
+    public static final class Timer {
+
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timer> STATE_UPDATER
+                = AtomicIntegerFieldUpdater.newUpdater(Timer.class, "state");
+
+        private final DelayScheduler scheduler;
+        private final Runnable task;
+        /**
+         * 到期时间，{@link System#nanoTime()}
+         */
+        private final long deadline;
+        volatile int state;
+
+        /**
+         * 提交栈中的下一个
+         */
+        private Timer nextSubmitted;
+        /**
+         * 取消栈中的下一个
+         */
+        private Timer nextCancelled;
+        /**
+         * 任务编号，不在堆中时为 -1 。只由调度线程访问
+         */
+        private int id = -1;
+
+        private Timer(DelayScheduler scheduler, Runnable task, long deadline) {
+            this.scheduler = scheduler;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 取消任务，线程安全
+         *
+         * @return 是否取消成功。已经执行、已经取消时，返回 false
+         */
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+            // 交给调度线程从堆中删除。不需要唤醒它，下次醒来时处理即可
+            push(scheduler.cancelled, this, true);
+            scheduler.cancelledCount.increment();
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        /**
+         * @return 剩余的延迟
+         */
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        try (DelayScheduler scheduler = new DelayScheduler()) {
+            long start = System.nanoTime();
+            for (int delay : new int[]{300, 100, 200}) {
+                scheduler.schedule(() -> System.out.println(String.format("延迟 %d ms，实际 %d ms",
+                        delay, (System.nanoTime() - start) / 1_000_000)), delay, TimeUnit.MILLISECONDS);
+            }
+            Timer timeout = scheduler.schedule(() -> System.out.println("不会执行"), 150, TimeUnit.MILLISECONDS);
+            System.out.println("取消：" + timeout.cancel());
+            Thread.sleep(400);
+        }
+    }
+
+}
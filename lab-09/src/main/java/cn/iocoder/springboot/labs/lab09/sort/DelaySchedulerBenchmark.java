@@ -0,0 +1,141 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link DelayScheduler} 和 {@link ScheduledThreadPoolExecutor} 的耗时对比。
+ *
+ * 模拟请求超时：多个线程并发提交延迟 1 ~ 1000 ms 的任务，其中 90% 在到期前被取消（请求正常返回）。
+ * {@link ScheduledThreadPoolExecutor} 开启 removeOnCancelPolicy ，取消时从队列中删除，和 {@link DelayScheduler} 一致。
+ *
+ * 使用方式：java DelaySchedulerBenchmark [任务个数] [线程数]
+ */
+public class DelaySchedulerBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    private static final int MAX_DELAY_MILLIS = 1000;
+
+    /**
+     * 取消的比例
+     */
+    private static final double CANCEL_RATE = 0.9;
+
+    public static void main(String[] args) throws InterruptedException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        System.out.println(String.format("任务个数：%d，线程数：%d，CPU：%d", size, threads, Runtime.getRuntime().availableProcessors()));
+
+        // 多轮执行，前几轮用于 JIT 预热
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("第 " + (round + 1) + " 轮");
+            delayScheduler(size, threads);
+            scheduledThreadPoolExecutor(size, threads);
+        }
+    }
+
+    private static void delayScheduler(int size, int threads) throws InterruptedException {
+        LongAdder fired = new LongAdder();
+        try (DelayScheduler scheduler = new DelayScheduler()) {
+            Runnable task = fired::increment;
+            long submitNanos = submit(size, threads, random -> {
+                DelayScheduler.Timer timer = scheduler.schedule(task, random.nextInt(1, MAX_DELAY_MILLIS + 1), TimeUnit.MILLISECONDS);
+                return timer::cancel;
+            });
+            long expected = size - scheduler.cancelledCount();
+            waitFired(fired, expected);
+            print("DelayScheduler", size, submitNanos, fired.sum(), expected);
+        }
+    }
+
+    private static void scheduledThreadPoolExecutor(int size, int threads) throws InterruptedException {
+        LongAdder fired = new LongAdder();
+        LongAdder cancelled = new LongAdder();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        try {
+            Runnable task = fired::increment;
+            long submitNanos = submit(size, threads, random -> {
+                ScheduledFuture<?> future = executor.schedule(task, random.nextInt(1, MAX_DELAY_MILLIS + 1), TimeUnit.MILLISECONDS);
+                return () -> {
+                    if (future.cancel(false)) {
+                        cancelled.increment();
+                    }
+                };
+            });
+            long expected = size - cancelled.sum();
+            waitFired(fired, expected);
+            print("ScheduledThreadPoolExecutor", size, submitNanos, fired.sum(), expected);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 提交任务的操作，返回取消任务的操作
+     */
+    private interface Submitter {
+
+        Runnable submit(SplittableRandom random);
+
+    }
+
+    /**
+     * 多个线程并发提交、取消任务
+     *
+     * @return 提交、取消的耗时
+     */
+    private static long submit(int size, int threads, Submitter submitter) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int count = size / threads + (t < size % threads ? 1 : 0);
+            SplittableRandom random = new SplittableRandom(t);
+            workers[t] = new Thread(() -> {
+                // 攒一小批再取消，模拟请求在超时前返回
+                Runnable[] cancels = new Runnable[64];
+                int pending = 0;
+                for (int i = 0; i < count; i++) {
+                    Runnable cancel = submitter.submit(random);
+                    if (random.nextDouble() < CANCEL_RATE) {
+                        cancels[pending++] = cancel;
+                    }
+                    if (pending == cancels.length || i == count - 1) {
+                        for (int j = 0; j < pending; j++) {
+                            cancels[j].run();
+                            cancels[j] = null;
+                        }
+                        pending = 0;
+                    }
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void waitFired(LongAdder fired, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_DELAY_MILLIS * 10L);
+        while (fired.sum() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void print(String name, int size, long submitNanos, long fired, long expected) {
+        if (fired != expected) {
+            throw new IllegalStateException(String.format("%s 执行的任务个数不一致：%d %d", name, fired, expected));
+        }
+        System.out.println(String.format("%-28s 提交 + 取消：%5d ms（%.1f ns/个），执行：%d",
+                name, submitNanos / 1_000_000, (double) submitNanos / size, fired));
+    }
+
+}
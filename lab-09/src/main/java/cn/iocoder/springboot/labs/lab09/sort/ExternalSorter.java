@@ -0,0 +1,453 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 外部归并排序，用于排序大于内存的定长记录文件。
+ *
+ * 1. 切分：按照 runSize 将输入文件切分成多个块，使用多个线程并行读取、排序，各自写入一个临时文件（run）。
+ * 2. 合并：每次最多合并 fanIn 个 run 。使用 {@link HeapSorterTest.HeapSorter} 作为堆，堆中存储的是 run 的编号，
+ *    按照每个 run 当前记录的大小比较。run 数量超过 fanIn 时，进行多轮合并。
+ *
+ * 记录按照 [keyOffset, keyOffset + keyLength) 范围的字节，以无符号字典序比较。排序是稳定的。
+ *
+ * 内存占用约为 parallelism * runSize * 2（读入的块 + 排序后的块），以及 fanIn * bufferSize 的合并缓冲区。
+ */
+public class ExternalSorter {
+
+    /**
+     * 记录的长度，单位：字节
+     */
+    private final int recordSize;
+    /**
+     * 排序的 key 在记录中的偏移
+     */
+    private final int keyOffset;
+    /**
+     * 排序的 key 的长度
+     */
+    private final int keyLength;
+    /**
+     * 每个 run 包含的记录数
+     */
+    private final int runRecords;
+    /**
+     * 每次合并的 run 数量上限
+     */
+    private final int fanIn;
+    /**
+     * 并行排序的线程数
+     */
+    private final int parallelism;
+    /**
+     * 合并时，每个 run 的读缓冲区，以及输出的写缓冲区大小
+     */
+    private final int bufferSize;
+    /**
+     * 临时文件所在的目录
+     */
+    private final Path tempDirectory;
+
+    private ExternalSorter(Builder builder) {
+        this.recordSize = builder.recordSize;
+        this.keyOffset = builder.keyOffset;
+        this.keyLength = builder.keyLength;
+        this.runRecords = (int) Math.max(1, builder.runSize / builder.recordSize);
+        this.fanIn = builder.fanIn;
+        this.parallelism = builder.parallelism;
+        // 缓冲区至少容纳一条记录
+        this.bufferSize = Math.max(builder.bufferSize / recordSize, 1) * recordSize;
+        this.tempDirectory = builder.tempDirectory;
+    }
+
+    public static Builder builder(int recordSize) {
+        return new Builder(recordSize);
+    }
+
+    /**
+     * 排序 input 文件，结果写入 output 文件
+     *
+     * @return 记录数
+     */
+    public long sort(Path input, Path output) throws IOException {
+        long size = Files.size(input);
+        if (size % recordSize != 0) {
+            throw new IllegalArgumentException("文件大小 " + size + " 不是记录长度 " + recordSize + " 的整数倍");
+        }
+        List<Path> runs = createRuns(input, size);
+        try {
+            // 多轮合并，直到剩余的 run 不超过 fanIn
+            while (runs.size() > fanIn) {
+                List<Path> merged = new ArrayList<>();
+                try {
+                    for (int i = 0; i < runs.size(); i += fanIn) {
+                        List<Path> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+                        if (group.size() == 1) {
+                            merged.add(group.get(0));
+                            continue;
+                        }
+                        Path run = createTempFile();
+                        merged.add(run);
+                        merge(group, run);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    deleteAll(merged);
+                    throw e;
+                }
+                // 删除已经合并的 run ，保留直接进入下一轮的 run
+                List<Path> obsolete = new ArrayList<>(runs);
+                obsolete.removeAll(merged);
+                deleteAll(obsolete);
+                runs = merged;
+            }
+            merge(runs, output);
+        } finally {
+            deleteAll(runs);
+        }
+        return size / recordSize;
+    }
+
+    // ========== 切分 ==========
+
+    private List<Path> createRuns(Path input, long size) throws IOException {
+        long runBytes = (long) runRecords * recordSize;
+        int runCount = (int) ((size + runBytes - 1) / runBytes);
+        List<Path> runs = new ArrayList<>(runCount);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            List<Future<Path>> futures = new ArrayList<>(runCount);
+            for (int i = 0; i < runCount; i++) {
+                long position = i * runBytes;
+                int length = (int) Math.min(runBytes, size - position);
+                futures.add(executor.submit(() -> createRun(channel, position, length)));
+            }
+            // 按照顺序收集，保证排序的稳定性
+            IOException failure = null;
+            for (Future<Path> future : futures) {
+                try {
+                    runs.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = new IOException("排序被中断", e);
+                } catch (ExecutionException e) {
+                    failure = e.getCause() instanceof IOException ? (IOException) e.getCause()
+                            : new IOException(e.getCause());
+                }
+            }
+            if (failure != null) {
+                deleteAll(runs);
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return runs;
+    }
+
+    /**
+     * 读取 [position, position + length) 的记录，排序后写入一个临时文件
+     */
+    private Path createRun(FileChannel channel, long position, int length) throws IOException {
+        // FileChannel 的指定位置读取，是线程安全的
+        ByteBuffer chunk = ByteBuffer.allocate(length);
+        while (chunk.hasRemaining()) {
+            if (channel.read(chunk, position + chunk.position()) < 0) {
+                throw new IOException("文件被截断");
+            }
+        }
+        byte[] records = chunk.array();
+
+        // 排序记录的编号，而不是移动记录本身
+        int count = length / recordSize;
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        sortRecords(records, order, new int[count], 0, count);
+
+        // 按照排序后的顺序，写入临时文件
+        ByteBuffer sorted = ByteBuffer.allocate(length);
+        for (int index : order) {
+            sorted.put(records, index * recordSize, recordSize);
+        }
+        sorted.flip();
+        Path run = createTempFile();
+        try (FileChannel out = FileChannel.open(run, StandardOpenOption.WRITE)) {
+            while (sorted.hasRemaining()) {
+                out.write(sorted);
+            }
+        }
+        return run;
+    }
+
+    /**
+     * 归并排序记录的编号 order[from, to)，同 {@link MergeSorterTest}
+     */
+    private void sortRecords(byte[] records, int[] order, int[] tmpArray, int from, int to) {
+        if (to - from <= 16) {
+            // 插入排序
+            for (int i = from + 1; i < to; i++) {
+                int value = order[i];
+                int j = i - 1;
+                while (j >= from && compare(records, order[j] * recordSize, records, value * recordSize) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = value;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sortRecords(records, order, tmpArray, from, middle);
+        sortRecords(records, order, tmpArray, middle, to);
+        // 已经有序，无需合并
+        if (compare(records, order[middle - 1] * recordSize, records, order[middle] * recordSize) <= 0) {
+            return;
+        }
+        int i = from;
+        int j = middle;
+        int k = from;
+        while (i < middle && j < to) {
+            tmpArray[k++] = compare(records, order[j] * recordSize, records, order[i] * recordSize) < 0
+                    ? order[j++] : order[i++];
+        }
+        while (i < middle) {
+            tmpArray[k++] = order[i++];
+        }
+        while (j < to) {
+            tmpArray[k++] = order[j++];
+        }
+        System.arraycopy(tmpArray, from, order, from, to - from);
+    }
+
+    /**
+     * 以无符号字典序比较两条记录的 key
+     */
+    private int compare(byte[] a, int aOffset, byte[] b, int bOffset) {
+        aOffset += keyOffset;
+        bOffset += keyOffset;
+        for (int i = 0; i < keyLength; i++) {
+            int result = (a[aOffset + i] & 0xff) - (b[bOffset + i] & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    // ========== 合并 ==========
+
+    /**
+     * 顺序读取一个 run 的记录
+     */
+    private final class RunReader implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        /**
+         * 当前记录在 buffer 中的位置，-1 表示已读完
+         */
+        private int position;
+
+        private RunReader(Path run) throws IOException {
+            this.channel = FileChannel.open(run, StandardOpenOption.READ);
+            this.buffer.limit(0);
+            advance();
+        }
+
+        /**
+         * 移动到下一条记录
+         */
+        private void advance() throws IOException {
+            if (buffer.remaining() < recordSize) {
+                buffer.compact();
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // 读满缓冲区，或者读到文件末尾
+                }
+                buffer.flip();
+                if (buffer.remaining() < recordSize) {
+                    position = -1;
+                    return;
+                }
+            }
+            position = buffer.position();
+            buffer.position(position + recordSize);
+        }
+
+        private boolean exhausted() {
+            return position < 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+    }
+
+    private void merge(List<Path> runs, Path output) throws IOException {
+        List<RunReader> readers = new ArrayList<>(runs.size());
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Path run : runs) {
+                readers.add(new RunReader(run));
+            }
+            // HeapSorter 是大顶堆，所以反过来比较：记录越小、run 编号越小，越靠近堆顶
+            HeapSorterTest.HeapSorter heap = new HeapSorterTest.HeapSorter(readers.size(), (i, j) -> {
+                RunReader a = readers.get(i);
+                RunReader b = readers.get(j);
+                int result = compare(b.buffer.array(), b.position, a.buffer.array(), a.position);
+                return result != 0 ? result : Integer.compare(j, i);
+            });
+            for (int i = 0; i < readers.size(); i++) {
+                if (!readers.get(i).exhausted()) {
+                    heap.insert(i);
+                }
+            }
+
+            ByteBuffer outBuffer = ByteBuffer.allocate(bufferSize);
+            while (!heap.isEmpty()) {
+                int index = heap.remove(1);
+                RunReader reader = readers.get(index);
+                if (outBuffer.remaining() < recordSize) {
+                    writeFully(out, outBuffer);
+                }
+                outBuffer.put(reader.buffer.array(), reader.position, recordSize);
+                reader.advance();
+                if (!reader.exhausted()) {
+                    heap.insert(index);
+                }
+            }
+            writeFully(out, outBuffer);
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private Path createTempFile() throws IOException {
+        return tempDirectory != null ? Files.createTempFile(tempDirectory, "run", ".tmp")
+                : Files.createTempFile("run", ".tmp");
+    }
+
+    private static void deleteAll(List<Path> files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * {@link ExternalSorter} 的构建器
+     */
+    public static final class Builder {
+
+        private final int recordSize;
+        private int keyOffset = 0;
+        private int keyLength;
+        private long runSize = 64L << 20;
+        private int fanIn = 64;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int bufferSize = 1 << 20;
+        private Path tempDirectory;
+
+        private Builder(int recordSize) {
+            if (recordSize <= 0) {
+                throw new IllegalArgumentException("记录长度必须大于 0");
+            }
+            this.recordSize = recordSize;
+            this.keyLength = recordSize;
+        }
+
+        /**
+         * 排序的 key 在记录中的范围，默认为整条记录
+         */
+        public Builder key(int keyOffset, int keyLength) {
+            if (keyOffset < 0 || keyLength <= 0 || keyOffset + keyLength > recordSize) {
+                throw new IllegalArgumentException("key 超出记录的范围");
+            }
+            this.keyOffset = keyOffset;
+            this.keyLength = keyLength;
+            return this;
+        }
+
+        /**
+         * 每个 run 的大小，单位：字节，默认 64 MB 。不能超过 2 GB
+         */
+        public Builder runSize(long runSize) {
+            if (runSize <= 0 || runSize > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("run 的大小必须在 (0, 2 GB) 之间");
+            }
+            this.runSize = runSize;
+            return this;
+        }
+
+        /**
+         * 每次合并的 run 数量上限，默认 64
+         */
+        public Builder fanIn(int fanIn) {
+            if (fanIn < 2) {
+                throw new IllegalArgumentException("fanIn 至少为 2");
+            }
+            this.fanIn = fanIn;
+            return this;
+        }
+
+        /**
+         * 并行排序的线程数，默认为 CPU 数
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("线程数必须大于 0");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * 合并时的读写缓冲区大小，单位：字节，默认 1 MB
+         */
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * 临时文件的目录，默认为系统的临时目录
+         */
+        public Builder tempDirectory(Path tempDirectory) {
+            this.tempDirectory = tempDirectory;
+            return this;
+        }
+
+        public ExternalSorter build() {
+            return new ExternalSorter(this);
+        }
+
+    }
+
+}
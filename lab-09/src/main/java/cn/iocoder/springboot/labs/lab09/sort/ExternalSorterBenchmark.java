@@ -0,0 +1,112 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * {@link ExternalSorter} 的耗时。
+ *
+ * 记录格式参考 TeraSort ：每条记录 100 字节，前 10 字节为随机的 key 。
+ *
+ * 使用方式：java ExternalSorterBenchmark [文件大小 MB] [run 大小 MB] [fanIn]
+ * 默认 run 较小、fanIn 较小，用于演示多轮合并。生成的临时文件，在运行结束后删除。
+ */
+public class ExternalSorterBenchmark {
+
+    private static final int RECORD_SIZE = 100;
+
+    private static final int KEY_LENGTH = 10;
+
+    public static void main(String[] args) throws IOException {
+        int fileMb = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        int runMb = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int fanIn = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        Path input = Files.createTempFile("external-sort-input", ".bin");
+        Path output = Files.createTempFile("external-sort-output", ".bin");
+        try {
+            long records = generate(input, (long) fileMb << 20);
+            ExternalSorter sorter = ExternalSorter.builder(RECORD_SIZE)
+                    .key(0, KEY_LENGTH)
+                    .runSize((long) runMb << 20)
+                    .fanIn(fanIn)
+                    .build();
+
+            long start = System.nanoTime();
+            sorter.sort(input, output);
+            long nanos = System.nanoTime() - start;
+            verify(output, records);
+            System.out.println(String.format("记录：%d，文件：%d MB，run：%d MB（%d 个），fanIn：%d，耗时：%d ms，吞吐：%.1f MB/s",
+                    records, fileMb, runMb, (fileMb + runMb - 1) / runMb, fanIn, nanos / 1_000_000,
+                    Files.size(input) * 1e9 / nanos / (1 << 20)));
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    private static long generate(Path file, long size) throws IOException {
+        long records = size / RECORD_SIZE;
+        Random random = new Random(0);
+        byte[] record = new byte[RECORD_SIZE];
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            for (long i = 0; i < records; i++) {
+                random.nextBytes(record);
+                out.write(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 校验输出文件的记录数，以及 key 是否有序
+     */
+    private static void verify(Path file, long records) throws IOException {
+        if (Files.size(file) != records * RECORD_SIZE) {
+            throw new IllegalStateException("记录数不一致");
+        }
+        byte[] previous = new byte[KEY_LENGTH];
+        byte[] current = new byte[KEY_LENGTH];
+        boolean first = true;
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 10_000);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0 || buffer.position() > 0) {
+                buffer.flip();
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    int position = buffer.position();
+                    buffer.get(current);
+                    buffer.position(position + RECORD_SIZE);
+                    if (!first && compareUnsigned(previous, current) > 0) {
+                        throw new IllegalStateException("输出未排序");
+                    }
+                    first = false;
+                    byte[] temp = previous;
+                    previous = current;
+                    current = temp;
+                }
+                buffer.compact();
+                if (buffer.position() == 0 && channel.position() == channel.size()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static int compareUnsigned(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int result = (a[i] & 0xff) - (b[i] & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+}
@@ -1,6 +1,7 @@
 package cn.iocoder.springboot.labs.lab09.sort;
 
 import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
 
 /**
  * 堆排序
@@ -30,8 +31,15 @@ public class HeapSorterTest {
         }
     }
 
+    /**
+     * 大顶堆。默认按照 int 值比较，也可以传入比较器，例如说堆中存储的是编号，按照编号对应的数据比较
+     *
+     * 按照到期时间调度大量延迟任务的版本（4 叉小顶堆、支持取消），见 {@link DelayScheduler} 。
+     */
     public static class HeapSorter {
 
+        private static final IntBinaryOperator NATURAL_ORDER = Integer::compare;
+
         /**
          * 堆
          */
@@ -44,17 +52,27 @@ public class HeapSorterTest {
          * 元素数量
          */
         private int count;
+        /**
+         * 比较器，返回值大于 0 时，表示第一个参数更大，更靠近堆顶
+         */
+        private final IntBinaryOperator comparator;
 
         public HeapSorter(int[] heap, int count) {
             this.capacity = heap.length;
             this.heap = heap;
             this.count = count;
+            this.comparator = NATURAL_ORDER;
         }
 
         public HeapSorter(int capacity) {
+            this(capacity, NATURAL_ORDER);
+        }
+
+        public HeapSorter(int capacity, IntBinaryOperator comparator) {
             this.capacity = capacity;
             this.heap = new int[capacity + 1]; // 因为 0 被占用了
             count = 0;
+            this.comparator = comparator;
         }
 
         public void insert(int value) {
@@ -66,7 +84,7 @@ public class HeapSorterTest {
 
             // 自下向上堆化，如果大于父节点
             int index = count;
-            while (index >> 1 > 0 && heap[index] > heap[index >> 1]) {
+            while (index >> 1 > 0 && comparator.applyAsInt(heap[index], heap[index >> 1]) > 0) {
                 swap(index, index >> 1);
                 index = index >> 1;
             }
@@ -81,10 +99,28 @@ public class HeapSorterTest {
             heap[count] = 0; // 置空，其实非必要。就是为了好看
             count--;
 
-            heapify(heap, count, pos);
+            heapify(heap, count, pos, comparator);
             return tmp;
         }
 
+        /**
+         * 获得堆顶，即最大值
+         */
+        public int peek() {
+            if (count == 0) {
+                throw new IllegalStateException("不存在最大值");
+            }
+            return heap[1];
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
         /**
          * 排序
          */
@@ -100,19 +136,19 @@ public class HeapSorterTest {
 
         public static HeapSorter create(int[] heap, int count) {
             for (int i = count / 2; i >= 1; i--) {
-                heapify(heap, count, i);
+                heapify(heap, count, i, NATURAL_ORDER);
             }
             return new HeapSorter(heap, count);
         }
 
-        private static void heapify(int[] heap, int count, int pos) {
-            // 自伤向下，
+        private static void heapify(int[] heap, int count, int pos, IntBinaryOperator comparator) {
+            // 自上向下，
             while (true) {
                 int maxPos = pos;
-                if (pos * 2 <= count && heap[pos] < heap[pos * 2]) {
+                if (pos * 2 <= count && comparator.applyAsInt(heap[pos], heap[pos * 2]) < 0) {
                     maxPos = pos * 2;
                 }
-                if (pos * 2 + 1 <= count && heap[maxPos] < heap[pos * 2 + 1]) {
+                if (pos * 2 + 1 <= count && comparator.applyAsInt(heap[maxPos], heap[pos * 2 + 1]) < 0) {
                     maxPos = pos * 2 + 1;
                 }
                 // 判断相等，说明没变化
@@ -120,6 +156,8 @@ public class HeapSorterTest {
                     return;
                 }
                 swap(heap, pos, maxPos);
+                // 继续向下
+                pos = maxPos;
             }
         }
 
@@ -0,0 +1,276 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * LSD（低位优先）基数排序，支持 int[]、long[] ，包括负数。
+ *
+ * 在 {@link RadixSorterTest} 的基础上：
+ *
+ * 1. 按照二进制位分组，每组 digitBits 位（推荐 8 或 11 位）作为一个"数字"。int 按 11 位分组只需要 3 轮。
+ * 2. 将最高位（符号位）取反后再取数字，负数就排在了正数的前面，不需要对数组做任何预处理。
+ * 3. 数组切分成多个块，每轮由多个线程并行统计各自块的直方图，再通过前缀和计算每个块、每个数字的写入位置，
+ *    最后并行分发（scatter）到临时数组。同一块内保持原有顺序，所以排序是稳定的。
+ * 4. 排序前统计一次所有轮的全局直方图，如果某一轮所有元素的数字都相同（例如说数据范围较小时的高位），则跳过该轮。
+ *
+ * 线程安全：每次排序使用各自的临时数组、直方图。
+ */
+public class LsdRadixSorter {
+
+    /**
+     * 元素个数小于该值时，不切分，单线程排序
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * 每个数字的位数
+     */
+    private final int digitBits;
+    private final ForkJoinPool pool;
+
+    public LsdRadixSorter(int digitBits) {
+        this(digitBits, ForkJoinPool.commonPool());
+    }
+
+    public LsdRadixSorter(int digitBits, ForkJoinPool pool) {
+        if (digitBits < 1 || digitBits > 16) {
+            throw new IllegalArgumentException("digitBits 必须在 [1, 16] 之间");
+        }
+        this.digitBits = digitBits;
+        this.pool = pool;
+    }
+
+    /**
+     * 对每个块执行的操作
+     */
+    private interface ChunkAction {
+
+        void run(int chunk);
+
+    }
+
+    // ========== int[] ==========
+
+    public void sort(int[] array) {
+        int n = array.length;
+        if (n < 2) {
+            return;
+        }
+        int radix = 1 << digitBits;
+        int mask = radix - 1;
+        int passes = (Integer.SIZE + digitBits - 1) / digitBits;
+        int chunks = chunkCount(n);
+        // counts[chunk][pass * radix + digit]
+        int[][] counts = new int[chunks][passes * radix];
+
+        // 一次遍历，统计所有轮的直方图
+        forEachChunk(chunks, chunk -> {
+            int[] count = counts[chunk];
+            for (int i = chunkFrom(n, chunks, chunk), end = chunkFrom(n, chunks, chunk + 1); i < end; i++) {
+                int key = array[i] ^ Integer.MIN_VALUE;
+                for (int pass = 0; pass < passes; pass++) {
+                    count[pass * radix + ((key >>> (pass * digitBits)) & mask)]++;
+                }
+            }
+        });
+
+        int[] source = array;
+        int[] target = new int[n];
+        int[][] offsets = new int[chunks][radix];
+        boolean scattered = false;
+        for (int pass = 0; pass < passes; pass++) {
+            int shift = pass * digitBits;
+            if (allSameDigit(counts, pass, radix, n)) {
+                continue;
+            }
+            // 分发过之后，元素的位置发生了变化，需要重新统计每个块在本轮的直方图
+            if (scattered) {
+                int[] current = source;
+                forEachChunk(chunks, chunk -> {
+                    int[] count = offsets[chunk];
+                    Arrays.fill(count, 0);
+                    for (int i = chunkFrom(n, chunks, chunk), end = chunkFrom(n, chunks, chunk + 1); i < end; i++) {
+                        count[((current[i] ^ Integer.MIN_VALUE) >>> shift) & mask]++;
+                    }
+                });
+            } else {
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    System.arraycopy(counts[chunk], pass * radix, offsets[chunk], 0, radix);
+                }
+            }
+            toOffsets(offsets, radix);
+
+            // 并行分发
+            int[] from = source;
+            int[] to = target;
+            forEachChunk(chunks, chunk -> {
+                int[] offset = offsets[chunk];
+                for (int i = chunkFrom(n, chunks, chunk), end = chunkFrom(n, chunks, chunk + 1); i < end; i++) {
+                    int value = from[i];
+                    to[offset[((value ^ Integer.MIN_VALUE) >>> shift) & mask]++] = value;
+                }
+            });
+            target = source;
+            source = to;
+            scattered = true;
+        }
+        if (source != array) {
+            System.arraycopy(source, 0, array, 0, n);
+        }
+    }
+
+    // ========== long[] ==========
+
+    public void sort(long[] array) {
+        int n = array.length;
+        if (n < 2) {
+            return;
+        }
+        int radix = 1 << digitBits;
+        int mask = radix - 1;
+        int passes = (Long.SIZE + digitBits - 1) / digitBits;
+        int chunks = chunkCount(n);
+        int[][] counts = new int[chunks][passes * radix];
+
+        forEachChunk(chunks, chunk -> {
+            int[] count = counts[chunk];
+            for (int i = chunkFrom(n, chunks, chunk), end = chunkFrom(n, chunks, chunk + 1); i < end; i++) {
+                long key = array[i] ^ Long.MIN_VALUE;
+                for (int pass = 0; pass < passes; pass++) {
+                    count[pass * radix + (int) ((key >>> (pass * digitBits)) & mask)]++;
+                }
+            }
+        });
+
+        long[] source = array;
+        long[] target = new long[n];
+        int[][] offsets = new int[chunks][radix];
+        boolean scattered = false;
+        for (int pass = 0; pass < passes; pass++) {
+            int shift = pass * digitBits;
+            if (allSameDigit(counts, pass, radix, n)) {
+                continue;
+            }
+            if (scattered) {
+                long[] current = source;
+                forEachChunk(chunks, chunk -> {
+                    int[] count = offsets[chunk];
+                    Arrays.fill(count, 0);
+                    for (int i = chunkFrom(n, chunks, chunk), end = chunkFrom(n, chunks, chunk + 1); i < end; i++) {
+                        count[(int) (((current[i] ^ Long.MIN_VALUE) >>> shift) & mask)]++;
+                    }
+                });
+            } else {
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    System.arraycopy(counts[chunk], pass * radix, offsets[chunk], 0, radix);
+                }
+            }
+            toOffsets(offsets, radix);
+
+            long[] from = source;
+            long[] to = target;
+            forEachChunk(chunks, chunk -> {
+                int[] offset = offsets[chunk];
+                for (int i = chunkFrom(n, chunks, chunk), end = chunkFrom(n, chunks, chunk + 1); i < end; i++) {
+                    long value = from[i];
+                    to[offset[(int) (((value ^ Long.MIN_VALUE) >>> shift) & mask)]++] = value;
+                }
+            });
+            target = source;
+            source = to;
+            scattered = true;
+        }
+        if (source != array) {
+            System.arraycopy(source, 0, array, 0, n);
+        }
+    }
+
+    // ========== 公共 ==========
+
+    private int chunkCount(int n) {
+        if (n < PARALLEL_THRESHOLD) {
+            return 1;
+        }
+        return Math.max(1, Math.min(pool.getParallelism(), n / (PARALLEL_THRESHOLD >> 1)));
+    }
+
+    /**
+     * 块 chunk 的起始位置。块 chunk 的范围为 [chunkFrom(chunk), chunkFrom(chunk + 1))
+     */
+    private static int chunkFrom(int n, int chunks, int chunk) {
+        return (int) ((long) n * chunk / chunks);
+    }
+
+    /**
+     * 判断第 pass 轮，是否所有元素的数字都相同
+     */
+    private static boolean allSameDigit(int[][] counts, int pass, int radix, int n) {
+        for (int digit = 0; digit < radix; digit++) {
+            int total = 0;
+            for (int[] count : counts) {
+                total += count[pass * radix + digit];
+            }
+            if (total != 0) {
+                return total == n;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 将每个块的直方图，原地转换成每个块、每个数字的写入位置：
+     * 数字越小越靠前；数字相同时，块越靠前越靠前
+     */
+    private static void toOffsets(int[][] counts, int radix) {
+        int sum = 0;
+        for (int digit = 0; digit < radix; digit++) {
+            for (int[] count : counts) {
+                int value = count[digit];
+                count[digit] = sum;
+                sum += value;
+            }
+        }
+    }
+
+    private void forEachChunk(int chunks, ChunkAction action) {
+        if (chunks == 1) {
+            action.run(0);
+            return;
+        }
+        pool.invoke(new ChunkTask(action, 0, chunks));
+    }
+
+    @SuppressWarnings("serial")
+    private static final class ChunkTask extends RecursiveAction {
+
+        private final ChunkAction action;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(ChunkAction action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.run(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(action, from, middle), new ChunkTask(action, middle, to));
+        }
+
+    }
+
+    public static void main(String[] args) {
+        int[] array = new int[]{23, -50, 100, 1, 10, -21, 50, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        new LsdRadixSorter(11).sort(array);
+        System.out.println(Arrays.toString(array));
+    }
+
+}
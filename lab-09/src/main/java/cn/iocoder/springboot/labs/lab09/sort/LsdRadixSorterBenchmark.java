@@ -0,0 +1,99 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * {@link LsdRadixSorter} 和 {@link Arrays#sort(int[])}、{@link Arrays#parallelSort(int[])} 的耗时对比。
+ *
+ * 使用方式：java LsdRadixSorterBenchmark [数组长度]
+ * 5 亿个 long 需要约 12 GB 内存（原数组、复制、临时数组），需要使用 -Xmx16g 运行。
+ */
+public class LsdRadixSorterBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        LsdRadixSorter radix8 = new LsdRadixSorter(8);
+        LsdRadixSorter radix11 = new LsdRadixSorter(11);
+        System.out.println(String.format("长度：%d，CPU：%d", size, Runtime.getRuntime().availableProcessors()));
+
+        Random random = new Random(0);
+        int[] ints = random.ints(size).toArray();
+        // 数据范围较小的列，高位的轮会被跳过
+        int[] smallInts = random.ints(size, -1_000_000, 1_000_000).toArray();
+        long[] longs = random.longs(size).toArray();
+
+        // 多轮执行，前几轮用于 JIT 预热
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("第 " + (round + 1) + " 轮");
+            benchmark("int", ints, radix8, radix11);
+            benchmark("int（±100 万）", smallInts, radix8, radix11);
+            benchmark("long", longs, radix8, radix11);
+        }
+    }
+
+    private static void benchmark(String name, int[] source, LsdRadixSorter radix8, LsdRadixSorter radix11) {
+        int[] expected = source.clone();
+        long start = System.nanoTime();
+        Arrays.sort(expected);
+        long sortNanos = System.nanoTime() - start;
+
+        int[] array = source.clone();
+        start = System.nanoTime();
+        Arrays.parallelSort(array);
+        long parallelSortNanos = System.nanoTime() - start;
+
+        array = source.clone();
+        start = System.nanoTime();
+        radix8.sort(array);
+        long radix8Nanos = System.nanoTime() - start;
+        check(Arrays.equals(expected, array));
+
+        array = source.clone();
+        start = System.nanoTime();
+        radix11.sort(array);
+        long radix11Nanos = System.nanoTime() - start;
+        check(Arrays.equals(expected, array));
+        print(name, sortNanos, parallelSortNanos, radix8Nanos, radix11Nanos);
+    }
+
+    private static void benchmark(String name, long[] source, LsdRadixSorter radix8, LsdRadixSorter radix11) {
+        long[] expected = source.clone();
+        long start = System.nanoTime();
+        Arrays.sort(expected);
+        long sortNanos = System.nanoTime() - start;
+
+        long[] array = source.clone();
+        start = System.nanoTime();
+        Arrays.parallelSort(array);
+        long parallelSortNanos = System.nanoTime() - start;
+
+        array = source.clone();
+        start = System.nanoTime();
+        radix8.sort(array);
+        long radix8Nanos = System.nanoTime() - start;
+        check(Arrays.equals(expected, array));
+
+        array = source.clone();
+        start = System.nanoTime();
+        radix11.sort(array);
+        long radix11Nanos = System.nanoTime() - start;
+        check(Arrays.equals(expected, array));
+        print(name, sortNanos, parallelSortNanos, radix8Nanos, radix11Nanos);
+    }
+
+    private static void check(boolean equals) {
+        if (!equals) {
+            throw new IllegalStateException("排序结果不一致");
+        }
+    }
+
+    private static void print(String name, long sortNanos, long parallelSortNanos, long radix8Nanos, long radix11Nanos) {
+        System.out.println(String.format("%-12s Arrays.sort：%5d ms，Arrays.parallelSort：%5d ms，8 位：%5d ms，11 位：%5d ms",
+                name, sortNanos / 1_000_000, parallelSortNanos / 1_000_000,
+                radix8Nanos / 1_000_000, radix11Nanos / 1_000_000));
+    }
+
+}
@@ -4,6 +4,8 @@ import java.util.Arrays;
 
 /**
  * 合并排序
+ *
+ * 多线程并行版本，见 {@link ParallelMergeSorter} 。
  */
 public class MergeSorterTest {
 
@@ -0,0 +1,549 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 基于 {@link ForkJoinPool} 的并行归并排序，支持 int[]、long[] 和带 {@link Comparator} 的 T[] 。
+ *
+ * 在 {@link MergeSorterTest} 的基础上：
+ *
+ * 1. 子区间长度超过 {@link #FORK_THRESHOLD} 时，左右两半 fork 到 ForkJoinPool 中并行排序。
+ * 2. 子区间长度不超过 {@link #INSERTION_SORT_THRESHOLD} 时，使用插入排序。
+ * 3. 合并也是并行的：在较长的有序段中取中点，二分查找它在另一段中的位置（co-ranking），
+ *    从而将一次合并拆分成两个互不相干的合并，递归 fork 。
+ * 4. 原数组和临时数组交替作为合并的来源和目标（ping-pong），不需要每次合并后都复制回原数组。
+ *    临时数组在多次排序之间复用，只在不够大时重新分配。
+ *
+ * 对象数组的排序是稳定的。
+ *
+ * 因为复用临时数组，同一个实例的 sort 方法不能被多个线程同时调用。
+ */
+public class ParallelMergeSorter {
+
+    /**
+     * 不超过该长度时，使用插入排序
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+    /**
+     * 超过该长度时，fork 并行排序
+     */
+    private static final int FORK_THRESHOLD = 1 << 13;
+    /**
+     * 超过该长度时，并行合并
+     */
+    private static final int MERGE_THRESHOLD = 1 << 13;
+
+    private final ForkJoinPool pool;
+
+    private int[] intBuffer = new int[0];
+    private long[] longBuffer = new long[0];
+    private Object[] objectBuffer = new Object[0];
+
+    public ParallelMergeSorter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelMergeSorter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // ========== int[] ==========
+
+    public void sort(int[] array) {
+        sort(array, 0, array.length);
+    }
+
+    /**
+     * 排序 [from, to) 范围
+     */
+    public void sort(int[] array, int from, int to) {
+        checkRange(array.length, from, to);
+        if (intBuffer.length < array.length) {
+            intBuffer = new int[array.length];
+        }
+        pool.invoke(new IntSortTask(array, intBuffer, from, to, false));
+    }
+
+    /**
+     * 排序 [from, to) ，结果存放在 toBuffer ? buffer : array 中
+     */
+    @SuppressWarnings("serial")
+    private static final class IntSortTask extends RecursiveAction {
+
+        private final int[] array;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+        private final boolean toBuffer;
+
+        private IntSortTask(int[] array, int[] buffer, int from, int to, boolean toBuffer) {
+            this.array = array;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.toBuffer = toBuffer;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= INSERTION_SORT_THRESHOLD) {
+                insertionSort(array, from, to);
+                if (toBuffer) {
+                    System.arraycopy(array, from, buffer, from, to - from);
+                }
+                return;
+            }
+            // 两半的结果放在另一个数组中，再合并到目标数组
+            int middle = (from + to) >>> 1;
+            IntSortTask left = new IntSortTask(array, buffer, from, middle, !toBuffer);
+            IntSortTask right = new IntSortTask(array, buffer, middle, to, !toBuffer);
+            if (to - from > FORK_THRESHOLD) {
+                invokeAll(left, right);
+            } else {
+                left.compute();
+                right.compute();
+            }
+            int[] source = toBuffer ? array : buffer;
+            int[] target = toBuffer ? buffer : array;
+            new IntMergeTask(source, from, middle, middle, to, target, from).compute();
+        }
+
+    }
+
+    /**
+     * 将 source 的两个有序段 [from1, to1)、[from2, to2) 合并到 target 的 targetFrom 开始的位置
+     */
+    @SuppressWarnings("serial")
+    private static final class IntMergeTask extends RecursiveAction {
+
+        private final int[] source;
+        private final int from1;
+        private final int to1;
+        private final int from2;
+        private final int to2;
+        private final int[] target;
+        private final int targetFrom;
+
+        private IntMergeTask(int[] source, int from1, int to1, int from2, int to2, int[] target, int targetFrom) {
+            this.source = source;
+            this.from1 = from1;
+            this.to1 = to1;
+            this.from2 = from2;
+            this.to2 = to2;
+            this.target = target;
+            this.targetFrom = targetFrom;
+        }
+
+        @Override
+        protected void compute() {
+            int length1 = to1 - from1;
+            int length2 = to2 - from2;
+            if (length1 + length2 <= MERGE_THRESHOLD || length1 == 0 || length2 == 0) {
+                merge(source, from1, to1, from2, to2, target, targetFrom);
+                return;
+            }
+            // co-ranking ：在较长的段中取中点，在另一段中二分查找分割点。
+            // 为了保证稳定，左段的元素排在右段相等的元素之前
+            int split1;
+            int split2;
+            if (length1 >= length2) {
+                split1 = (from1 + to1) >>> 1;
+                split2 = lowerBound(source, from2, to2, source[split1]);
+            } else {
+                split2 = (from2 + to2) >>> 1;
+                split1 = upperBound(source, from1, to1, source[split2]);
+            }
+            int targetSplit = targetFrom + (split1 - from1) + (split2 - from2);
+            invokeAll(new IntMergeTask(source, from1, split1, from2, split2, target, targetFrom),
+                    new IntMergeTask(source, split1, to1, split2, to2, target, targetSplit));
+        }
+
+    }
+
+    private static void insertionSort(int[] array, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int value = array[i];
+            int j = i - 1;
+            while (j >= from && array[j] > value) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    private static void merge(int[] source, int from1, int to1, int from2, int to2, int[] target, int targetFrom) {
+        int i = from1;
+        int j = from2;
+        int k = targetFrom;
+        while (i < to1 && j < to2) {
+            target[k++] = source[j] < source[i] ? source[j++] : source[i++];
+        }
+        System.arraycopy(source, i, target, k, to1 - i);
+        System.arraycopy(source, j, target, k + to1 - i, to2 - j);
+    }
+
+    /**
+     * [from, to) 中第一个不小于 key 的位置
+     */
+    private static int lowerBound(int[] array, int from, int to, int key) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (array[middle] < key) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * [from, to) 中第一个大于 key 的位置
+     */
+    private static int upperBound(int[] array, int from, int to, int key) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (array[middle] <= key) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    // ========== long[] ==========
+
+    public void sort(long[] array) {
+        sort(array, 0, array.length);
+    }
+
+    /**
+     * 排序 [from, to) 范围
+     */
+    public void sort(long[] array, int from, int to) {
+        checkRange(array.length, from, to);
+        if (longBuffer.length < array.length) {
+            longBuffer = new long[array.length];
+        }
+        pool.invoke(new LongSortTask(array, longBuffer, from, to, false));
+    }
+
+    @SuppressWarnings("serial")
+    private static final class LongSortTask extends RecursiveAction {
+
+        private final long[] array;
+        private final long[] buffer;
+        private final int from;
+        private final int to;
+        private final boolean toBuffer;
+
+        private LongSortTask(long[] array, long[] buffer, int from, int to, boolean toBuffer) {
+            this.array = array;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.toBuffer = toBuffer;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= INSERTION_SORT_THRESHOLD) {
+                insertionSort(array, from, to);
+                if (toBuffer) {
+                    System.arraycopy(array, from, buffer, from, to - from);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            LongSortTask left = new LongSortTask(array, buffer, from, middle, !toBuffer);
+            LongSortTask right = new LongSortTask(array, buffer, middle, to, !toBuffer);
+            if (to - from > FORK_THRESHOLD) {
+                invokeAll(left, right);
+            } else {
+                left.compute();
+                right.compute();
+            }
+            long[] source = toBuffer ? array : buffer;
+            long[] target = toBuffer ? buffer : array;
+            new LongMergeTask(source, from, middle, middle, to, target, from).compute();
+        }
+
+    }
+
+    @SuppressWarnings("serial")
+    private static final class LongMergeTask extends RecursiveAction {
+
+        private final long[] source;
+        private final int from1;
+        private final int to1;
+        private final int from2;
+        private final int to2;
+        private final long[] target;
+        private final int targetFrom;
+
+        private LongMergeTask(long[] source, int from1, int to1, int from2, int to2, long[] target, int targetFrom) {
+            this.source = source;
+            this.from1 = from1;
+            this.to1 = to1;
+            this.from2 = from2;
+            this.to2 = to2;
+            this.target = target;
+            this.targetFrom = targetFrom;
+        }
+
+        @Override
+        protected void compute() {
+            int length1 = to1 - from1;
+            int length2 = to2 - from2;
+            if (length1 + length2 <= MERGE_THRESHOLD || length1 == 0 || length2 == 0) {
+                merge(source, from1, to1, from2, to2, target, targetFrom);
+                return;
+            }
+            int split1;
+            int split2;
+            if (length1 >= length2) {
+                split1 = (from1 + to1) >>> 1;
+                split2 = lowerBound(source, from2, to2, source[split1]);
+            } else {
+                split2 = (from2 + to2) >>> 1;
+                split1 = upperBound(source, from1, to1, source[split2]);
+            }
+            int targetSplit = targetFrom + (split1 - from1) + (split2 - from2);
+            invokeAll(new LongMergeTask(source, from1, split1, from2, split2, target, targetFrom),
+                    new LongMergeTask(source, split1, to1, split2, to2, target, targetSplit));
+        }
+
+    }
+
+    private static void insertionSort(long[] array, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long value = array[i];
+            int j = i - 1;
+            while (j >= from && array[j] > value) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    private static void merge(long[] source, int from1, int to1, int from2, int to2, long[] target, int targetFrom) {
+        int i = from1;
+        int j = from2;
+        int k = targetFrom;
+        while (i < to1 && j < to2) {
+            target[k++] = source[j] < source[i] ? source[j++] : source[i++];
+        }
+        System.arraycopy(source, i, target, k, to1 - i);
+        System.arraycopy(source, j, target, k + to1 - i, to2 - j);
+    }
+
+    private static int lowerBound(long[] array, int from, int to, long key) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (array[middle] < key) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    private static int upperBound(long[] array, int from, int to, long key) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (array[middle] <= key) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    // ========== T[] ==========
+
+    public <T> void sort(T[] array, Comparator<? super T> comparator) {
+        sort(array, 0, array.length, comparator);
+    }
+
+    /**
+     * 稳定排序 [from, to) 范围
+     */
+    public <T> void sort(T[] array, int from, int to, Comparator<? super T> comparator) {
+        checkRange(array.length, from, to);
+        if (objectBuffer.length < array.length) {
+            objectBuffer = new Object[array.length];
+        }
+        try {
+            pool.invoke(new ObjectSortTask(array, objectBuffer, from, to, false, comparator));
+        } finally {
+            // 清理临时数组中的引用，避免内存泄漏
+            Arrays.fill(objectBuffer, from, to, null);
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked", "serial"})
+    private static final class ObjectSortTask extends RecursiveAction {
+
+        private final Object[] array;
+        private final Object[] buffer;
+        private final int from;
+        private final int to;
+        private final boolean toBuffer;
+        private final Comparator comparator;
+
+        private ObjectSortTask(Object[] array, Object[] buffer, int from, int to, boolean toBuffer, Comparator comparator) {
+            this.array = array;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.toBuffer = toBuffer;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= INSERTION_SORT_THRESHOLD) {
+                insertionSort(array, from, to, comparator);
+                if (toBuffer) {
+                    System.arraycopy(array, from, buffer, from, to - from);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            ObjectSortTask left = new ObjectSortTask(array, buffer, from, middle, !toBuffer, comparator);
+            ObjectSortTask right = new ObjectSortTask(array, buffer, middle, to, !toBuffer, comparator);
+            if (to - from > FORK_THRESHOLD) {
+                invokeAll(left, right);
+            } else {
+                left.compute();
+                right.compute();
+            }
+            Object[] source = toBuffer ? array : buffer;
+            Object[] target = toBuffer ? buffer : array;
+            new ObjectMergeTask(source, from, middle, middle, to, target, from, comparator).compute();
+        }
+
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked", "serial"})
+    private static final class ObjectMergeTask extends RecursiveAction {
+
+        private final Object[] source;
+        private final int from1;
+        private final int to1;
+        private final int from2;
+        private final int to2;
+        private final Object[] target;
+        private final int targetFrom;
+        private final Comparator comparator;
+
+        private ObjectMergeTask(Object[] source, int from1, int to1, int from2, int to2, Object[] target, int targetFrom,
+                                Comparator comparator) {
+            this.source = source;
+            this.from1 = from1;
+            this.to1 = to1;
+            this.from2 = from2;
+            this.to2 = to2;
+            this.target = target;
+            this.targetFrom = targetFrom;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            int length1 = to1 - from1;
+            int length2 = to2 - from2;
+            if (length1 + length2 <= MERGE_THRESHOLD || length1 == 0 || length2 == 0) {
+                merge(source, from1, to1, from2, to2, target, targetFrom, comparator);
+                return;
+            }
+            int split1;
+            int split2;
+            if (length1 >= length2) {
+                split1 = (from1 + to1) >>> 1;
+                split2 = lowerBound(source, from2, to2, source[split1], comparator);
+            } else {
+                split2 = (from2 + to2) >>> 1;
+                split1 = upperBound(source, from1, to1, source[split2], comparator);
+            }
+            int targetSplit = targetFrom + (split1 - from1) + (split2 - from2);
+            invokeAll(new ObjectMergeTask(source, from1, split1, from2, split2, target, targetFrom, comparator),
+                    new ObjectMergeTask(source, split1, to1, split2, to2, target, targetSplit, comparator));
+        }
+
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static void insertionSort(Object[] array, int from, int to, Comparator comparator) {
+        for (int i = from + 1; i < to; i++) {
+            Object value = array[i];
+            int j = i - 1;
+            while (j >= from && comparator.compare(array[j], value) > 0) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static void merge(Object[] source, int from1, int to1, int from2, int to2, Object[] target, int targetFrom,
+                              Comparator comparator) {
+        int i = from1;
+        int j = from2;
+        int k = targetFrom;
+        while (i < to1 && j < to2) {
+            // 相等时取左段，保证稳定
+            target[k++] = comparator.compare(source[j], source[i]) < 0 ? source[j++] : source[i++];
+        }
+        System.arraycopy(source, i, target, k, to1 - i);
+        System.arraycopy(source, j, target, k + to1 - i, to2 - j);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static int lowerBound(Object[] array, int from, int to, Object key, Comparator comparator) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (comparator.compare(array[middle], key) < 0) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static int upperBound(Object[] array, int from, int to, Object key, Comparator comparator) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (comparator.compare(array[middle], key) <= 0) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    private static void checkRange(int length, int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new ArrayIndexOutOfBoundsException("非法的范围：[" + from + ", " + to + ")，数组长度：" + length);
+        }
+    }
+
+    public static void main(String[] args) {
+        int[] array = new int[]{5, 4, 2, 3, 1, 2, 5, 2, 6};
+        new ParallelMergeSorter().sort(array);
+        System.out.println(Arrays.toString(array));
+    }
+
+}
@@ -0,0 +1,50 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * {@link ParallelMergeSorter} 和 {@link Arrays#parallelSort(int[])} 的耗时对比。
+ *
+ * 使用方式：java ParallelMergeSorterBenchmark [数组长度1,数组长度2,...]
+ * 默认对比 100 万、1000 万、1 亿。10 亿个 int 需要约 12 GB 内存（原数组、复制、临时数组），需要使用 -Xmx16g 运行。
+ */
+public class ParallelMergeSorterBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000_000, 10_000_000, 100_000_000};
+        ParallelMergeSorter sorter = new ParallelMergeSorter();
+        System.out.println(String.format("CPU：%d", Runtime.getRuntime().availableProcessors()));
+
+        for (int size : sizes) {
+            int[] source = new Random(size).ints(size).toArray();
+            int[] array = new int[size];
+            int[] expected = null;
+            // 多轮执行，前几轮用于 JIT 预热
+            for (int round = 0; round < ROUNDS; round++) {
+                System.arraycopy(source, 0, array, 0, size);
+                long start = System.nanoTime();
+                Arrays.parallelSort(array);
+                long jdkNanos = System.nanoTime() - start;
+                if (expected == null) {
+                    expected = array.clone();
+                }
+
+                System.arraycopy(source, 0, array, 0, size);
+                start = System.nanoTime();
+                sorter.sort(array);
+                long mergeNanos = System.nanoTime() - start;
+                if (!Arrays.equals(expected, array)) {
+                    throw new IllegalStateException("排序结果不一致");
+                }
+                System.out.println(String.format("第 %d 轮，长度：%11d，Arrays.parallelSort：%6d ms，ParallelMergeSorter：%6d ms",
+                        round + 1, size, jdkNanos / 1_000_000, mergeNanos / 1_000_000));
+            }
+        }
+    }
+
+}
@@ -7,6 +7,8 @@ import java.util.Arrays;
  * 基数排序
  *
  * 每个位的排序，通过桶排序实现，从而实现 k * O(n) 的复杂度
+ *
+ * 按二进制位分组、支持负数、多线程并行的版本，见 {@link LsdRadixSorter} 。
  */
 public class RadixSorterTest {
 
@@ -0,0 +1,714 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 选择第 k 小的元素（k-th order statistic），以及一次计算多个分位数，例如说延迟的 p50、p90、p99 。
+ *
+ * 在 {@link TheFirstBigKTest} 的基础上：
+ *
+ * 1. 不再固定选择 array[high] 作为 pivot ，而是参考 {@link Arrays#sort(int[])} 取 5 个等距的元素，选择其中两个作为 pivot ，
+ *    将数组划分成小于 pivot1、[pivot1, pivot2]、大于 pivot2 三个区域。有序、逆序的数组，也能均匀划分。
+ * 2. introselect ：划分次数超过 2 * log(n) 仍没有结束时，改用中位数的中位数（median of medians）选择 pivot ，保证最坏 O(n) 。
+ * 3. 大量重复的元素，会集中到中间区域，再单独分出去，避免范围不缩小。
+ * 4. 数组很大时，随机采样，选择 k 对应分位数两侧的元素作为 pivot ，并行划分。一次划分后，范围通常就缩小到几十分之一。
+ * 5. 多个排名时，先选择中间的排名，再在其左右两侧分别选择剩余的排名，总体 O(n * log(排名个数)) 。
+ * 6. 使用循环代替递归，没有递归深度的问题。
+ *
+ * 执行后数组的元素顺序会被改变。线程安全：每次选择使用各自的临时数组。
+ */
+public class Selector {
+
+    /**
+     * 元素个数不大于该值时，直接插入排序
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    /**
+     * 元素个数不小于该值时，并行划分
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 21;
+    /**
+     * 并行划分时的采样个数
+     */
+    private static final int SAMPLE_SIZE = 1024;
+    /**
+     * 并行划分时，两个 pivot 在采样中距离 k 的位置
+     */
+    private static final int SAMPLE_GAP = 16;
+
+    private final ForkJoinPool pool;
+
+    public Selector() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public Selector(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 分位数 quantile 对应的排名（从 0 开始），采用 nearest-rank 的方式：ceil(quantile * n) - 1 。
+     * 例如说 100 个元素的 p99 ，为第 99 小的元素，即排名 98 。
+     */
+    public static int rank(int n, double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("quantile 必须在 [0, 1] 之间");
+        }
+        return Math.max(0, (int) Math.ceil(quantile * n) - 1);
+    }
+
+    // ========== int[] ==========
+
+    /**
+     * 选择第 k 小（从 0 开始）的元素。
+     * 执行后，array[k] 即为该元素，它左侧的元素都不大于它，右侧的元素都不小于它。
+     */
+    public int select(int[] array, int k) {
+        checkRank(array.length, k);
+        selectRange(array, 0, array.length, k);
+        return array[k];
+    }
+
+    /**
+     * 一次选择多个排名的元素。结果的顺序和 ranks 一致
+     */
+    public int[] select(int[] array, int... ranks) {
+        int[] sorted = distinctRanks(array.length, ranks);
+        selectAll(array, 0, array.length, sorted, 0, sorted.length);
+        int[] result = new int[ranks.length];
+        for (int i = 0; i < ranks.length; i++) {
+            result[i] = array[ranks[i]];
+        }
+        return result;
+    }
+
+    /**
+     * 一次计算多个分位数，例如说 quantiles(latencies, 0.5, 0.9, 0.99) 。排名的计算方式见 {@link #rank(int, double)}
+     */
+    public int[] quantiles(int[] array, double... quantiles) {
+        if (array.length == 0) {
+            throw new IllegalArgumentException("数组不能为空");
+        }
+        int[] ranks = new int[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) {
+            ranks[i] = rank(array.length, quantiles[i]);
+        }
+        return select(array, ranks);
+    }
+
+    /**
+     * 在 [from, to) 中，依次选择有序、不重复的 ranks[rankFrom, rankTo) 。
+     * 先选择中间的排名，它将数组分成左右两部分，再分别选择左右两部分的排名
+     */
+    private void selectAll(int[] array, int from, int to, int[] ranks, int rankFrom, int rankTo) {
+        while (rankFrom < rankTo) {
+            int middle = (rankFrom + rankTo) >>> 1;
+            int k = ranks[middle];
+            selectRange(array, from, to, k);
+            selectAll(array, from, k, ranks, rankFrom, middle);
+            from = k + 1;
+            rankFrom = middle + 1;
+        }
+    }
+
+    /**
+     * 在 [from, to) 中选择第 k 小的元素，放到 k 位置
+     */
+    private void selectRange(int[] array, int from, int to, int k) {
+        // 超过该次数的划分后，使用中位数的中位数选择 pivot ，保证 O(n)
+        int budget = 2 * (32 - Integer.numberOfLeadingZeros(to - from));
+        int[] bounds = new int[2];
+        int[] buffer = null;
+        boolean parallel = pool.getParallelism() > 1;
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            int size = to - from;
+            int pivot1;
+            int pivot2;
+            if (parallel && size >= PARALLEL_THRESHOLD) {
+                // 1.1 数组很大时，并行划分
+                if (buffer == null) {
+                    buffer = new int[size];
+                }
+                int[] pivots = samplePivots(array, from, to, k);
+                pivot1 = pivots[0];
+                pivot2 = pivots[1];
+                parallelPartition(array, from, to, pivot1, pivot2, buffer, bounds);
+            } else {
+                // 1.2 双 pivot 划分。划分次数超过预算时，退化为中位数的中位数
+                if (budget-- > 0) {
+                    int[] pivots = fivePivots(array, from, to);
+                    pivot1 = pivots[0];
+                    pivot2 = pivots[1];
+                } else {
+                    pivot1 = pivot2 = medianOfMedians(array, from, to);
+                }
+                partition(array, from, to, pivot1, pivot2, bounds);
+            }
+            int lessEnd = bounds[0];
+            int greaterStart = bounds[1];
+
+            // 2. 根据 k 所在的区域，缩小范围
+            if (k < lessEnd) {
+                to = lessEnd;
+            } else if (k >= greaterStart) {
+                from = greaterStart;
+            } else if (pivot1 == pivot2) {
+                // 中间区域的元素都相等
+                return;
+            } else {
+                from = lessEnd;
+                to = greaterStart;
+                // 中间区域较大时，说明 pivot 重复较多，把等于 pivot 的元素分出去，保证范围缩小
+                if (to - from > size >>> 1) {
+                    partitionEquals(array, from, to, pivot1, pivot2, bounds);
+                    if (k < bounds[0] || k >= bounds[1]) {
+                        return;
+                    }
+                    from = bounds[0];
+                    to = bounds[1];
+                }
+            }
+            // 并行划分没有明显缩小范围时（例如说大量重复），之后不再并行
+            if (to - from > size - (size >>> 2)) {
+                parallel = false;
+            }
+        }
+        insertionSort(array, from, to);
+    }
+
+    /**
+     * 三路划分：[from, bounds[0]) 小于 pivot1 ，[bounds[0], bounds[1]) 在 [pivot1, pivot2] 之间，[bounds[1], to) 大于 pivot2
+     */
+    private static void partition(int[] array, int from, int to, int pivot1, int pivot2, int[] bounds) {
+        int less = from;
+        int greater = to;
+        int i = from;
+        while (i < greater) {
+            int value = array[i];
+            if (value < pivot1) {
+                array[i++] = array[less];
+                array[less++] = value;
+            } else if (value > pivot2) {
+                array[i] = array[--greater];
+                array[greater] = value;
+            } else {
+                i++;
+            }
+        }
+        bounds[0] = less;
+        bounds[1] = greater;
+    }
+
+    /**
+     * [from, to) 中的元素都在 [pivot1, pivot2] 之间，将等于 pivot1 的移到前面，等于 pivot2 的移到后面。
+     * 划分后 [bounds[0], bounds[1]) 在 (pivot1, pivot2) 之间
+     */
+    private static void partitionEquals(int[] array, int from, int to, int pivot1, int pivot2, int[] bounds) {
+        int less = from;
+        int greater = to;
+        int i = from;
+        while (i < greater) {
+            int value = array[i];
+            if (value == pivot1) {
+                array[i++] = array[less];
+                array[less++] = value;
+            } else if (value == pivot2) {
+                array[i] = array[--greater];
+                array[greater] = value;
+            } else {
+                i++;
+            }
+        }
+        bounds[0] = less;
+        bounds[1] = greater;
+    }
+
+    /**
+     * 参考 {@link Arrays#sort(int[])} ，取 5 个等距的元素排序，第 2、4 个作为 pivot
+     */
+    private static int[] fivePivots(int[] array, int from, int to) {
+        int step = (to - from) / 6;
+        int[] samples = new int[5];
+        for (int i = 0; i < 5; i++) {
+            samples[i] = array[from + step * (i + 1)];
+        }
+        insertionSort(samples, 0, 5);
+        return new int[]{samples[1], samples[3]};
+    }
+
+    /**
+     * 中位数的中位数：每 5 个元素一组，各自的中位数移到数组头部，再递归选择这些中位数的中位数
+     */
+    private int medianOfMedians(int[] array, int from, int to) {
+        int groups = (to - from) / 5;
+        for (int group = 0; group < groups; group++) {
+            int start = from + group * 5;
+            insertionSort(array, start, start + 5);
+            swap(array, from + group, start + 2);
+        }
+        int median = from + groups / 2;
+        selectRange(array, from, from + groups, median);
+        return array[median];
+    }
+
+    /**
+     * 随机采样并排序，取 k 对应分位数两侧的元素作为 pivot 。k 大概率落在两个 pivot 之间，并且中间区域很小
+     */
+    private static int[] samplePivots(int[] array, int from, int to, int k) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] samples = new int[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            samples[i] = array[random.nextInt(from, to)];
+        }
+        Arrays.sort(samples);
+        int index = (int) ((long) (k - from) * SAMPLE_SIZE / (to - from));
+        return new int[]{samples[Math.max(0, index - SAMPLE_GAP)], samples[Math.min(SAMPLE_SIZE - 1, index + SAMPLE_GAP)]};
+    }
+
+    /**
+     * 并行的三路划分，结果同 {@link #partition(int[], int, int, int, int, int[])} 。
+     * 每个块并行统计三个区域的元素个数，通过前缀和计算写入位置，并行分发到 buffer ，再并行复制回来
+     */
+    private void parallelPartition(int[] array, int from, int to, int pivot1, int pivot2, int[] buffer, int[] bounds) {
+        int n = to - from;
+        int chunks = Math.min(pool.getParallelism() * 4, n / INSERTION_SORT_THRESHOLD);
+        int[][] offsets = new int[chunks][3];
+        forEachChunk(chunks, chunk -> {
+            int[] count = offsets[chunk];
+            for (int i = from + chunkFrom(n, chunks, chunk), end = from + chunkFrom(n, chunks, chunk + 1); i < end; i++) {
+                int value = array[i];
+                count[value < pivot1 ? 0 : value > pivot2 ? 2 : 1]++;
+            }
+        });
+        int less = 0;
+        int middle = 0;
+        for (int[] count : offsets) {
+            less += count[0];
+            middle += count[1];
+        }
+        toOffsets(offsets);
+        forEachChunk(chunks, chunk -> {
+            int[] offset = offsets[chunk];
+            for (int i = from + chunkFrom(n, chunks, chunk), end = from + chunkFrom(n, chunks, chunk + 1); i < end; i++) {
+                int value = array[i];
+                buffer[offset[value < pivot1 ? 0 : value > pivot2 ? 2 : 1]++] = value;
+            }
+        });
+        forEachChunk(chunks, chunk -> {
+            int start = chunkFrom(n, chunks, chunk);
+            System.arraycopy(buffer, start, array, from + start, chunkFrom(n, chunks, chunk + 1) - start);
+        });
+        bounds[0] = from + less;
+        bounds[1] = from + less + middle;
+    }
+
+    private static void insertionSort(int[] array, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int value = array[i];
+            int j = i - 1;
+            while (j >= from && array[j] > value) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    // ========== double[] ==========
+
+    /**
+     * 选择第 k 小（从 0 开始）的元素。
+     * 执行后，array[k] 即为该元素，它左侧的元素都不大于它，右侧的元素都不小于它。
+     * NaN 排在最后；-0.0 和 0.0 视为相等。
+     */
+    public double select(double[] array, int k) {
+        checkRank(array.length, k);
+        int end = moveNaNsToEnd(array);
+        if (k >= end) {
+            return Double.NaN;
+        }
+        selectRange(array, 0, end, k);
+        return array[k];
+    }
+
+    /**
+     * 一次选择多个排名的元素。结果的顺序和 ranks 一致
+     */
+    public double[] select(double[] array, int... ranks) {
+        int[] sorted = distinctRanks(array.length, ranks);
+        int end = moveNaNsToEnd(array);
+        selectAll(array, 0, end, sorted, 0, countLess(sorted, end));
+        double[] result = new double[ranks.length];
+        for (int i = 0; i < ranks.length; i++) {
+            result[i] = array[ranks[i]];
+        }
+        return result;
+    }
+
+    /**
+     * 一次计算多个分位数，例如说 quantiles(latencies, 0.5, 0.9, 0.99) 。排名的计算方式见 {@link #rank(int, double)}
+     */
+    public double[] quantiles(double[] array, double... quantiles) {
+        if (array.length == 0) {
+            throw new IllegalArgumentException("数组不能为空");
+        }
+        int[] ranks = new int[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) {
+            ranks[i] = rank(array.length, quantiles[i]);
+        }
+        return select(array, ranks);
+    }
+
+    /**
+     * 在 [from, to) 中，依次选择有序、不重复的 ranks[rankFrom, rankTo) 。
+     * 先选择中间的排名，它将数组分成左右两部分，再分别选择左右两部分的排名
+     */
+    private void selectAll(double[] array, int from, int to, int[] ranks, int rankFrom, int rankTo) {
+        while (rankFrom < rankTo) {
+            int middle = (rankFrom + rankTo) >>> 1;
+            int k = ranks[middle];
+            selectRange(array, from, to, k);
+            selectAll(array, from, k, ranks, rankFrom, middle);
+            from = k + 1;
+            rankFrom = middle + 1;
+        }
+    }
+
+    /**
+     * 在 [from, to) 中选择第 k 小的元素，放到 k 位置
+     */
+    private void selectRange(double[] array, int from, int to, int k) {
+        // 超过该次数的划分后，使用中位数的中位数选择 pivot ，保证 O(n)
+        int budget = 2 * (32 - Integer.numberOfLeadingZeros(to - from));
+        int[] bounds = new int[2];
+        double[] buffer = null;
+        boolean parallel = pool.getParallelism() > 1;
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            int size = to - from;
+            double pivot1;
+            double pivot2;
+            if (parallel && size >= PARALLEL_THRESHOLD) {
+                // 1.1 数组很大时，并行划分
+                if (buffer == null) {
+                    buffer = new double[size];
+                }
+                double[] pivots = samplePivots(array, from, to, k);
+                pivot1 = pivots[0];
+                pivot2 = pivots[1];
+                parallelPartition(array, from, to, pivot1, pivot2, buffer, bounds);
+            } else {
+                // 1.2 双 pivot 划分。划分次数超过预算时，退化为中位数的中位数
+                if (budget-- > 0) {
+                    double[] pivots = fivePivots(array, from, to);
+                    pivot1 = pivots[0];
+                    pivot2 = pivots[1];
+                } else {
+                    pivot1 = pivot2 = medianOfMedians(array, from, to);
+                }
+                partition(array, from, to, pivot1, pivot2, bounds);
+            }
+            int lessEnd = bounds[0];
+            int greaterStart = bounds[1];
+
+            // 2. 根据 k 所在的区域，缩小范围
+            if (k < lessEnd) {
+                to = lessEnd;
+            } else if (k >= greaterStart) {
+                from = greaterStart;
+            } else if (pivot1 == pivot2) {
+                // 中间区域的元素都相等
+                return;
+            } else {
+                from = lessEnd;
+                to = greaterStart;
+                // 中间区域较大时，说明 pivot 重复较多，把等于 pivot 的元素分出去，保证范围缩小
+                if (to - from > size >>> 1) {
+                    partitionEquals(array, from, to, pivot1, pivot2, bounds);
+                    if (k < bounds[0] || k >= bounds[1]) {
+                        return;
+                    }
+                    from = bounds[0];
+                    to = bounds[1];
+                }
+            }
+            // 并行划分没有明显缩小范围时（例如说大量重复），之后不再并行
+            if (to - from > size - (size >>> 2)) {
+                parallel = false;
+            }
+        }
+        insertionSort(array, from, to);
+    }
+
+    /**
+     * 三路划分：[from, bounds[0]) 小于 pivot1 ，[bounds[0], bounds[1]) 在 [pivot1, pivot2] 之间，[bounds[1], to) 大于 pivot2
+     */
+    private static void partition(double[] array, int from, int to, double pivot1, double pivot2, int[] bounds) {
+        int less = from;
+        int greater = to;
+        int i = from;
+        while (i < greater) {
+            double value = array[i];
+            if (value < pivot1) {
+                array[i++] = array[less];
+                array[less++] = value;
+            } else if (value > pivot2) {
+                array[i] = array[--greater];
+                array[greater] = value;
+            } else {
+                i++;
+            }
+        }
+        bounds[0] = less;
+        bounds[1] = greater;
+    }
+
+    /**
+     * [from, to) 中的元素都在 [pivot1, pivot2] 之间，将等于 pivot1 的移到前面，等于 pivot2 的移到后面。
+     * 划分后 [bounds[0], bounds[1]) 在 (pivot1, pivot2) 之间
+     */
+    private static void partitionEquals(double[] array, int from, int to, double pivot1, double pivot2, int[] bounds) {
+        int less = from;
+        int greater = to;
+        int i = from;
+        while (i < greater) {
+            double value = array[i];
+            if (value == pivot1) {
+                array[i++] = array[less];
+                array[less++] = value;
+            } else if (value == pivot2) {
+                array[i] = array[--greater];
+                array[greater] = value;
+            } else {
+                i++;
+            }
+        }
+        bounds[0] = less;
+        bounds[1] = greater;
+    }
+
+    /**
+     * 参考 {@link Arrays#sort(double[])} ，取 5 个等距的元素排序，第 2、4 个作为 pivot
+     */
+    private static double[] fivePivots(double[] array, int from, int to) {
+        int step = (to - from) / 6;
+        double[] samples = new double[5];
+        for (int i = 0; i < 5; i++) {
+            samples[i] = array[from + step * (i + 1)];
+        }
+        insertionSort(samples, 0, 5);
+        return new double[]{samples[1], samples[3]};
+    }
+
+    /**
+     * 中位数的中位数：每 5 个元素一组，各自的中位数移到数组头部，再递归选择这些中位数的中位数
+     */
+    private double medianOfMedians(double[] array, int from, int to) {
+        int groups = (to - from) / 5;
+        for (int group = 0; group < groups; group++) {
+            int start = from + group * 5;
+            insertionSort(array, start, start + 5);
+            swap(array, from + group, start + 2);
+        }
+        int median = from + groups / 2;
+        selectRange(array, from, from + groups, median);
+        return array[median];
+    }
+
+    /**
+     * 随机采样并排序，取 k 对应分位数两侧的元素作为 pivot 。k 大概率落在两个 pivot 之间，并且中间区域很小
+     */
+    private static double[] samplePivots(double[] array, int from, int to, int k) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double[] samples = new double[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            samples[i] = array[random.nextInt(from, to)];
+        }
+        Arrays.sort(samples);
+        int index = (int) ((long) (k - from) * SAMPLE_SIZE / (to - from));
+        return new double[]{samples[Math.max(0, index - SAMPLE_GAP)], samples[Math.min(SAMPLE_SIZE - 1, index + SAMPLE_GAP)]};
+    }
+
+    /**
+     * 并行的三路划分，结果同 {@link #partition(double[], int, int, double, double, int[])} 。
+     * 每个块并行统计三个区域的元素个数，通过前缀和计算写入位置，并行分发到 buffer ，再并行复制回来
+     */
+    private void parallelPartition(double[] array, int from, int to, double pivot1, double pivot2, double[] buffer, int[] bounds) {
+        int n = to - from;
+        int chunks = Math.min(pool.getParallelism() * 4, n / INSERTION_SORT_THRESHOLD);
+        int[][] offsets = new int[chunks][3];
+        forEachChunk(chunks, chunk -> {
+            int[] count = offsets[chunk];
+            for (int i = from + chunkFrom(n, chunks, chunk), end = from + chunkFrom(n, chunks, chunk + 1); i < end; i++) {
+                double value = array[i];
+                count[value < pivot1 ? 0 : value > pivot2 ? 2 : 1]++;
+            }
+        });
+        int less = 0;
+        int middle = 0;
+        for (int[] count : offsets) {
+            less += count[0];
+            middle += count[1];
+        }
+        toOffsets(offsets);
+        forEachChunk(chunks, chunk -> {
+            int[] offset = offsets[chunk];
+            for (int i = from + chunkFrom(n, chunks, chunk), end = from + chunkFrom(n, chunks, chunk + 1); i < end; i++) {
+                double value = array[i];
+                buffer[offset[value < pivot1 ? 0 : value > pivot2 ? 2 : 1]++] = value;
+            }
+        });
+        forEachChunk(chunks, chunk -> {
+            int start = chunkFrom(n, chunks, chunk);
+            System.arraycopy(buffer, start, array, from + start, chunkFrom(n, chunks, chunk + 1) - start);
+        });
+        bounds[0] = from + less;
+        bounds[1] = from + less + middle;
+    }
+
+    private static void insertionSort(double[] array, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            double value = array[i];
+            int j = i - 1;
+            while (j >= from && array[j] > value) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    private static void swap(double[] array, int i, int j) {
+        double tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    // ========== 公共 ==========
+
+    private static void checkRank(int n, int k) {
+        if (k < 0 || k >= n) {
+            throw new IllegalArgumentException("k 必须在 [0, " + n + ") 之间");
+        }
+    }
+
+    /**
+     * 校验、排序、去重 ranks
+     */
+    private static int[] distinctRanks(int n, int[] ranks) {
+        int[] sorted = ranks.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int rank : sorted) {
+            checkRank(n, rank);
+            if (size == 0 || sorted[size - 1] != rank) {
+                sorted[size++] = rank;
+            }
+        }
+        return Arrays.copyOf(sorted, size);
+    }
+
+    /**
+     * 有序的 ranks 中，小于 end 的个数
+     */
+    private static int countLess(int[] ranks, int end) {
+        int count = 0;
+        while (count < ranks.length && ranks[count] < end) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 将 NaN 移到数组末尾，返回非 NaN 元素的个数
+     */
+    private static int moveNaNsToEnd(double[] array) {
+        int end = array.length;
+        for (int i = end - 1; i >= 0; i--) {
+            if (array[i] != array[i]) {
+                double value = array[i];
+                array[i] = array[--end];
+                array[end] = value;
+            }
+        }
+        return end;
+    }
+
+    private static int chunkFrom(int n, int chunks, int chunk) {
+        return (int) ((long) n * chunk / chunks);
+    }
+
+    /**
+     * 将每个块、每个区域的元素个数，原地转换成写入位置：区域越小越靠前；区域相同时，块越靠前越靠前
+     */
+    private static void toOffsets(int[][] counts) {
+        int sum = 0;
+        for (int region = 0; region < 3; region++) {
+            for (int[] count : counts) {
+                int value = count[region];
+                count[region] = sum;
+                sum += value;
+            }
+        }
+    }
+
+    /**
+     * 对每个块执行的操作
+     */
+    private interface ChunkAction {
+
+        void run(int chunk);
+
+    }
+
+    private void forEachChunk(int chunks, ChunkAction action) {
+        pool.invoke(new ChunkTask(action, 0, chunks));
+    }
+
+    @SuppressWarnings("serial")
+    private static final class ChunkTask extends RecursiveAction {
+
+        private final ChunkAction action;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(ChunkAction action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.run(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(action, from, middle), new ChunkTask(action, middle, to));
+        }
+
+    }
+
+    public static void main(String[] args) {
+        Selector selector = new Selector();
+        // 有序的数组，TheFirstBigKTest 会退化成 O(n^2)
+        int[] array = new int[1_000_000];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i;
+        }
+        System.out.println("第 100 小：" + selector.select(array, 99));
+
+        double[] latencies = new double[]{12.5, 3.2, 8.1, 150.0, 5.5, 7.7, 9.9, 4.4, 6.6, 2.1};
+        System.out.println("p50、p90、p99：" + Arrays.toString(selector.quantiles(latencies, 0.5, 0.9, 0.99)));
+    }
+
+}
@@ -0,0 +1,69 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * {@link Selector} 和"先 {@link Arrays#sort(double[])} 再取下标"的耗时对比。
+ *
+ * 数据为对数正态分布的延迟，以及有序的 int 数组（{@link TheFirstBigKTest} 的最坏情况）。
+ *
+ * 使用方式：java SelectorBenchmark [数组长度]
+ */
+public class SelectorBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        Selector selector = new Selector();
+        System.out.println(String.format("长度：%d，CPU：%d", size, Runtime.getRuntime().availableProcessors()));
+
+        SplittableRandom random = new SplittableRandom(0);
+        double[] latencies = new double[size];
+        for (int i = 0; i < size; i++) {
+            // Box-Muller 生成标准正态分布，再取指数
+            double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+            latencies[i] = Math.exp(gaussian * 1.5 + 1);
+        }
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = i;
+        }
+
+        // 多轮执行，前几轮用于 JIT 预热
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("第 " + (round + 1) + " 轮");
+            double[] array = latencies.clone();
+            long start = System.nanoTime();
+            Arrays.sort(array);
+            double[] expected = {array[Selector.rank(size, 0.5)], array[Selector.rank(size, 0.9)], array[Selector.rank(size, 0.99)]};
+            long sortNanos = System.nanoTime() - start;
+
+            array = latencies.clone();
+            start = System.nanoTime();
+            double median = selector.select(array, Selector.rank(size, 0.5));
+            long selectNanos = System.nanoTime() - start;
+
+            array = latencies.clone();
+            start = System.nanoTime();
+            double[] quantiles = selector.quantiles(array, 0.5, 0.9, 0.99);
+            long quantilesNanos = System.nanoTime() - start;
+            if (median != expected[0] || !Arrays.equals(expected, quantiles)) {
+                throw new IllegalStateException("结果不一致");
+            }
+            System.out.println(String.format("延迟 %s Arrays.sort：%5d ms，select(p50)：%5d ms，quantiles(p50, p90, p99)：%5d ms",
+                    Arrays.toString(quantiles), sortNanos / 1_000_000, selectNanos / 1_000_000, quantilesNanos / 1_000_000));
+
+            int[] ints = sorted.clone();
+            start = System.nanoTime();
+            int value = selector.select(ints, size / 3);
+            long sortedNanos = System.nanoTime() - start;
+            if (value != size / 3) {
+                throw new IllegalStateException("结果不一致");
+            }
+            System.out.println(String.format("有序 int select(n / 3)：%5d ms", sortedNanos / 1_000_000));
+        }
+    }
+
+}
@@ -4,6 +4,8 @@ import java.util.Arrays;
 
 /**
  * 基于快速排序的方式，实现第 k 大的数
+ *
+ * 避免最坏 O(n^2)、支持多个分位数、并行划分的版本，见 {@link Selector} 。
  */
 public class TheFirstBigKTest {
 
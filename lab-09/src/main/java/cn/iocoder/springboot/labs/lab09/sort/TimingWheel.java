@@ -0,0 +1,384 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮（hierarchical timing wheel），参考 Kafka 的 TimingWheel 、Netty 的 HashedWheelTimer 。
+ *
+ * 时间以 tick 为单位。每一层是一个有 wheelSize 个槽的环，第 l 层每个槽的跨度为 wheelSize^l 个 tick ：
+ *
+ * 1. 加入：从第 0 层开始，找到能容纳到期时间的最低一层，挂到对应槽的双向链表上，时间复杂度 O(1) 。
+ *    超出最高一层的范围时，按需创建上一层（overflow wheel）。
+ * 2. 取消：从双向链表中摘除，时间复杂度 O(1) 。
+ * 3. 推进：每个 tick ，第 0 层对应槽中的任务全部到期；第 l 层转过一个槽时（tick 是 wheelSize^l 的倍数），
+ *    把该槽的任务重新加入，降级到更低的层（cascade）。某一层以下都为空时，直接跳到该层的下一个槽，不需要逐个 tick 推进。
+ *
+ * 和 {@link HeapSorterTest.HeapSorter}、{@link java.util.PriorityQueue} 相比，加入、取消都不需要 O(log n) 的堆调整，
+ * 适用于大量、大多会被取消的超时任务；代价是到期时间的精度为 1 个 tick 。
+ *
+ * 非线程安全。多线程使用，见 {@link TimingWheelTimer} 。
+ */
+public class TimingWheel {
+
+    /**
+     * 每一层的槽数，2 的幂
+     */
+    private final int wheelSize;
+    /**
+     * log2(wheelSize)
+     */
+    private final int bits;
+    private final int mask;
+
+    /**
+     * 各层，levels[0] 为最低一层
+     */
+    private Level[] levels;
+    private int levelCount;
+
+    /**
+     * 当前时间，第 0 层中 currentTick 对应的槽已经处理过
+     */
+    private long currentTick;
+    /**
+     * 时间轮中的任务个数
+     */
+    private int size;
+
+    /**
+     * @param wheelSize 每一层的槽数，会向上取整为 2 的幂
+     * @param startTick 起始时间
+     */
+    public TimingWheel(int wheelSize, long startTick) {
+        if (wheelSize < 2 || wheelSize > 1 << 16) {
+            throw new IllegalArgumentException("wheelSize 必须在 [2, 65536] 之间");
+        }
+        this.bits = 32 - Integer.numberOfLeadingZeros(wheelSize - 1);
+        this.wheelSize = 1 << bits;
+        this.mask = this.wheelSize - 1;
+        this.levels = new Level[4];
+        this.levels[0] = new Level(this.wheelSize);
+        this.levelCount = 1;
+        this.currentTick = startTick;
+    }
+
+    // ========== 加入、取消 ==========
+
+    /**
+     * 加入任务。到期时间不晚于 currentTick 时，在下一次 {@link #advance(long, Consumer)} 时到期
+     *
+     * @param deadline 到期时间，单位 tick
+     * @return 任务，可以用于取消
+     */
+    public Timeout add(long deadline, Runnable task) {
+        Timeout timeout = new Timeout(this, deadline, task);
+        add(timeout);
+        return timeout;
+    }
+
+    void add(Timeout timeout) {
+        size++;
+        // 已经到期的，放到下一个 tick 的槽
+        place(timeout, currentTick + 1);
+    }
+
+    /**
+     * 挂到能容纳到期时间的最低一层
+     *
+     * @param earliest 最早的槽对应的 tick ，到期时间早于它时，放到该槽
+     */
+    private void place(Timeout timeout, long earliest) {
+        long deadline = Math.max(timeout.deadline, earliest);
+        for (int l = 0; ; l++) {
+            int shift = bits * l;
+            // 第 l 层的范围：从当前槽开始的 wheelSize 个槽。最高一层再向上会溢出 long 时，直接放在这一层
+            if (shift + bits >= Long.SIZE - 1 || (deadline >>> shift) - (currentTick >>> shift) < wheelSize) {
+                level(l).link((int) ((deadline >>> shift) & mask), timeout);
+                return;
+            }
+        }
+    }
+
+    private Level level(int l) {
+        while (l >= levelCount) {
+            if (levelCount == levels.length) {
+                levels = Arrays.copyOf(levels, levelCount << 1);
+            }
+            levels[levelCount++] = new Level(wheelSize);
+        }
+        return levels[l];
+    }
+
+    /**
+     * 任务被取消时回调。单线程使用，直接从链表中摘除
+     */
+    void cancelled(Timeout timeout) {
+        remove(timeout);
+    }
+
+    /**
+     * 从时间轮中删除任务
+     *
+     * @return 是否在时间轮中
+     */
+    boolean remove(Timeout timeout) {
+        if (timeout.level == null) {
+            return false;
+        }
+        timeout.level.unlink(timeout);
+        size--;
+        return true;
+    }
+
+    // ========== 推进 ==========
+
+    /**
+     * 推进到 tick ，到期的任务依次传给 expired
+     *
+     * @return 到期的任务个数
+     */
+    public int advance(long tick, Consumer<Timeout> expired) {
+        int count = 0;
+        while (currentTick < tick) {
+            // 1. 某一层以下都为空时，跳到该层的下一个槽的前一个 tick
+            int lowest = lowestNonEmptyLevel();
+            if (lowest < 0) {
+                currentTick = tick;
+                break;
+            }
+            if (lowest > 0) {
+                int shift = bits * lowest;
+                long next = ((currentTick >>> shift) + 1) << shift;
+                if (next > tick) {
+                    currentTick = tick;
+                    break;
+                }
+                currentTick = next - 1;
+            }
+
+            // 2. 从高到低，转过一个槽的层，把槽中的任务降级。恰好在 now 到期的，降级到第 0 层当前的槽，在第 3 步到期
+            long now = ++currentTick;
+            for (int l = levelCount - 1; l > 0; l--) {
+                int shift = bits * l;
+                if ((now & ((1L << shift) - 1)) == 0) {
+                    for (Timeout timeout = levels[l].detach((int) ((now >>> shift) & mask)); timeout != null; ) {
+                        Timeout next = timeout.next;
+                        place(timeout, now);
+                        timeout = next;
+                    }
+                }
+            }
+
+            // 3. 第 0 层当前槽中的任务，全部到期
+            for (Timeout timeout = levels[0].detach((int) (now & mask)); timeout != null; ) {
+                Timeout next = timeout.next;
+                timeout.next = null;
+                size--;
+                // 并发取消了
+                if (Timeout.STATE_UPDATER.compareAndSet(timeout, Timeout.PENDING, Timeout.EXPIRED)) {
+                    expired.accept(timeout);
+                    count++;
+                }
+                timeout = next;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return 下一个可能有任务到期、或者需要降级的 tick 。时间轮为空时，返回 {@link Long#MAX_VALUE}
+     */
+    public long nextTick() {
+        int lowest = lowestNonEmptyLevel();
+        if (lowest <= 0) {
+            return lowest < 0 ? Long.MAX_VALUE : currentTick + 1;
+        }
+        int shift = bits * lowest;
+        return ((currentTick >>> shift) + 1) << shift;
+    }
+
+    private int lowestNonEmptyLevel() {
+        if (size == 0) {
+            return -1;
+        }
+        for (int l = 0; l < levelCount; l++) {
+            if (levels[l].count > 0) {
+                return l;
+            }
+        }
+        return -1;
+    }
+
+    // ========== 其它 ==========
+
+    public long currentTick() {
+        return currentTick;
+    }
+
+    /**
+     * @return 时间轮中的任务个数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 当前的层数
+     */
+    public int levelCount() {
+        return levelCount;
+    }
+
+    /**
+     * 时间轮的一层。每个槽是一个带哨兵的环形双向链表
+     */
+    private static final class Level {
+
+        private final Timeout[] heads;
+        /**
+         * 这一层中的任务个数
+         */
+        private int count;
+
+        private Level(int wheelSize) {
+            heads = new Timeout[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                Timeout head = new Timeout(null, 0, null);
+                head.prev = head;
+                head.next = head;
+                heads[i] = head;
+            }
+        }
+
+        private void link(int slot, Timeout timeout) {
+            Timeout head = heads[slot];
+            Timeout tail = head.prev;
+            timeout.prev = tail;
+            timeout.next = head;
+            tail.next = timeout;
+            head.prev = timeout;
+            timeout.level = this;
+            count++;
+        }
+
+        private void unlink(Timeout timeout) {
+            timeout.prev.next = timeout.next;
+            timeout.next.prev = timeout.prev;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.level = null;
+            count--;
+        }
+
+        /**
+         * 摘下整个槽，返回以 null 结尾的单向链表（通过 next 连接）
+         */
+        private Timeout detach(int slot) {
+            Timeout head = heads[slot];
+            if (head.next == head) {
+                return null;
+            }
+            Timeout first = head.next;
+            head.prev.next = null;
+            head.prev = head;
+            head.next = head;
+            for (Timeout timeout = first; timeout != null; timeout = timeout.next) {
+                timeout.prev = null;
+                timeout.level = null;
+                count--;
+            }
+            return first;
+        }
+
+    }
+
+    /**
+     * 超时任务
+     */
+    public static class Timeout {
+
+        static final int PENDING = 0;
+        static final int EXPIRED = 1;
+        static final int CANCELLED = 2;
+
+        static final AtomicIntegerFieldUpdater<Timeout> STATE_UPDATER
+                = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimingWheel wheel;
+        /**
+         * 到期时间，单位 tick
+         */
+        final long deadline;
+        final Runnable task;
+        volatile int state;
+
+        // ========== 以下字段，只由时间轮所在的线程访问 ==========
+
+        /**
+         * 所在的层，不在时间轮中时为空
+         */
+        private Level level;
+        private Timeout prev;
+        /**
+         * 槽中的下一个。{@link TimingWheelTimer} 中，未加入时间轮前，也用作提交栈中的下一个
+         */
+        Timeout next;
+
+        /**
+         * 取消栈中的下一个，{@link TimingWheelTimer} 使用
+         */
+        Timeout nextCancelled;
+
+        Timeout(TimingWheel wheel, long deadline, Runnable task) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        /**
+         * 取消任务
+         *
+         * @return 是否取消成功。已经到期、已经取消时，返回 false
+         */
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+            wheel.cancelled(this);
+            return true;
+        }
+
+        public long deadline() {
+            return deadline;
+        }
+
+        public Runnable task() {
+            return task;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+    }
+
+    public static void main(String[] args) {
+        TimingWheel wheel = new TimingWheel(8, 0);
+        for (long deadline : new long[]{3, 10, 70, 600, 5}) {
+            wheel.add(deadline, null);
+        }
+        wheel.add(20, null).cancel();
+        System.out.println("层数：" + wheel.levelCount() + "，任务个数：" + wheel.size());
+        while (wheel.size() > 0) {
+            long tick = wheel.nextTick();
+            wheel.advance(tick, timeout -> System.out.println(String.format("tick %d 到期：%d", tick, timeout.deadline())));
+        }
+    }
+
+}
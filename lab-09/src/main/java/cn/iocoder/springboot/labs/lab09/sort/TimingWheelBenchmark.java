@@ -0,0 +1,284 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TimingWheel}、{@link HeapSorterTest.HeapSorter}、{@link DelayQueue} 在 1000 万个超时任务下的耗时对比。
+ *
+ * 模拟请求超时：每个 tick 提交一批超时为 1 ~ maxDelay 个 tick 的任务，其中 90% 在 1 ~ 10 个 tick 后被取消（请求正常返回）。
+ * 使用模拟的时钟，单线程执行，只比较数据结构本身。
+ *
+ * {@link HeapSorterTest.HeapSorter} 不记录元素的位置，{@link DelayQueue#remove(Object)} 需要 O(n) 的遍历，
+ * 所以两者都使用延迟删除：取消时只打标记，到期出堆时再跳过，堆中会堆积大量已经取消的任务。
+ *
+ * 使用方式：java -Xmx2g TimingWheelBenchmark [任务个数] [tick 数] [最大超时 tick 数]
+ */
+public class TimingWheelBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    private static final double CANCEL_RATE = 0.9;
+
+    /**
+     * 取消的延迟，最多 CANCEL_LATENCY 个 tick
+     */
+    private static final int CANCEL_LATENCY = 10;
+
+    private static final byte PENDING = 0;
+    private static final byte EXPIRED = 1;
+    private static final byte CANCELLED = 2;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int maxDelay = args.length > 2 ? Integer.parseInt(args[2]) : 30_000;
+        Workload workload = new Workload(size, ticks, maxDelay);
+        System.out.println(String.format("任务个数：%d，tick 数：%d，最大超时：%d，取消：%d",
+                size, ticks, maxDelay, workload.cancelCount));
+
+        // 多轮执行，前几轮用于 JIT 预热
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("第 " + (round + 1) + " 轮");
+            long expected = run("TimingWheel", workload, new WheelTimeouts(size));
+            check(expected, run("HeapSorter", workload, new HeapSorterTimeouts(size)));
+            check(expected, run("DelayQueue", workload, new DelayQueueTimeouts(size)));
+        }
+    }
+
+    private static long run(String name, Workload workload, Timeouts timeouts) {
+        int perTick = workload.perTick;
+        // 环形数组，cancels[tick % ringSize] 为该 tick 需要取消的任务
+        int ringSize = CANCEL_LATENCY + 1;
+        int[][] cancels = new int[ringSize][perTick * ringSize];
+        int[] cancelCounts = new int[ringSize];
+
+        long expired = 0;
+        int id = 0;
+        long start = System.nanoTime();
+        for (long tick = 1; tick <= workload.ticks + workload.maxDelay + 1; tick++) {
+            // 1. 到期
+            expired += timeouts.advance(tick);
+            // 2. 提交
+            for (int i = 0; i < perTick && id < workload.delays.length; i++, id++) {
+                timeouts.schedule(id, tick + workload.delays[id]);
+                int latency = workload.latencies[id];
+                if (latency > 0) {
+                    int slot = (int) ((tick + latency) % ringSize);
+                    cancels[slot][cancelCounts[slot]++] = id;
+                }
+            }
+            // 3. 取消
+            int slot = (int) (tick % ringSize);
+            for (int i = 0; i < cancelCounts[slot]; i++) {
+                timeouts.cancel(cancels[slot][i]);
+            }
+            cancelCounts[slot] = 0;
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.println(String.format("%-12s 耗时：%6d ms（%.1f ns/个），到期：%d",
+                name, nanos / 1_000_000, (double) nanos / workload.delays.length, expired));
+        return expired;
+    }
+
+    private static void check(long expected, long actual) {
+        if (expected != actual) {
+            throw new IllegalStateException("到期的任务个数不一致：" + expected + " " + actual);
+        }
+    }
+
+    /**
+     * 预先生成的超时、取消延迟，三种实现使用相同的数据
+     */
+    private static final class Workload {
+
+        private final int ticks;
+        private final int maxDelay;
+        private final int perTick;
+        /**
+         * 每个任务的超时，单位 tick
+         */
+        private final int[] delays;
+        /**
+         * 每个任务在提交后多少个 tick 取消，0 表示不取消
+         */
+        private final byte[] latencies;
+        private int cancelCount;
+
+        private Workload(int size, int ticks, int maxDelay) {
+            this.ticks = ticks;
+            this.maxDelay = maxDelay;
+            this.perTick = (size + ticks - 1) / ticks;
+            this.delays = new int[size];
+            this.latencies = new byte[size];
+            SplittableRandom random = new SplittableRandom(0);
+            for (int i = 0; i < size; i++) {
+                delays[i] = random.nextInt(1, maxDelay + 1);
+                if (random.nextDouble() < CANCEL_RATE) {
+                    latencies[i] = (byte) random.nextInt(1, CANCEL_LATENCY + 1);
+                    cancelCount++;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * 超时任务的集合，任务使用编号表示
+     */
+    private interface Timeouts {
+
+        void schedule(int id, long deadline);
+
+        void cancel(int id);
+
+        /**
+         * 推进到 tick
+         *
+         * @return 到期的任务个数
+         */
+        int advance(long tick);
+
+    }
+
+    private static final class WheelTimeouts implements Timeouts {
+
+        private final TimingWheel wheel = new TimingWheel(512, 0);
+        private final TimingWheel.Timeout[] handles;
+        private int expired;
+
+        private WheelTimeouts(int size) {
+            handles = new TimingWheel.Timeout[size];
+        }
+
+        @Override
+        public void schedule(int id, long deadline) {
+            handles[id] = wheel.add(deadline, null);
+        }
+
+        @Override
+        public void cancel(int id) {
+            handles[id].cancel();
+            handles[id] = null;
+        }
+
+        @Override
+        public int advance(long tick) {
+            expired = 0;
+            wheel.advance(tick, timeout -> expired++);
+            return expired;
+        }
+
+    }
+
+    private static final class HeapSorterTimeouts implements Timeouts {
+
+        private final long[] deadlines;
+        private final byte[] states;
+        private final HeapSorterTest.HeapSorter heap;
+
+        private HeapSorterTimeouts(int size) {
+            deadlines = new long[size];
+            states = new byte[size];
+            // 大顶堆，到期时间越早越「大」
+            heap = new HeapSorterTest.HeapSorter(size, (a, b) -> Long.compare(deadlines[b], deadlines[a]));
+        }
+
+        @Override
+        public void schedule(int id, long deadline) {
+            deadlines[id] = deadline;
+            heap.insert(id);
+        }
+
+        @Override
+        public void cancel(int id) {
+            if (states[id] == PENDING) {
+                states[id] = CANCELLED;
+            }
+        }
+
+        @Override
+        public int advance(long tick) {
+            int expired = 0;
+            while (!heap.isEmpty() && deadlines[heap.peek()] <= tick) {
+                int id = heap.remove(1);
+                if (states[id] == PENDING) {
+                    states[id] = EXPIRED;
+                    expired++;
+                }
+            }
+            return expired;
+        }
+
+    }
+
+    private static final class DelayQueueTimeouts implements Timeouts {
+
+        /**
+         * 模拟的时钟
+         */
+        private static long now;
+
+        private final DelayQueue<Item> queue = new DelayQueue<>();
+        private final Item[] handles;
+
+        private DelayQueueTimeouts(int size) {
+            handles = new Item[size];
+            now = 0;
+        }
+
+        @Override
+        public void schedule(int id, long deadline) {
+            Item item = new Item(deadline);
+            handles[id] = item;
+            queue.offer(item);
+        }
+
+        @Override
+        public void cancel(int id) {
+            Item item = handles[id];
+            if (item.state == PENDING) {
+                item.state = CANCELLED;
+            }
+            handles[id] = null;
+        }
+
+        @Override
+        public int advance(long tick) {
+            now = tick;
+            int expired = 0;
+            for (Item item; (item = queue.poll()) != null; ) {
+                if (item.state == PENDING) {
+                    item.state = EXPIRED;
+                    expired++;
+                }
+            }
+            return expired;
+        }
+
+        private static final class Item implements Delayed {
+
+            private final long deadline;
+            private byte state;
+
+            private Item(long deadline) {
+                this.deadline = deadline;
+            }
+
+            @Override
+            public long getDelay(TimeUnit unit) {
+                return deadline - now;
+            }
+
+            @Override
+            public int compareTo(Delayed o) {
+                return Long.compare(deadline, ((Item) o).deadline);
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,300 @@
+package cn.iocoder.springboot.labs.lab09.sort;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于 {@link TimingWheel} 的定时器，适用于百万级的请求超时。
+ *
+ * 在 {@link DelayScheduler} 的基础上：
+ *
+ * 1. 4 叉堆改为分层时间轮，加入、取消的时间复杂度从 O(log n) 降为 O(1) ，到期时间的精度为 1 个 tick 。
+ * 2. 提交、取消的方式相同：CAS 压入无锁栈，由 worker 线程一次取走，再加入、删除时间轮。
+ * 3. worker 线程按照 tick 推进时间轮；时间轮中只有高层有任务时，直接 park 到高层的下一个槽，不需要每个 tick 醒来。
+ * 4. 到期的任务攒成一批（最多 batchSize 个），一批只提交一次 {@link Executor} ，减少线程池队列的竞争。
+ *
+ * 线程安全。
+ */
+public class TimingWheelTimer implements Closeable {
+
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * 每个 tick 的纳秒数
+     */
+    private final long tickNanos;
+    /**
+     * 起始时间，{@link System#nanoTime()} 。tick 从这个时间开始计算
+     */
+    private final long startNanos;
+    /**
+     * 执行到期任务的线程池，为空时在 worker 线程中执行
+     */
+    private final Executor executor;
+    private final int batchSize;
+
+    /**
+     * worker 线程
+     */
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * 新提交的任务，无锁栈的栈顶，通过 {@link TimingWheel.Timeout#next} 连接
+     */
+    private final AtomicReference<TimingWheel.Timeout> submitted = new AtomicReference<>();
+    /**
+     * 取消的任务，无锁栈的栈顶，通过 {@link TimingWheel.Timeout#nextCancelled} 连接
+     */
+    private final AtomicReference<TimingWheel.Timeout> cancelled = new AtomicReference<>();
+
+    // ========== 以下字段，只由 worker 线程访问 ==========
+
+    private final Wheel wheel;
+    /**
+     * 当前这一批到期的任务
+     */
+    private Runnable[] batch;
+    private int batchCount;
+
+    // ========== 统计 ==========
+
+    private final LongAdder expiredCount = new LongAdder();
+    private final LongAdder cancelledCount = new LongAdder();
+
+    public TimingWheelTimer() {
+        this(1, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE, null, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param tickDuration 每个 tick 的时长
+     * @param wheelSize 时间轮每一层的槽数
+     * @param executor 执行到期任务的线程池，为空时在 worker 线程中执行
+     * @param batchSize 每一批到期任务的最大个数
+     */
+    public TimingWheelTimer(long tickDuration, TimeUnit unit, int wheelSize, Executor executor, int batchSize) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration 必须大于 0");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize 必须大于 0");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.startNanos = System.nanoTime();
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.wheel = new Wheel(wheelSize);
+        this.batch = new Runnable[batchSize];
+        this.thread = new Thread(this::run, "timing-wheel-timer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // ========== 提交 ==========
+
+    /**
+     * 提交超时任务，线程安全
+     *
+     * @return 任务，可以用于取消
+     */
+    public TimingWheel.Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (closed) {
+            throw new RejectedExecutionException("定时器已关闭");
+        }
+        // 向上取整，保证不会提前到期。延迟很大时加法会溢出，截断为 Long.MAX_VALUE 个 tick ，即永不到期（同 Netty 的 HashedWheelTimer）
+        long elapsed = System.nanoTime() - startNanos;
+        long delayNanos = Math.max(0, unit.toNanos(delay));
+        long deadline = delayNanos > Long.MAX_VALUE - elapsed - tickNanos ? Long.MAX_VALUE
+                : (elapsed + delayNanos + tickNanos - 1) / tickNanos;
+        TimingWheel.Timeout timeout = new TimingWheel.Timeout(wheel, deadline, task);
+        while (true) {
+            TimingWheel.Timeout head = submitted.get();
+            timeout.next = head;
+            if (submitted.compareAndSet(head, timeout)) {
+                // 压入空栈时，说明 worker 线程可能在 park ，需要唤醒
+                if (head == null) {
+                    LockSupport.unpark(thread);
+                }
+                return timeout;
+            }
+        }
+    }
+
+    /**
+     * 时间轮。取消时压入取消栈，交给 worker 线程删除
+     */
+    private final class Wheel extends TimingWheel {
+
+        private Wheel(int wheelSize) {
+            super(wheelSize, 0);
+        }
+
+        @Override
+        void cancelled(Timeout timeout) {
+            while (true) {
+                Timeout head = cancelled.get();
+                timeout.nextCancelled = head;
+                if (cancelled.compareAndSet(head, timeout)) {
+                    break;
+                }
+            }
+            cancelledCount.increment();
+        }
+
+    }
+
+    // ========== worker 线程 ==========
+
+    private void run() {
+        while (!closed) {
+            // 1. 取走新提交、取消的任务，更新时间轮
+            drainSubmitted();
+            drainCancelled();
+
+            // 2. 推进时间轮，到期的任务分批执行
+            long now = System.nanoTime();
+            long tick = (now - startNanos) / tickNanos;
+            wheel.advance(tick, this::collect);
+            flush();
+
+            // 3. park 到下一个 tick 。新任务提交时会被 unpark
+            if (submitted.get() != null) {
+                continue;
+            }
+            long nextTick = wheel.nextTick();
+            if (nextTick == Long.MAX_VALUE) {
+                LockSupport.park(this);
+            } else if (nextTick - tick >= Long.MAX_VALUE / tickNanos) {
+                // 下一个 tick 太远，换算成纳秒会溢出
+                LockSupport.parkNanos(this, Long.MAX_VALUE);
+            } else {
+                LockSupport.parkNanos(this, (nextTick - tick) * tickNanos - (now - startNanos) % tickNanos);
+            }
+        }
+    }
+
+    private void drainSubmitted() {
+        for (TimingWheel.Timeout timeout = submitted.getAndSet(null); timeout != null; ) {
+            TimingWheel.Timeout next = timeout.next;
+            timeout.next = null;
+            // 取走之前已经取消的任务，不需要加入时间轮
+            if (timeout.state == TimingWheel.Timeout.PENDING) {
+                wheel.add(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    private void drainCancelled() {
+        for (TimingWheel.Timeout timeout = cancelled.getAndSet(null); timeout != null; ) {
+            TimingWheel.Timeout next = timeout.nextCancelled;
+            timeout.nextCancelled = null;
+            wheel.remove(timeout);
+            timeout = next;
+        }
+    }
+
+    private void collect(TimingWheel.Timeout timeout) {
+        batch[batchCount++] = timeout.task;
+        if (batchCount == batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * 执行当前这一批到期的任务
+     */
+    private void flush() {
+        if (batchCount == 0) {
+            return;
+        }
+        if (executor == null) {
+            expiredCount.add(batchCount);
+            runAll(batch, batchCount);
+            batchCount = 0;
+            return;
+        }
+        Runnable[] tasks = batch;
+        int count = batchCount;
+        batchCount = 0;
+        try {
+            executor.execute(() -> runAll(tasks, count));
+        } catch (Throwable e) {
+            // 线程池拒绝（例如已关闭）时，不能影响 worker 线程。这一批任务没有执行，不计入 expiredCount ，数组清空后复用
+            Arrays.fill(tasks, 0, count, null);
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            return;
+        }
+        // 交给线程池后，才计入 expiredCount ，并换一个新的数组
+        expiredCount.add(count);
+        batch = new Runnable[batchSize];
+    }
+
+    private static void runAll(Runnable[] tasks, int count) {
+        for (int i = 0; i < count; i++) {
+            try {
+                tasks[i].run();
+            } catch (Throwable e) {
+                // 一个任务的异常，不能影响同一批的其它任务
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+            tasks[i] = null;
+        }
+    }
+
+    // ========== 其它 ==========
+
+    /**
+     * @return 已经到期的任务个数
+     */
+    public long expiredCount() {
+        return expiredCount.sum();
+    }
+
+    /**
+     * @return 已经取消的任务个数
+     */
+    public long cancelledCount() {
+        return cancelledCount.sum();
+    }
+
+    /**
+     * 关闭定时器，未到期的任务不再执行。在到期的任务中调用时，不等待 worker 线程退出
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        // 在 worker 线程中调用时，join 自己会永远阻塞
+        if (Thread.currentThread() == thread) {
+            return;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        try (TimingWheelTimer timer = new TimingWheelTimer(10, TimeUnit.MILLISECONDS, 8, null, 16)) {
+            long start = System.nanoTime();
+            for (int delay : new int[]{1000, 100, 300}) {
+                timer.newTimeout(() -> System.out.println(String.format("延迟 %d ms，实际 %d ms",
+                        delay, (System.nanoTime() - start) / 1_000_000)), delay, TimeUnit.MILLISECONDS);
+            }
+            TimingWheel.Timeout timeout = timer.newTimeout(() -> System.out.println("不会执行"), 150, TimeUnit.MILLISECONDS);
+            System.out.println("取消：" + timeout.cancel());
+            Thread.sleep(1200);
+        }
+    }
+
+}
@@ -0,0 +1,1079 @@
+package cn.iocoder.springboot.labs.lab09.tree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 基于内存映射文件的 B+Tree ，key 和 value 都是 long 。
+ *
+ * 在 {@link MySQLBTreePlusTest} 的 Node / LeafNode 结构之上，实现了完整的页式存储：
+ *
+ * 1. 文件按照固定大小的页（4 ~ 16 KB）划分，第 0 页为元数据页，其余为非叶子节点页、叶子节点页。
+ * 2. 文件按照 {@link #CHUNK_SIZE} 分段，通过 {@link FileChannel#map(FileChannel.MapMode, long, long)} 映射到内存。
+ *    最后一段按需成倍扩大映射（文件随之变大），空树的文件只有几个页。文件固定使用小端序，和运行的机器无关。
+ * 3. 叶子节点之间通过 prev / next 形成双向链表，用于范围查询。
+ * 4. 插入时节点满则分裂，删除时节点不足半满则向兄弟节点借用，或者与兄弟节点合并。合并后空出来的页，放入空闲链表复用。
+ *
+ * 页的格式如下：
+ *
+ * | type(1B) | 保留(3B) | keyCount(4B) | prev(4B) | next(4B) | ... |
+ *
+ * 叶子节点：之后依次为 keys[leafCapacity]、values[leafCapacity] 。
+ * 非叶子节点：之后依次为 keys[nodeCapacity]、children[nodeCapacity + 1] 。children[i] 的范围是 [ keys[i - 1], keys[i] ) 。
+ *
+ * 崩溃恢复：
+ *
+ * 1. 每次 put、remove、bulkLoad 完成后，都将 root、pageCount、height、size、freeHead 写回元数据页。
+ *    元数据页和数据页都在映射的内存中，进程在两次操作之间退出（没有调用 close），操作系统仍然会将它们写回文件。
+ * 2. 元数据页记录是否正常关闭：打开时标记为未关闭并立即刷盘，{@link #close()} 刷完所有页后，才标记为正常关闭。
+ *    打开未正常关闭的文件时（例如说操作进行中进程退出、机器掉电），会校验整棵树和空闲链表，损坏则拒绝打开。
+ *
+ * 非线程安全。数据在 {@link #flush()} 或者 {@link #close()} 时强制刷盘。
+ */
+public class MappedBPlusTree implements Closeable {
+
+    public static final int MIN_PAGE_SIZE = 4 * 1024;
+    public static final int MAX_PAGE_SIZE = 16 * 1024;
+
+    /**
+     * 每次映射的文件段大小
+     */
+    private static final int CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private static final long MAGIC = 0x4250_5452_4545_3031L; // BPTREE01
+
+    private static final int NIL = -1;
+
+    private static final byte TYPE_LEAF = 1;
+    private static final byte TYPE_NODE = 2;
+
+    // ========== 元数据页 ==========
+
+    private static final int META_MAGIC = 0;
+    private static final int META_PAGE_SIZE = 8;
+    private static final int META_ROOT = 12;
+    private static final int META_PAGE_COUNT = 16;
+    private static final int META_HEIGHT = 20;
+    private static final int META_SIZE = 24;
+    private static final int META_FREE_HEAD = 32;
+    private static final int META_STATE = 36;
+
+    /**
+     * 文件已打开，还没有正常关闭
+     */
+    private static final int STATE_OPEN = 0;
+    private static final int STATE_CLOSED = 1;
+
+    /**
+     * 文件固定的字节序
+     */
+    private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    // ========== 数据页 ==========
+
+    private static final int PAGE_TYPE = 0;
+    private static final int PAGE_KEY_COUNT = 4;
+    private static final int PAGE_PREV = 8;
+    private static final int PAGE_NEXT = 12;
+    private static final int PAGE_HEADER = 16;
+
+    /**
+     * 范围查询的回调
+     */
+    public interface RangeVisitor {
+
+        /**
+         * @return 是否继续遍历
+         */
+        boolean visit(long key, long value);
+
+    }
+
+    /**
+     * 批量加载的数据源，key 必须严格递增
+     */
+    public interface EntryCursor {
+
+        /**
+         * 移动到下一个键值对
+         *
+         * @return 是否存在
+         */
+        boolean next();
+
+        long key();
+
+        long value();
+
+        /**
+         * 基于已排序的数组创建，例如说归并排序后的结果
+         */
+        static EntryCursor of(long[] sortedKeys, long[] values) {
+            if (sortedKeys.length != values.length) {
+                throw new IllegalArgumentException("keys 和 values 的长度不一致");
+            }
+            return new EntryCursor() {
+
+                private int index = -1;
+
+                @Override
+                public boolean next() {
+                    return ++index < sortedKeys.length;
+                }
+
+                @Override
+                public long key() {
+                    return sortedKeys[index];
+                }
+
+                @Override
+                public long value() {
+                    return values[index];
+                }
+
+            };
+        }
+
+    }
+
+    private final FileChannel channel;
+    /**
+     * 元数据页，单独映射，刷盘时不需要刷整个文件段
+     */
+    private MappedByteBuffer meta;
+    /**
+     * 数据页所在的文件段。除最后一段外，都映射了完整的 {@link #CHUNK_SIZE}
+     */
+    private MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    private final int pageSize;
+    private final int pageShift;
+    private final int pagesPerChunkShift;
+
+    /**
+     * 叶子节点最多存储的键值对数量
+     */
+    private final int leafCapacity;
+    /**
+     * 非叶子节点最多存储的键数量
+     */
+    private final int nodeCapacity;
+
+    private int root;
+    private int pageCount;
+    /**
+     * 树高，只有一个叶子节点时为 1
+     */
+    private int height;
+    private long size;
+    private int freeHead;
+
+    /**
+     * 分裂时使用的临时数组，避免每次分裂都创建
+     */
+    private final long[] scratchKeys;
+    private final long[] scratchValues;
+    private final int[] scratchChildren;
+
+    /**
+     * 子节点分裂后，需要插入到父节点的 key 和新页
+     */
+    private long splitKey;
+    private int splitPage;
+
+    private MappedBPlusTree(FileChannel channel, int pageSize) {
+        this.channel = channel;
+        this.pageSize = pageSize;
+        this.pageShift = Integer.numberOfTrailingZeros(pageSize);
+        this.pagesPerChunkShift = Integer.numberOfTrailingZeros(CHUNK_SIZE) - pageShift;
+        this.leafCapacity = (pageSize - PAGE_HEADER) / 16;
+        this.nodeCapacity = (pageSize - PAGE_HEADER - 4) / 12;
+        this.scratchKeys = new long[Math.max(leafCapacity, nodeCapacity) + 1];
+        this.scratchValues = new long[leafCapacity + 1];
+        this.scratchChildren = new int[nodeCapacity + 2];
+    }
+
+    /**
+     * 打开 B+Tree 文件。如果文件不存在或者为空，则创建
+     *
+     * @param pageSize 页大小，必须是 2 的幂，范围为 [4 KB, 16 KB] 。打开已有文件时，必须和创建时一致
+     */
+    public static MappedBPlusTree open(Path file, int pageSize) throws IOException {
+        if (pageSize < MIN_PAGE_SIZE || pageSize > MAX_PAGE_SIZE || Integer.bitCount(pageSize) != 1) {
+            throw new IllegalArgumentException("页大小必须是 2 的幂，并且在 [4 KB, 16 KB] 范围内：" + pageSize);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            if (!created && channel.size() < MIN_PAGE_SIZE) {
+                throw new IOException("不是合法的 B+Tree 文件");
+            }
+            MappedBPlusTree tree = new MappedBPlusTree(channel, pageSize);
+            // 元数据只使用页的开头，按照最小的页大小映射，页大小不一致时也能读取
+            tree.meta = channel.map(FileChannel.MapMode.READ_WRITE, 0, MIN_PAGE_SIZE);
+            tree.meta.order(BYTE_ORDER);
+            if (created) {
+                tree.init();
+            } else {
+                tree.load();
+            }
+            // 标记为未正常关闭，并立即刷盘
+            tree.meta.putInt(META_STATE, STATE_OPEN);
+            tree.meta.force();
+            return tree;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void init() {
+        pageCount = 1; // 第 0 页为元数据页
+        freeHead = NIL;
+        root = allocatePage(TYPE_LEAF);
+        setPrev(root, NIL);
+        setNext(root, NIL);
+        height = 1;
+        size = 0;
+        writeMeta();
+    }
+
+    private void load() throws IOException {
+        if (meta.getLong(META_MAGIC) != MAGIC) {
+            throw new IOException("不是合法的 B+Tree 文件");
+        }
+        if (meta.getInt(META_PAGE_SIZE) != pageSize) {
+            throw new IOException("页大小不一致，文件为 " + meta.getInt(META_PAGE_SIZE) + "，传入为 " + pageSize);
+        }
+        root = meta.getInt(META_ROOT);
+        pageCount = meta.getInt(META_PAGE_COUNT);
+        height = meta.getInt(META_HEIGHT);
+        size = meta.getLong(META_SIZE);
+        freeHead = meta.getInt(META_FREE_HEAD);
+        if (pageCount < 2 || (long) pageCount * pageSize > channel.size()) {
+            throw new IOException("文件已损坏，页数为 " + pageCount + "，文件大小为 " + channel.size());
+        }
+        mapPage(pageCount - 1);
+        if (meta.getInt(META_STATE) != STATE_CLOSED) {
+            String error = verify();
+            if (error != null) {
+                throw new IOException("文件未正常关闭，并且已损坏：" + error);
+            }
+        }
+    }
+
+    /**
+     * 写回元数据页。每次修改操作完成后调用
+     */
+    private void writeMeta() {
+        meta.putLong(META_MAGIC, MAGIC);
+        meta.putInt(META_PAGE_SIZE, pageSize);
+        meta.putInt(META_ROOT, root);
+        meta.putInt(META_PAGE_COUNT, pageCount);
+        meta.putInt(META_HEIGHT, height);
+        meta.putLong(META_SIZE, size);
+        meta.putInt(META_FREE_HEAD, freeHead);
+    }
+
+    // ========== 查询 ==========
+
+    /**
+     * 获得 key 对应的 value ，不存在时返回 defaultValue
+     */
+    public long get(long key, long defaultValue) {
+        int leaf = findLeaf(key);
+        int count = keyCount(leaf);
+        int index = lowerBound(leaf, count, key);
+        if (index < count && leafKey(leaf, index) == key) {
+            return leafValue(leaf, index);
+        }
+        return defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        int leaf = findLeaf(key);
+        int count = keyCount(leaf);
+        int index = lowerBound(leaf, count, key);
+        return index < count && leafKey(leaf, index) == key;
+    }
+
+    /**
+     * 按照 key 升序，遍历 [fromKey, toKey) 范围内的键值对
+     *
+     * @return 遍历的数量
+     */
+    public long scan(long fromKey, long toKey, RangeVisitor visitor) {
+        long visited = 0;
+        int leaf = findLeaf(fromKey);
+        int index = lowerBound(leaf, keyCount(leaf), fromKey);
+        while (leaf != NIL) {
+            MappedByteBuffer buffer = buffer(leaf);
+            int base = offset(leaf);
+            int count = buffer.getInt(base + PAGE_KEY_COUNT);
+            for (; index < count; index++) {
+                long key = buffer.getLong(base + PAGE_HEADER + (index << 3));
+                if (key >= toKey) {
+                    return visited;
+                }
+                visited++;
+                if (!visitor.visit(key, buffer.getLong(base + PAGE_HEADER + ((leafCapacity + index) << 3)))) {
+                    return visited;
+                }
+            }
+            // 通过叶子节点的链表，继续遍历下一页
+            leaf = buffer.getInt(base + PAGE_NEXT);
+            index = 0;
+        }
+        return visited;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int pageSize() {
+        return pageSize;
+    }
+
+    /**
+     * 已分配的页数，包括元数据页和空闲页
+     */
+    public int pageCount() {
+        return pageCount;
+    }
+
+    /**
+     * 自根节点向下，寻找 key 所在的叶子节点
+     */
+    private int findLeaf(long key) {
+        int page = root;
+        for (int level = height; level > 1; level--) {
+            page = child(page, upperBound(page, keyCount(page), key));
+        }
+        return page;
+    }
+
+    // ========== 批量加载 ==========
+
+    /**
+     * 自底向上，批量加载已排序的数据。只能用于空树。
+     *
+     * 逐个插入时，页会不断分裂，并且分裂后只有半满。而批量加载时，叶子节点按照 fillFactor 顺序填充，
+     * 每写满一页，就将它的第一个 key 提升到上一层的非叶子节点，只需要遍历一次数据。
+     *
+     * 注意，每一层最右侧的节点可能不足 fillFactor ，甚至不足半满，后续删除时会自动再平衡。
+     *
+     * @param fillFactor 填充因子，范围为 (0, 1] 。预留空间可以减少后续插入时的分裂
+     * @return 加载的数量
+     */
+    public long bulkLoad(EntryCursor cursor, double fillFactor) {
+        if (size != 0) {
+            throw new IllegalStateException("只能批量加载到空树中");
+        }
+        if (!(fillFactor > 0 && fillFactor <= 1)) {
+            throw new IllegalArgumentException("填充因子的范围为 (0, 1]：" + fillFactor);
+        }
+        int leafFill = Math.max(1, (int) (leafCapacity * fillFactor));
+        int nodeFill = Math.max(1, (int) (nodeCapacity * fillFactor));
+
+        // 每一层当前正在填充的非叶子节点，下标为层级（叶子节点为第 0 层）
+        int[] openPages = new int[32];
+        Arrays.fill(openPages, NIL);
+        int levels = 1;
+
+        // 复用空树的根节点，作为第一个叶子节点
+        int leaf = root;
+        int count = 0;
+        long lastKey = 0;
+        while (cursor.next()) {
+            long key = cursor.key();
+            if (size > 0 && key <= lastKey) {
+                throw new IllegalArgumentException("key 必须严格递增：" + lastKey + " -> " + key);
+            }
+            lastKey = key;
+
+            // 当前叶子节点已满，创建新的叶子节点，并将 key 提升到上一层
+            if (count == leafFill) {
+                setKeyCount(leaf, count);
+                int newLeaf = allocatePage(TYPE_LEAF);
+                setPrev(newLeaf, leaf);
+                setNext(leaf, newLeaf);
+                levels = Math.max(levels, promote(openPages, 1, key, leaf, newLeaf, nodeFill) + 1);
+                leaf = newLeaf;
+                count = 0;
+            }
+            setLeafKey(leaf, count, key);
+            setLeafValue(leaf, count, cursor.value());
+            count++;
+            size++;
+        }
+        setKeyCount(leaf, count);
+
+        // 最上层的节点，即为根节点
+        height = levels;
+        root = levels > 1 ? openPages[levels - 1] : leaf;
+        writeMeta();
+        return size;
+    }
+
+    /**
+     * 将 key 和它右侧的 right 页，添加到第 level 层正在填充的节点中
+     *
+     * @param left right 的左兄弟节点。当第 level 层还没有节点时，作为新节点的第一个子节点
+     * @return 添加后的最高层级
+     */
+    private int promote(int[] openPages, int level, long key, int left, int right, int nodeFill) {
+        int page = openPages[level];
+        // 第 level 层还没有节点，创建它（此时树高 + 1）
+        if (page == NIL) {
+            page = allocatePage(TYPE_NODE);
+            setChild(page, 0, left);
+            setNodeKey(page, 0, key);
+            setChild(page, 1, right);
+            setKeyCount(page, 1);
+            openPages[level] = page;
+            return level;
+        }
+        // 未满，直接追加
+        int count = keyCount(page);
+        if (count < nodeFill) {
+            setNodeKey(page, count, key);
+            setChild(page, count + 1, right);
+            setKeyCount(page, count + 1);
+            return level;
+        }
+        // 已满，创建新节点，key 作为两者之间的分隔继续提升到上一层
+        int newPage = allocatePage(TYPE_NODE);
+        setChild(newPage, 0, right);
+        openPages[level] = newPage;
+        return promote(openPages, level + 1, key, page, newPage, nodeFill);
+    }
+
+    // ========== 插入 ==========
+
+    /**
+     * 添加或替换 key 对应的 value
+     *
+     * @return 是否为新增
+     */
+    public boolean put(long key, long value) {
+        long oldSize = size;
+        if (insert(root, height, key, value)) {
+            // 根节点分裂，树高 + 1
+            int newRoot = allocatePage(TYPE_NODE);
+            setKeyCount(newRoot, 1);
+            setNodeKey(newRoot, 0, splitKey);
+            setChild(newRoot, 0, root);
+            setChild(newRoot, 1, splitPage);
+            root = newRoot;
+            height++;
+        }
+        writeMeta();
+        return size > oldSize;
+    }
+
+    /**
+     * 插入到 page 对应的子树中
+     *
+     * @return 是否分裂。如果分裂，{@link #splitKey}、{@link #splitPage} 为需要插入到父节点的 key 和新页
+     */
+    private boolean insert(int page, int level, long key, long value) {
+        // 叶子节点
+        if (level == 1) {
+            int count = keyCount(page);
+            int index = lowerBound(page, count, key);
+            if (index < count && leafKey(page, index) == key) {
+                setLeafValue(page, index, value);
+                return false;
+            }
+            size++;
+            if (count < leafCapacity) {
+                insertIntoLeaf(page, count, index, key, value);
+                return false;
+            }
+            splitLeaf(page, index, key, value);
+            return true;
+        }
+
+        // 非叶子节点，先插入到子节点
+        int childIndex = upperBound(page, keyCount(page), key);
+        if (!insert(child(page, childIndex), level - 1, key, value)) {
+            return false;
+        }
+
+        // 子节点发生了分裂，将 splitKey 和 splitPage 插入到当前节点
+        int count = keyCount(page);
+        if (count < nodeCapacity) {
+            for (int i = count; i > childIndex; i--) {
+                setNodeKey(page, i, nodeKey(page, i - 1));
+                setChild(page, i + 1, child(page, i));
+            }
+            setNodeKey(page, childIndex, splitKey);
+            setChild(page, childIndex + 1, splitPage);
+            setKeyCount(page, count + 1);
+            return false;
+        }
+        splitNode(page, childIndex, splitKey, splitPage);
+        return true;
+    }
+
+    private void insertIntoLeaf(int page, int count, int index, long key, long value) {
+        for (int i = count; i > index; i--) {
+            setLeafKey(page, i, leafKey(page, i - 1));
+            setLeafValue(page, i, leafValue(page, i - 1));
+        }
+        setLeafKey(page, index, key);
+        setLeafValue(page, index, value);
+        setKeyCount(page, count + 1);
+    }
+
+    /**
+     * 分裂已满的叶子节点，并插入 key 。左半部分留在原页，右半部分移动到新页
+     */
+    private void splitLeaf(int page, int index, long key, long value) {
+        // 合并到临时数组
+        int total = leafCapacity + 1;
+        for (int i = 0, j = 0; i < total; i++) {
+            if (i == index) {
+                scratchKeys[i] = key;
+                scratchValues[i] = value;
+            } else {
+                scratchKeys[i] = leafKey(page, j);
+                scratchValues[i] = leafValue(page, j);
+                j++;
+            }
+        }
+
+        // 拆分成两半
+        int mid = total >>> 1;
+        int right = allocatePage(TYPE_LEAF);
+        for (int i = 0; i < mid; i++) {
+            setLeafKey(page, i, scratchKeys[i]);
+            setLeafValue(page, i, scratchValues[i]);
+        }
+        setKeyCount(page, mid);
+        for (int i = mid; i < total; i++) {
+            setLeafKey(right, i - mid, scratchKeys[i]);
+            setLeafValue(right, i - mid, scratchValues[i]);
+        }
+        setKeyCount(right, total - mid);
+
+        // 维护叶子节点的链表
+        int next = next(page);
+        setPrev(right, page);
+        setNext(right, next);
+        if (next != NIL) {
+            setPrev(next, right);
+        }
+        setNext(page, right);
+
+        splitKey = scratchKeys[mid];
+        splitPage = right;
+    }
+
+    /**
+     * 分裂已满的非叶子节点，并在 index 位置插入 key 和它右侧的子节点。中间的 key 提升到父节点
+     */
+    private void splitNode(int page, int index, long key, int rightChild) {
+        // 合并到临时数组
+        int total = nodeCapacity + 1;
+        scratchChildren[0] = child(page, 0);
+        for (int i = 0, j = 0; i < total; i++) {
+            if (i == index) {
+                scratchKeys[i] = key;
+                scratchChildren[i + 1] = rightChild;
+            } else {
+                scratchKeys[i] = nodeKey(page, j);
+                scratchChildren[i + 1] = child(page, j + 1);
+                j++;
+            }
+        }
+
+        // 拆分成两半，scratchKeys[mid] 提升到父节点
+        int mid = total >>> 1;
+        int right = allocatePage(TYPE_NODE);
+        for (int i = 0; i < mid; i++) {
+            setNodeKey(page, i, scratchKeys[i]);
+            setChild(page, i, scratchChildren[i]);
+        }
+        setChild(page, mid, scratchChildren[mid]);
+        setKeyCount(page, mid);
+        for (int i = mid + 1; i < total; i++) {
+            setNodeKey(right, i - mid - 1, scratchKeys[i]);
+            setChild(right, i - mid - 1, scratchChildren[i]);
+        }
+        setChild(right, total - mid - 1, scratchChildren[total]);
+        setKeyCount(right, total - mid - 1);
+
+        splitKey = scratchKeys[mid];
+        splitPage = right;
+    }
+
+    // ========== 删除 ==========
+
+    /**
+     * 移除 key
+     *
+     * @return 是否存在
+     */
+    public boolean remove(long key) {
+        long oldSize = size;
+        delete(root, height, key);
+        // 根节点只剩下一个子节点，树高 - 1
+        if (height > 1 && keyCount(root) == 0) {
+            int oldRoot = root;
+            root = child(root, 0);
+            freePage(oldRoot);
+            height--;
+        }
+        if (size != oldSize) {
+            writeMeta();
+        }
+        return size < oldSize;
+    }
+
+    private void delete(int page, int level, long key) {
+        // 叶子节点
+        if (level == 1) {
+            int count = keyCount(page);
+            int index = lowerBound(page, count, key);
+            if (index >= count || leafKey(page, index) != key) {
+                return;
+            }
+            for (int i = index; i < count - 1; i++) {
+                setLeafKey(page, i, leafKey(page, i + 1));
+                setLeafValue(page, i, leafValue(page, i + 1));
+            }
+            setKeyCount(page, count - 1);
+            size--;
+            return;
+        }
+
+        // 非叶子节点，先从子节点删除
+        int childIndex = upperBound(page, keyCount(page), key);
+        int child = child(page, childIndex);
+        delete(child, level - 1, key);
+
+        // 子节点不足半满，进行再平衡
+        boolean leaf = level == 2;
+        int minCount = (leaf ? leafCapacity : nodeCapacity) >>> 1;
+        if (keyCount(child) < minCount) {
+            rebalance(page, childIndex, leaf, minCount);
+        }
+    }
+
+    /**
+     * 再平衡 parent 的第 index 个子节点：优先向兄弟节点借用，否则与兄弟节点合并
+     */
+    private void rebalance(int parent, int index, boolean leaf, int minCount) {
+        int parentCount = keyCount(parent);
+        int child = child(parent, index);
+        int left = index > 0 ? child(parent, index - 1) : NIL;
+        int right = index < parentCount ? child(parent, index + 1) : NIL;
+
+        if (left != NIL && keyCount(left) > minCount) {
+            if (leaf) {
+                borrowLeafFromLeft(parent, index, left, child);
+            } else {
+                borrowNodeFromLeft(parent, index, left, child);
+            }
+        } else if (right != NIL && keyCount(right) > minCount) {
+            if (leaf) {
+                borrowLeafFromRight(parent, index, child, right);
+            } else {
+                borrowNodeFromRight(parent, index, child, right);
+            }
+        } else if (left != NIL) {
+            merge(parent, index - 1, left, child, leaf);
+        } else if (right != NIL) {
+            merge(parent, index, child, right, leaf);
+        }
+    }
+
+    private void borrowLeafFromLeft(int parent, int index, int left, int child) {
+        int leftCount = keyCount(left);
+        int count = keyCount(child);
+        insertIntoLeaf(child, count, 0, leafKey(left, leftCount - 1), leafValue(left, leftCount - 1));
+        setKeyCount(left, leftCount - 1);
+        setNodeKey(parent, index - 1, leafKey(child, 0));
+    }
+
+    private void borrowLeafFromRight(int parent, int index, int child, int right) {
+        int count = keyCount(child);
+        int rightCount = keyCount(right);
+        setLeafKey(child, count, leafKey(right, 0));
+        setLeafValue(child, count, leafValue(right, 0));
+        setKeyCount(child, count + 1);
+        for (int i = 0; i < rightCount - 1; i++) {
+            setLeafKey(right, i, leafKey(right, i + 1));
+            setLeafValue(right, i, leafValue(right, i + 1));
+        }
+        setKeyCount(right, rightCount - 1);
+        setNodeKey(parent, index, leafKey(right, 0));
+    }
+
+    private void borrowNodeFromLeft(int parent, int index, int left, int child) {
+        int leftCount = keyCount(left);
+        int count = keyCount(child);
+        // child 整体右移一位
+        setChild(child, count + 1, child(child, count));
+        for (int i = count; i > 0; i--) {
+            setNodeKey(child, i, nodeKey(child, i - 1));
+            setChild(child, i, child(child, i - 1));
+        }
+        // 父节点的 key 下移，left 的最后一个 key 上移
+        setNodeKey(child, 0, nodeKey(parent, index - 1));
+        setChild(child, 0, child(left, leftCount));
+        setKeyCount(child, count + 1);
+        setNodeKey(parent, index - 1, nodeKey(left, leftCount - 1));
+        setKeyCount(left, leftCount - 1);
+    }
+
+    private void borrowNodeFromRight(int parent, int index, int child, int right) {
+        int count = keyCount(child);
+        int rightCount = keyCount(right);
+        // 父节点的 key 下移，right 的第一个 key 上移
+        setNodeKey(child, count, nodeKey(parent, index));
+        setChild(child, count + 1, child(right, 0));
+        setKeyCount(child, count + 1);
+        setNodeKey(parent, index, nodeKey(right, 0));
+        // right 整体左移一位
+        for (int i = 0; i < rightCount - 1; i++) {
+            setNodeKey(right, i, nodeKey(right, i + 1));
+            setChild(right, i, child(right, i + 1));
+        }
+        setChild(right, rightCount - 1, child(right, rightCount));
+        setKeyCount(right, rightCount - 1);
+    }
+
+    /**
+     * 将 right 合并到 left 中，并从 parent 移除第 index 个 key 和第 index + 1 个子节点
+     */
+    private void merge(int parent, int index, int left, int right, boolean leaf) {
+        int leftCount = keyCount(left);
+        int rightCount = keyCount(right);
+        if (leaf) {
+            for (int i = 0; i < rightCount; i++) {
+                setLeafKey(left, leftCount + i, leafKey(right, i));
+                setLeafValue(left, leftCount + i, leafValue(right, i));
+            }
+            setKeyCount(left, leftCount + rightCount);
+            // 维护叶子节点的链表
+            int next = next(right);
+            setNext(left, next);
+            if (next != NIL) {
+                setPrev(next, left);
+            }
+        } else {
+            // 父节点的 key 下移，作为两者之间的分隔
+            setNodeKey(left, leftCount, nodeKey(parent, index));
+            for (int i = 0; i < rightCount; i++) {
+                setNodeKey(left, leftCount + 1 + i, nodeKey(right, i));
+                setChild(left, leftCount + 1 + i, child(right, i));
+            }
+            setChild(left, leftCount + 1 + rightCount, child(right, rightCount));
+            setKeyCount(left, leftCount + 1 + rightCount);
+        }
+        freePage(right);
+
+        // 从父节点移除
+        int parentCount = keyCount(parent);
+        for (int i = index; i < parentCount - 1; i++) {
+            setNodeKey(parent, i, nodeKey(parent, i + 1));
+            setChild(parent, i + 1, child(parent, i + 2));
+        }
+        setKeyCount(parent, parentCount - 1);
+    }
+
+    // ========== 文件 ==========
+
+    /**
+     * 将元数据和所有修改的页刷到磁盘
+     */
+    public void flush() {
+        writeMeta();
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        meta.force();
+    }
+
+    /**
+     * 刷盘后，标记为正常关闭
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        meta.putInt(META_STATE, STATE_CLOSED);
+        meta.force();
+        meta = null;
+        chunks = new MappedByteBuffer[0];
+        channel.close();
+    }
+
+    /**
+     * 校验整棵树和空闲链表：页号在范围内、页的类型和层级一致、key 严格递增并且在父节点划分的范围内、
+     * 叶子节点的链表和遍历顺序一致、键值对数量和 size 一致、每一页只被引用一次
+     *
+     * @return 错误信息，校验通过时返回 null
+     */
+    private String verify() {
+        if (height < 1 || height > 64 || root < 1 || root >= pageCount) {
+            return "root = " + root + "，height = " + height;
+        }
+        BitSet visited = new BitSet(pageCount);
+        visited.set(0);
+        long[] state = {0, NIL}; // 键值对数量、上一个叶子节点
+        String error = verify(root, height, Long.MIN_VALUE, false, Long.MAX_VALUE, false, visited, state);
+        if (error != null) {
+            return error;
+        }
+        if (state[1] != NIL && next((int) state[1]) != NIL) {
+            return "最后一个叶子节点 " + state[1] + " 的 next 不为空";
+        }
+        if (state[0] != size) {
+            return "键值对数量为 " + state[0] + "，size 为 " + size;
+        }
+        for (int page = freeHead; page != NIL; page = next(page)) {
+            if (page < 1 || page >= pageCount || visited.get(page)) {
+                return "空闲链表中的页 " + page + " 越界或者重复";
+            }
+            visited.set(page);
+        }
+        return null;
+    }
+
+    /**
+     * 校验 page 对应的子树，它的 key 的范围为 [low, high) 。hasLow、hasHigh 为 false 时，表示没有下界、上界
+     */
+    private String verify(int page, int level, long low, boolean hasLow, long high, boolean hasHigh,
+                          BitSet visited, long[] state) {
+        if (page < 1 || page >= pageCount || visited.get(page)) {
+            return "页 " + page + " 越界或者被重复引用";
+        }
+        visited.set(page);
+        MappedByteBuffer buffer = buffer(page);
+        int base = offset(page);
+        int count = keyCount(page);
+        byte type = buffer.get(base + PAGE_TYPE);
+        if (type != (level == 1 ? TYPE_LEAF : TYPE_NODE)) {
+            return "页 " + page + " 的类型 " + type + " 和层级 " + level + " 不一致";
+        }
+        if (count < (level == 1 ? 0 : 1) || count > (level == 1 ? leafCapacity : nodeCapacity)) {
+            return "页 " + page + " 的 keyCount 为 " + count;
+        }
+        for (int i = 0; i < count; i++) {
+            long key = level == 1 ? leafKey(page, i) : nodeKey(page, i);
+            boolean ordered = i == 0 ? !hasLow || key >= low
+                    : key > (level == 1 ? leafKey(page, i - 1) : nodeKey(page, i - 1));
+            if (!ordered || (hasHigh && key >= high)) {
+                return "页 " + page + " 的第 " + i + " 个 key 无序或者越界";
+            }
+        }
+
+        // 叶子节点：按照遍历顺序，校验双向链表
+        if (level == 1) {
+            int prev = (int) state[1];
+            if (buffer.getInt(base + PAGE_PREV) != prev || (prev != NIL && next(prev) != page)) {
+                return "叶子节点 " + page + " 的 prev / next 和遍历顺序不一致";
+            }
+            state[0] += count;
+            state[1] = page;
+            return null;
+        }
+        for (int i = 0; i <= count; i++) {
+            String error = verify(child(page, i), level - 1,
+                    i == 0 ? low : nodeKey(page, i - 1), i > 0 || hasLow,
+                    i == count ? high : nodeKey(page, i), i < count || hasHigh, visited, state);
+            if (error != null) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 分配一个新页。优先从空闲链表中获取
+     */
+    private int allocatePage(byte type) {
+        int page;
+        if (freeHead != NIL) {
+            page = freeHead;
+            freeHead = next(page);
+        } else {
+            page = pageCount++;
+            try {
+                mapPage(page);
+            } catch (IOException e) {
+                throw new IllegalStateException("映射文件失败", e);
+            }
+        }
+        MappedByteBuffer buffer = buffer(page);
+        int base = offset(page);
+        buffer.put(base + PAGE_TYPE, type);
+        buffer.putInt(base + PAGE_KEY_COUNT, 0);
+        buffer.putInt(base + PAGE_PREV, NIL);
+        buffer.putInt(base + PAGE_NEXT, NIL);
+        return page;
+    }
+
+    /**
+     * 释放页，通过 next 字段串联到空闲链表
+     */
+    private void freePage(int page) {
+        setKeyCount(page, 0);
+        setNext(page, freeHead);
+        freeHead = page;
+    }
+
+    /**
+     * 保证 page 所在的区域已经映射。之前的文件段映射完整的 {@link #CHUNK_SIZE} ；page 所在的文件段，映射的大小成倍扩大，
+     * 直到 {@link #CHUNK_SIZE} 。映射超出文件大小的区域时，文件会自动扩容
+     */
+    private void mapPage(int page) throws IOException {
+        int chunk = chunkOf(page);
+        int end = offset(page) + pageSize;
+        if (chunk < chunks.length && chunks[chunk].capacity() >= end) {
+            return;
+        }
+        int oldLength = chunks.length;
+        if (chunk >= oldLength) {
+            chunks = Arrays.copyOf(chunks, chunk + 1);
+        }
+        for (int i = Math.max(0, oldLength - 1); i < chunk; i++) {
+            if (chunks[i] == null || chunks[i].capacity() < CHUNK_SIZE) {
+                chunks[i] = map(i, CHUNK_SIZE);
+            }
+        }
+        int mapped = chunks[chunk] != null ? chunks[chunk].capacity() : 0;
+        int size = Math.max(pageSize << 1, mapped << 1);
+        while (size < end) {
+            size <<= 1;
+        }
+        // 替换后，旧的映射在没有引用之后，由 GC 解除。两者对应同一份文件内容，已经写入的数据不会丢失
+        chunks[chunk] = map(chunk, Math.min(size, CHUNK_SIZE));
+    }
+
+    private MappedByteBuffer map(int chunk, int size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, (long) chunk * CHUNK_SIZE, size);
+        buffer.order(BYTE_ORDER);
+        return buffer;
+    }
+
+    private int chunkOf(int page) {
+        return page >>> pagesPerChunkShift;
+    }
+
+    private MappedByteBuffer buffer(int page) {
+        return chunks[page >>> pagesPerChunkShift];
+    }
+
+    private int offset(int page) {
+        return (page & ((1 << pagesPerChunkShift) - 1)) << pageShift;
+    }
+
+    // ========== 页内读写 ==========
+
+    /**
+     * 在叶子节点中，获得第一个大于等于 key 的位置
+     */
+    private int lowerBound(int page, int count, long key) {
+        MappedByteBuffer buffer = buffer(page);
+        int base = offset(page) + PAGE_HEADER;
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getLong(base + (mid << 3)) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 在非叶子节点中，获得第一个大于 key 的位置，即 key 所在子节点的下标
+     */
+    private int upperBound(int page, int count, long key) {
+        MappedByteBuffer buffer = buffer(page);
+        int base = offset(page) + PAGE_HEADER;
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getLong(base + (mid << 3)) <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int keyCount(int page) {
+        return buffer(page).getInt(offset(page) + PAGE_KEY_COUNT);
+    }
+
+    private void setKeyCount(int page, int count) {
+        buffer(page).putInt(offset(page) + PAGE_KEY_COUNT, count);
+    }
+
+    private int next(int page) {
+        return buffer(page).getInt(offset(page) + PAGE_NEXT);
+    }
+
+    private void setNext(int page, int next) {
+        buffer(page).putInt(offset(page) + PAGE_NEXT, next);
+    }
+
+    private void setPrev(int page, int prev) {
+        buffer(page).putInt(offset(page) + PAGE_PREV, prev);
+    }
+
+    private long leafKey(int page, int index) {
+        return buffer(page).getLong(offset(page) + PAGE_HEADER + (index << 3));
+    }
+
+    private void setLeafKey(int page, int index, long key) {
+        buffer(page).putLong(offset(page) + PAGE_HEADER + (index << 3), key);
+    }
+
+    private long leafValue(int page, int index) {
+        return buffer(page).getLong(offset(page) + PAGE_HEADER + ((leafCapacity + index) << 3));
+    }
+
+    private void setLeafValue(int page, int index, long value) {
+        buffer(page).putLong(offset(page) + PAGE_HEADER + ((leafCapacity + index) << 3), value);
+    }
+
+    private long nodeKey(int page, int index) {
+        return buffer(page).getLong(offset(page) + PAGE_HEADER + (index << 3));
+    }
+
+    private void setNodeKey(int page, int index, long key) {
+        buffer(page).putLong(offset(page) + PAGE_HEADER + (index << 3), key);
+    }
+
+    private int child(int page, int index) {
+        return buffer(page).getInt(offset(page) + PAGE_HEADER + (nodeCapacity << 3) + (index << 2));
+    }
+
+    private void setChild(int page, int index, int child) {
+        buffer(page).putInt(offset(page) + PAGE_HEADER + (nodeCapacity << 3) + (index << 2), child);
+    }
+
+}
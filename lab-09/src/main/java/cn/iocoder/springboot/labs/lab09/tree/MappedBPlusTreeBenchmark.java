@@ -0,0 +1,103 @@
+package cn.iocoder.springboot.labs.lab09.tree;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * {@link MappedBPlusTree} 的性能测试：逐个插入和批量加载，以及加载后的单点查询、范围查询。
+ *
+ * 可通过参数指定数据量和页大小，例如：java MappedBPlusTreeBenchmark 10000000 16384
+ */
+public class MappedBPlusTreeBenchmark {
+
+    private static final int LOOKUPS = 1_000_000;
+
+    private static final int SCANS = 10_000;
+
+    /**
+     * 每次范围查询的 key 跨度
+     */
+    private static final int SCAN_RANGE = 1_000;
+
+    private static final double BULK_LOAD_FILL_FACTOR = 0.9;
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int pageSize = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+
+        // 打乱顺序的 key
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = i;
+        }
+        Random random = new Random(0);
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+        }
+
+        // 逐个插入
+        Path file = Files.createTempFile("bplustree", ".idx");
+        Files.delete(file);
+        try (MappedBPlusTree tree = MappedBPlusTree.open(file, pageSize)) {
+            long start = System.nanoTime();
+            for (long key : keys) {
+                tree.put(key, key);
+            }
+            tree.flush();
+            print("随机插入", start, count);
+            query(tree, count, random);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        // 批量加载，先排序，再自底向上构建
+        file = Files.createTempFile("bplustree", ".idx");
+        Files.delete(file);
+        try (MappedBPlusTree tree = MappedBPlusTree.open(file, pageSize)) {
+            long start = System.nanoTime();
+            long[] sortedKeys = keys.clone();
+            Arrays.sort(sortedKeys);
+            tree.bulkLoad(MappedBPlusTree.EntryCursor.of(sortedKeys, sortedKeys), BULK_LOAD_FILL_FACTOR);
+            tree.flush();
+            print("批量加载", start, count);
+            query(tree, count, random);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void query(MappedBPlusTree tree, int count, Random random) {
+        System.out.println(String.format("树高：%d，页数：%d", tree.height(), tree.pageCount()));
+
+        // 单点查询
+        long start = System.nanoTime();
+        long hits = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (tree.containsKey(random.nextInt(count))) {
+                hits++;
+            }
+        }
+        print("单点查询（命中 " + hits + "）", start, LOOKUPS);
+
+        // 范围查询
+        start = System.nanoTime();
+        long visited = 0;
+        for (int i = 0; i < SCANS; i++) {
+            long from = random.nextInt(count);
+            visited += tree.scan(from, from + SCAN_RANGE, (key, value) -> true);
+        }
+        print("范围查询（共 " + visited + " 条）", start, visited);
+    }
+
+    private static void print(String name, long start, long ops) {
+        long nanos = System.nanoTime() - start;
+        System.out.println(String.format("%-24s 耗时：%6d ms，%6d ns/op", name, nanos / 1_000_000, nanos / Math.max(ops, 1)));
+    }
+
+}
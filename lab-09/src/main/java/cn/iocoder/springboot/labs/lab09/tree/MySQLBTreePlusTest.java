@@ -2,6 +2,8 @@ package cn.iocoder.springboot.labs.lab09.tree;
 
 /**
  * MySQL B+Tree
+ *
+ * 完整的、基于内存映射文件的实现，见 {@link MappedBPlusTree} 。
  */
 public class MySQLBTreePlusTest {
 